@@ -1,67 +1,208 @@
 package crud;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import crud.controller.PedidoController;
 import crud.controller.ProdutoController;
+import crud.exception.RespostaInterrompidaException;
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.persistence.ConfiguracaoDePersistencia;
+import crud.repository.EntityStore;
 import crud.repository.PedidoRepository;
 import crud.repository.ProdutoRepository;
+import crud.repository.RepositorioDePedidos;
+import crud.repository.RepositorioDeProdutos;
+import crud.repository.ShardedPedidoRepository;
+import crud.repository.ShardedProdutoRepository;
 import crud.service.PedidoService;
 import crud.service.ProdutoService;
 import io.javalin.Javalin;
 import io.javalin.http.staticfiles.Location;
 import io.javalin.json.JsonMapper;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.eclipse.jetty.server.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 public class Main {
+    private static final Logger LOG = LoggerFactory.getLogger(Main.class);
+
+    // Inicializados na primeira chamada de startServer, que recupera os dados persistidos.
+    // Armazenamento: em memória por padrão, log de escrita com -Dcrud.armazenamento=wal
+    // ou banco H2 embarcado com -Dcrud.armazenamento=sql. Um armazenamento por fatia (crud.shards)
+    private static ConfiguracaoDePersistencia persistencia;
+    private static List<EntityStore<Produto>> produtoStores;
+    private static List<EntityStore<Pedido>> pedidoStores;
+
     // Repositórios compartilhados
-    private static final ProdutoRepository produtoRepository = new ProdutoRepository();
-    private static final PedidoRepository pedidoRepository = new PedidoRepository();
-    
+    private static RepositorioDeProdutos produtoRepository;
+    private static RepositorioDePedidos pedidoRepository;
+
     // Services
-    private static final ProdutoService produtoService = new ProdutoService(produtoRepository);
-    private static final PedidoService pedidoService = new PedidoService(pedidoRepository, produtoRepository);
-    
+    private static ProdutoService produtoService;
+    private static PedidoService pedidoService;
+
     // Controllers
-    private static final ProdutoController produtoController = new ProdutoController(produtoService);
-    private static final PedidoController pedidoController = new PedidoController(pedidoService);
+    private static ProdutoController produtoController;
+    private static PedidoController pedidoController;
 
     public static void main(String[] args) {
+        // Garante o fsync do que estiver pendente ao encerrar o processo
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::encerrar));
         startServer();
     }
 
+    /**
+     * Recupera os repositórios (snapshot mais a cauda do log, no modo durável) e
+     * monta services e controllers. Só roda uma vez por processo.
+     */
+    private static synchronized void inicializar() {
+        if (produtoRepository != null) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        persistencia = ConfiguracaoDePersistencia.doSistema();
+        produtoStores = persistencia.abrirFatiasDeProdutos();
+        pedidoStores = persistencia.abrirFatiasDePedidos();
+        produtoRepository = repositorioDeProdutos(produtoStores);
+        pedidoRepository = repositorioDePedidos(pedidoStores);
+        // Com fatias, os snapshots de todas gravam a marca d'água do repositório dividido
+        for (int i = 0; i < produtoStores.size(); i++) {
+            persistencia.agendarSnapshots(nomeDaFatia("produtos", i), produtoStores.get(i), produtoRepository::proximoId);
+        }
+        for (int i = 0; i < pedidoStores.size(); i++) {
+            persistencia.agendarSnapshots(nomeDaFatia("pedidos", i), pedidoStores.get(i), pedidoRepository::proximoId);
+        }
+
+        produtoService = new ProdutoService(produtoRepository);
+        pedidoService = new PedidoService(pedidoRepository, produtoRepository, persistencia.bancoMvcc());
+        produtoController = new ProdutoController(produtoService);
+        pedidoController = new PedidoController(pedidoService);
+
+        if (persistencia.isDuravel()) {
+            LOG.info("Dados recuperados em {} ms: {} produtos e {} pedidos ({} registros do log reproduzidos)",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+                    produtoStores.stream().mapToInt(EntityStore::size).sum(),
+                    pedidoStores.stream().mapToInt(EntityStore::size).sum(),
+                    produtoStores.stream().mapToLong(persistencia::registrosReproduzidos).sum()
+                            + pedidoStores.stream().mapToLong(persistencia::registrosReproduzidos).sum());
+        }
+    }
+
+    /**
+     * Um {@link ProdutoRepository} sobre o armazenamento, ou um
+     * {@link ShardedProdutoRepository} com um por fatia.
+     */
+    private static RepositorioDeProdutos repositorioDeProdutos(List<EntityStore<Produto>> stores) {
+        List<ProdutoRepository> fatias = new ArrayList<>(stores.size());
+        long proximoId = 0;
+        for (EntityStore<Produto> store : stores) {
+            long recuperado = persistencia.proximoIdRecuperado(store);
+            fatias.add(new ProdutoRepository(store, recuperado, persistencia.novosArmazenamentosDeProdutos()));
+            proximoId = Math.max(proximoId, recuperado);
+        }
+        return fatias.size() == 1 ? fatias.get(0) : new ShardedProdutoRepository(fatias, proximoId);
+    }
+
+    /**
+     * Um {@link PedidoRepository} sobre o armazenamento, ou um
+     * {@link ShardedPedidoRepository} com um por fatia.
+     */
+    private static RepositorioDePedidos repositorioDePedidos(List<EntityStore<Pedido>> stores) {
+        List<PedidoRepository> fatias = new ArrayList<>(stores.size());
+        long proximoId = 0;
+        for (EntityStore<Pedido> store : stores) {
+            long recuperado = persistencia.proximoIdRecuperado(store);
+            fatias.add(new PedidoRepository(store, recuperado, persistencia.novosArmazenamentosDePedidos()));
+            proximoId = Math.max(proximoId, recuperado);
+        }
+        return fatias.size() == 1 ? fatias.get(0) : new ShardedPedidoRepository(fatias, proximoId);
+    }
+
+    private static String nomeDaFatia(String nome, int fatia) {
+        return persistencia.fatias() == 1 ? nome : nome + "-" + fatia;
+    }
+
+    private static synchronized void encerrar() {
+        if (persistencia == null) {
+            return;
+        }
+        persistencia.encerrarSnapshots();
+        produtoStores.forEach(EntityStore::close);
+        pedidoStores.forEach(EntityStore::close);
+    }
+
+    /**
+     * Trata falhas no meio de um ctx.writeJsonStream. Enquanto a resposta está só no
+     * buffer do servidor, ela é descartada e vira um 500 com a mensagem de erro. Se
+     * parte dela já foi enviada, o status 200 não pode mais mudar: a conexão é
+     * abortada, e o cliente recebe uma resposta incompleta em vez de uma lista que
+     * parece completa.
+     */
+    public static void tratarFalhasEmStream(Javalin app) {
+        app.exception(RespostaInterrompidaException.class, (e, ctx) -> {
+            LOG.error("Falha ao escrever a resposta de {}", ctx.path(), e);
+            if (ctx.res().isCommitted()) {
+                Request.getBaseRequest(ctx.req()).getHttpChannel().abort(e);
+            } else {
+                ctx.res().resetBuffer();
+                ctx.status(500).json(java.util.Map.of("message", "Erro ao listar os registros."));
+            }
+        });
+    }
+
     /**
      * Inicia o servidor Javalin e configura todas as rotas dos sistemas integrados.
      * 
      * @return Instância do servidor Javalin
      */
     public static Javalin startServer() {
+        inicializar();
+
         Javalin app = Javalin.create(config -> {
             config.staticFiles.add("/public", Location.CLASSPATH);
             config.jsonMapper(new JavalinJackson());
         }).start(7000);
+        tratarFalhasEmStream(app);
 
         // Rotas do sistema de Produtos
         app.get("/api/produtos", produtoController::buscarTodos);
-        app.get("/api/produtos/{id}", produtoController::buscarPorId);
-        app.post("/api/produtos", produtoController::criarProduto);
-        app.put("/api/produtos/{id}", produtoController::atualizarProduto);
-        app.delete("/api/produtos/{id}", produtoController::deletarProduto);
+        // Rotas em lote e deleteall antes das com {id}, que também casariam com elas
+        app.post("/api/produtos/lote", produtoController::salvarLote);
+        app.delete("/api/produtos/lote", produtoController::deletarLote);
         app.delete("/api/produtos/deleteall", ctx -> {
             produtoRepository.deleteAll();
             ctx.status(200).json(java.util.Map.of("message", "Repositório de produtos limpo."));
         });
+        app.get("/api/produtos/{id}", produtoController::buscarPorId);
+        app.post("/api/produtos", produtoController::criarProduto);
+        app.put("/api/produtos/{id}", produtoController::atualizarProduto);
+        app.delete("/api/produtos/{id}", produtoController::deletarProduto);
 
         // Rotas do sistema de Pedidos (integração)
         app.get("/api/pedidos", pedidoController::buscarTodos);
-        app.get("/api/pedidos/{id}", pedidoController::buscarPorId);
-        app.post("/api/pedidos", pedidoController::criarPedido);
-        app.put("/api/pedidos/{id}", pedidoController::atualizarPedido);
-        app.delete("/api/pedidos/{id}", pedidoController::deletarPedido);
+        app.post("/api/pedidos/lote", pedidoController::salvarLote);
+        app.delete("/api/pedidos/lote", pedidoController::deletarLote);
         app.delete("/api/pedidos/deleteall", ctx -> {
             pedidoRepository.deleteAll();
             ctx.status(200).json(java.util.Map.of("message", "Repositório de pedidos limpo."));
         });
+        app.get("/api/pedidos/{id}", pedidoController::buscarPorId);
+        app.post("/api/pedidos", pedidoController::criarPedido);
+        app.put("/api/pedidos/{id}", pedidoController::atualizarPedido);
+        app.delete("/api/pedidos/{id}", pedidoController::deletarPedido);
+
+        // Relatórios que cruzam produtos e pedidos
+        app.get("/api/relatorios/estoque", pedidoController::relatorioDeEstoque);
 
         return app;
     }
@@ -87,5 +228,24 @@ public class Main {
                 throw new RuntimeException("Erro ao serializar JSON", e);
             }
         }
+
+        /**
+         * Usado por ctx.writeJsonStream: escreve um array JSON elemento a elemento.
+         * O array só é fechado depois do último elemento; uma falha no meio sai como
+         * {@link RespostaInterrompidaException}, tratada em {@link #tratarFalhasEmStream}.
+         */
+        @Override
+        public void writeToOutputStream(Stream<?> stream, OutputStream saida) {
+            try (stream) {
+                SequenceWriter escritor = mapper.writer().writeValuesAsArray(saida);
+                Iterator<?> elementos = stream.iterator();
+                while (elementos.hasNext()) {
+                    escritor.write(elementos.next());
+                }
+                escritor.close();
+            } catch (IOException | RuntimeException e) {
+                throw new RespostaInterrompidaException("Erro ao escrever a lista em JSON.", e);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -5,10 +5,17 @@ import crud.exception.ValidacaoException;
 import crud.model.Pedido;
 import crud.service.PedidoService;
 import io.javalin.http.Context;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Map;
 
 
 public class PedidoController {
+    private static final int LIMITE_PADRAO_DE_PAGINA = 100;
+
     private final PedidoService service;
     
     public PedidoController(PedidoService service) {
@@ -16,10 +23,56 @@ public class PedidoController {
     }
     
     // GET /api/pedidos
+    // Filtros opcionais: ?cliente={nome} e ?de={data}&ate={data}
+    // Sem filtros, ?limit={n}&cursor={id} pagina por ID e responde {itens, proximoCursor}
     public void buscarTodos(Context ctx) {
-        ctx.json(service.buscarTodos());
+        try {
+            String cliente = ctx.queryParam("cliente");
+            if (cliente != null) {
+                ctx.json(service.buscarPorCliente(cliente));
+                return;
+            }
+
+            LocalDateTime de = parametroData(ctx, "de", false);
+            LocalDateTime ate = parametroData(ctx, "ate", true);
+            if (de != null || ate != null) {
+                ctx.json(service.buscarPorPeriodo(de, ate));
+                return;
+            }
+
+            String limit = ctx.queryParam("limit");
+            String cursor = ctx.queryParam("cursor");
+            if (limit != null || cursor != null) {
+                ctx.json(service.buscarPagina(
+                        cursor == null || cursor.isBlank() ? null : Long.valueOf(cursor.trim()),
+                        limit == null || limit.isBlank() ? LIMITE_PADRAO_DE_PAGINA : Integer.parseInt(limit.trim())));
+                return;
+            }
+
+            // Sem filtros, os itens vão direto do repositório para a resposta, sem lista intermediária
+            ctx.writeJsonStream(service.buscarTodosComoStream());
+        } catch (ValidacaoException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            ctx.status(400).json(Map.of("message", "Parâmetros de consulta inválidos."));
+        }
     }
-    
+
+    // Aceita data e hora ISO (2024-01-31T10:15) ou só a data (2024-01-31),
+    // que vale como início do dia em "de" e fim do dia em "ate"
+    private LocalDateTime parametroData(Context ctx, String nome, boolean fimDoDia) {
+        String valor = ctx.queryParam(nome);
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        valor = valor.trim();
+        if (valor.indexOf('T') < 0) {
+            LocalDate data = LocalDate.parse(valor);
+            return fimDoDia ? data.atTime(LocalTime.MAX) : data.atStartOfDay();
+        }
+        return LocalDateTime.parse(valor);
+    }
+
     // GET /api/pedidos/{id}
     public void buscarPorId(Context ctx) {
         try {
@@ -75,5 +128,37 @@ public class PedidoController {
             ctx.status(400).json(Map.of("message", "ID inválido."));
         }
     }
-}
 
+    // POST /api/pedidos/lote
+    // Corpo: array de pedidos; os sem ID são criados e os com ID substituem o existente.
+    // Responde 200 com um resultado por item ({indice, status, item, message}), na ordem recebida
+    public void salvarLote(Context ctx) {
+        try {
+            Pedido[] lote = ctx.bodyAsClass(Pedido[].class);
+            ctx.status(200).json(service.salvarLote(Arrays.asList(lote)));
+        } catch (ValidacaoException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(400).json(Map.of("message", "Dados inválidos ou formato incorreto."));
+        }
+    }
+
+    // DELETE /api/pedidos/lote
+    // Corpo: array de IDs. Responde 200 com um resultado por ID, na ordem recebida
+    public void deletarLote(Context ctx) {
+        try {
+            Long[] ids = ctx.bodyAsClass(Long[].class);
+            ctx.status(200).json(service.deletarLote(Arrays.asList(ids)));
+        } catch (ValidacaoException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(400).json(Map.of("message", "Dados inválidos ou formato incorreto."));
+        }
+    }
+
+    // GET /api/relatorios/estoque
+    // Estoque atual e quantidade pedida de cada produto
+    public void relatorioDeEstoque(Context ctx) {
+        ctx.json(service.relatorioDeEstoque());
+    }
+}
@@ -5,9 +5,12 @@ import crud.exception.ValidacaoException;
 import crud.model.Produto;
 import crud.service.ProdutoService;
 import io.javalin.http.Context;
+import java.util.Arrays;
 import java.util.Map;
 
 public class ProdutoController {
+    private static final int LIMITE_PADRAO_DE_PAGINA = 100;
+
     private final ProdutoService service;
 
     public ProdutoController(ProdutoService service) {
@@ -15,8 +18,46 @@ public class ProdutoController {
     }
 
     // GET /api/produtos
+    // Filtros opcionais: ?q={termo}, ?precoMin={x}&precoMax={y} e ?maisBaratos={n}
+    // Sem filtros, ?limit={n}&cursor={id} pagina por ID e responde {itens, proximoCursor}
     public void buscarTodos(Context ctx) {
-        ctx.json(service.buscarTodos());
+        try {
+            String termo = ctx.queryParam("q");
+            if (termo != null && !termo.isBlank()) {
+                ctx.json(service.buscarPorNome(termo));
+                return;
+            }
+
+            Double precoMin = parametroDouble(ctx, "precoMin");
+            Double precoMax = parametroDouble(ctx, "precoMax");
+            String maisBaratos = ctx.queryParam("maisBaratos");
+            Integer quantidade = maisBaratos == null || maisBaratos.isBlank() ? null : Integer.valueOf(maisBaratos.trim());
+            if (precoMin != null || precoMax != null || quantidade != null) {
+                ctx.json(service.buscarPorFaixaDePreco(precoMin, precoMax, quantidade));
+                return;
+            }
+
+            String limit = ctx.queryParam("limit");
+            String cursor = ctx.queryParam("cursor");
+            if (limit != null || cursor != null) {
+                ctx.json(service.buscarPagina(
+                        cursor == null || cursor.isBlank() ? null : Long.valueOf(cursor.trim()),
+                        limit == null || limit.isBlank() ? LIMITE_PADRAO_DE_PAGINA : Integer.parseInt(limit.trim())));
+                return;
+            }
+
+            // Sem filtros, os itens vão direto do repositório para a resposta, sem lista intermediária
+            ctx.writeJsonStream(service.buscarTodosComoStream());
+        } catch (ValidacaoException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("message", "Parâmetros de consulta inválidos."));
+        }
+    }
+
+    private Double parametroDouble(Context ctx, String nome) {
+        String valor = ctx.queryParam(nome);
+        return valor == null || valor.isBlank() ? null : Double.valueOf(valor.trim());
     }
 
     // GET /api/produtos/{id}
@@ -83,4 +124,31 @@ public class ProdutoController {
             ctx.status(400).json(Map.of("message", "ID inválido."));
         }
     }
-}
\ No newline at end of file
+
+    // POST /api/produtos/lote
+    // Corpo: array de produtos; os sem ID são criados e os com ID substituem o existente.
+    // Responde 200 com um resultado por item ({indice, status, item, message}), na ordem recebida
+    public void salvarLote(Context ctx) {
+        try {
+            Produto[] lote = ctx.bodyAsClass(Produto[].class);
+            ctx.status(200).json(service.salvarLote(Arrays.asList(lote)));
+        } catch (ValidacaoException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(400).json(Map.of("message", "Dados inválidos ou formato incorreto."));
+        }
+    }
+
+    // DELETE /api/produtos/lote
+    // Corpo: array de IDs. Responde 200 com um resultado por ID, na ordem recebida
+    public void deletarLote(Context ctx) {
+        try {
+            Long[] ids = ctx.bodyAsClass(Long[].class);
+            ctx.status(200).json(service.deletarLote(Arrays.asList(ids)));
+        } catch (ValidacaoException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(400).json(Map.of("message", "Dados inválidos ou formato incorreto."));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package crud.exception;
+
+public class PersistenciaException extends RuntimeException {
+    public PersistenciaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package crud.exception;
+
+/**
+ * Falha ao escrever uma resposta em stream, depois que os primeiros elementos
+ * podem já ter sido enviados ao cliente.
+ */
+public class RespostaInterrompidaException extends RuntimeException {
+    public RespostaInterrompidaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,21 +1,26 @@
 package crud.model;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
 
 public class ItemPedido {
     private final Produto produto;
-    private final Integer quantidade;
+    private final int quantidade;
     
     public ItemPedido(Produto produto, Integer quantidade) {
+        validar(produto, quantidade == null ? 0 : quantidade);
+        this.produto = produto;
+        this.quantidade = quantidade;
+    }
+
+    static void validar(Produto produto, int quantidade) {
         if (produto == null) {
             throw new IllegalArgumentException("Produto não pode ser nulo");
         }
-        if (quantidade == null || quantidade <= 0) {
+        if (quantidade <= 0) {
             throw new IllegalArgumentException("Quantidade deve ser maior que zero");
         }
-        this.produto = produto;
-        this.quantidade = quantidade;
     }
     
     public Produto getProduto() {
@@ -25,10 +30,42 @@ public class ItemPedido {
     public Integer getQuantidade() {
         return quantidade;
     }
+
+    /**
+     * Quantidade sem boxing.
+     */
+    public int quantidade() {
+        return quantidade;
+    }
     
     
     public Double getSubtotal() {
-        return produto.getPreco() * quantidade;
+        return subtotal();
+    }
+
+    /**
+     * Subtotal sem boxing.
+     */
+    public double subtotal() {
+        return subtotalExato().doubleValue();
+    }
+
+    /**
+     * Subtotal em aritmética decimal exata, como o {@link Pedido} soma: preços com
+     * frações de centavo não são arredondados nem acumulam erro de double.
+     */
+    public BigDecimal subtotalExato() {
+        return subtotalExato(produto, quantidade);
+    }
+
+    /**
+     * Preço do produto vezes a quantidade; produto sem preço conta como zero.
+     */
+    static BigDecimal subtotalExato(Produto produto, int quantidade) {
+        if (!produto.temPreco()) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(produto.preco()).multiply(BigDecimal.valueOf(quantidade));
     }
     
     @Override
@@ -37,7 +74,7 @@ public class ItemPedido {
         if (o == null || getClass() != o.getClass()) return false;
         ItemPedido that = (ItemPedido) o;
         return Objects.equals(produto, that.produto) && 
-               Objects.equals(quantidade, that.quantidade);
+               quantidade == that.quantidade;
     }
     
     @Override
@@ -49,7 +86,7 @@ public class ItemPedido {
     public String toString() {
         return "ItemPedido{produto=" + produto.getNome() + 
                ", quantidade=" + quantidade + 
-               ", subtotal=" + getSubtotal() + "}";
+               ", subtotal=" + subtotal() + "}";
     }
 }
 
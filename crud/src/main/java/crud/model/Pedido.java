@@ -1,36 +1,73 @@
 package crud.model;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
+/**
+ * Pedido de um cliente, com itens em ordem de inclusão.
+ * <p>
+ * Os itens ficam em colunas paralelas (produto e quantidade), não em objetos
+ * {@link ItemPedido}: uma linha custa uma referência e um int, e o produto é a
+ * instância compartilhada da sua versão quando o pedido passa pelo repositório. Os {@code ItemPedido} da API são montados na
+ * leitura, com os mesmos valores e o mesmo JSON.
+ */
 public class Pedido {
-    private Long id;
+    /** ID ausente: o pedido ainda não foi salvo. getId devolve null nesse caso. */
+    public static final long SEM_ID = Long.MIN_VALUE;
+
+    private long id = SEM_ID;
     private String cliente;
-    private final List<ItemPedido> itens;
+    private Produto[] produtos = new Produto[0];
+    private int[] quantidades = new int[0];
+    private int quantidadeDeItens;
+    // Visão somente leitura devolvida por getItens, criada uma vez por pedido
+    private final Itens visaoDosItens = new Itens();
+    // Mantido por adicionarItem e removerItem, para getTotal não percorrer os itens.
+    // Decimal exato: preços com frações de centavo somam como no cálculo item a item
+    private BigDecimal total = BigDecimal.ZERO;
     private LocalDateTime dataCriacao;
     
     public Pedido() {
-        this.itens = new ArrayList<>();
         this.dataCriacao = LocalDateTime.now();
     }
     
     public Pedido(String cliente) {
         this.cliente = cliente;
-        this.itens = new ArrayList<>();
         this.dataCriacao = LocalDateTime.now();
     }
     
     public Long getId() {
-        return id;
+        return temId() ? id : null;
     }
     
     public void setId(Long id) {
+        this.id = id == null ? SEM_ID : id;
+    }
+
+    /**
+     * ID sem boxing, ou {@link #SEM_ID}.
+     */
+    public long id() {
+        return id;
+    }
+
+    /**
+     * Como {@link #setId(Long)}, sem boxing. Não se chama setId para o Jackson não
+     * ver dois setters da mesma propriedade.
+     */
+    public void atribuirId(long id) {
         this.id = id;
     }
+
+    public boolean temId() {
+        return id != SEM_ID;
+    }
     
     public String getCliente() {
         return cliente;
@@ -41,8 +78,50 @@ public class Pedido {
     }
     
     
+    /**
+     * Visão somente leitura dos itens, sem cópia das colunas: cada get monta o
+     * item, e a visão reflete itens adicionados ou removidos depois. Quem precisa
+     * de um retrato fixo deve copiá-la.
+     */
     public List<ItemPedido> getItens() {
-        return Collections.unmodifiableList(new ArrayList<>(itens));
+        return visaoDosItens;
+    }
+
+    public int quantidadeDeItens() {
+        return quantidadeDeItens;
+    }
+
+    /**
+     * Item na posição, montado a partir das colunas.
+     */
+    public ItemPedido item(int indice) {
+        verificarIndice(indice);
+        return new ItemPedido(produtos[indice], quantidades[indice]);
+    }
+
+    /**
+     * Produto do item na posição, sem montar o {@link ItemPedido}.
+     */
+    public Produto produtoDoItem(int indice) {
+        verificarIndice(indice);
+        return produtos[indice];
+    }
+
+    /**
+     * Quantidade do item na posição, sem montar o {@link ItemPedido}.
+     */
+    public int quantidadeDoItem(int indice) {
+        verificarIndice(indice);
+        return quantidades[indice];
+    }
+
+    /**
+     * Percorre os itens na ordem em que foram adicionados, sem alocar iterador.
+     */
+    public void paraCadaItem(Consumer<? super ItemPedido> acao) {
+        for (int i = 0; i < quantidadeDeItens; i++) {
+            acao.accept(item(i));
+        }
     }
     
   
@@ -50,22 +129,125 @@ public class Pedido {
         if (item == null) {
             throw new IllegalArgumentException("Item não pode ser nulo");
         }
-        itens.add(item);
+        acrescentar(item.getProduto(), item.quantidade());
+    }
+
+    /**
+     * Como {@link #adicionarItem(ItemPedido)}, sem criar o item.
+     */
+    public void adicionarItem(Produto produto, int quantidade) {
+        ItemPedido.validar(produto, quantidade);
+        acrescentar(produto, quantidade);
+    }
+
+    /**
+     * Acrescenta todos os itens de outro pedido, copiando as colunas direto.
+     */
+    public void adicionarItensDe(Pedido outro) {
+        int quantidade = outro.quantidadeDeItens;
+        garantirCapacidade(quantidadeDeItens + quantidade);
+        System.arraycopy(outro.produtos, 0, produtos, quantidadeDeItens, quantidade);
+        System.arraycopy(outro.quantidades, 0, quantidades, quantidadeDeItens, quantidade);
+        quantidadeDeItens += quantidade;
+        total = total.add(outro.total);
+        visaoDosItens.alterada();
+    }
+
+    private void acrescentar(Produto produto, int quantidade) {
+        garantirCapacidade(quantidadeDeItens + 1);
+        produtos[quantidadeDeItens] = produto;
+        quantidades[quantidadeDeItens] = quantidade;
+        quantidadeDeItens++;
+        total = total.add(ItemPedido.subtotalExato(produto, quantidade));
+        visaoDosItens.alterada();
+    }
+
+    private void garantirCapacidade(int capacidade) {
+        if (capacidade > produtos.length) {
+            int novaCapacidade = Math.max(capacidade, Math.max(4, produtos.length * 2));
+            produtos = Arrays.copyOf(produtos, novaCapacidade);
+            quantidades = Arrays.copyOf(quantidades, novaCapacidade);
+        }
     }
     
     
     public void removerItem(int indice) {
-        if (indice < 0 || indice >= itens.size()) {
+        verificarIndice(indice);
+        total = total.subtract(ItemPedido.subtotalExato(produtos[indice], quantidades[indice]));
+        int depois = quantidadeDeItens - indice - 1;
+        System.arraycopy(produtos, indice + 1, produtos, indice, depois);
+        System.arraycopy(quantidades, indice + 1, quantidades, indice, depois);
+        produtos[--quantidadeDeItens] = null;
+        visaoDosItens.alterada();
+    }
+
+    private void verificarIndice(int indice) {
+        if (indice < 0 || indice >= quantidadeDeItens) {
             throw new IndexOutOfBoundsException("Índice inválido: " + indice);
         }
-        itens.remove(indice);
+    }
+
+    /**
+     * Troca o produto de cada item pelo que {@code canonico} devolver, mantendo a
+     * quantidade. Feito para instâncias equivalentes da mesma versão do produto
+     * (ver {@code ProdutoInterner}), então o total não muda.
+     */
+    public void substituirProdutos(UnaryOperator<Produto> canonico) {
+        for (int i = 0; i < quantidadeDeItens; i++) {
+            produtos[i] = canonico.apply(produtos[i]);
+        }
+    }
+
+    /**
+     * O pedido com o produto de cada item trocado pelo que {@code canonico}
+     * devolver, sem alterar este: se nenhum produto mudar, devolve o próprio
+     * pedido; senão, uma cópia com o mesmo ID, cliente e data de criação. Como em
+     * {@link #substituirProdutos}, o total não muda.
+     */
+    public Pedido comProdutos(UnaryOperator<Produto> canonico) {
+        Pedido copia = null;
+        for (int i = 0; i < quantidadeDeItens; i++) {
+            Produto produto = canonico.apply(produtos[i]);
+            if (produto != produtos[i]) {
+                if (copia == null) {
+                    copia = new Pedido(cliente);
+                    copia.id = id;
+                    copia.dataCriacao = dataCriacao;
+                    copia.adicionarItensDe(this);
+                }
+                copia.produtos[i] = produto;
+            }
+        }
+        return copia != null ? copia : this;
+    }
+
+    /**
+     * Remove todos os itens de uma vez, zerando o total.
+     */
+    public void limparItens() {
+        Arrays.fill(produtos, 0, quantidadeDeItens, null);
+        quantidadeDeItens = 0;
+        total = BigDecimal.ZERO;
+        visaoDosItens.alterada();
     }
     
    
     public Double getTotal() {
-        return itens.stream()
-                .mapToDouble(item -> item.getQuantidade() * item.getProduto().getPreco())
-                .sum();
+        return total();
+    }
+
+    /**
+     * Total sem boxing.
+     */
+    public double total() {
+        return total.doubleValue();
+    }
+
+    /**
+     * Total em aritmética decimal exata, atualizado a cada item adicionado ou removido.
+     */
+    public BigDecimal totalExato() {
+        return total;
     }
     
     public LocalDateTime getDataCriacao() {
@@ -81,18 +263,38 @@ public class Pedido {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Pedido pedido = (Pedido) o;
-        return Objects.equals(id, pedido.id);
+        return id == pedido.id;
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return 31 + (temId() ? Long.hashCode(id) : 0);
     }
     
     @Override
     public String toString() {
-        return "Pedido{id=" + id + ", cliente='" + cliente + "', total=" + getTotal() + 
-               ", itens=" + itens.size() + ", data=" + dataCriacao + "}";
+        return "Pedido{id=" + getId() + ", cliente='" + cliente + "', total=" + total() + 
+               ", itens=" + quantidadeDeItens + ", data=" + dataCriacao + "}";
+    }
+
+    /**
+     * Lista somente leitura sobre as colunas; iteradores falham rápido se o pedido
+     * mudar no meio, como os de ArrayList.
+     */
+    private final class Itens extends AbstractList<ItemPedido> implements RandomAccess {
+        @Override
+        public ItemPedido get(int indice) {
+            return item(indice);
+        }
+
+        @Override
+        public int size() {
+            return quantidadeDeItens;
+        }
+
+        void alterada() {
+            modCount++;
+        }
     }
 }
 
@@ -1,17 +1,30 @@
 package crud.model;
 
-import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Modelo imutável de Produto.
  * Segue o princípio de imutabilidade: uma vez criado, não pode ser modificado diretamente.
  * Para atualizações, deve-se criar uma nova instância.
+ * <p>
+ * Os campos são primitivos, com um valor reservado para "ausente" ({@link #SEM_ID},
+ * {@link #SEM_PRECO}, {@link #SEM_ESTOQUE}). Os getters continuam devolvendo null
+ * nesses casos, então o JSON não muda; {@link #id()}, {@link #preco()} e
+ * {@link #estoque()} dão o valor sem boxing para os caminhos quentes.
  */
 public class Produto {
-    private final Long id;
+    /** ID ausente: o produto ainda não foi salvo. */
+    public static final long SEM_ID = Long.MIN_VALUE;
+    /** Preço ausente. NaN nunca é um preço válido, então não colide com um valor real. */
+    public static final double SEM_PRECO = Double.NaN;
+    /** Estoque ausente. */
+    public static final int SEM_ESTOQUE = Integer.MIN_VALUE;
+
+    private final long id;
     private final String nome;
-    private final Double preco;
-    private final Integer estoque;
+    private final double preco;
+    private final int estoque;
 
     /**
      * Construtor para criação de novos produtos (sem ID).
@@ -25,7 +38,15 @@ public class Produto {
      * Construtor completo para criação de produtos com ID.
      * Usado internamente pelo repositório para criar instâncias imutáveis.
      */
-    public Produto(Long id, String nome, Double preco, Integer estoque) {
+    @JsonCreator
+    public Produto(@JsonProperty("id") Long id, @JsonProperty("nome") String nome,
+                   @JsonProperty("preco") Double preco, @JsonProperty("estoque") Integer estoque) {
+        this(id == null ? SEM_ID : id, nome,
+                preco == null ? SEM_PRECO : preco,
+                estoque == null ? SEM_ESTOQUE : estoque);
+    }
+
+    private Produto(long id, String nome, double preco, int estoque) {
         this.id = id;
         this.nome = nome;
         this.preco = preco;
@@ -33,19 +54,24 @@ public class Produto {
     }
 
     /**
-     * Construtor vazio para deserialização JSON.
+     * Cria um produto a partir dos valores primitivos, sem boxing. Campos ausentes
+     * usam {@link #SEM_ID}, {@link #SEM_PRECO} e {@link #SEM_ESTOQUE}.
+     */
+    public static Produto de(long id, String nome, double preco, int estoque) {
+        return new Produto(id, nome, preco, estoque);
+    }
+
+    /**
+     * Construtor vazio, com todos os campos ausentes.
      * @deprecated Use o construtor com parâmetros para garantir imutabilidade.
      */
     @Deprecated
     public Produto() {
-        this.id = null;
-        this.nome = null;
-        this.preco = null;
-        this.estoque = null;
+        this(SEM_ID, null, SEM_PRECO, SEM_ESTOQUE);
     }
 
     public Long getId() {
-        return id;
+        return temId() ? id : null;
     }
 
     public String getNome() {
@@ -53,18 +79,58 @@ public class Produto {
     }
 
     public Double getPreco() {
-        return preco;
+        return temPreco() ? preco : null;
     }
 
     public Integer getEstoque() {
+        return temEstoque() ? estoque : null;
+    }
+
+    /**
+     * ID sem boxing, ou {@link #SEM_ID}.
+     */
+    public long id() {
+        return id;
+    }
+
+    /**
+     * Preço sem boxing, ou {@link #SEM_PRECO}.
+     */
+    public double preco() {
+        return preco;
+    }
+
+    /**
+     * Estoque sem boxing, ou {@link #SEM_ESTOQUE}.
+     */
+    public int estoque() {
         return estoque;
     }
 
+    public boolean temId() {
+        return id != SEM_ID;
+    }
+
+    public boolean temPreco() {
+        return !Double.isNaN(preco);
+    }
+
+    public boolean temEstoque() {
+        return estoque != SEM_ESTOQUE;
+    }
+
     /**
      * Cria uma nova instância de Produto com ID atualizado.
      * Método de consulta que retorna nova instância imutável.
      */
     public Produto comId(Long novoId) {
+        return new Produto(novoId == null ? SEM_ID : novoId, this.nome, this.preco, this.estoque);
+    }
+
+    /**
+     * Como {@link #comId(Long)}, sem boxing.
+     */
+    public Produto comId(long novoId) {
         return new Produto(novoId, this.nome, this.preco, this.estoque);
     }
 
@@ -81,7 +147,7 @@ public class Produto {
      * Método de consulta que retorna nova instância imutável.
      */
     public Produto comPreco(Double novoPreco) {
-        return new Produto(this.id, this.nome, novoPreco, this.estoque);
+        return new Produto(this.id, this.nome, novoPreco == null ? SEM_PRECO : novoPreco, this.estoque);
     }
 
     /**
@@ -89,7 +155,7 @@ public class Produto {
      * Método de consulta que retorna nova instância imutável.
      */
     public Produto comEstoque(Integer novoEstoque) {
-        return new Produto(this.id, this.nome, this.preco, novoEstoque);
+        return new Produto(this.id, this.nome, this.preco, novoEstoque == null ? SEM_ESTOQUE : novoEstoque);
     }
 
     @Override
@@ -97,17 +163,17 @@ public class Produto {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Produto produto = (Produto) o;
-        return Objects.equals(id, produto.id);
+        return id == produto.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return 31 + (temId() ? Long.hashCode(id) : 0);
     }
 
     @Override
     public String toString() {
-        String precoFormatado = (preco != null) ? String.format("%.2f", preco).replace(".", ",") : "0,00";
-        return "ID: " + id + ", Nome: " + nome + ", Preço: " + precoFormatado + ", Estoque: " + estoque;
+        String precoFormatado = temPreco() ? String.format("%.2f", preco).replace(".", ",") : "0,00";
+        return "ID: " + getId() + ", Nome: " + nome + ", Preço: " + precoFormatado + ", Estoque: " + getEstoque();
     }
 }
\ No newline at end of file
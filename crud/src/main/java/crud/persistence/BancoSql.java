@@ -0,0 +1,109 @@
+package crud.persistence;
+
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.repository.EntityStore;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Banco SQL embarcado (H2 em arquivo, sem servidor externo) para produtos e pedidos.
+ * <p>
+ * Os repositórios usam o banco pelas visões {@link #produtos()} e {@link #pedidos()},
+ * que são {@link EntityStore}s comuns: os repositórios continuam cuidando dos IDs e
+ * dos índices em memória, e cada leitura ou escrita vira uma consulta com statements
+ * preparados e guardados em cache pelo {@link PoolDeConexoes}.
+ * <p>
+ * Tabelas:
+ * <ul>
+ *   <li>{@code produtos}: id, nome, preço e estoque</li>
+ *   <li>{@code pedidos}: id, cliente e data de criação, com índices em
+ *       {@code cliente} e {@code data_criacao} para consultas feitas direto no banco</li>
+ *   <li>{@code itens_pedido}: uma linha por item, removida junto com o pedido</li>
+ *   <li>{@code proximos_ids}: por tabela, o maior ID removido mais um (ver
+ *       {@link ProximoIdDuravel}), atualizado na mesma transação da remoção</li>
+ * </ul>
+ * A coluna {@code ordem}, preenchida por uma sequência na inserção, guarda a ordem
+ * de inserção que os armazenamentos precisam preservar.
+ */
+public class BancoSql implements AutoCloseable {
+    private static final String[] ESQUEMA = {
+            "CREATE SEQUENCE IF NOT EXISTS produtos_ordem",
+            "CREATE TABLE IF NOT EXISTS produtos ("
+                    + "id BIGINT PRIMARY KEY, ordem BIGINT NOT NULL, nome VARCHAR, preco DOUBLE PRECISION, estoque INTEGER)",
+            "CREATE INDEX IF NOT EXISTS produtos_por_ordem ON produtos (ordem)",
+            "CREATE SEQUENCE IF NOT EXISTS pedidos_ordem",
+            "CREATE TABLE IF NOT EXISTS pedidos ("
+                    + "id BIGINT PRIMARY KEY, ordem BIGINT NOT NULL, cliente VARCHAR, data_criacao TIMESTAMP(9))",
+            "CREATE INDEX IF NOT EXISTS pedidos_por_ordem ON pedidos (ordem)",
+            "CREATE INDEX IF NOT EXISTS pedidos_por_cliente ON pedidos (cliente)",
+            "CREATE INDEX IF NOT EXISTS pedidos_por_data ON pedidos (data_criacao)",
+            "CREATE TABLE IF NOT EXISTS itens_pedido ("
+                    + "pedido_id BIGINT NOT NULL REFERENCES pedidos (id) ON DELETE CASCADE,"
+                    + " posicao INTEGER NOT NULL, produto_id BIGINT, produto_nome VARCHAR,"
+                    + " produto_preco DOUBLE PRECISION, produto_estoque INTEGER, quantidade INTEGER NOT NULL,"
+                    + " PRIMARY KEY (pedido_id, posicao))",
+            "CREATE TABLE IF NOT EXISTS proximos_ids (tabela VARCHAR PRIMARY KEY, proximo BIGINT NOT NULL)",
+            "INSERT INTO proximos_ids SELECT 'produtos', 0 WHERE NOT EXISTS (SELECT 1 FROM proximos_ids WHERE tabela = 'produtos')",
+            "INSERT INTO proximos_ids SELECT 'pedidos', 0 WHERE NOT EXISTS (SELECT 1 FROM proximos_ids WHERE tabela = 'pedidos')"
+    };
+
+    private final PoolDeConexoes pool;
+    private final SqlProdutoStore produtos;
+    private final SqlPedidoStore pedidos;
+
+    private BancoSql(PoolDeConexoes pool) {
+        this.pool = pool;
+        this.produtos = new SqlProdutoStore(this, pool);
+        this.pedidos = new SqlPedidoStore(this, pool);
+    }
+
+    /**
+     * Abre o banco na URL JDBC, criando as tabelas que faltarem.
+     *
+     * @param conexoes Máximo de conexões abertas ao mesmo tempo
+     */
+    public static BancoSql abrir(String url, int conexoes, Duration espera) {
+        PoolDeConexoes pool = new PoolDeConexoes(url, conexoes, espera);
+        try {
+            pool.executar(conexao -> {
+                try (Statement statement = conexao.criarStatement()) {
+                    for (String comando : ESQUEMA) {
+                        statement.execute(comando);
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        return new BancoSql(pool);
+    }
+
+    /**
+     * URL do banco em arquivo dentro do diretório de dados. O fechamento fica a
+     * cargo da aplicação, que fecha os armazenamentos ao encerrar.
+     */
+    public static String urlNoDiretorio(Path diretorio) {
+        return "jdbc:h2:file:" + diretorio.toAbsolutePath().resolve("crud") + ";DB_CLOSE_ON_EXIT=FALSE";
+    }
+
+    public EntityStore<Produto> produtos() {
+        return produtos;
+    }
+
+    public EntityStore<Pedido> pedidos() {
+        return pedidos;
+    }
+
+    /**
+     * Fecha as conexões. Pode ser chamado mais de uma vez, por qualquer um dos
+     * armazenamentos.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,139 @@
+package crud.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+/**
+ * Leitura e escrita de campos anuláveis usadas pelos codecs.
+ * Cada campo é precedido por um byte de presença. Textos usam a mesma codificação
+ * do writeUTF (UTF-8 modificado, que preserva qualquer char, inclusive surrogates
+ * isolados), mas com tamanho em int, sem o limite de 64 KB.
+ */
+final class Binario {
+    private Binario() {
+    }
+
+    static void escreverTexto(DataOutput saida, String texto) throws IOException {
+        saida.writeBoolean(texto != null);
+        if (texto == null) {
+            return;
+        }
+        byte[] bytes = new byte[texto.length() * 3];
+        int tamanho = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x01 && c <= 0x7F) {
+                bytes[tamanho++] = (byte) c;
+            } else if (c <= 0x7FF) {
+                bytes[tamanho++] = (byte) (0xC0 | (c >> 6));
+                bytes[tamanho++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                bytes[tamanho++] = (byte) (0xE0 | (c >> 12));
+                bytes[tamanho++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[tamanho++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        saida.writeInt(tamanho);
+        saida.write(bytes, 0, tamanho);
+    }
+
+    static String lerTexto(DataInput entrada) throws IOException {
+        if (!entrada.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        char[] chars = new char[bytes.length];
+        int tamanho = 0;
+        for (int i = 0; i < bytes.length; ) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                chars[tamanho++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < bytes.length) {
+                chars[tamanho++] = (char) (((b & 0x1F) << 6) | (bytes[i + 1] & 0x3F));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < bytes.length) {
+                chars[tamanho++] = (char) (((b & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F));
+                i += 3;
+            } else {
+                throw new UTFDataFormatException("Texto malformado no registro.");
+            }
+        }
+        return new String(chars, 0, tamanho);
+    }
+
+    static void escreverLong(DataOutput saida, Long valor) throws IOException {
+        saida.writeBoolean(valor != null);
+        if (valor != null) {
+            saida.writeLong(valor);
+        }
+    }
+
+    static Long lerLong(DataInput entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readLong() : null;
+    }
+
+    /**
+     * Mesmo formato de {@link #escreverLong(DataOutput, Long)}, sem boxing.
+     */
+    static void escreverLong(DataOutput saida, boolean presente, long valor) throws IOException {
+        saida.writeBoolean(presente);
+        if (presente) {
+            saida.writeLong(valor);
+        }
+    }
+
+    /**
+     * Lê um long anulável sem boxing, devolvendo {@code ausente} no lugar de null.
+     */
+    static long lerLong(DataInput entrada, long ausente) throws IOException {
+        return entrada.readBoolean() ? entrada.readLong() : ausente;
+    }
+
+    static void escreverInt(DataOutput saida, Integer valor) throws IOException {
+        saida.writeBoolean(valor != null);
+        if (valor != null) {
+            saida.writeInt(valor);
+        }
+    }
+
+    static Integer lerInt(DataInput entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readInt() : null;
+    }
+
+    static void escreverInt(DataOutput saida, boolean presente, int valor) throws IOException {
+        saida.writeBoolean(presente);
+        if (presente) {
+            saida.writeInt(valor);
+        }
+    }
+
+    static int lerInt(DataInput entrada, int ausente) throws IOException {
+        return entrada.readBoolean() ? entrada.readInt() : ausente;
+    }
+
+    static void escreverDouble(DataOutput saida, Double valor) throws IOException {
+        saida.writeBoolean(valor != null);
+        if (valor != null) {
+            saida.writeDouble(valor);
+        }
+    }
+
+    static Double lerDouble(DataInput entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readDouble() : null;
+    }
+
+    static void escreverDouble(DataOutput saida, boolean presente, double valor) throws IOException {
+        saida.writeBoolean(presente);
+        if (presente) {
+            saida.writeDouble(valor);
+        }
+    }
+
+    static double lerDouble(DataInput entrada, double ausente) throws IOException {
+        return entrada.readBoolean() ? entrada.readDouble() : ausente;
+    }
+}
@@ -0,0 +1,16 @@
+package crud.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializa uma entidade em formato binário compacto para o log de escrita.
+ *
+ * @param <T> Tipo da entidade
+ */
+public interface Codec<T> {
+    void escrever(T valor, DataOutput saida) throws IOException;
+
+    T ler(DataInput entrada) throws IOException;
+}
@@ -0,0 +1,369 @@
+package crud.persistence;
+
+import crud.exception.PersistenciaException;
+import crud.model.Produto;
+import crud.repository.AgregadosDeProduto;
+import crud.repository.EntityStore;
+import crud.repository.LongObjConsumer;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Armazenamento colunar de produtos em arquivos mapeados em memória.
+ * <p>
+ * Cada atributo fica em uma coluna própria de tipo primitivo ({@code id}, preço,
+ * estoque, código do nome e flags), uma linha por produto na ordem de inserção.
+ * O nome é codificado por dicionário: a coluna guarda um int e cada nome distinto
+ * aparece uma vez só no heap. Agregações como {@link #valorTotalEmEstoque()}
+ * percorrem só as colunas necessárias, com dados contíguos e sem criar objetos, e
+ * as colunas ficam no cache de páginas do sistema, não no heap.
+ * <p>
+ * Os arquivos são área de trabalho: são recriados vazios ao abrir e apagados no
+ * {@link #close()}. A durabilidade vem de envolver este armazenamento em um
+ * {@link WalEntityStore}. Cada coluna é um único mapeamento, o que limita o
+ * armazenamento a cerca de 268 milhões de linhas.
+ * <p>
+ * Remoções marcam a linha como apagada; quando metade das linhas está apagada,
+ * as colunas são compactadas. Leituras compartilham uma trava de leitura e
+ * escritas são exclusivas.
+ */
+public class ColumnarProdutoStore implements EntityStore<Produto>, AgregadosDeProduto {
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final int COMPACTACAO_MINIMA = 1024;
+
+    private static final byte VIVO = 1;
+    private static final byte PRECO_PRESENTE = 2;
+    private static final byte ESTOQUE_PRESENTE = 4;
+    private static final int SEM_NOME = -1;
+
+    private final Path diretorio;
+    private final Coluna ids;
+    private final Coluna precos;
+    private final Coluna estoques;
+    private final Coluna nomes;
+    private final Coluna flags;
+    private final Coluna[] colunas;
+
+    private final LongIntHashMap linhaPorId = new LongIntHashMap();
+    private final List<String> dicionario = new ArrayList<>();
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private int linhas;
+    private int removidas;
+    private int capacidade;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ColumnarProdutoStore(Path diretorio) throws IOException {
+        this.diretorio = diretorio;
+        Files.createDirectories(diretorio);
+        this.ids = new Coluna(diretorio.resolve("produtos-id.col"), Long.BYTES);
+        this.precos = new Coluna(diretorio.resolve("produtos-preco.col"), Double.BYTES);
+        this.estoques = new Coluna(diretorio.resolve("produtos-estoque.col"), Integer.BYTES);
+        this.nomes = new Coluna(diretorio.resolve("produtos-nome.col"), Integer.BYTES);
+        this.flags = new Coluna(diretorio.resolve("produtos-flags.col"), 1);
+        this.colunas = new Coluna[]{ids, precos, estoques, nomes, flags};
+        crescer(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Cria um armazenamento vazio com as colunas no diretório informado.
+     */
+    public static ColumnarProdutoStore criar(Path diretorio) {
+        try {
+            return new ColumnarProdutoStore(diretorio);
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao criar as colunas de produtos em " + diretorio + ".", e);
+        }
+    }
+
+    @Override
+    public Produto get(long id) {
+        lock.readLock().lock();
+        try {
+            int linha = linhaPorId.get(id);
+            return linha < 0 ? null : materializar(linha);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Produto put(long id, Produto produto) {
+        lock.writeLock().lock();
+        try {
+            int linha = linhaPorId.get(id);
+            Produto anterior = null;
+            if (linha >= 0) {
+                anterior = materializar(linha);
+            } else {
+                if (linhas == capacidade) {
+                    crescer(capacidade * 2);
+                }
+                linha = linhas++;
+                linhaPorId.put(id, linha);
+            }
+            gravar(linha, id, produto);
+            return anterior;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Produto remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int linha = linhaPorId.remove(id);
+            if (linha < 0) {
+                return null;
+            }
+            Produto removido = materializar(linha);
+            flags.buffer.put(linha, (byte) 0);
+            removidas++;
+            if (removidas >= COMPACTACAO_MINIMA && removidas * 2 >= linhas) {
+                compactar();
+            }
+            return removido;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            linhas = 0;
+            removidas = 0;
+            linhaPorId.clear();
+            dicionario.clear();
+            codigos.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return linhas - removidas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Produto> values() {
+        List<Produto> valores = new ArrayList<>();
+        forEach((id, produto) -> valores.add(produto));
+        return valores;
+    }
+
+    /**
+     * Percorre os produtos na ordem de inserção sob a trava de leitura.
+     * A ação não deve escrever neste armazenamento.
+     */
+    @Override
+    public void forEach(LongObjConsumer<? super Produto> acao) {
+        lock.readLock().lock();
+        try {
+            for (int linha = 0; linha < linhas; linha++) {
+                if ((flags.buffer.get(linha) & VIVO) != 0) {
+                    acao.accept(ids.buffer.getLong(linha * Long.BYTES), materializar(linha));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public double valorTotalEmEstoque() {
+        int completo = VIVO | PRECO_PRESENTE | ESTOQUE_PRESENTE;
+        lock.readLock().lock();
+        try {
+            double total = 0;
+            for (int linha = 0; linha < linhas; linha++) {
+                if ((flags.buffer.get(linha) & completo) == completo) {
+                    total += precos.buffer.getDouble(linha * Double.BYTES)
+                            * estoques.buffer.getInt(linha * Integer.BYTES);
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] histogramaDePrecos(double[] limites) {
+        int comPreco = VIVO | PRECO_PRESENTE;
+        long[] contagens = new long[limites.length + 1];
+        lock.readLock().lock();
+        try {
+            for (int linha = 0; linha < linhas; linha++) {
+                if ((flags.buffer.get(linha) & comPreco) == comPreco) {
+                    contagens[faixa(limites, precos.buffer.getDouble(linha * Double.BYTES))]++;
+                }
+            }
+            return contagens;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Índice da faixa do preço: quantidade de limites menores ou iguais a ele.
+     */
+    static int faixa(double[] limites, double preco) {
+        int posicao = Arrays.binarySearch(limites, preco);
+        if (posicao < 0) {
+            return -posicao - 1;
+        }
+        // Limites repetidos: a faixa começa depois do último igual ao preço
+        while (posicao + 1 < limites.length && limites[posicao + 1] == preco) {
+            posicao++;
+        }
+        return posicao + 1;
+    }
+
+    private void gravar(int linha, long id, Produto produto) {
+        byte marcas = VIVO;
+        ids.buffer.putLong(linha * Long.BYTES, id);
+        if (produto.temPreco()) {
+            precos.buffer.putDouble(linha * Double.BYTES, produto.preco());
+            marcas |= PRECO_PRESENTE;
+        }
+        if (produto.temEstoque()) {
+            estoques.buffer.putInt(linha * Integer.BYTES, produto.estoque());
+            marcas |= ESTOQUE_PRESENTE;
+        }
+        nomes.buffer.putInt(linha * Integer.BYTES, codificar(produto.getNome()));
+        flags.buffer.put(linha, marcas);
+    }
+
+    private Produto materializar(int linha) {
+        byte marcas = flags.buffer.get(linha);
+        int codigo = nomes.buffer.getInt(linha * Integer.BYTES);
+        return Produto.de(
+                ids.buffer.getLong(linha * Long.BYTES),
+                codigo == SEM_NOME ? null : dicionario.get(codigo),
+                (marcas & PRECO_PRESENTE) != 0 ? precos.buffer.getDouble(linha * Double.BYTES) : Produto.SEM_PRECO,
+                (marcas & ESTOQUE_PRESENTE) != 0 ? estoques.buffer.getInt(linha * Integer.BYTES) : Produto.SEM_ESTOQUE);
+    }
+
+    private int codificar(String nome) {
+        if (nome == null) {
+            return SEM_NOME;
+        }
+        Integer codigo = codigos.get(nome);
+        if (codigo == null) {
+            codigo = dicionario.size();
+            dicionario.add(nome);
+            codigos.put(nome, codigo);
+        }
+        return codigo;
+    }
+
+    /**
+     * Move as linhas vivas para o início das colunas, mantendo a ordem, e refaz o
+     * dicionário só com os nomes ainda usados.
+     */
+    private void compactar() {
+        List<String> nomesAntigos = new ArrayList<>(dicionario);
+        dicionario.clear();
+        codigos.clear();
+        int destino = 0;
+        for (int origem = 0; origem < linhas; origem++) {
+            byte marcas = flags.buffer.get(origem);
+            if ((marcas & VIVO) == 0) {
+                continue;
+            }
+            long id = ids.buffer.getLong(origem * Long.BYTES);
+            int codigo = nomes.buffer.getInt(origem * Integer.BYTES);
+            ids.buffer.putLong(destino * Long.BYTES, id);
+            precos.buffer.putDouble(destino * Double.BYTES, precos.buffer.getDouble(origem * Double.BYTES));
+            estoques.buffer.putInt(destino * Integer.BYTES, estoques.buffer.getInt(origem * Integer.BYTES));
+            nomes.buffer.putInt(destino * Integer.BYTES,
+                    codigo == SEM_NOME ? SEM_NOME : codificar(nomesAntigos.get(codigo)));
+            flags.buffer.put(destino, marcas);
+            linhaPorId.put(id, destino);
+            destino++;
+        }
+        linhas = destino;
+        removidas = 0;
+    }
+
+    private void crescer(int novaCapacidade) {
+        try {
+            for (Coluna coluna : colunas) {
+                coluna.mapear(novaCapacidade);
+            }
+            capacidade = novaCapacidade;
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao ampliar as colunas de produtos em " + diretorio + ".", e);
+        }
+    }
+
+    /**
+     * Fecha e apaga os arquivos das colunas.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            for (Coluna coluna : colunas) {
+                coluna.fechar();
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao fechar as colunas de produtos.", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Coluna {
+        private final Path arquivo;
+        private final int largura;
+        private final FileChannel canal;
+        private MappedByteBuffer buffer;
+
+        Coluna(Path arquivo, int largura) throws IOException {
+            this.arquivo = arquivo;
+            this.largura = largura;
+            this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * Remapeia a coluna com capacidade para a quantidade de linhas, aumentando o arquivo.
+         */
+        void mapear(int linhas) throws IOException {
+            long bytes = (long) linhas * largura;
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Coluna " + arquivo.getFileName() + " excede o tamanho máximo mapeável.");
+            }
+            buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.nativeOrder());
+        }
+
+        void fechar() throws IOException {
+            buffer = null;
+            canal.close();
+            Files.deleteIfExists(arquivo);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package crud.persistence;
+
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.repository.ConcurrentLongHashMap;
+import crud.repository.EntityStore;
+import crud.repository.MvccDatabase;
+import crud.repository.StripedLongHashMap;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Escolhe e abre o armazenamento dos repositórios a partir de propriedades do sistema:
+ * <ul>
+ *   <li>{@code crud.armazenamento}: {@code memoria} (padrão), {@code wal}, {@code sql}
+ *       (banco H2 embarcado em {@code <diretorio>/crud.mv.db}, ver {@link BancoSql}) ou {@code lsm}
+ *       (pedidos em árvore LSM em {@code <diretorio>/pedidos-lsm}, ver {@link LsmEntityStore};
+ *       produtos no log como em {@code wal})</li>
+ *   <li>{@code crud.dados.diretorio}: diretório dos arquivos (padrão {@code dados})</li>
+ *   <li>{@code crud.wal.sync}: {@code por-escrita}, {@code agrupada} (padrão) ou {@code intervalo}</li>
+ *   <li>{@code crud.wal.intervalo-ms}: intervalo do fsync na política {@code intervalo} (padrão 100)</li>
+ *   <li>{@code crud.snapshot.intervalo-s}: intervalo entre verificações de snapshot (padrão 60)</li>
+ *   <li>{@code crud.snapshot.minimo-registros}: registros no log que disparam um snapshot (padrão 1000)</li>
+ *   <li>{@code crud.sql.conexoes}: máximo de conexões do pool no modo {@code sql} (padrão 8)</li>
+ *   <li>{@code crud.lsm.memtable-kb}: tamanho da memtable que dispara a gravação de um
+ *       segmento no modo {@code lsm} (padrão 4096)</li>
+ *   <li>{@code crud.lsm.segmentos-para-compactar}: segmentos que disparam uma compactação (padrão 4)</li>
+ *   <li>{@code crud.produtos.formato}: {@code objetos} (padrão), {@code colunar} (colunas mapeadas
+ *       em {@code <diretorio>/colunas}, ver {@link ColumnarProdutoStore}) ou {@code fora-do-heap}
+ *       (registros em buffers diretos, ver {@link OffHeapProdutoStore})</li>
+ *   <li>{@code crud.mvcc}: {@code true} guarda produtos e pedidos em um único
+ *       {@link MvccDatabase}, em que cada leitura percorre uma versão imutável sem travas
+ *       e relatórios leem produtos e pedidos da mesma versão
+ *       (padrão {@code false}; exige o formato {@code objetos})</li>
+ *   <li>{@code crud.truncamento}: {@code limpar} (padrão) esvazia o armazenamento no deleteAll;
+ *       {@code geracao} troca-o por um vazio em tempo constante, deixando leituras em andamento
+ *       terminarem na geração antiga (só no modo em memória, sem mvcc nem formato colunar)</li>
+ *   <li>{@code crud.shards}: quantidade de fatias por entidade (padrão 1). Acima de 1, cada
+ *       fatia tem armazenamento próprio ({@code produtos-0}, {@code produtos-1}...) e os
+ *       repositórios são divididos por hash do ID (ver {@code ShardedRepository}); não
+ *       combina com {@code sql} nem com mvcc, que guardam tudo em um único banco</li>
+ * </ul>
+ * Nos modos em memória e SQL, os métodos de snapshot não fazem nada: o banco SQL
+ * cuida da própria durabilidade.
+ */
+public class ConfiguracaoDePersistencia {
+    private final boolean duravel;
+    private final Path diretorio;
+    private final PoliticaDeSync politica;
+    private final Duration intervalo;
+    private final Duration intervaloDeSnapshot;
+    private final long minimoDeRegistros;
+    private String formatoDeProdutos = "objetos";
+    private MvccDatabase mvcc;
+    private int conexoesSql;
+    private long limiteDaMemtableLsm;
+    private int segmentosParaCompactar;
+    private boolean truncamentoPorGeracao;
+    private int fatias = 1;
+    private BancoSql bancoSql;
+    private SnapshotManager snapshots;
+
+    public ConfiguracaoDePersistencia(boolean duravel, Path diretorio, PoliticaDeSync politica, Duration intervalo,
+                                      Duration intervaloDeSnapshot, long minimoDeRegistros) {
+        this.duravel = duravel;
+        this.diretorio = diretorio;
+        this.politica = politica;
+        this.intervalo = intervalo;
+        this.intervaloDeSnapshot = intervaloDeSnapshot;
+        this.minimoDeRegistros = minimoDeRegistros;
+    }
+
+    public static ConfiguracaoDePersistencia doSistema() {
+        String armazenamento = System.getProperty("crud.armazenamento", "memoria").trim();
+        String sync = System.getProperty("crud.wal.sync", "agrupada");
+        return new ConfiguracaoDePersistencia(
+                "wal".equalsIgnoreCase(armazenamento) || "lsm".equalsIgnoreCase(armazenamento),
+                Paths.get(System.getProperty("crud.dados.diretorio", "dados")),
+                PoliticaDeSync.valueOf(sync.trim().toUpperCase(Locale.ROOT).replace('-', '_')),
+                Duration.ofMillis(Long.parseLong(System.getProperty("crud.wal.intervalo-ms", "100"))),
+                Duration.ofSeconds(Long.parseLong(System.getProperty("crud.snapshot.intervalo-s", "60"))),
+                Long.parseLong(System.getProperty("crud.snapshot.minimo-registros", "1000")))
+                .comFormatoDeProdutos(System.getProperty("crud.produtos.formato", "objetos"))
+                .comMvcc(Boolean.parseBoolean(System.getProperty("crud.mvcc", "false")))
+                .comBancoSql("sql".equalsIgnoreCase(armazenamento)
+                        ? Integer.parseInt(System.getProperty("crud.sql.conexoes", "8"))
+                        : 0)
+                .comLsm("lsm".equalsIgnoreCase(armazenamento)
+                                ? Long.parseLong(System.getProperty("crud.lsm.memtable-kb", "4096")) * 1024
+                                : 0,
+                        Integer.parseInt(System.getProperty("crud.lsm.segmentos-para-compactar", "4")))
+                .comTruncamento(System.getProperty("crud.truncamento", "limpar"))
+                .comFatias(Integer.parseInt(System.getProperty("crud.shards", "1").trim()));
+    }
+
+    /**
+     * Divide cada entidade em {@code quantidade} fatias, cada uma com armazenamento próprio.
+     */
+    public ConfiguracaoDePersistencia comFatias(int quantidade) {
+        if (quantidade < 1) {
+            throw new IllegalArgumentException("Quantidade de fatias inválida: " + quantidade);
+        }
+        this.fatias = quantidade;
+        return this;
+    }
+
+    public int fatias() {
+        return fatias;
+    }
+
+    /**
+     * Abre um armazenamento de produtos por fatia, na ordem das fatias. Com uma só,
+     * é o mesmo de {@link #abrirProdutos()}.
+     */
+    public List<EntityStore<Produto>> abrirFatiasDeProdutos() {
+        if (fatias == 1) {
+            return List.of(abrirProdutos());
+        }
+        exigirFatiasSeparaveis();
+        List<EntityStore<Produto>> stores = new ArrayList<>(fatias);
+        for (int i = 0; i < fatias; i++) {
+            stores.add(abrirProdutos("-" + i));
+        }
+        return stores;
+    }
+
+    /**
+     * Abre um armazenamento de pedidos por fatia, na ordem das fatias. Com uma só,
+     * é o mesmo de {@link #abrirPedidos()}.
+     */
+    public List<EntityStore<Pedido>> abrirFatiasDePedidos() {
+        if (fatias == 1) {
+            return List.of(abrirPedidos());
+        }
+        exigirFatiasSeparaveis();
+        List<EntityStore<Pedido>> stores = new ArrayList<>(fatias);
+        for (int i = 0; i < fatias; i++) {
+            stores.add(abrirPedidos("-" + i));
+        }
+        return stores;
+    }
+
+    // O banco SQL e o mvcc guardam cada entidade em um único lugar compartilhado
+    private void exigirFatiasSeparaveis() {
+        if (conexoesSql > 0 || mvcc != null) {
+            throw new IllegalStateException("crud.shards só funciona com crud.armazenamento=memoria, wal ou lsm, sem crud.mvcc.");
+        }
+    }
+
+    /**
+     * Define como deleteAll esvazia os repositórios: {@code limpar} ou {@code geracao}.
+     */
+    public ConfiguracaoDePersistencia comTruncamento(String modo) {
+        String normalizado = modo.trim().toLowerCase(Locale.ROOT);
+        if (!normalizado.equals("limpar") && !normalizado.equals("geracao")) {
+            throw new IllegalArgumentException("Modo de truncamento desconhecido: " + modo);
+        }
+        this.truncamentoPorGeracao = normalizado.equals("geracao");
+        return this;
+    }
+
+    /**
+     * Fábrica de armazenamentos vazios de produtos para o truncamento por geração,
+     * ou null se deleteAll deve limpar o armazenamento atual.
+     */
+    public Supplier<EntityStore<Produto>> novosArmazenamentosDeProdutos() {
+        if (!truncamentoPorGeracao) {
+            return null;
+        }
+        exigirTruncamentoEmMemoria();
+        if (formatoDeProdutos.equals("colunar")) {
+            throw new IllegalStateException("crud.truncamento=geracao não pode ser combinado com crud.produtos.formato=colunar.");
+        }
+        return formatoDeProdutos.equals("fora-do-heap") ? OffHeapProdutoStore::new : ConcurrentLongHashMap::new;
+    }
+
+    /**
+     * Fábrica de armazenamentos vazios de pedidos para o truncamento por geração,
+     * ou null se deleteAll deve limpar o armazenamento atual.
+     */
+    public Supplier<EntityStore<Pedido>> novosArmazenamentosDePedidos() {
+        if (!truncamentoPorGeracao) {
+            return null;
+        }
+        exigirTruncamentoEmMemoria();
+        return StripedLongHashMap::new;
+    }
+
+    // Armazenamentos duráveis e o banco mvcc precisam registrar a limpeza, não trocar de objeto
+    private void exigirTruncamentoEmMemoria() {
+        if (isDuravel() || mvcc != null) {
+            throw new IllegalStateException("crud.truncamento=geracao só funciona com crud.armazenamento=memoria, sem crud.mvcc.");
+        }
+    }
+
+    /**
+     * Guarda produtos e pedidos no {@link BancoSql} do diretório de dados, aberto na
+     * primeira chamada de abrirProdutos ou abrirPedidos.
+     *
+     * @param conexoes Tamanho do pool de conexões; 0 desliga o banco SQL
+     */
+    public ConfiguracaoDePersistencia comBancoSql(int conexoes) {
+        if (conexoes < 0) {
+            throw new IllegalArgumentException("Quantidade de conexões inválida: " + conexoes);
+        }
+        this.conexoesSql = conexoes;
+        return this;
+    }
+
+    /**
+     * Guarda os pedidos em um {@link LsmEntityStore} no diretório de dados.
+     *
+     * @param limiteDaMemtable Bytes na memtable que disparam a gravação de um segmento; 0 desliga
+     * @param segmentosParaCompactar Quantidade de segmentos que dispara uma compactação
+     */
+    public ConfiguracaoDePersistencia comLsm(long limiteDaMemtable, int segmentosParaCompactar) {
+        if (limiteDaMemtable < 0 || segmentosParaCompactar < 2) {
+            throw new IllegalArgumentException("Configuração LSM inválida: memtable de " + limiteDaMemtable
+                    + " bytes, compactação a cada " + segmentosParaCompactar + " segmentos.");
+        }
+        this.limiteDaMemtableLsm = limiteDaMemtable;
+        this.segmentosParaCompactar = segmentosParaCompactar;
+        return this;
+    }
+
+    /**
+     * Guarda produtos e pedidos em um {@link MvccDatabase} compartilhado.
+     */
+    public ConfiguracaoDePersistencia comMvcc(boolean ativo) {
+        this.mvcc = ativo ? new MvccDatabase() : null;
+        return this;
+    }
+
+    /**
+     * Banco multiversão dos repositórios, para leituras consistentes entre produtos
+     * e pedidos, ou null se {@code crud.mvcc} estiver desligado.
+     */
+    public MvccDatabase bancoMvcc() {
+        return mvcc;
+    }
+
+    /**
+     * Define como os produtos ficam em memória: {@code objetos}, {@code colunar} ou {@code fora-do-heap}.
+     */
+    public ConfiguracaoDePersistencia comFormatoDeProdutos(String formato) {
+        String normalizado = formato.trim().toLowerCase(Locale.ROOT);
+        if (!normalizado.equals("objetos") && !normalizado.equals("colunar") && !normalizado.equals("fora-do-heap")) {
+            throw new IllegalArgumentException("Formato de produtos desconhecido: " + formato);
+        }
+        this.formatoDeProdutos = normalizado;
+        return this;
+    }
+
+    public boolean isDuravel() {
+        return duravel || conexoesSql > 0 || limiteDaMemtableLsm > 0;
+    }
+
+    /**
+     * Abre o armazenamento de produtos; no modo durável, recupera o estado do disco.
+     */
+    public EntityStore<Produto> abrirProdutos() {
+        return abrirProdutos("");
+    }
+
+    /**
+     * @param sufixo Sufixo dos arquivos da fatia, vazio sem fatias
+     */
+    private EntityStore<Produto> abrirProdutos(String sufixo) {
+        if (mvcc != null && !formatoDeProdutos.equals("objetos")) {
+            throw new IllegalStateException("crud.mvcc não pode ser combinado com crud.produtos.formato="
+                    + formatoDeProdutos + ".");
+        }
+        if (conexoesSql > 0) {
+            if (!formatoDeProdutos.equals("objetos")) {
+                throw new IllegalStateException("crud.armazenamento=sql não pode ser combinado com crud.produtos.formato="
+                        + formatoDeProdutos + ".");
+            }
+            return bancoSql().produtos();
+        }
+        EntityStore<Produto> memoria = mvcc != null ? mvcc.produtos() : switch (formatoDeProdutos) {
+            case "colunar" -> ColumnarProdutoStore.criar(diretorio.resolve("colunas" + sufixo));
+            case "fora-do-heap" -> new OffHeapProdutoStore();
+            default -> new ConcurrentLongHashMap<>();
+        };
+        return duravel
+                ? WalEntityStore.abrir(diretorio, "produtos" + sufixo, memoria, new ProdutoCodec(), politica, intervalo)
+                : memoria;
+    }
+
+    /**
+     * Abre o armazenamento de pedidos; no modo durável, recupera o estado do disco.
+     */
+    public EntityStore<Pedido> abrirPedidos() {
+        return abrirPedidos("");
+    }
+
+    /**
+     * @param sufixo Sufixo dos arquivos da fatia, vazio sem fatias
+     */
+    private EntityStore<Pedido> abrirPedidos(String sufixo) {
+        if (conexoesSql > 0) {
+            return bancoSql().pedidos();
+        }
+        if (limiteDaMemtableLsm > 0) {
+            if (mvcc != null) {
+                throw new IllegalStateException("crud.mvcc não pode ser combinado com crud.armazenamento=lsm.");
+            }
+            return LsmEntityStore.abrir(diretorio, "pedidos" + sufixo, new PedidoCodec(), politica, intervalo,
+                    limiteDaMemtableLsm, segmentosParaCompactar);
+        }
+        EntityStore<Pedido> memoria = mvcc != null ? mvcc.pedidos() : new StripedLongHashMap<>();
+        return duravel
+                ? WalEntityStore.abrir(diretorio, "pedidos" + sufixo, memoria, new PedidoCodec(), politica, intervalo)
+                : memoria;
+    }
+
+    private synchronized BancoSql bancoSql() {
+        if (mvcc != null) {
+            throw new IllegalStateException("crud.mvcc não pode ser combinado com crud.armazenamento=sql.");
+        }
+        if (bancoSql == null) {
+            bancoSql = BancoSql.abrir(BancoSql.urlNoDiretorio(diretorio), conexoesSql, Duration.ofSeconds(30));
+        }
+        return bancoSql;
+    }
+
+    /**
+     * Próximo ID guardado pelo armazenamento durável (ver {@link ProximoIdDuravel}),
+     * ou 0 se ele não guardar nenhum.
+     */
+    public long proximoIdRecuperado(EntityStore<?> store) {
+        ProximoIdDuravel marca = store.unwrap(ProximoIdDuravel.class);
+        return marca != null ? marca.proximoIdRecuperado() : 0;
+    }
+
+    /**
+     * Registros do log reproduzidos na recuperação do armazenamento.
+     */
+    public long registrosReproduzidos(EntityStore<?> store) {
+        return store instanceof WalEntityStore<?> wal ? wal.registrosReproduzidos() : 0;
+    }
+
+    /**
+     * Inclui o armazenamento nos snapshots periódicos.
+     *
+     * @param proximoId próximo ID do repositório, gravado junto com cada snapshot
+     */
+    public synchronized void agendarSnapshots(String nome, EntityStore<?> store, LongSupplier proximoId) {
+        if (!(store instanceof WalEntityStore<?> wal)) {
+            return;
+        }
+        if (snapshots == null) {
+            snapshots = new SnapshotManager(intervaloDeSnapshot, minimoDeRegistros);
+        }
+        snapshots.registrar(nome, wal, proximoId);
+    }
+
+    /**
+     * Para os snapshots periódicos, gravando antes um snapshot final de cada
+     * armazenamento para acelerar a próxima subida.
+     */
+    public synchronized void encerrarSnapshots() {
+        if (snapshots != null) {
+            snapshots.close();
+            snapshots.fotografarTodos();
+            snapshots = null;
+        }
+    }
+}
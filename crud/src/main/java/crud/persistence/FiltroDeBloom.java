@@ -0,0 +1,84 @@
+package crud.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Filtro de Bloom de IDs long, usado por cada segmento do {@link LsmEntityStore}
+ * para descartar buscas de IDs que ele certamente não contém sem ler o disco.
+ * <p>
+ * Com 10 bits por ID e 7 funções de hash, a taxa de falsos positivos fica perto de
+ * 1%; falsos negativos não existem. As posições vêm de hash duplo sobre o ID
+ * espalhado, então IDs sequenciais não se concentram em poucas palavras.
+ */
+final class FiltroDeBloom {
+    private static final int BITS_POR_ID = 10;
+    private static final int FUNCOES = 7;
+
+    private final long[] bits;
+    private final int funcoes;
+    private final long totalDeBits;
+
+    private FiltroDeBloom(long[] bits, int funcoes) {
+        this.bits = bits;
+        this.funcoes = funcoes;
+        this.totalDeBits = (long) bits.length * Long.SIZE;
+    }
+
+    /**
+     * Filtro vazio dimensionado para {@code quantidade} IDs.
+     */
+    static FiltroDeBloom paraQuantidade(int quantidade) {
+        long totalDeBits = Math.max(Long.SIZE, (long) quantidade * BITS_POR_ID);
+        return new FiltroDeBloom(new long[(int) ((totalDeBits + Long.SIZE - 1) / Long.SIZE)], FUNCOES);
+    }
+
+    void adicionar(long id) {
+        long h1 = espalhar(id);
+        long h2 = espalhar(h1) | 1;
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, totalDeBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * false garante que o ID nunca foi adicionado; true pode ser um falso positivo.
+     */
+    boolean podeConter(long id) {
+        long h1 = espalhar(id);
+        long h2 = espalhar(h1) | 1;
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, totalDeBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void escrever(DataOutput saida) throws IOException {
+        saida.writeInt(funcoes);
+        saida.writeInt(bits.length);
+        for (long palavra : bits) {
+            saida.writeLong(palavra);
+        }
+    }
+
+    static FiltroDeBloom ler(DataInput entrada) throws IOException {
+        int funcoes = entrada.readInt();
+        long[] bits = new long[entrada.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = entrada.readLong();
+        }
+        return new FiltroDeBloom(bits, funcoes);
+    }
+
+    // Finalizador do SplitMix64: IDs sequenciais viram posições sem padrão
+    private static long espalhar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
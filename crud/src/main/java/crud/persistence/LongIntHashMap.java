@@ -0,0 +1,128 @@
+package crud.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de chave long para valor int não negativo, com endereçamento aberto e
+ * sondagem linear. Usado para localizar a linha de um ID nos armazenamentos fora
+ * do heap: o custo por entrada são um long e um int, sem objetos.
+ * <p>
+ * Valores negativos são reservados: {@link #get} retorna -1 para chaves ausentes.
+ * Não é thread-safe.
+ */
+class LongIntHashMap {
+    private static final int VAZIO = -1;
+    private static final int REMOVIDO = -2;
+
+    private long[] chaves;
+    private int[] valores;
+    private int tamanho;
+    private int ocupados;
+
+    LongIntHashMap() {
+        this(16);
+    }
+
+    LongIntHashMap(int capacidadeInicial) {
+        alocar(Integer.highestOneBit(Math.max(16, capacidadeInicial * 2 - 1)) << 1);
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        valores = new int[capacidade];
+        Arrays.fill(valores, VAZIO);
+        ocupados = 0;
+    }
+
+    int size() {
+        return tamanho;
+    }
+
+    int get(long chave) {
+        int mascara = chaves.length - 1;
+        for (int slot = espalhar(chave) & mascara; ; slot = (slot + 1) & mascara) {
+            int valor = valores[slot];
+            if (valor == VAZIO) {
+                return -1;
+            }
+            if (valor != REMOVIDO && chaves[slot] == chave) {
+                return valor;
+            }
+        }
+    }
+
+    /**
+     * @return Valor anterior, ou -1 se a chave não existia
+     */
+    int put(long chave, int valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("Valor negativo: " + valor);
+        }
+        int mascara = chaves.length - 1;
+        int lapide = -1;
+        for (int slot = espalhar(chave) & mascara; ; slot = (slot + 1) & mascara) {
+            int atual = valores[slot];
+            if (atual == VAZIO) {
+                int destino = lapide >= 0 ? lapide : slot;
+                chaves[destino] = chave;
+                valores[destino] = valor;
+                tamanho++;
+                if (lapide < 0 && ++ocupados * 2 > chaves.length) {
+                    redimensionar();
+                }
+                return -1;
+            }
+            if (atual == REMOVIDO) {
+                if (lapide < 0) {
+                    lapide = slot;
+                }
+            } else if (chaves[slot] == chave) {
+                valores[slot] = valor;
+                return atual;
+            }
+        }
+    }
+
+    /**
+     * @return Valor removido, ou -1 se a chave não existia
+     */
+    int remove(long chave) {
+        int mascara = chaves.length - 1;
+        for (int slot = espalhar(chave) & mascara; ; slot = (slot + 1) & mascara) {
+            int valor = valores[slot];
+            if (valor == VAZIO) {
+                return -1;
+            }
+            if (valor != REMOVIDO && chaves[slot] == chave) {
+                valores[slot] = REMOVIDO;
+                tamanho--;
+                return valor;
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(valores, VAZIO);
+        tamanho = 0;
+        ocupados = 0;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        // Só dobra se as entradas vivas ocupam a tabela; senão basta descartar as lápides
+        int capacidade = tamanho * 4 > chavesAntigas.length ? chavesAntigas.length * 2 : chavesAntigas.length;
+        tamanho = 0;
+        alocar(capacidade);
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (valoresAntigos[i] >= 0) {
+                put(chavesAntigas[i], valoresAntigos[i]);
+            }
+        }
+    }
+
+    private static int espalhar(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,749 @@
+package crud.persistence;
+
+import crud.exception.PersistenciaException;
+import crud.persistence.SegmentoLsm.Fonte;
+import crud.persistence.SegmentoLsm.Registro;
+import crud.repository.EntityStore;
+import crud.repository.LongObjConsumer;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Armazenamento durável em árvore LSM, feito para cargas com muitas escritas como a
+ * criação de pedidos.
+ * <p>
+ * Escritas vão para o {@link WriteAheadLog} e para uma memtable ordenada por ID, sem
+ * tocar em outros arquivos. Quando a memtable passa do limite, uma thread de fundo a
+ * grava como um {@link SegmentoLsm} imutável e começa um log novo. Ao juntar
+ * {@code segmentosParaCompactar} segmentos, a mesma thread os funde em um só; como a
+ * fusão inclui sempre o segmento mais antigo, as lápides de remoção são descartadas.
+ * <p>
+ * Buscas consultam a memtable, a memtable sendo gravada e os segmentos do mais novo
+ * ao mais antigo; o filtro de Bloom de cada segmento evita ler o disco quando o ID
+ * não está nele, o que torna barata a busca por IDs novos feita em cada put.
+ * <p>
+ * No diretório {@code <diretorio>/<nome>-lsm} ficam:
+ * <ul>
+ *   <li>{@code log-<número>.wal}: logs das memtables ainda não gravadas em segmento</li>
+ *   <li>{@code segmento-<número>.sst}: segmentos</li>
+ *   <li>{@code manifesto}: segmentos vivos, o primeiro log a reproduzir e o maior ID
+ *   removido até a descarga (ver {@link ProximoIdDuravel}), trocado atomicamente a cada
+ *   descarga ou compactação</li>
+ * </ul>
+ * Arquivos fora do manifesto são restos de uma operação interrompida e são apagados
+ * na abertura. Como nos demais armazenamentos, {@link #values()} e {@link #forEach}
+ * seguem a ordem de inserção, e escritas do mesmo ID devem ser serializadas pelo chamador.
+ *
+ * @param <T> Tipo da entidade
+ */
+public class LsmEntityStore<T> implements EntityStore<T>, ProximoIdDuravel {
+    private static final Logger LOG = LoggerFactory.getLogger(LsmEntityStore.class);
+    private static final int MAGICO = 0x4C534D4D;
+    private static final int VERSAO = 2;
+    private static final Pattern PADRAO_DE_ARQUIVO = Pattern.compile("(log|segmento)-(\\d{20})\\.(wal|sst)");
+
+    private final Path diretorio;
+    private final String nome;
+    private final Codec<T> codec;
+    private final long limiteDaMemtable;
+    private final int segmentosParaCompactar;
+
+    // Escritas compartilham a trava de leitura; trocar de memtable e de log usa a de escrita
+    private final ReadWriteLock escritas = new ReentrantReadWriteLock();
+    private volatile ConcurrentSkipListMap<Long, Registro> memtable = new ConcurrentSkipListMap<>();
+    // Memtable sendo gravada em segmento; continua visível até o segmento ser publicado
+    private volatile ConcurrentSkipListMap<Long, Registro> imutavel;
+    // Do mais novo ao mais antigo
+    private volatile List<SegmentoLsm> segmentos;
+    private WriteAheadLog log;
+    // Só muda na thread de manutenção, sob a trava de escrita
+    private long logAtual;
+
+    private final AtomicLong proximoNumero = new AtomicLong(1);
+    private final AtomicLong proximaOrdem = new AtomicLong();
+    // Maior ID removido mais um; as compactações descartam as lápides, então ele vai no manifesto
+    private final AtomicLong proximoIdDasRemocoes = new AtomicLong();
+    private final long proximoIdRecuperado;
+    private final AtomicLong bytesNaMemtable = new AtomicLong();
+    private final AtomicInteger tamanho = new AtomicInteger();
+    private final AtomicBoolean descargaAgendada = new AtomicBoolean();
+    private final ExecutorService manutencao;
+
+    private LsmEntityStore(Path diretorio, String nome, Codec<T> codec, PoliticaDeSync politica, Duration intervalo,
+                           long limiteDaMemtable, int segmentosParaCompactar) throws IOException {
+        this.diretorio = diretorio.resolve(nome + "-lsm");
+        this.nome = nome;
+        this.codec = codec;
+        this.limiteDaMemtable = limiteDaMemtable;
+        this.segmentosParaCompactar = Math.max(2, segmentosParaCompactar);
+        Files.createDirectories(this.diretorio);
+
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        TreeMap<Long, Path> arquivosDeSegmento = new TreeMap<>();
+        listarArquivos(logs, arquivosDeSegmento);
+        long maiorNumero = Math.max(logs.isEmpty() ? 0 : logs.lastKey(),
+                arquivosDeSegmento.isEmpty() ? 0 : arquivosDeSegmento.lastKey());
+        proximoNumero.set(maiorNumero + 1);
+
+        long primeiroLog = 0;
+        List<Long> vivos = List.of();
+        if (Files.exists(arquivoDoManifesto())) {
+            Manifesto manifesto = lerManifesto();
+            primeiroLog = manifesto.primeiroLog;
+            vivos = manifesto.segmentos;
+            proximoIdDasRemocoes.set(manifesto.proximoId);
+        }
+        List<SegmentoLsm> abertos = new ArrayList<>();
+        for (var arquivo : arquivosDeSegmento.descendingMap().entrySet()) {
+            if (vivos.contains(arquivo.getKey())) {
+                abertos.add(SegmentoLsm.abrir(arquivo.getValue(), arquivo.getKey()));
+            } else {
+                Files.deleteIfExists(arquivo.getValue());
+            }
+        }
+        if (abertos.size() != vivos.size()) {
+            throw new IOException("Segmento do manifesto ausente em " + this.diretorio + ".");
+        }
+        this.segmentos = List.copyOf(abertos);
+
+        WriteAheadLog ultimo = null;
+        long numeroDoUltimo = 0;
+        for (var arquivo : logs.entrySet()) {
+            if (arquivo.getKey() < primeiroLog) {
+                Files.deleteIfExists(arquivo.getValue());
+                continue;
+            }
+            if (ultimo != null) {
+                ultimo.close();
+            }
+            ultimo = new WriteAheadLog(arquivo.getValue(), politica, intervalo);
+            ultimo.reproduzir(this::reproduzir);
+            numeroDoUltimo = arquivo.getKey();
+        }
+        if (ultimo == null) {
+            numeroDoUltimo = proximoNumero.getAndIncrement();
+            ultimo = new WriteAheadLog(arquivoDeLog(numeroDoUltimo), politica, intervalo);
+        }
+        this.log = ultimo;
+        this.logAtual = numeroDoUltimo;
+        this.proximoIdRecuperado = proximoIdDasRemocoes.get();
+
+        // Recalcula a quantidade de vivos e a próxima ordem de inserção
+        long[] maiorOrdem = {-1};
+        varrer(registro -> {
+            tamanho.incrementAndGet();
+            maiorOrdem[0] = Math.max(maiorOrdem[0], registro.ordem);
+        });
+        proximaOrdem.set(maiorOrdem[0] + 1);
+
+        this.manutencao = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "lsm-" + nome);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abre o armazenamento no diretório, recuperando os segmentos do manifesto e a
+     * memtable a partir dos logs.
+     *
+     * @param limiteDaMemtable Bytes na memtable que disparam a gravação de um segmento
+     * @param segmentosParaCompactar Quantidade de segmentos que dispara uma compactação
+     */
+    public static <T> LsmEntityStore<T> abrir(Path diretorio, String nome, Codec<T> codec, PoliticaDeSync politica,
+                                              Duration intervalo, long limiteDaMemtable, int segmentosParaCompactar) {
+        try {
+            return new LsmEntityStore<>(diretorio, nome, codec, politica, intervalo,
+                    limiteDaMemtable, segmentosParaCompactar);
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao recuperar " + nome + " de " + diretorio + ".", e);
+        }
+    }
+
+    private void reproduzir(WriteAheadLog.Operacao operacao, long id, byte[] dados) {
+        Registro registro = switch (operacao) {
+            case GRAVAR -> new Registro(id, ByteBuffer.wrap(dados).getLong(),
+                    Arrays.copyOfRange(dados, Long.BYTES, dados.length));
+            case REMOVER -> {
+                proximoIdDasRemocoes.accumulateAndGet(id + 1, Math::max);
+                yield Registro.lapide(id);
+            }
+        };
+        memtable.put(id, registro);
+        bytesNaMemtable.addAndGet(registro.tamanho());
+    }
+
+    @Override
+    public T get(long id) {
+        Registro registro = buscar(id);
+        return registro == null || registro.isLapide() ? null : decodificar(registro);
+    }
+
+    /**
+     * Versão mais recente do ID (possivelmente uma lápide), ou null se nunca foi gravado.
+     */
+    private Registro buscar(long id) {
+        while (true) {
+            Registro registro = memtable.get(id);
+            if (registro != null) {
+                return registro;
+            }
+            ConcurrentSkipListMap<Long, Registro> gravando = imutavel;
+            if (gravando != null && (registro = gravando.get(id)) != null) {
+                return registro;
+            }
+            try {
+                for (SegmentoLsm segmento : segmentos) {
+                    registro = segmento.buscar(id);
+                    if (registro != null) {
+                        return registro;
+                    }
+                }
+                return null;
+            } catch (ClosedChannelException e) {
+                // Uma compactação trocou os segmentos durante a busca; a nova lista já está publicada
+            } catch (IOException e) {
+                throw new PersistenciaException("Falha ao ler o registro " + id + " de " + nome + ".", e);
+            }
+        }
+    }
+
+    @Override
+    public T put(long id, T valor) {
+        byte[] dados;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            codec.escrever(valor, new DataOutputStream(bytes));
+            dados = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao serializar o registro " + id + ".", e);
+        }
+        Registro anterior;
+        escritas.readLock().lock();
+        try {
+            anterior = buscar(id);
+            boolean existia = anterior != null && !anterior.isLapide();
+            Registro registro = new Registro(id, existia ? anterior.ordem : proximaOrdem.getAndIncrement(), dados);
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, id,
+                    ByteBuffer.allocate(Long.BYTES + dados.length).putLong(registro.ordem).put(dados).array());
+            memtable.put(id, registro);
+            bytesNaMemtable.addAndGet(registro.tamanho());
+            if (!existia) {
+                tamanho.incrementAndGet();
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao gravar o registro " + id + " no log.", e);
+        } finally {
+            escritas.readLock().unlock();
+        }
+        agendarDescargaSeCheia();
+        return anterior == null || anterior.isLapide() ? null : decodificar(anterior);
+    }
+
+    @Override
+    public T remove(long id) {
+        Registro anterior;
+        escritas.readLock().lock();
+        try {
+            anterior = buscar(id);
+            if (anterior == null || anterior.isLapide()) {
+                return null;
+            }
+            log.anexar(WriteAheadLog.Operacao.REMOVER, id, new byte[0]);
+            proximoIdDasRemocoes.accumulateAndGet(id + 1, Math::max);
+            Registro lapide = Registro.lapide(id);
+            memtable.put(id, lapide);
+            bytesNaMemtable.addAndGet(lapide.tamanho());
+            tamanho.decrementAndGet();
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao gravar a remoção de " + id + " no log.", e);
+        } finally {
+            escritas.readLock().unlock();
+        }
+        agendarDescargaSeCheia();
+        return decodificar(anterior);
+    }
+
+    private void agendarDescargaSeCheia() {
+        if (bytesNaMemtable.get() >= limiteDaMemtable && descargaAgendada.compareAndSet(false, true)) {
+            manutencao.execute(() -> {
+                descargaAgendada.set(false);
+                try {
+                    descarregarAgora();
+                } catch (IOException | RuntimeException e) {
+                    // Os registros continuam no log; a próxima descarga tenta de novo
+                    LOG.error("Falha ao gravar um segmento de {}", nome, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Grava a memtable atual como segmento, esperando terminar. A compactação roda em
+     * seguida se o número de segmentos chegar ao limite.
+     */
+    public void descarregar() {
+        naManutencao(() -> {
+            descarregarAgora();
+            return null;
+        });
+    }
+
+    /**
+     * Funde todos os segmentos em um, descartando versões antigas e lápides, esperando terminar.
+     */
+    public void compactar() {
+        naManutencao(() -> {
+            compactarAgora();
+            return null;
+        });
+    }
+
+    /**
+     * Roda na thread de manutenção.
+     */
+    private void descarregarAgora() throws IOException {
+        // Uma descarga que falhou deixa a memtable congelada para a próxima tentativa
+        if (imutavel == null) {
+            escritas.writeLock().lock();
+            try {
+                if (memtable.isEmpty()) {
+                    return;
+                }
+                long novoLog = proximoNumero.getAndIncrement();
+                log.rotacionar(arquivoDeLog(novoLog));
+                logAtual = novoLog;
+                // Publicada antes da troca, para que quem não achar o ID na memtable nova o ache aqui
+                imutavel = memtable;
+                memtable = new ConcurrentSkipListMap<>();
+                bytesNaMemtable.set(0);
+            } finally {
+                escritas.writeLock().unlock();
+            }
+        }
+        ConcurrentSkipListMap<Long, Registro> gravando = imutavel;
+        long numero = proximoNumero.getAndIncrement();
+        SegmentoLsm novo = SegmentoLsm.escrever(arquivoDeSegmento(numero), numero,
+                Fonte.de(gravando.values().iterator()), gravando.size());
+        List<SegmentoLsm> atualizados = new ArrayList<>();
+        atualizados.add(novo);
+        atualizados.addAll(segmentos);
+        gravarManifesto(logAtual, atualizados);
+        segmentos = List.copyOf(atualizados);
+        imutavel = null;
+        apagarLogsAntes(logAtual);
+        if (atualizados.size() >= segmentosParaCompactar) {
+            compactarAgora();
+        }
+    }
+
+    /**
+     * Roda na thread de manutenção, que também faz as descargas: a lista de
+     * segmentos não muda durante a fusão.
+     */
+    private void compactarAgora() throws IOException {
+        List<SegmentoLsm> fundidos = segmentos;
+        if (fundidos.size() < 2) {
+            return;
+        }
+        long numero = proximoNumero.getAndIncrement();
+        int capacidade = fundidos.stream().mapToInt(SegmentoLsm::quantidade).sum();
+        List<Fonte> fontes = new ArrayList<>();
+        SegmentoLsm novo;
+        try {
+            for (SegmentoLsm segmento : fundidos) {
+                fontes.add(segmento.ler());
+            }
+            Fonte mescla = new Mescla(fontes);
+            // Inclui o segmento mais antigo, então nenhuma versão anterior sobra para uma lápide esconder
+            Fonte semLapides = () -> {
+                for (Registro registro; (registro = mescla.proximo()) != null; ) {
+                    if (!registro.isLapide()) {
+                        return registro;
+                    }
+                }
+                return null;
+            };
+            novo = SegmentoLsm.escrever(arquivoDeSegmento(numero), numero, semLapides, capacidade);
+        } finally {
+            fecharTodos(fontes);
+        }
+        gravarManifesto(logAtual, List.of(novo));
+        segmentos = List.of(novo);
+        for (SegmentoLsm antigo : fundidos) {
+            antigo.close();
+            Files.deleteIfExists(antigo.arquivo());
+        }
+        LOG.info("{}: {} segmentos compactados em um com {} registros", nome, fundidos.size(), novo.quantidade());
+    }
+
+    /**
+     * Quantidade de segmentos vivos.
+     */
+    public int quantidadeDeSegmentos() {
+        return segmentos.size();
+    }
+
+    /**
+     * Maior ID removido mais um, do manifesto e dos logs reproduzidos na abertura.
+     */
+    @Override
+    public long proximoIdRecuperado() {
+        return proximoIdRecuperado;
+    }
+
+    @Override
+    public void clear() {
+        naManutencao(() -> {
+            escritas.writeLock().lock();
+            try {
+                long novoLog = proximoNumero.getAndIncrement();
+                log.rotacionar(arquivoDeLog(novoLog));
+                logAtual = novoLog;
+                proximoIdDasRemocoes.set(0);
+                gravarManifesto(novoLog, List.of());
+                List<SegmentoLsm> antigos = segmentos;
+                segmentos = List.of();
+                imutavel = null;
+                memtable = new ConcurrentSkipListMap<>();
+                bytesNaMemtable.set(0);
+                tamanho.set(0);
+                for (SegmentoLsm antigo : antigos) {
+                    antigo.close();
+                    Files.deleteIfExists(antigo.arquivo());
+                }
+                apagarLogsAntes(novoLog);
+            } finally {
+                escritas.writeLock().unlock();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean guardaCodificado() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return tamanho.get();
+    }
+
+    @Override
+    public List<T> values() {
+        List<T> valores = new ArrayList<>(tamanho.get());
+        for (Registro registro : vivosEmOrdemDeInsercao()) {
+            valores.add(decodificar(registro));
+        }
+        return valores;
+    }
+
+    @Override
+    public void forEach(LongObjConsumer<? super T> acao) {
+        for (Registro registro : vivosEmOrdemDeInsercao()) {
+            acao.accept(registro.id, decodificar(registro));
+        }
+    }
+
+    private List<Registro> vivosEmOrdemDeInsercao() {
+        List<Registro> vivos = new ArrayList<>(tamanho.get());
+        varrer(vivos::add);
+        vivos.sort(Comparator.comparingLong(registro -> registro.ordem));
+        return vivos;
+    }
+
+    /**
+     * Percorre a versão mais recente de cada ID vivo, em ordem de ID, mesclando as
+     * memtables e os segmentos lidos nesse instante.
+     */
+    private void varrer(Consumer<Registro> acao) {
+        while (true) {
+            // Mesma ordem de leitura da busca por ID
+            ConcurrentSkipListMap<Long, Registro> atual = memtable;
+            ConcurrentSkipListMap<Long, Registro> gravando = imutavel;
+            List<SegmentoLsm> lidos = segmentos;
+            List<Fonte> fontes = new ArrayList<>();
+            try {
+                fontes.add(Fonte.de(atual.values().iterator()));
+                if (gravando != null) {
+                    fontes.add(Fonte.de(gravando.values().iterator()));
+                }
+                for (SegmentoLsm segmento : lidos) {
+                    fontes.add(segmento.ler());
+                }
+                Mescla mescla = new Mescla(fontes);
+                for (Registro registro; (registro = mescla.proximo()) != null; ) {
+                    if (!registro.isLapide()) {
+                        acao.accept(registro);
+                    }
+                }
+                return;
+            } catch (NoSuchFileException e) {
+                // Segmento apagado por uma compactação antes de ser aberto; relê a lista nova
+            } catch (IOException e) {
+                throw new PersistenciaException("Falha ao percorrer " + nome + ".", e);
+            } finally {
+                fecharTodos(fontes);
+            }
+        }
+    }
+
+    /**
+     * Junta fontes ordenadas por ID, da mais nova para a mais antiga, devolvendo só a
+     * versão da fonte mais nova de cada ID.
+     */
+    private static final class Mescla implements Fonte {
+        private final List<Fonte> fontes;
+        private final PriorityQueue<Cabeca> cabecas = new PriorityQueue<>(
+                Comparator.<Cabeca>comparingLong(cabeca -> cabeca.registro.id).thenComparingInt(cabeca -> cabeca.fonte));
+
+        private static final class Cabeca {
+            final Registro registro;
+            final int fonte;
+
+            Cabeca(Registro registro, int fonte) {
+                this.registro = registro;
+                this.fonte = fonte;
+            }
+        }
+
+        Mescla(List<Fonte> fontes) throws IOException {
+            this.fontes = fontes;
+            for (int i = 0; i < fontes.size(); i++) {
+                avancar(i);
+            }
+        }
+
+        private void avancar(int fonte) throws IOException {
+            Registro registro = fontes.get(fonte).proximo();
+            if (registro != null) {
+                cabecas.add(new Cabeca(registro, fonte));
+            }
+        }
+
+        @Override
+        public Registro proximo() throws IOException {
+            Cabeca mais = cabecas.poll();
+            if (mais == null) {
+                return null;
+            }
+            avancar(mais.fonte);
+            // Versões mais antigas do mesmo ID são descartadas
+            while (!cabecas.isEmpty() && cabecas.peek().registro.id == mais.registro.id) {
+                avancar(cabecas.poll().fonte);
+            }
+            return mais.registro;
+        }
+    }
+
+    private T decodificar(Registro registro) {
+        try {
+            return codec.ler(new DataInputStream(new ByteArrayInputStream(registro.dados)));
+        } catch (IOException e) {
+            throw new PersistenciaException("Registro " + registro.id + " de " + nome + " ilegível.", e);
+        }
+    }
+
+    /**
+     * Executa na thread de manutenção e espera, para que descargas, compactações e
+     * limpezas nunca rodem ao mesmo tempo.
+     */
+    private <R> R naManutencao(Callable<R> tarefa) {
+        Future<R> futuro = manutencao.submit(tarefa);
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenciaException("Interrompido esperando a manutenção de " + nome + ".", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new PersistenciaException("Falha na manutenção de " + nome + ".", e.getCause());
+        }
+    }
+
+    private static final class Manifesto {
+        final long primeiroLog;
+        final long proximoId;
+        final List<Long> segmentos;
+
+        Manifesto(long primeiroLog, long proximoId, List<Long> segmentos) {
+            this.primeiroLog = primeiroLog;
+            this.proximoId = proximoId;
+            this.segmentos = segmentos;
+        }
+    }
+
+    /**
+     * Formato: {@code [mágico][versão][primeiro log][próximo ID][quantidade][segmentos]*[crc32]}.
+     * Escrito ao lado e renomeado atomicamente, como o snapshot do {@link WalEntityStore}.
+     * A versão 1, sem o próximo ID, ainda é lida.
+     * <p>
+     * O próximo ID gravado pode incluir remoções ainda só no log; na abertura o log
+     * as reproduz de novo, então a marca nunca fica abaixo de um ID removido.
+     */
+    private void gravarManifesto(long primeiroLog, List<SegmentoLsm> vivos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream corpo = new DataOutputStream(bytes);
+        corpo.writeInt(MAGICO);
+        corpo.writeInt(VERSAO);
+        corpo.writeLong(primeiroLog);
+        corpo.writeLong(proximoIdDasRemocoes.get());
+        corpo.writeInt(vivos.size());
+        for (SegmentoLsm segmento : vivos) {
+            corpo.writeLong(segmento.numero());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        corpo.writeInt((int) crc.getValue());
+
+        Path temporario = diretorio.resolve("manifesto.tmp");
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile())) {
+            BufferedOutputStream saida = new BufferedOutputStream(arquivo);
+            bytes.writeTo(saida);
+            saida.flush();
+            arquivo.getChannel().force(true);
+        }
+        Files.move(temporario, arquivoDoManifesto(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        sincronizarDiretorio();
+    }
+
+    private Manifesto lerManifesto() throws IOException {
+        byte[] bytes = Files.readAllBytes(arquivoDoManifesto());
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, Math.max(0, bytes.length - Integer.BYTES));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int versao = bytes.length < 4 * Integer.BYTES + Long.BYTES || buffer.getInt() != MAGICO ? 0 : buffer.getInt();
+        if ((versao != 1 && versao != VERSAO)
+                || ByteBuffer.wrap(bytes, bytes.length - Integer.BYTES, Integer.BYTES).getInt() != (int) crc.getValue()) {
+            throw new IOException("Manifesto de " + nome + " corrompido.");
+        }
+        long primeiroLog = buffer.getLong();
+        long proximoId = versao == 1 ? 0 : buffer.getLong();
+        int quantidade = buffer.getInt();
+        List<Long> numeros = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            numeros.add(buffer.getLong());
+        }
+        return new Manifesto(primeiroLog, proximoId, numeros);
+    }
+
+    private void listarArquivos(TreeMap<Long, Path> logs, TreeMap<Long, Path> arquivosDeSegmento) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.forEach(arquivo -> {
+                String nomeDoArquivo = arquivo.getFileName().toString();
+                Matcher matcher = PADRAO_DE_ARQUIVO.matcher(nomeDoArquivo);
+                if (matcher.matches()) {
+                    (matcher.group(1).equals("log") ? logs : arquivosDeSegmento)
+                            .put(Long.parseLong(matcher.group(2)), arquivo);
+                } else if (nomeDoArquivo.endsWith(".tmp")) {
+                    // Segmento ou manifesto que não chegou a ser renomeado
+                    arquivo.toFile().delete();
+                }
+            });
+        }
+    }
+
+    private void apagarLogsAntes(long numero) throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        listarArquivos(logs, new TreeMap<>());
+        for (Path antigo : logs.headMap(numero, false).values()) {
+            Files.deleteIfExists(antigo);
+        }
+    }
+
+    // Torna a renomeação durável; alguns sistemas (Windows) não permitem abrir diretórios
+    private void sincronizarDiretorio() {
+        try (FileChannel canal = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Sem suporte: a renomeação ainda é atômica, só não é forçada para o disco agora
+        }
+    }
+
+    private static void fecharTodos(List<Fonte> fontes) {
+        for (Fonte fonte : fontes) {
+            try {
+                fonte.close();
+            } catch (IOException e) {
+                // Só leitura: nada a perder
+            }
+        }
+    }
+
+    private Path arquivoDeLog(long numero) {
+        return diretorio.resolve(String.format("log-%020d.wal", numero));
+    }
+
+    private Path arquivoDeSegmento(long numero) {
+        return diretorio.resolve(String.format("segmento-%020d.sst", numero));
+    }
+
+    private Path arquivoDoManifesto() {
+        return diretorio.resolve("manifesto");
+    }
+
+    /**
+     * Espera a manutenção em andamento e fecha o log e os segmentos. A memtable não
+     * precisa ser gravada: o log a reconstrói na próxima abertura.
+     */
+    @Override
+    public void close() {
+        manutencao.shutdown();
+        try {
+            manutencao.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            log.close();
+            for (SegmentoLsm segmento : segmentos) {
+                segmento.close();
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao fechar " + nome + ".", e);
+        }
+    }
+}
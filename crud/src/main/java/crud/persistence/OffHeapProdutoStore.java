@@ -0,0 +1,414 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import crud.repository.AgregadosDeProduto;
+import crud.repository.EntityStore;
+import crud.repository.LongObjConsumer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Armazenamento de produtos fora do heap, em buffers diretos.
+ * <p>
+ * Cada produto ocupa um registro de largura fixa com flags, estoque, id, preço e a
+ * posição do nome; os nomes ficam em uma área separada, como caracteres UTF-16
+ * (sem perda para qualquer {@link String}). No heap restam só os buffers e o mapa
+ * ID → registro, sem um objeto por produto, então o tamanho do catálogo quase não
+ * pesa na coleta de lixo.
+ * <p>
+ * Um {@link Produto} só é criado quando alguém o pede ({@link #get}, {@link #values},
+ * {@link #forEach}), tipicamente na serialização da resposta. Para percorrer sem
+ * criar objetos, use {@link #forEachRegistro}, que posiciona um mesmo
+ * {@link Registro} sobre cada produto.
+ * <p>
+ * Atualizações reescrevem o registro no lugar, preservando a ordem de inserção; um
+ * nome diferente é anexado à área de nomes e o espaço antigo é recuperado quando
+ * passa da metade. Remoções marcam o registro e as lacunas são compactadas como em
+ * {@link ColumnarProdutoStore}. Leituras compartilham uma trava de leitura e
+ * escritas são exclusivas.
+ */
+public class OffHeapProdutoStore implements EntityStore<Produto>, AgregadosDeProduto {
+    private static final int LARGURA = 32;
+    private static final int FLAGS = 0;
+    private static final int ESTOQUE = 4;
+    private static final int ID = 8;
+    private static final int PRECO = 16;
+    private static final int NOME_POSICAO = 24;
+    private static final int NOME_TAMANHO = 28;
+
+    private static final byte VIVO = 1;
+    private static final byte PRECO_PRESENTE = 2;
+    private static final byte ESTOQUE_PRESENTE = 4;
+    private static final int SEM_NOME = -1;
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final int COMPACTACAO_MINIMA = 1024;
+    private static final int NOMES_INICIAL = 16 * 1024;
+
+    private ByteBuffer registros;
+    private ByteBuffer nomes;
+    private final LongIntHashMap linhaPorId = new LongIntHashMap();
+    private int linhas;
+    private int removidas;
+    // Bytes usados na área de nomes e, deles, os que não pertencem a nenhum registro vivo
+    private int nomesUsados;
+    private int nomesDescartados;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public OffHeapProdutoStore() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    public OffHeapProdutoStore(int capacidadeInicial) {
+        registros = alocar(Math.max(16, capacidadeInicial) * LARGURA);
+        nomes = alocar(NOMES_INICIAL);
+    }
+
+    /**
+     * Visão reutilizável de um produto armazenado. Só é válida dentro do callback
+     * que a recebeu: depois dele aponta para outro registro.
+     */
+    public final class Registro {
+        private int base;
+
+        private Registro() {
+        }
+
+        private Registro posicionar(int linha) {
+            base = linha * LARGURA;
+            return this;
+        }
+
+        private byte flags() {
+            return registros.get(base + FLAGS);
+        }
+
+        public long id() {
+            return registros.getLong(base + ID);
+        }
+
+        public boolean temPreco() {
+            return (flags() & PRECO_PRESENTE) != 0;
+        }
+
+        /**
+         * Preço do produto; só tem significado se {@link #temPreco()}.
+         */
+        public double preco() {
+            return registros.getDouble(base + PRECO);
+        }
+
+        public boolean temEstoque() {
+            return (flags() & ESTOQUE_PRESENTE) != 0;
+        }
+
+        /**
+         * Estoque do produto; só tem significado se {@link #temEstoque()}.
+         */
+        public int estoque() {
+            return registros.getInt(base + ESTOQUE);
+        }
+
+        /**
+         * Cria a {@link String} do nome, ou retorna null se não houver.
+         */
+        public String nome() {
+            int tamanho = registros.getInt(base + NOME_TAMANHO);
+            if (tamanho == SEM_NOME) {
+                return null;
+            }
+            int posicao = registros.getInt(base + NOME_POSICAO);
+            char[] caracteres = new char[tamanho];
+            for (int i = 0; i < tamanho; i++) {
+                caracteres[i] = nomes.getChar(posicao + i * Character.BYTES);
+            }
+            return new String(caracteres);
+        }
+
+        /**
+         * Compara o nome armazenado sem criar a {@link String}.
+         */
+        public boolean nomeIgual(String nome) {
+            int tamanho = registros.getInt(base + NOME_TAMANHO);
+            if (nome == null || tamanho == SEM_NOME) {
+                return nome == null && tamanho == SEM_NOME;
+            }
+            if (tamanho != nome.length()) {
+                return false;
+            }
+            int posicao = registros.getInt(base + NOME_POSICAO);
+            for (int i = 0; i < tamanho; i++) {
+                if (nomes.getChar(posicao + i * Character.BYTES) != nome.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Cria um {@link Produto} independente deste registro.
+         */
+        public Produto materializar() {
+            return Produto.de(id(), nome(),
+                    temPreco() ? preco() : Produto.SEM_PRECO,
+                    temEstoque() ? estoque() : Produto.SEM_ESTOQUE);
+        }
+    }
+
+    @Override
+    public Produto get(long id) {
+        lock.readLock().lock();
+        try {
+            int linha = linhaPorId.get(id);
+            return linha < 0 ? null : new Registro().posicionar(linha).materializar();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Produto put(long id, Produto produto) {
+        lock.writeLock().lock();
+        try {
+            int linha = linhaPorId.get(id);
+            Produto anterior = null;
+            if (linha >= 0) {
+                Registro registro = new Registro().posicionar(linha);
+                anterior = registro.materializar();
+                if (!registro.nomeIgual(produto.getNome())) {
+                    descartarNome(linha);
+                    gravarNome(linha, produto.getNome());
+                }
+            } else {
+                if ((linhas + 1) * LARGURA > registros.capacity()) {
+                    registros = ampliar(registros, registros.capacity() * 2);
+                }
+                linha = linhas++;
+                linhaPorId.put(id, linha);
+                // O espaço pode ter restos de um registro compactado ou apagado
+                registros.put(linha * LARGURA + FLAGS, (byte) 0);
+                gravarNome(linha, produto.getNome());
+            }
+            gravar(linha, id, produto);
+            return anterior;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Produto remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int linha = linhaPorId.remove(id);
+            if (linha < 0) {
+                return null;
+            }
+            Produto removido = new Registro().posicionar(linha).materializar();
+            descartarNome(linha);
+            registros.put(linha * LARGURA + FLAGS, (byte) 0);
+            removidas++;
+            if (removidas >= COMPACTACAO_MINIMA && removidas * 2 >= linhas) {
+                compactarRegistros();
+            }
+            return removido;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            linhas = 0;
+            removidas = 0;
+            nomesUsados = 0;
+            nomesDescartados = 0;
+            linhaPorId.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return linhas - removidas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Produto> values() {
+        List<Produto> valores = new ArrayList<>();
+        forEachRegistro(registro -> valores.add(registro.materializar()));
+        return valores;
+    }
+
+    @Override
+    public void forEach(LongObjConsumer<? super Produto> acao) {
+        forEachRegistro(registro -> acao.accept(registro.id(), registro.materializar()));
+    }
+
+    /**
+     * Percorre os produtos na ordem de inserção com um único {@link Registro}
+     * reposicionado a cada passo, sob a trava de leitura. A ação não deve escrever
+     * neste armazenamento nem guardar o registro.
+     */
+    public void forEachRegistro(Consumer<? super Registro> acao) {
+        lock.readLock().lock();
+        try {
+            Registro registro = new Registro();
+            for (int linha = 0; linha < linhas; linha++) {
+                if ((registros.get(linha * LARGURA + FLAGS) & VIVO) != 0) {
+                    acao.accept(registro.posicionar(linha));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public double valorTotalEmEstoque() {
+        double[] total = {0};
+        forEachRegistro(registro -> {
+            if (registro.temPreco() && registro.temEstoque()) {
+                total[0] += registro.preco() * registro.estoque();
+            }
+        });
+        return total[0];
+    }
+
+    @Override
+    public long[] histogramaDePrecos(double[] limites) {
+        long[] contagens = new long[limites.length + 1];
+        forEachRegistro(registro -> {
+            if (registro.temPreco()) {
+                contagens[ColumnarProdutoStore.faixa(limites, registro.preco())]++;
+            }
+        });
+        return contagens;
+    }
+
+    private void gravar(int linha, long id, Produto produto) {
+        int base = linha * LARGURA;
+        byte marcas = VIVO;
+        registros.putLong(base + ID, id);
+        if (produto.temPreco()) {
+            registros.putDouble(base + PRECO, produto.preco());
+            marcas |= PRECO_PRESENTE;
+        }
+        if (produto.temEstoque()) {
+            registros.putInt(base + ESTOQUE, produto.estoque());
+            marcas |= ESTOQUE_PRESENTE;
+        }
+        registros.put(base + FLAGS, marcas);
+    }
+
+    private void gravarNome(int linha, String nome) {
+        int base = linha * LARGURA;
+        if (nome == null) {
+            registros.putInt(base + NOME_TAMANHO, SEM_NOME);
+            return;
+        }
+        int bytes = nome.length() * Character.BYTES;
+        if (nomesUsados + bytes > nomes.capacity()) {
+            abrirEspacoParaNomes(bytes);
+        }
+        for (int i = 0; i < nome.length(); i++) {
+            nomes.putChar(nomesUsados + i * Character.BYTES, nome.charAt(i));
+        }
+        registros.putInt(base + NOME_POSICAO, nomesUsados);
+        registros.putInt(base + NOME_TAMANHO, nome.length());
+        nomesUsados += bytes;
+    }
+
+    private void descartarNome(int linha) {
+        int tamanho = registros.getInt(linha * LARGURA + NOME_TAMANHO);
+        if (tamanho != SEM_NOME) {
+            nomesDescartados += tamanho * Character.BYTES;
+            registros.putInt(linha * LARGURA + NOME_TAMANHO, SEM_NOME);
+        }
+    }
+
+    /**
+     * Recupera os nomes descartados se eles forem metade da área; senão, dobra a área.
+     */
+    private void abrirEspacoParaNomes(int bytes) {
+        long necessario = (long) nomesUsados - nomesDescartados + bytes;
+        if (nomesDescartados * 2L >= nomesUsados && necessario <= nomes.capacity()) {
+            compactarNomes(nomes.capacity());
+            return;
+        }
+        long capacidade = Math.max(necessario, (long) nomes.capacity() * 2);
+        if (capacidade > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Área de nomes dos produtos excede o tamanho máximo.");
+        }
+        compactarNomes((int) capacidade);
+    }
+
+    /**
+     * Copia os nomes dos registros vivos para uma área nova, sem lacunas.
+     */
+    private void compactarNomes(int capacidade) {
+        ByteBuffer novos = alocar(capacidade);
+        int usados = 0;
+        for (int linha = 0; linha < linhas; linha++) {
+            int base = linha * LARGURA;
+            int tamanho = registros.getInt(base + NOME_TAMANHO);
+            if ((registros.get(base + FLAGS) & VIVO) == 0 || tamanho == SEM_NOME) {
+                continue;
+            }
+            int bytes = tamanho * Character.BYTES;
+            novos.put(usados, nomes, registros.getInt(base + NOME_POSICAO), bytes);
+            registros.putInt(base + NOME_POSICAO, usados);
+            usados += bytes;
+        }
+        nomes = novos;
+        nomesUsados = usados;
+        nomesDescartados = 0;
+    }
+
+    /**
+     * Move os registros vivos para o início, mantendo a ordem.
+     */
+    private void compactarRegistros() {
+        int destino = 0;
+        for (int origem = 0; origem < linhas; origem++) {
+            int base = origem * LARGURA;
+            if ((registros.get(base + FLAGS) & VIVO) == 0) {
+                continue;
+            }
+            if (destino != origem) {
+                registros.put(destino * LARGURA, registros, base, LARGURA);
+            }
+            linhaPorId.put(registros.getLong(destino * LARGURA + ID), destino);
+            destino++;
+        }
+        linhas = destino;
+        removidas = 0;
+    }
+
+    private static ByteBuffer ampliar(ByteBuffer atual, int capacidade) {
+        if (capacidade < 0) {
+            throw new IllegalStateException("Registros de produtos excedem o tamanho máximo.");
+        }
+        ByteBuffer novo = alocar(capacidade);
+        novo.put(0, atual, 0, atual.capacity());
+        return novo;
+    }
+
+    private static ByteBuffer alocar(int capacidade) {
+        return ByteBuffer.allocateDirect(capacidade).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,49 @@
+package crud.persistence;
+
+import crud.model.Pedido;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Codec binário de {@link Pedido}: ID, cliente, data de criação e itens.
+ * Cada item leva uma cópia do produto como estava no momento do pedido.
+ */
+public class PedidoCodec implements Codec<Pedido> {
+    private final ProdutoCodec produtoCodec = new ProdutoCodec();
+
+    @Override
+    public void escrever(Pedido pedido, DataOutput saida) throws IOException {
+        Binario.escreverLong(saida, pedido.temId(), pedido.id());
+        Binario.escreverTexto(saida, pedido.getCliente());
+        LocalDateTime dataCriacao = pedido.getDataCriacao();
+        saida.writeBoolean(dataCriacao != null);
+        if (dataCriacao != null) {
+            saida.writeLong(dataCriacao.toEpochSecond(ZoneOffset.UTC));
+            saida.writeInt(dataCriacao.getNano());
+        }
+        int quantidadeDeItens = pedido.quantidadeDeItens();
+        saida.writeInt(quantidadeDeItens);
+        for (int i = 0; i < quantidadeDeItens; i++) {
+            produtoCodec.escrever(pedido.produtoDoItem(i), saida);
+            saida.writeInt(pedido.quantidadeDoItem(i));
+        }
+    }
+
+    @Override
+    public Pedido ler(DataInput entrada) throws IOException {
+        Pedido pedido = new Pedido(null);
+        pedido.atribuirId(Binario.lerLong(entrada, Pedido.SEM_ID));
+        pedido.setCliente(Binario.lerTexto(entrada));
+        pedido.setDataCriacao(entrada.readBoolean()
+                ? LocalDateTime.ofEpochSecond(entrada.readLong(), entrada.readInt(), ZoneOffset.UTC)
+                : null);
+        int quantidadeDeItens = entrada.readInt();
+        for (int i = 0; i < quantidadeDeItens; i++) {
+            pedido.adicionarItem(produtoCodec.ler(entrada), entrada.readInt());
+        }
+        return pedido;
+    }
+}
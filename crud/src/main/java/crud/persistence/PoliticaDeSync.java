@@ -0,0 +1,24 @@
+package crud.persistence;
+
+/**
+ * Quando o {@link WriteAheadLog} força os registros para o disco (fsync).
+ */
+public enum PoliticaDeSync {
+    /**
+     * Cada escrita só retorna depois do seu próprio fsync. Mais seguro e mais lento.
+     */
+    POR_ESCRITA,
+
+    /**
+     * Cada escrita só retorna depois de estar no disco, mas escritas concorrentes
+     * compartilham o mesmo fsync (group commit). Mesma garantia de POR_ESCRITA com
+     * muito menos fsyncs sob carga.
+     */
+    AGRUPADA,
+
+    /**
+     * Escritas retornam sem esperar o disco; uma thread de fundo faz o fsync a cada
+     * intervalo. Uma queda pode perder as escritas do último intervalo.
+     */
+    INTERVALO
+}
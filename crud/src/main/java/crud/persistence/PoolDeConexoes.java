@@ -0,0 +1,206 @@
+package crud.persistence;
+
+import crud.exception.PersistenciaException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool limitado de conexões JDBC, cada uma com seu cache de {@link PreparedStatement}.
+ * <p>
+ * No máximo {@code tamanho} conexões existem ao mesmo tempo; elas são abertas sob
+ * demanda e reaproveitadas. Quem não consegue uma conexão dentro do tempo de espera
+ * recebe {@link PersistenciaException}, em vez de abrir conexões sem limite.
+ * <p>
+ * Cada operação roda em uma transação: é confirmada se terminar normalmente e
+ * desfeita se lançar exceção. As conexões livres são reusadas da mais recente para
+ * a mais antiga, para que as mais usadas mantenham os statements já preparados.
+ */
+public class PoolDeConexoes implements AutoCloseable {
+    // Statements distintos por conexão; os stores usam bem menos que isso
+    private static final int STATEMENTS_POR_CONEXAO = 64;
+
+    private final String url;
+    private final Semaphore vagas;
+    private final Duration espera;
+    private final ConcurrentLinkedDeque<Conexao> livres = new ConcurrentLinkedDeque<>();
+    private volatile boolean fechado;
+
+    public PoolDeConexoes(String url, int tamanho, Duration espera) {
+        if (tamanho <= 0) {
+            throw new IllegalArgumentException("O pool deve ter pelo menos uma conexão.");
+        }
+        this.url = url;
+        this.vagas = new Semaphore(tamanho, true);
+        this.espera = espera;
+    }
+
+    /**
+     * Operação sobre uma conexão emprestada do pool.
+     */
+    @FunctionalInterface
+    public interface Operacao<R> {
+        R executar(Conexao conexao) throws SQLException;
+    }
+
+    /**
+     * Conexão do pool. Os statements preparados pertencem a ela: não devem ser
+     * fechados por quem os usa nem guardados depois da operação.
+     */
+    public static final class Conexao {
+        private final Connection jdbc;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> maisAntigo) {
+                        if (size() <= STATEMENTS_POR_CONEXAO) {
+                            return false;
+                        }
+                        fecharEmSilencio(maisAntigo.getValue());
+                        return true;
+                    }
+                };
+
+        private Conexao(Connection jdbc) {
+            this.jdbc = jdbc;
+        }
+
+        /**
+         * Statement preparado para o SQL, criado na primeira vez e reaproveitado depois.
+         */
+        public PreparedStatement preparar(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = jdbc.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            statement.clearParameters();
+            return statement;
+        }
+
+        /**
+         * Statement avulso, para comandos que rodam uma vez só (como criar tabelas).
+         * Deve ser fechado por quem o criou.
+         */
+        public Statement criarStatement() throws SQLException {
+            return jdbc.createStatement();
+        }
+
+        /**
+         * Array SQL de BIGINT, para consultas como {@code id = ANY(?)}.
+         */
+        public Array arrayDeIds(long[] ids) throws SQLException {
+            return jdbc.createArrayOf("BIGINT", Arrays.stream(ids).boxed().toArray());
+        }
+
+        private void fechar() {
+            statements.values().forEach(Conexao::fecharEmSilencio);
+            statements.clear();
+            try {
+                jdbc.close();
+            } catch (SQLException e) {
+                // A conexão já estava inutilizada
+            }
+        }
+
+        private static void fecharEmSilencio(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Nada a fazer: o statement será descartado
+            }
+        }
+    }
+
+    /**
+     * Executa a operação em uma transação com uma conexão do pool.
+     *
+     * @throws PersistenciaException se o banco falhar ou não houver conexão livre a tempo
+     */
+    public <R> R executar(Operacao<R> operacao) {
+        Conexao conexao = obter();
+        boolean reutilizavel = true;
+        try {
+            R resultado = operacao.executar(conexao);
+            conexao.jdbc.commit();
+            return resultado;
+        } catch (SQLException e) {
+            reutilizavel = desfazer(conexao);
+            throw new PersistenciaException("Erro no banco SQL: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            reutilizavel = desfazer(conexao);
+            throw e;
+        } finally {
+            devolver(conexao, reutilizavel);
+        }
+    }
+
+    private Conexao obter() {
+        if (fechado) {
+            throw new IllegalStateException("Pool de conexões fechado.");
+        }
+        try {
+            if (!vagas.tryAcquire(espera.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new PersistenciaException("Nenhuma conexão livre em " + espera.toMillis() + " ms.", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenciaException("Interrompido esperando uma conexão.", e);
+        }
+        Conexao livre = livres.pollFirst();
+        if (livre != null) {
+            return livre;
+        }
+        try {
+            Connection jdbc = DriverManager.getConnection(url);
+            jdbc.setAutoCommit(false);
+            return new Conexao(jdbc);
+        } catch (SQLException e) {
+            vagas.release();
+            throw new PersistenciaException("Erro ao conectar ao banco SQL: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Desfaz a transação e diz se a conexão continua utilizável.
+     */
+    private static boolean desfazer(Conexao conexao) {
+        try {
+            conexao.jdbc.rollback();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void devolver(Conexao conexao, boolean reutilizavel) {
+        if (reutilizavel && !fechado) {
+            livres.offerFirst(conexao);
+        } else {
+            conexao.fechar();
+        }
+        vagas.release();
+        // Fechado enquanto a conexão estava emprestada
+        if (fechado && livres.remove(conexao)) {
+            conexao.fechar();
+        }
+    }
+
+    @Override
+    public void close() {
+        fechado = true;
+        for (Conexao conexao; (conexao = livres.pollFirst()) != null; ) {
+            conexao.fechar();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codec binário de {@link Produto}: ID, nome, preço e estoque, todos anuláveis.
+ * Lê e grava os campos primitivos do produto direto, sem boxing.
+ */
+public class ProdutoCodec implements Codec<Produto> {
+    @Override
+    public void escrever(Produto produto, DataOutput saida) throws IOException {
+        Binario.escreverLong(saida, produto.temId(), produto.id());
+        Binario.escreverTexto(saida, produto.getNome());
+        Binario.escreverDouble(saida, produto.temPreco(), produto.preco());
+        Binario.escreverInt(saida, produto.temEstoque(), produto.estoque());
+    }
+
+    @Override
+    public Produto ler(DataInput entrada) throws IOException {
+        long id = Binario.lerLong(entrada, Produto.SEM_ID);
+        String nome = Binario.lerTexto(entrada);
+        double preco = Binario.lerDouble(entrada, Produto.SEM_PRECO);
+        int estoque = Binario.lerInt(entrada, Produto.SEM_ESTOQUE);
+        return Produto.de(id, nome, preco, estoque);
+    }
+}
@@ -0,0 +1,19 @@
+package crud.persistence;
+
+/**
+ * Armazenamento durável que guarda, entre reinícios, o próximo ID que o
+ * repositório deve usar.
+ * <p>
+ * Depois de uma reabertura o repositório continua a sequência a partir do maior
+ * ID existente, mas um ID removido não aparece mais entre as entidades; sem esta
+ * marca, apagar o maior ID e reiniciar faria o próximo pedido ou produto reutilizá-lo.
+ * Por isso basta lembrar os IDs removidos: os gravados continuam visíveis no
+ * próprio armazenamento. Um clear zera a marca, como o deleteAll zera a sequência.
+ */
+public interface ProximoIdDuravel {
+    /**
+     * Próximo ID que nenhum registro removido desde o último clear alcança, ou 0 se
+     * nada foi removido.
+     */
+    long proximoIdRecuperado();
+}
@@ -0,0 +1,308 @@
+package crud.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Segmento imutável do {@link LsmEntityStore}: registros em ordem crescente de ID,
+ * gravados uma única vez, com um índice esparso e um {@link FiltroDeBloom} mantidos
+ * em memória.
+ * <p>
+ * Formato do arquivo:
+ * <ul>
+ *   <li>os registros {@code [id][ordem][tamanho][dados]}; tamanho -1 marca uma lápide</li>
+ *   <li>o índice esparso {@code [quantidade]([id][posição])*}, com a posição de um a
+ *   cada {@value #INTERVALO_DO_INDICE} registros</li>
+ *   <li>o filtro de Bloom dos IDs</li>
+ *   <li>um rodapé fixo {@code [posição do índice][quantidade][menor ID][maior ID][mágico]}</li>
+ * </ul>
+ * Uma busca consulta o filtro, acha o bloco no índice por busca binária e lê só
+ * esse bloco do disco.
+ */
+final class SegmentoLsm implements Closeable {
+    static final int INTERVALO_DO_INDICE = 32;
+    private static final int MAGICO = 0x4C534D53;
+    private static final int RODAPE = Long.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * Versão de uma entidade: o estado serializado ou uma lápide de remoção. A ordem
+     * é a de inserção, preservada pelo armazenamento como nos demais.
+     */
+    static final class Registro {
+        final long id;
+        final long ordem;
+        // null em lápides
+        final byte[] dados;
+
+        Registro(long id, long ordem, byte[] dados) {
+            this.id = id;
+            this.ordem = ordem;
+            this.dados = dados;
+        }
+
+        static Registro lapide(long id) {
+            return new Registro(id, -1, null);
+        }
+
+        boolean isLapide() {
+            return dados == null;
+        }
+
+        /**
+         * Bytes ocupados no segmento, usados também para estimar o tamanho da memtable.
+         */
+        int tamanho() {
+            return Long.BYTES * 2 + Integer.BYTES + (dados == null ? 0 : dados.length);
+        }
+    }
+
+    /**
+     * Sequência de registros em ordem crescente de ID.
+     */
+    interface Fonte extends Closeable {
+        /**
+         * Próximo registro, ou null no fim.
+         */
+        Registro proximo() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+
+        static Fonte de(Iterator<Registro> registros) {
+            return () -> registros.hasNext() ? registros.next() : null;
+        }
+    }
+
+    private final long numero;
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final long[] idsDoIndice;
+    private final long[] posicoesDoIndice;
+    private final long fimDosRegistros;
+    private final FiltroDeBloom filtro;
+    private final int quantidade;
+    private final long menorId;
+    private final long maiorId;
+
+    private SegmentoLsm(long numero, Path arquivo, long[] idsDoIndice, long[] posicoesDoIndice,
+                        long fimDosRegistros, FiltroDeBloom filtro, int quantidade, long menorId, long maiorId)
+            throws IOException {
+        this.numero = numero;
+        this.arquivo = arquivo;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        this.idsDoIndice = idsDoIndice;
+        this.posicoesDoIndice = posicoesDoIndice;
+        this.fimDosRegistros = fimDosRegistros;
+        this.filtro = filtro;
+        this.quantidade = quantidade;
+        this.menorId = menorId;
+        this.maiorId = maiorId;
+    }
+
+    /**
+     * Grava os registros (em ordem crescente de ID, sem repetir IDs) em um arquivo
+     * ao lado, que é sincronizado e renomeado atomicamente para {@code arquivo}.
+     *
+     * @param capacidade Limite superior da quantidade de registros, para dimensionar o filtro
+     */
+    static SegmentoLsm escrever(Path arquivo, long numero, Fonte registros, int capacidade) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        FiltroDeBloom filtro = FiltroDeBloom.paraQuantidade(capacidade);
+        long[] idsDoIndice = new long[16];
+        long[] posicoesDoIndice = new long[16];
+        int entradasDoIndice = 0;
+        int quantidade = 0;
+        long menorId = Long.MAX_VALUE;
+        long maiorId = Long.MIN_VALUE;
+        long posicao = 0;
+        try (FileOutputStream saidaDoArquivo = new FileOutputStream(temporario.toFile())) {
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(saidaDoArquivo, 64 * 1024));
+            for (Registro registro; (registro = registros.proximo()) != null; ) {
+                if (registro.id <= maiorId) {
+                    throw new IllegalArgumentException("Registros fora de ordem no segmento: " + registro.id);
+                }
+                if (quantidade % INTERVALO_DO_INDICE == 0) {
+                    if (entradasDoIndice == idsDoIndice.length) {
+                        idsDoIndice = Arrays.copyOf(idsDoIndice, entradasDoIndice * 2);
+                        posicoesDoIndice = Arrays.copyOf(posicoesDoIndice, entradasDoIndice * 2);
+                    }
+                    idsDoIndice[entradasDoIndice] = registro.id;
+                    posicoesDoIndice[entradasDoIndice++] = posicao;
+                }
+                saida.writeLong(registro.id);
+                saida.writeLong(registro.ordem);
+                saida.writeInt(registro.isLapide() ? -1 : registro.dados.length);
+                if (!registro.isLapide()) {
+                    saida.write(registro.dados);
+                }
+                posicao += registro.tamanho();
+                filtro.adicionar(registro.id);
+                menorId = Math.min(menorId, registro.id);
+                maiorId = registro.id;
+                quantidade++;
+            }
+            saida.writeInt(entradasDoIndice);
+            for (int i = 0; i < entradasDoIndice; i++) {
+                saida.writeLong(idsDoIndice[i]);
+                saida.writeLong(posicoesDoIndice[i]);
+            }
+            filtro.escrever(saida);
+            saida.writeLong(posicao);
+            saida.writeInt(quantidade);
+            saida.writeLong(menorId);
+            saida.writeLong(maiorId);
+            saida.writeInt(MAGICO);
+            saida.flush();
+            saidaDoArquivo.getChannel().force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new SegmentoLsm(numero, arquivo, Arrays.copyOf(idsDoIndice, entradasDoIndice),
+                Arrays.copyOf(posicoesDoIndice, entradasDoIndice), posicao, filtro, quantidade, menorId, maiorId);
+    }
+
+    /**
+     * Abre um segmento já gravado, carregando o índice esparso e o filtro.
+     */
+    static SegmentoLsm abrir(Path arquivo, long numero) throws IOException {
+        try (FileChannel leitura = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanhoDoArquivo = leitura.size();
+            if (tamanhoDoArquivo < RODAPE) {
+                throw new IOException("Segmento " + arquivo + " incompleto.");
+            }
+            ByteBuffer rodape = lerTudo(leitura, tamanhoDoArquivo - RODAPE, RODAPE);
+            long fimDosRegistros = rodape.getLong();
+            int quantidade = rodape.getInt();
+            long menorId = rodape.getLong();
+            long maiorId = rodape.getLong();
+            if (rodape.getInt() != MAGICO || fimDosRegistros < 0 || fimDosRegistros > tamanhoDoArquivo - RODAPE) {
+                throw new IOException("Segmento " + arquivo + " corrompido.");
+            }
+            ByteBuffer metadados = lerTudo(leitura, fimDosRegistros,
+                    Math.toIntExact(tamanhoDoArquivo - RODAPE - fimDosRegistros));
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(
+                    metadados.array(), 0, metadados.limit()));
+            int entradasDoIndice = entrada.readInt();
+            long[] idsDoIndice = new long[entradasDoIndice];
+            long[] posicoesDoIndice = new long[entradasDoIndice];
+            for (int i = 0; i < entradasDoIndice; i++) {
+                idsDoIndice[i] = entrada.readLong();
+                posicoesDoIndice[i] = entrada.readLong();
+            }
+            FiltroDeBloom filtro = FiltroDeBloom.ler(entrada);
+            return new SegmentoLsm(numero, arquivo, idsDoIndice, posicoesDoIndice, fimDosRegistros,
+                    filtro, quantidade, menorId, maiorId);
+        }
+    }
+
+    /**
+     * Registro do ID neste segmento (possivelmente uma lápide), ou null se não houver.
+     * Pode lançar {@link java.nio.channels.ClosedChannelException} se o segmento foi
+     * fechado por uma compactação durante a busca.
+     */
+    Registro buscar(long id) throws IOException {
+        if (id < menorId || id > maiorId || !filtro.podeConter(id)) {
+            return null;
+        }
+        int bloco = Arrays.binarySearch(idsDoIndice, id);
+        if (bloco < 0) {
+            bloco = -bloco - 2;
+        }
+        long inicio = posicoesDoIndice[bloco];
+        long fim = bloco + 1 < posicoesDoIndice.length ? posicoesDoIndice[bloco + 1] : fimDosRegistros;
+        ByteBuffer buffer = lerTudo(canal, inicio, Math.toIntExact(fim - inicio));
+        while (buffer.hasRemaining()) {
+            long encontrado = buffer.getLong();
+            long ordem = buffer.getLong();
+            int tamanho = buffer.getInt();
+            if (encontrado > id) {
+                return null;
+            }
+            if (encontrado == id) {
+                byte[] dados = null;
+                if (tamanho >= 0) {
+                    dados = new byte[tamanho];
+                    buffer.get(dados);
+                }
+                return new Registro(id, ordem, dados);
+            }
+            buffer.position(buffer.position() + Math.max(0, tamanho));
+        }
+        return null;
+    }
+
+    /**
+     * Lê todos os registros em ordem de ID com um fluxo próprio, que continua
+     * válido mesmo se o segmento for fechado por uma compactação no meio da leitura.
+     */
+    Fonte ler() throws IOException {
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo), 64 * 1024));
+        return new Fonte() {
+            private int lidos;
+
+            @Override
+            public Registro proximo() throws IOException {
+                if (lidos == quantidade) {
+                    return null;
+                }
+                lidos++;
+                long id = entrada.readLong();
+                long ordem = entrada.readLong();
+                int tamanho = entrada.readInt();
+                byte[] dados = null;
+                if (tamanho >= 0) {
+                    dados = new byte[tamanho];
+                    entrada.readFully(dados);
+                }
+                return new Registro(id, ordem, dados);
+            }
+
+            @Override
+            public void close() throws IOException {
+                entrada.close();
+            }
+        };
+    }
+
+    private static ByteBuffer lerTudo(FileChannel canal, long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                throw new EOFException("Segmento terminou antes do esperado.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    long numero() {
+        return numero;
+    }
+
+    Path arquivo() {
+        return arquivo;
+    }
+
+    int quantidade() {
+        return quantidade;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
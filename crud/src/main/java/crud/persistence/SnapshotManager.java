@@ -0,0 +1,104 @@
+package crud.persistence;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Grava snapshots periódicos dos armazenamentos duráveis em uma thread de fundo.
+ * <p>
+ * A cada intervalo, cada armazenamento com pelo menos {@code minimoDeRegistros}
+ * registros no log desde o último snapshot é fotografado. Assim a cauda do log que
+ * a recuperação precisa reproduzir fica limitada, não importa quanto tempo o
+ * sistema rodou.
+ */
+public class SnapshotManager implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotManager.class);
+
+    private final List<Registrado> registrados = new CopyOnWriteArrayList<>();
+    private final long minimoDeRegistros;
+    private final ScheduledExecutorService agendador;
+
+    public SnapshotManager(Duration intervalo, long minimoDeRegistros) {
+        this.minimoDeRegistros = minimoDeRegistros;
+        this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodo = Math.max(1, intervalo.toMillis());
+        agendador.scheduleWithFixedDelay(this::fotografarPendentes, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Inclui um armazenamento nos snapshots.
+     *
+     * @param proximoId próximo ID do repositório, gravado junto com o snapshot
+     */
+    public void registrar(String nome, WalEntityStore<?> store, LongSupplier proximoId) {
+        registrados.add(new Registrado(nome, store, proximoId));
+    }
+
+    /**
+     * Fotografa os armazenamentos que atingiram o mínimo de registros desde o último snapshot.
+     */
+    public void fotografarPendentes() {
+        for (Registrado registrado : registrados) {
+            if (registrado.store.registrosDesdeSnapshot() >= minimoDeRegistros) {
+                fotografar(registrado);
+            }
+        }
+    }
+
+    /**
+     * Fotografa todos os armazenamentos que tiveram alguma escrita desde o último snapshot.
+     */
+    public void fotografarTodos() {
+        for (Registrado registrado : registrados) {
+            if (registrado.store.registrosDesdeSnapshot() > 0) {
+                fotografar(registrado);
+            }
+        }
+    }
+
+    private void fotografar(Registrado registrado) {
+        long inicio = System.nanoTime();
+        try {
+            registrado.store.fotografar(registrado.proximoId);
+            LOG.info("Snapshot de {} gravado em {} ms ({} registros)", registrado.nome,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), registrado.store.size());
+        } catch (RuntimeException e) {
+            // O log continua íntegro; a próxima tentativa grava o snapshot
+            LOG.error("Falha ao gravar o snapshot de {}", registrado.nome, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        agendador.shutdown();
+        try {
+            agendador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Registrado {
+        private final String nome;
+        private final WalEntityStore<?> store;
+        private final LongSupplier proximoId;
+
+        Registrado(String nome, WalEntityStore<?> store, LongSupplier proximoId) {
+            this.nome = nome;
+            this.store = store;
+            this.proximoId = proximoId;
+        }
+    }
+}
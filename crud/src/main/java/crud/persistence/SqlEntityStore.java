@@ -0,0 +1,192 @@
+package crud.persistence;
+
+import crud.persistence.PoolDeConexoes.Conexao;
+import crud.repository.EntityStore;
+import crud.repository.LongObjConsumer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base dos armazenamentos em tabelas do {@link BancoSql}.
+ * <p>
+ * Cada chamada roda em uma transação com uma conexão do pool. {@link #putAll}
+ * lê as linhas existentes com uma única consulta e grava o lote com
+ * {@link PreparedStatement#executeBatch()}: inserções para IDs novos e atualizações
+ * para os existentes, que mantêm a coluna {@code ordem} e, com ela, a posição na
+ * ordem de inserção.
+ * <p>
+ * Remoções elevam a linha da tabela em {@code proximos_ids}, e {@link #clear} a zera,
+ * para que o repositório não reutilize o maior ID depois de um reinício.
+ *
+ * @param <T> Tipo da entidade
+ */
+abstract class SqlEntityStore<T> implements EntityStore<T>, ProximoIdDuravel {
+    protected final PoolDeConexoes pool;
+    private final BancoSql banco;
+    private final String sqlContar;
+    private final String sqlRemover;
+    private final String sqlLimpar;
+    private final String sqlAvancarProximoId;
+    private final String sqlZerarProximoId;
+    private final String sqlLerProximoId;
+
+    SqlEntityStore(BancoSql banco, PoolDeConexoes pool, String tabela) {
+        this.banco = banco;
+        this.pool = pool;
+        this.sqlContar = "SELECT COUNT(*) FROM " + tabela;
+        this.sqlRemover = "DELETE FROM " + tabela + " WHERE id = ?";
+        this.sqlLimpar = "DELETE FROM " + tabela;
+        String linha = " WHERE tabela = '" + tabela + "'";
+        this.sqlAvancarProximoId = "UPDATE proximos_ids SET proximo = GREATEST(proximo, ?)" + linha;
+        this.sqlZerarProximoId = "UPDATE proximos_ids SET proximo = 0" + linha;
+        this.sqlLerProximoId = "SELECT proximo FROM proximos_ids" + linha;
+    }
+
+    /**
+     * Lê as entidades dos IDs, em qualquer ordem; IDs inexistentes são ignorados.
+     */
+    protected abstract void ler(Conexao conexao, long[] ids, LongObjConsumer<T> destino) throws SQLException;
+
+    /**
+     * Lê todas as entidades na ordem de inserção.
+     */
+    protected abstract void lerTodas(Conexao conexao, LongObjConsumer<? super T> destino) throws SQLException;
+
+    protected abstract void inserir(Conexao conexao, long[] ids, List<T> valores) throws SQLException;
+
+    protected abstract void atualizar(Conexao conexao, long[] ids, List<T> valores) throws SQLException;
+
+    @Override
+    public T get(long id) {
+        return pool.executar(conexao -> buscar(conexao, new long[]{id}).get(id));
+    }
+
+    @Override
+    public T put(long id, T valor) {
+        return putAll(new long[]{id}, List.of(valor)).get(0);
+    }
+
+    /**
+     * Grava o lote em uma transação. Um ID repetido no lote é gravado uma vez, com
+     * o último valor, e cada posição recebe como anterior o valor da posição
+     * anterior do mesmo ID, como em puts em sequência.
+     */
+    @Override
+    public List<T> putAll(long[] ids, List<T> valores) {
+        return pool.executar(conexao -> {
+            Map<Long, T> existentes = buscar(conexao, Arrays.stream(ids).distinct().toArray());
+            Map<Long, T> finais = new LinkedHashMap<>();
+            List<T> anteriores = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                T anterior = finais.containsKey(ids[i]) ? finais.get(ids[i]) : existentes.get(ids[i]);
+                anteriores.add(anterior);
+                finais.put(ids[i], valores.get(i));
+            }
+
+            List<Long> novos = new ArrayList<>();
+            List<Long> alterados = new ArrayList<>();
+            for (Long id : finais.keySet()) {
+                (existentes.containsKey(id) ? alterados : novos).add(id);
+            }
+            if (!novos.isEmpty()) {
+                inserir(conexao, paraArray(novos), novos.stream().map(finais::get).toList());
+            }
+            if (!alterados.isEmpty()) {
+                atualizar(conexao, paraArray(alterados), alterados.stream().map(finais::get).toList());
+            }
+            return anteriores;
+        });
+    }
+
+    @Override
+    public T remove(long id) {
+        return pool.executar(conexao -> {
+            T anterior = buscar(conexao, new long[]{id}).get(id);
+            if (anterior != null) {
+                PreparedStatement remover = conexao.preparar(sqlRemover);
+                remover.setLong(1, id);
+                remover.executeUpdate();
+                PreparedStatement avancar = conexao.preparar(sqlAvancarProximoId);
+                avancar.setLong(1, id + 1);
+                avancar.executeUpdate();
+            }
+            return anterior;
+        });
+    }
+
+    @Override
+    public void clear() {
+        pool.executar(conexao -> {
+            conexao.preparar(sqlZerarProximoId).executeUpdate();
+            return conexao.preparar(sqlLimpar).executeUpdate();
+        });
+    }
+
+    @Override
+    public long proximoIdRecuperado() {
+        return pool.executar(conexao -> {
+            try (ResultSet linhas = conexao.preparar(sqlLerProximoId).executeQuery()) {
+                return linhas.next() ? linhas.getLong(1) : 0L;
+            }
+        });
+    }
+
+    @Override
+    public boolean guardaCodificado() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return pool.executar(conexao -> {
+            try (ResultSet linhas = conexao.preparar(sqlContar).executeQuery()) {
+                linhas.next();
+                return linhas.getInt(1);
+            }
+        });
+    }
+
+    @Override
+    public List<T> values() {
+        List<T> valores = new ArrayList<>();
+        forEach((id, valor) -> valores.add(valor));
+        return valores;
+    }
+
+    /**
+     * Percorre as linhas de uma única consulta, com uma conexão do pool ocupada
+     * até o fim.
+     */
+    @Override
+    public void forEach(LongObjConsumer<? super T> acao) {
+        pool.executar(conexao -> {
+            lerTodas(conexao, acao);
+            return null;
+        });
+    }
+
+    /**
+     * Fecha o banco inteiro, compartilhado com o outro armazenamento.
+     */
+    @Override
+    public void close() {
+        banco.close();
+    }
+
+    private Map<Long, T> buscar(Conexao conexao, long[] ids) throws SQLException {
+        Map<Long, T> encontrados = new HashMap<>();
+        ler(conexao, ids, encontrados::put);
+        return encontrados;
+    }
+
+    private static long[] paraArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,140 @@
+package crud.persistence;
+
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.persistence.PoolDeConexoes.Conexao;
+import crud.repository.LongObjConsumer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Pedidos nas tabelas {@code pedidos} e {@code itens_pedido} do {@link BancoSql}.
+ * <p>
+ * Os itens ficam normalizados, uma linha por item com a posição no pedido. Como no
+ * {@link PedidoCodec}, cada item guarda uma cópia do produto como estava no momento
+ * do pedido, então remover ou alterar o produto depois não muda pedidos antigos.
+ * <p>
+ * Um pedido é lido com uma única consulta, juntando as duas tabelas. Atualizar um
+ * pedido substitui todos os seus itens.
+ */
+public class SqlPedidoStore extends SqlEntityStore<Pedido> {
+    private static final String SELECIONAR = "SELECT p.id, p.cliente, p.data_criacao, i.produto_id, i.produto_nome,"
+            + " i.produto_preco, i.produto_estoque, i.quantidade"
+            + " FROM pedidos p LEFT JOIN itens_pedido i ON i.pedido_id = p.id";
+    private static final String LER = SELECIONAR + " WHERE p.id = ANY(?) ORDER BY p.id, i.posicao";
+    private static final String LER_TODOS = SELECIONAR + " ORDER BY p.ordem, i.posicao";
+    private static final String INSERIR =
+            "INSERT INTO pedidos (id, ordem, cliente, data_criacao) VALUES (?, NEXT VALUE FOR pedidos_ordem, ?, ?)";
+    private static final String ATUALIZAR = "UPDATE pedidos SET cliente = ?, data_criacao = ? WHERE id = ?";
+    private static final String REMOVER_ITENS = "DELETE FROM itens_pedido WHERE pedido_id = ?";
+    private static final String INSERIR_ITEM = "INSERT INTO itens_pedido (pedido_id, posicao, produto_id, produto_nome,"
+            + " produto_preco, produto_estoque, quantidade) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    SqlPedidoStore(BancoSql banco, PoolDeConexoes pool) {
+        super(banco, pool, "pedidos");
+    }
+
+    @Override
+    protected void ler(Conexao conexao, long[] ids, LongObjConsumer<Pedido> destino) throws SQLException {
+        PreparedStatement consulta = conexao.preparar(LER);
+        consulta.setArray(1, conexao.arrayDeIds(ids));
+        percorrer(consulta, destino);
+    }
+
+    @Override
+    protected void lerTodas(Conexao conexao, LongObjConsumer<? super Pedido> destino) throws SQLException {
+        percorrer(conexao.preparar(LER_TODOS), destino);
+    }
+
+    @Override
+    protected void inserir(Conexao conexao, long[] ids, List<Pedido> pedidos) throws SQLException {
+        PreparedStatement inserir = conexao.preparar(INSERIR);
+        for (int i = 0; i < ids.length; i++) {
+            inserir.setLong(1, ids[i]);
+            preencher(inserir, 2, pedidos.get(i));
+            inserir.addBatch();
+        }
+        inserir.executeBatch();
+        inserirItens(conexao, ids, pedidos);
+    }
+
+    @Override
+    protected void atualizar(Conexao conexao, long[] ids, List<Pedido> pedidos) throws SQLException {
+        PreparedStatement atualizar = conexao.preparar(ATUALIZAR);
+        PreparedStatement removerItens = conexao.preparar(REMOVER_ITENS);
+        for (int i = 0; i < ids.length; i++) {
+            preencher(atualizar, 1, pedidos.get(i));
+            atualizar.setLong(3, ids[i]);
+            atualizar.addBatch();
+            removerItens.setLong(1, ids[i]);
+            removerItens.addBatch();
+        }
+        atualizar.executeBatch();
+        removerItens.executeBatch();
+        inserirItens(conexao, ids, pedidos);
+    }
+
+    private static void preencher(PreparedStatement statement, int primeiro, Pedido pedido) throws SQLException {
+        statement.setObject(primeiro, pedido.getCliente(), Types.VARCHAR);
+        statement.setObject(primeiro + 1, pedido.getDataCriacao(), Types.TIMESTAMP);
+    }
+
+    private static void inserirItens(Conexao conexao, long[] ids, List<Pedido> pedidos) throws SQLException {
+        PreparedStatement inserir = conexao.preparar(INSERIR_ITEM);
+        boolean algum = false;
+        for (int i = 0; i < ids.length; i++) {
+            Pedido pedido = pedidos.get(i);
+            for (int posicao = 0; posicao < pedido.quantidadeDeItens(); posicao++) {
+                Produto produto = pedido.produtoDoItem(posicao);
+                inserir.setLong(1, ids[i]);
+                inserir.setInt(2, posicao);
+                inserir.setObject(3, produto.getId(), Types.BIGINT);
+                inserir.setObject(4, produto.getNome(), Types.VARCHAR);
+                inserir.setObject(5, produto.getPreco(), Types.DOUBLE);
+                inserir.setObject(6, produto.getEstoque(), Types.INTEGER);
+                inserir.setInt(7, pedido.quantidadeDoItem(posicao));
+                inserir.addBatch();
+                algum = true;
+            }
+        }
+        if (algum) {
+            inserir.executeBatch();
+        }
+    }
+
+    /**
+     * Monta os pedidos a partir das linhas da junção, que chegam agrupadas por
+     * pedido e com os itens em ordem. Pedidos sem itens vêm em uma linha só, com as
+     * colunas do item nulas.
+     */
+    private static void percorrer(PreparedStatement consulta, LongObjConsumer<? super Pedido> destino)
+            throws SQLException {
+        try (ResultSet linhas = consulta.executeQuery()) {
+            Pedido atual = null;
+            while (linhas.next()) {
+                long id = linhas.getLong(1);
+                if (atual == null || atual.getId() != id) {
+                    if (atual != null) {
+                        destino.accept(atual.getId(), atual);
+                    }
+                    atual = new Pedido(linhas.getString(2));
+                    atual.setId(id);
+                    atual.setDataCriacao(linhas.getObject(3, LocalDateTime.class));
+                }
+                Integer quantidade = linhas.getObject(8, Integer.class);
+                if (quantidade != null) {
+                    Produto produto = new Produto(linhas.getObject(4, Long.class), linhas.getString(5),
+                            linhas.getObject(6, Double.class), linhas.getObject(7, Integer.class));
+                    atual.adicionarItem(produto, quantidade);
+                }
+            }
+            if (atual != null) {
+                destino.accept(atual.getId(), atual);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import crud.persistence.PoolDeConexoes.Conexao;
+import crud.repository.LongObjConsumer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Produtos na tabela {@code produtos} do {@link BancoSql}, uma linha por produto.
+ */
+public class SqlProdutoStore extends SqlEntityStore<Produto> {
+    private static final String SELECIONAR = "SELECT id, nome, preco, estoque FROM produtos";
+    private static final String LER = SELECIONAR + " WHERE id = ANY(?)";
+    private static final String LER_TODOS = SELECIONAR + " ORDER BY ordem";
+    private static final String INSERIR =
+            "INSERT INTO produtos (id, ordem, nome, preco, estoque) VALUES (?, NEXT VALUE FOR produtos_ordem, ?, ?, ?)";
+    private static final String ATUALIZAR = "UPDATE produtos SET nome = ?, preco = ?, estoque = ? WHERE id = ?";
+
+    SqlProdutoStore(BancoSql banco, PoolDeConexoes pool) {
+        super(banco, pool, "produtos");
+    }
+
+    @Override
+    protected void ler(Conexao conexao, long[] ids, LongObjConsumer<Produto> destino) throws SQLException {
+        PreparedStatement consulta = conexao.preparar(LER);
+        consulta.setArray(1, conexao.arrayDeIds(ids));
+        percorrer(consulta, destino);
+    }
+
+    @Override
+    protected void lerTodas(Conexao conexao, LongObjConsumer<? super Produto> destino) throws SQLException {
+        percorrer(conexao.preparar(LER_TODOS), destino);
+    }
+
+    @Override
+    protected void inserir(Conexao conexao, long[] ids, List<Produto> produtos) throws SQLException {
+        PreparedStatement inserir = conexao.preparar(INSERIR);
+        for (int i = 0; i < ids.length; i++) {
+            inserir.setLong(1, ids[i]);
+            preencher(inserir, 2, produtos.get(i));
+            inserir.addBatch();
+        }
+        inserir.executeBatch();
+    }
+
+    @Override
+    protected void atualizar(Conexao conexao, long[] ids, List<Produto> produtos) throws SQLException {
+        PreparedStatement atualizar = conexao.preparar(ATUALIZAR);
+        for (int i = 0; i < ids.length; i++) {
+            preencher(atualizar, 1, produtos.get(i));
+            atualizar.setLong(4, ids[i]);
+            atualizar.addBatch();
+        }
+        atualizar.executeBatch();
+    }
+
+    private static void preencher(PreparedStatement statement, int primeiro, Produto produto) throws SQLException {
+        statement.setObject(primeiro, produto.getNome(), Types.VARCHAR);
+        statement.setObject(primeiro + 1, produto.getPreco(), Types.DOUBLE);
+        statement.setObject(primeiro + 2, produto.getEstoque(), Types.INTEGER);
+    }
+
+    private static void percorrer(PreparedStatement consulta, LongObjConsumer<? super Produto> destino)
+            throws SQLException {
+        try (ResultSet linhas = consulta.executeQuery()) {
+            while (linhas.next()) {
+                long id = linhas.getLong(1);
+                destino.accept(id, new Produto(id, linhas.getString(2),
+                        linhas.getObject(3, Double.class), linhas.getObject(4, Integer.class)));
+            }
+        }
+    }
+}
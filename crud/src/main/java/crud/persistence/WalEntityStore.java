@@ -0,0 +1,464 @@
+package crud.persistence;
+
+import crud.exception.PersistenciaException;
+import crud.repository.EntityStore;
+import crud.repository.LongObjConsumer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Armazenamento durável: grava cada alteração no {@link WriteAheadLog} antes de
+ * aplicá-la ao armazenamento em memória, que continua atendendo todas as leituras.
+ * <p>
+ * No diretório de dados, cada armazenamento usa:
+ * <ul>
+ *   <li>{@code <nome>-<segmento>.wal}: segmentos do log, em ordem crescente</li>
+ *   <li>{@code <nome>.snapshot}: fotografia do estado no início de um segmento,
+ *   com o próximo ID do repositório; remoções posteriores a ele o elevam na recuperação</li>
+ * </ul>
+ * Ao abrir, carrega o snapshot e reproduz só os segmentos a partir dele, então o
+ * tempo de recuperação depende do tamanho do estado e da cauda do log, não do
+ * histórico inteiro. {@link #fotografar} rotaciona o log e grava um novo snapshot
+ * sem bloquear as escritas durante a cópia.
+ * <p>
+ * Escritas do mesmo ID devem ser serializadas pelo chamador (os repositórios já
+ * fazem isso), para que a ordem no log seja a mesma da memória.
+ *
+ * @param <T> Tipo da entidade
+ */
+public class WalEntityStore<T> implements EntityStore<T>, ProximoIdDuravel {
+    private static final int MAGICO = 0x43525544;
+    private static final int VERSAO = 1;
+
+    private final EntityStore<T> memoria;
+    private final Codec<T> codec;
+    private final Path diretorio;
+    private final String nome;
+    private final Pattern padraoDeSegmento;
+    private final WriteAheadLog log;
+
+    // Escritas compartilham a trava de leitura; a rotação do log usa a de escrita
+    // para que nenhum registro do segmento antigo fique fora da memória copiada
+    private final ReadWriteLock escritas = new ReentrantReadWriteLock();
+    // Serializa snapshots e limpezas, que trocam de segmento
+    private final ReentrantLock fotografando = new ReentrantLock();
+    private long segmentoAtual;
+
+    private final AtomicLong registrosDesdeSnapshot = new AtomicLong();
+    private final long proximoIdRecuperado;
+    private final long registrosReproduzidos;
+    // Maior ID removido mais um, visto na reprodução dos segmentos posteriores ao snapshot
+    private long proximoIdDasRemocoes;
+
+    private WalEntityStore(Path diretorio, String nome, EntityStore<T> memoria, Codec<T> codec,
+                           PoliticaDeSync politica, Duration intervalo) throws IOException {
+        this.memoria = memoria;
+        this.codec = codec;
+        this.diretorio = diretorio;
+        this.nome = nome;
+        this.padraoDeSegmento = Pattern.compile(Pattern.quote(nome) + "-(\\d{20})\\.wal");
+
+        Files.createDirectories(diretorio);
+        Files.deleteIfExists(arquivoTemporario());
+        migrarLogSemSegmento();
+
+        long segmentoInicial = 1;
+        long proximoId = 0;
+        if (Files.exists(arquivoDeSnapshot())) {
+            long[] cabecalho = carregarSnapshot();
+            segmentoInicial = cabecalho[0];
+            proximoId = cabecalho[1];
+        }
+
+        TreeMap<Long, Path> segmentos = listarSegmentos();
+        if (!Files.exists(arquivoDeSnapshot()) && !segmentos.isEmpty()) {
+            segmentoInicial = segmentos.firstKey();
+        }
+        apagarSegmentosAntes(segmentoInicial, segmentos);
+
+        long reproduzidos = 0;
+        WriteAheadLog ultimo = null;
+        long ultimoSegmento = segmentoInicial;
+        for (var segmento : segmentos.tailMap(segmentoInicial, true).entrySet()) {
+            if (ultimo != null) {
+                ultimo.close();
+            }
+            ultimo = new WriteAheadLog(segmento.getValue(), politica, intervalo);
+            reproduzidos += ultimo.reproduzir(this::reproduzir);
+            ultimoSegmento = segmento.getKey();
+        }
+        this.log = ultimo != null ? ultimo : new WriteAheadLog(arquivoDoSegmento(segmentoInicial), politica, intervalo);
+        this.segmentoAtual = ultimoSegmento;
+        this.proximoIdRecuperado = Math.max(proximoId, proximoIdDasRemocoes);
+        this.registrosReproduzidos = reproduzidos;
+        this.registrosDesdeSnapshot.set(reproduzidos);
+    }
+
+    /**
+     * Abre o armazenamento no diretório, recuperando o estado do último snapshot e
+     * dos segmentos do log posteriores a ele.
+     *
+     * @param memoria armazenamento em memória (vazio) que atenderá as leituras
+     */
+    public static <T> WalEntityStore<T> abrir(Path diretorio, String nome, EntityStore<T> memoria, Codec<T> codec,
+                                              PoliticaDeSync politica, Duration intervalo) {
+        try {
+            return new WalEntityStore<>(diretorio, nome, memoria, codec, politica, intervalo);
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao recuperar " + nome + " de " + diretorio + ".", e);
+        }
+    }
+
+    private void reproduzir(WriteAheadLog.Operacao operacao, long id, byte[] dados) throws IOException {
+        switch (operacao) {
+            case GRAVAR -> memoria.put(id, codec.ler(new DataInputStream(new ByteArrayInputStream(dados))));
+            case REMOVER -> {
+                memoria.remove(id);
+                proximoIdDasRemocoes = Math.max(proximoIdDasRemocoes, id + 1);
+            }
+        }
+    }
+
+    /**
+     * Próximo ID gravado no snapshot recuperado, elevado acima de cada ID removido
+     * nos segmentos posteriores a ele; 0 se não havia nenhum dos dois.
+     */
+    @Override
+    public long proximoIdRecuperado() {
+        return proximoIdRecuperado;
+    }
+
+    /**
+     * Quantidade de registros do log reproduzidos na abertura (a cauda após o snapshot).
+     */
+    public long registrosReproduzidos() {
+        return registrosReproduzidos;
+    }
+
+    /**
+     * Quantidade de registros no log desde o último snapshot.
+     */
+    public long registrosDesdeSnapshot() {
+        return registrosDesdeSnapshot.get();
+    }
+
+    @Override
+    public T get(long id) {
+        return memoria.get(id);
+    }
+
+    @Override
+    public T put(long id, T valor) {
+        byte[] dados = serializar(id, valor);
+        escritas.readLock().lock();
+        try {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, id, dados);
+            registrosDesdeSnapshot.incrementAndGet();
+            return memoria.put(id, valor);
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao gravar o registro " + id + " no log.", e);
+        } finally {
+            escritas.readLock().unlock();
+        }
+    }
+
+    /**
+     * Grava o lote com uma única escrita no log e, nas políticas que esperam o
+     * disco, um único fsync, em vez de um por entidade.
+     */
+    @Override
+    public List<T> putAll(long[] ids, List<T> valores) {
+        List<byte[]> dados = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            dados.add(serializar(ids[i], valores.get(i)));
+        }
+        escritas.readLock().lock();
+        try {
+            log.anexarTodos(WriteAheadLog.Operacao.GRAVAR, ids, dados);
+            registrosDesdeSnapshot.addAndGet(ids.length);
+            return memoria.putAll(ids, valores);
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao gravar um lote de " + ids.length + " registros no log.", e);
+        } finally {
+            escritas.readLock().unlock();
+        }
+    }
+
+    @Override
+    public T remove(long id) {
+        if (memoria.get(id) == null) {
+            return null;
+        }
+        escritas.readLock().lock();
+        try {
+            log.anexar(WriteAheadLog.Operacao.REMOVER, id, new byte[0]);
+            registrosDesdeSnapshot.incrementAndGet();
+            return memoria.remove(id);
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao gravar a remoção de " + id + " no log.", e);
+        } finally {
+            escritas.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apaga tudo: passa para um segmento novo com um snapshot vazio e descarta os anteriores.
+     */
+    @Override
+    public void clear() {
+        fotografando.lock();
+        try {
+            escritas.writeLock().lock();
+            try {
+                long novoSegmento = segmentoAtual + 1;
+                log.rotacionar(arquivoDoSegmento(novoSegmento));
+                segmentoAtual = novoSegmento;
+                memoria.clear();
+                gravarSnapshot(novoSegmento, 0, new long[0], new ArrayList<>());
+                registrosDesdeSnapshot.set(0);
+            } finally {
+                escritas.writeLock().unlock();
+            }
+            apagarSegmentosAntes(segmentoAtual, listarSegmentos());
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao limpar " + nome + ".", e);
+        } finally {
+            fotografando.unlock();
+        }
+    }
+
+    /**
+     * Grava um snapshot do estado atual e descarta os segmentos do log que ele cobre.
+     * <p>
+     * As escritas só esperam a rotação do log. A cópia da memória acontece depois,
+     * então pode já conter escritas do segmento novo; como cada registro leva o
+     * estado completo da entidade, reproduzi-las de novo sobre o snapshot dá o
+     * mesmo resultado.
+     * <p>
+     * As entidades copiadas são serializadas sem trava, então não podem ser
+     * alteradas depois de gravadas: os services gravam um substituto em vez de
+     * alterar um pedido existente.
+     *
+     * @param proximoId próximo ID do repositório, lido depois da rotação
+     */
+    public void fotografar(LongSupplier proximoId) {
+        fotografando.lock();
+        try {
+            long novoSegmento;
+            escritas.writeLock().lock();
+            try {
+                novoSegmento = segmentoAtual + 1;
+                log.rotacionar(arquivoDoSegmento(novoSegmento));
+                segmentoAtual = novoSegmento;
+                registrosDesdeSnapshot.set(0);
+            } finally {
+                escritas.writeLock().unlock();
+            }
+
+            long contador = proximoId.getAsLong();
+            // Copia as referências antes de escrever, para não fazer IO sob as travas da memória
+            Copia<T> copia = new Copia<>(memoria.size());
+            memoria.forEach(copia::adicionar);
+            gravarSnapshot(novoSegmento, contador, copia.ids, copia.valores);
+            apagarSegmentosAntes(novoSegmento, listarSegmentos());
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao gravar o snapshot de " + nome + ".", e);
+        } finally {
+            fotografando.unlock();
+        }
+    }
+
+    /**
+     * Formato: {@code [mágico][versão][segmento][próximo ID][quantidade]}, as
+     * entradas {@code [id][entidade]} e o CRC32 de tudo isso. O arquivo é escrito
+     * ao lado e renomeado atomicamente, então um snapshot nunca fica pela metade.
+     */
+    private void gravarSnapshot(long segmento, long proximoId, long[] ids, List<T> valores) throws IOException {
+        Path temporario = arquivoTemporario();
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile())) {
+            CheckedOutputStream verificado = new CheckedOutputStream(arquivo, new CRC32());
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(verificado, 64 * 1024));
+            saida.writeInt(MAGICO);
+            saida.writeInt(VERSAO);
+            saida.writeLong(segmento);
+            saida.writeLong(proximoId);
+            saida.writeInt(valores.size());
+            for (int i = 0; i < valores.size(); i++) {
+                saida.writeLong(ids[i]);
+                codec.escrever(valores.get(i), saida);
+            }
+            saida.flush();
+            new DataOutputStream(arquivo).writeInt((int) verificado.getChecksum().getValue());
+            arquivo.getChannel().force(true);
+        }
+        Files.move(temporario, arquivoDeSnapshot(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        sincronizarDiretorio();
+    }
+
+    /**
+     * Carrega o snapshot na memória e retorna {@code [segmento, próximo ID]}.
+     */
+    private long[] carregarSnapshot() throws IOException {
+        try (InputStream arquivo = Files.newInputStream(arquivoDeSnapshot())) {
+            CheckedInputStream verificado = new CheckedInputStream(
+                    new BufferedInputStream(arquivo, 64 * 1024), new CRC32());
+            DataInputStream entrada = new DataInputStream(verificado);
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSAO) {
+                throw new IOException("Snapshot " + arquivoDeSnapshot() + " em formato desconhecido.");
+            }
+            long segmento = entrada.readLong();
+            long proximoId = entrada.readLong();
+            int quantidade = entrada.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                long id = entrada.readLong();
+                memoria.put(id, codec.ler(entrada));
+            }
+            int crcCalculado = (int) verificado.getChecksum().getValue();
+            if (entrada.readInt() != crcCalculado) {
+                throw new IOException("Snapshot " + arquivoDeSnapshot() + " corrompido.");
+            }
+            return new long[]{segmento, proximoId};
+        }
+    }
+
+    /**
+     * Codifica o registro como ele vai para o log.
+     */
+    private byte[] serializar(long id, T valor) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            codec.escrever(valor, new DataOutputStream(bytes));
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao serializar o registro " + id + ".", e);
+        }
+    }
+
+    /**
+     * Aproveita o arquivo único {@code <nome>.wal} das versões sem snapshot como primeiro segmento.
+     */
+    private void migrarLogSemSegmento() throws IOException {
+        Path antigo = diretorio.resolve(nome + ".wal");
+        if (Files.exists(antigo) && listarSegmentos().isEmpty()) {
+            Files.move(antigo, arquivoDoSegmento(1), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private TreeMap<Long, Path> listarSegmentos() throws IOException {
+        TreeMap<Long, Path> segmentos = new TreeMap<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.forEach(arquivo -> {
+                Matcher matcher = padraoDeSegmento.matcher(arquivo.getFileName().toString());
+                if (matcher.matches()) {
+                    segmentos.put(Long.parseLong(matcher.group(1)), arquivo);
+                }
+            });
+        }
+        return segmentos;
+    }
+
+    private static void apagarSegmentosAntes(long segmento, TreeMap<Long, Path> segmentos) throws IOException {
+        for (Path antigo : segmentos.headMap(segmento, false).values()) {
+            Files.deleteIfExists(antigo);
+        }
+    }
+
+    // Torna a renomeação durável; alguns sistemas (Windows) não permitem abrir diretórios
+    private void sincronizarDiretorio() {
+        try (FileChannel canal = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Sem suporte: a renomeação ainda é atômica, só não é forçada para o disco agora
+        }
+    }
+
+    private Path arquivoDoSegmento(long segmento) {
+        return diretorio.resolve(String.format("%s-%020d.wal", nome, segmento));
+    }
+
+    private Path arquivoDeSnapshot() {
+        return diretorio.resolve(nome + ".snapshot");
+    }
+
+    private Path arquivoTemporario() {
+        return diretorio.resolve(nome + ".snapshot.tmp");
+    }
+
+    private static final class Copia<T> {
+        private long[] ids;
+        private final ArrayList<T> valores;
+
+        Copia(int capacidade) {
+            ids = new long[Math.max(16, capacidade)];
+            valores = new ArrayList<>(ids.length);
+        }
+
+        void adicionar(long id, T valor) {
+            if (valores.size() == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[valores.size()] = id;
+            valores.add(valor);
+        }
+    }
+
+    @Override
+    public int size() {
+        return memoria.size();
+    }
+
+    @Override
+    public List<T> values() {
+        return memoria.values();
+    }
+
+    @Override
+    public void forEach(LongObjConsumer<? super T> acao) {
+        memoria.forEach(acao);
+    }
+
+    @Override
+    public <R> R unwrap(Class<R> tipo) {
+        return tipo.isInstance(this) ? tipo.cast(this) : memoria.unwrap(tipo);
+    }
+
+    @Override
+    public void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new PersistenciaException("Falha ao fechar o log de " + nome + ".", e);
+        } finally {
+            memoria.close();
+        }
+    }
+}
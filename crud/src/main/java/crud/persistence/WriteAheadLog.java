@@ -0,0 +1,346 @@
+package crud.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escrita append-only em arquivo local.
+ * <p>
+ * Cada registro tem o formato {@code [tamanho:int][operação:byte][id:long][dados][crc32:int]},
+ * onde o tamanho cobre operação, id e dados, e o CRC cobre os mesmos bytes. Na
+ * reprodução, um registro incompleto ou com CRC inválido marca o fim do log: é o
+ * resto de uma escrita interrompida por uma queda, e o arquivo é truncado ali.
+ * <p>
+ * A durabilidade de cada escrita segue a {@link PoliticaDeSync} escolhida. O log
+ * pode ser {@linkplain #rotacionar rotacionado} para um novo arquivo, o que permite
+ * descartar os arquivos antigos depois de um snapshot.
+ */
+public class WriteAheadLog implements Closeable {
+    // Protege contra tamanhos absurdos lidos de um arquivo corrompido
+    private static final int TAMANHO_MAXIMO = 64 * 1024 * 1024;
+    private static final int CABECALHO = 1 + Long.BYTES;
+
+    public enum Operacao {
+        GRAVAR((byte) 1),
+        REMOVER((byte) 2);
+
+        private final byte codigo;
+
+        Operacao(byte codigo) {
+            this.codigo = codigo;
+        }
+
+        static Operacao deCodigo(byte codigo) {
+            for (Operacao operacao : values()) {
+                if (operacao.codigo == codigo) {
+                    return operacao;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Recebe os registros válidos durante a reprodução, na ordem em que foram escritos.
+     */
+    @FunctionalInterface
+    public interface Reproducao {
+        void aplicar(Operacao operacao, long id, byte[] dados) throws IOException;
+    }
+
+    // Trocado por rotacionar; escritas e trocas acontecem sob 'escrita'
+    private volatile FileChannel canal;
+    private final PoliticaDeSync politica;
+    private final ScheduledExecutorService sincronizador;
+
+    // Serializa as escritas no canal; guarda 'escritos'
+    private final Object escrita = new Object();
+    private long escritos;
+
+    // Coordena o group commit; guarda 'sincronizados' e 'sincronizando'
+    private final Object sincronizacao = new Object();
+    private long sincronizados;
+    private boolean sincronizando;
+
+    public WriteAheadLog(Path arquivo, PoliticaDeSync politica) throws IOException {
+        this(arquivo, politica, Duration.ofMillis(100));
+    }
+
+    /**
+     * Abre (ou cria) o log. O intervalo só é usado com {@link PoliticaDeSync#INTERVALO}.
+     */
+    public WriteAheadLog(Path arquivo, PoliticaDeSync politica, Duration intervalo) throws IOException {
+        this.canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.canal.position(canal.size());
+        this.politica = politica;
+        if (politica == PoliticaDeSync.INTERVALO) {
+            this.sincronizador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "wal-sync-" + arquivo.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            long periodo = Math.max(1, intervalo.toMillis());
+            sincronizador.scheduleWithFixedDelay(this::sincronizarEmSegundoPlano,
+                    periodo, periodo, TimeUnit.MILLISECONDS);
+        } else {
+            this.sincronizador = null;
+        }
+    }
+
+    /**
+     * Reproduz os registros válidos desde o início do arquivo e trunca qualquer
+     * resto inválido no final. Deve ser chamado antes da primeira escrita.
+     *
+     * @return quantidade de registros reproduzidos
+     */
+    public long reproduzir(Reproducao reproducao) throws IOException {
+        synchronized (escrita) {
+            long posicaoValida = 0;
+            long registros = 0;
+            InputStream bruto = Channels.newInputStream(canal.position(0));
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(bruto, 64 * 1024));
+            while (true) {
+                byte[] corpo = lerCorpo(entrada);
+                if (corpo == null) {
+                    break;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(corpo);
+                Operacao operacao = Operacao.deCodigo(buffer.get());
+                if (operacao == null) {
+                    break;
+                }
+                long id = buffer.getLong();
+                byte[] dados = new byte[buffer.remaining()];
+                buffer.get(dados);
+                reproducao.aplicar(operacao, id, dados);
+                posicaoValida += Integer.BYTES + corpo.length + Integer.BYTES;
+                registros++;
+            }
+            if (posicaoValida < canal.size()) {
+                canal.truncate(posicaoValida);
+                canal.force(true);
+            }
+            canal.position(posicaoValida);
+            return registros;
+        }
+    }
+
+    /**
+     * Lê o próximo registro, retornando null no fim do arquivo ou em um registro inválido.
+     */
+    private static byte[] lerCorpo(DataInputStream entrada) throws IOException {
+        try {
+            int tamanho = entrada.readInt();
+            if (tamanho < CABECALHO || tamanho > TAMANHO_MAXIMO) {
+                return null;
+            }
+            byte[] corpo = new byte[tamanho];
+            entrada.readFully(corpo);
+            int crcEsperado = entrada.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(corpo);
+            return (int) crc.getValue() == crcEsperado ? corpo : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Anexa um registro. Retorna quando o registro estiver durável segundo a política.
+     */
+    public void anexar(Operacao operacao, long id, byte[] dados) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + CABECALHO + dados.length + Integer.BYTES);
+        colocarRegistro(buffer, operacao, id, dados);
+        buffer.flip();
+        escrever(buffer);
+    }
+
+    /**
+     * Anexa os registros de um lote, com a mesma operação, em uma única escrita no
+     * arquivo. Retorna quando todos estiverem duráveis segundo a política, com um só
+     * fsync em {@link PoliticaDeSync#POR_ESCRITA} e uma só espera em
+     * {@link PoliticaDeSync#AGRUPADA}. Uma queda no meio pode deixar só os primeiros
+     * registros do lote no log, como escritas em sequência.
+     *
+     * @param ids IDs dos registros, na mesma ordem dos dados
+     */
+    public void anexarTodos(Operacao operacao, long[] ids, List<byte[]> dados) throws IOException {
+        if (ids.length == 0) {
+            return;
+        }
+        int total = 0;
+        for (byte[] registro : dados) {
+            total += Integer.BYTES + CABECALHO + registro.length + Integer.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (int i = 0; i < ids.length; i++) {
+            colocarRegistro(buffer, operacao, ids[i], dados.get(i));
+        }
+        buffer.flip();
+        escrever(buffer);
+    }
+
+    private static void colocarRegistro(ByteBuffer buffer, Operacao operacao, long id, byte[] dados) {
+        int inicio = buffer.position();
+        int tamanho = CABECALHO + dados.length;
+        buffer.putInt(tamanho).put(operacao.codigo).putLong(id).put(dados);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), inicio + Integer.BYTES, tamanho);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private void escrever(ByteBuffer buffer) throws IOException {
+        long sequencia;
+        synchronized (escrita) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            sequencia = ++escritos;
+            if (politica == PoliticaDeSync.POR_ESCRITA) {
+                canal.force(false);
+            }
+        }
+        if (politica == PoliticaDeSync.AGRUPADA) {
+            aguardarSincronizacao(sequencia);
+        }
+    }
+
+    /**
+     * Descarta todos os registros. Usado quando o estado inteiro é apagado.
+     */
+    public void limpar() throws IOException {
+        synchronized (escrita) {
+            canal.truncate(0);
+            canal.position(0);
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Passa a escrever em um novo arquivo. Tudo o que foi escrito até aqui é
+     * sincronizado no arquivo anterior, que é fechado e pode ser apagado por quem
+     * garantir que seu conteúdo já está em um snapshot.
+     */
+    public void rotacionar(Path novoArquivo) throws IOException {
+        FileChannel novo = FileChannel.open(novoArquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        novo.position(novo.size());
+        synchronized (escrita) {
+            FileChannel anterior = canal;
+            anterior.force(false);
+            canal = novo;
+            anterior.close();
+        }
+    }
+
+    /**
+     * Faz o fsync do canal capturado. Se ele foi fechado por uma rotação, o fsync
+     * já foi feito em {@link #rotacionar}.
+     */
+    private void forcar(FileChannel alvo) throws IOException {
+        try {
+            alvo.force(false);
+        } catch (ClosedChannelException e) {
+            if (alvo == canal) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Group commit: a primeira escrita que encontra o disco livre faz o fsync de
+     * tudo que já foi escrito até ali; as demais esperam e normalmente são cobertas
+     * pelo mesmo fsync, sem fazer o seu.
+     */
+    private void aguardarSincronizacao(long sequencia) throws IOException {
+        synchronized (sincronizacao) {
+            while (sincronizados < sequencia && sincronizando) {
+                try {
+                    sincronizacao.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrompido aguardando o fsync do log.");
+                }
+            }
+            if (sincronizados >= sequencia) {
+                return;
+            }
+            sincronizando = true;
+        }
+        boolean sucesso = false;
+        long alvo;
+        FileChannel atual;
+        synchronized (escrita) {
+            alvo = escritos;
+            atual = canal;
+        }
+        try {
+            forcar(atual);
+            sucesso = true;
+        } finally {
+            synchronized (sincronizacao) {
+                sincronizando = false;
+                if (sucesso && alvo > sincronizados) {
+                    sincronizados = alvo;
+                }
+                sincronizacao.notifyAll();
+            }
+        }
+    }
+
+    private void sincronizarEmSegundoPlano() {
+        try {
+            long alvo;
+            FileChannel atual;
+            synchronized (escrita) {
+                alvo = escritos;
+                atual = canal;
+            }
+            synchronized (sincronizacao) {
+                if (alvo <= sincronizados) {
+                    return;
+                }
+            }
+            forcar(atual);
+            synchronized (sincronizacao) {
+                sincronizados = Math.max(sincronizados, alvo);
+            }
+        } catch (IOException e) {
+            // Tenta de novo no próximo intervalo; o canal fechado encerra o agendamento no close
+        }
+    }
+
+    /**
+     * Faz o fsync do que estiver pendente e fecha o arquivo.
+     */
+    @Override
+    public void close() throws IOException {
+        if (sincronizador != null) {
+            sincronizador.shutdownNow();
+        }
+        synchronized (escrita) {
+            if (canal.isOpen()) {
+                canal.force(false);
+                canal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package crud.repository;
+
+/**
+ * Agregações sobre o catálogo que um armazenamento pode calcular diretamente
+ * sobre seus dados, sem materializar cada {@link crud.model.Produto}.
+ * Produtos sem preço ou sem estoque não entram nas contas que dependem deles.
+ */
+public interface AgregadosDeProduto {
+    /**
+     * Soma de preço × estoque de todos os produtos.
+     */
+    double valorTotalEmEstoque();
+
+    /**
+     * Conta os produtos por faixa de preço. Com limites {@code [l0, l1, ..., lk]} em
+     * ordem crescente, retorna k + 2 contagens: preço menor que l0, cada faixa
+     * {@code [li, li+1)} e preço maior ou igual a lk.
+     */
+    long[] histogramaDePrecos(double[] limites);
+}
@@ -0,0 +1,108 @@
+package crud.repository;
+
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Variante de {@link LongHashMap} para acesso concorrente com predominância de
+ * leituras: leitores compartilham a trava de leitura e não se bloqueiam entre si;
+ * escritas são exclusivas.
+ *
+ * @param <V> Tipo do valor (não aceita null)
+ */
+public class ConcurrentLongHashMap<V> implements EntityStore<V> {
+    private final LongHashMap<V> mapa;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ConcurrentLongHashMap() {
+        this.mapa = new LongHashMap<>();
+    }
+
+    public ConcurrentLongHashMap(int capacidadeInicial) {
+        this.mapa = new LongHashMap<>(capacidadeInicial);
+    }
+
+    public V get(long chave) {
+        lock.readLock().lock();
+        try {
+            return mapa.get(chave);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(long chave) {
+        lock.readLock().lock();
+        try {
+            return mapa.containsKey(chave);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public V put(long chave, V valor) {
+        lock.writeLock().lock();
+        try {
+            return mapa.put(chave, valor);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public V remove(long chave) {
+        lock.writeLock().lock();
+        try {
+            return mapa.remove(chave);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            mapa.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return mapa.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Percorre as entradas na ordem de inserção sob a trava de leitura.
+     * A ação não deve escrever neste mapa.
+     */
+    public void forEach(LongObjConsumer<? super V> acao) {
+        lock.readLock().lock();
+        try {
+            mapa.forEach(acao);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna uma cópia consistente dos valores, na ordem de inserção.
+     */
+    public List<V> values() {
+        lock.readLock().lock();
+        try {
+            return mapa.values();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
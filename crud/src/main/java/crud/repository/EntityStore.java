@@ -0,0 +1,83 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Armazenamento de entidades por ID long usado pelos repositórios.
+ * Permite trocar a estrutura em memória por uma implementação durável sem mudar
+ * os repositórios, que continuam responsáveis por IDs e índices secundários.
+ * <p>
+ * As implementações preservam a ordem de inserção: substituir um ID existente
+ * mantém sua posição, e {@link #values()} e {@link #forEach} seguem essa ordem.
+ *
+ * @param <T> Tipo da entidade (não aceita null)
+ */
+public interface EntityStore<T> extends AutoCloseable {
+    T get(long id);
+
+    /**
+     * Grava a entidade no ID, retornando a anterior ou null se não existia.
+     */
+    T put(long id, T valor);
+
+    /**
+     * Grava várias entidades, com o mesmo efeito de puts em sequência. Armazenamentos
+     * externos, como um banco SQL, as enviam juntas em um único lote.
+     *
+     * @param ids IDs das entidades, na mesma ordem dos valores
+     * @return A entidade anterior de cada posição, ou null onde não existia
+     */
+    default List<T> putAll(long[] ids, List<T> valores) {
+        List<T> anteriores = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            anteriores.add(put(ids[i], valores.get(i)));
+        }
+        return anteriores;
+    }
+
+    /**
+     * Remove a entidade do ID, retornando-a ou null se não existia.
+     */
+    T remove(long id);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Retorna uma cópia dos valores, na ordem de inserção.
+     */
+    List<T> values();
+
+    /**
+     * Percorre as entradas na ordem de inserção.
+     * A ação não deve escrever neste armazenamento.
+     */
+    void forEach(LongObjConsumer<? super T> acao);
+
+    /**
+     * Se o armazenamento guarda os valores codificados (em disco ou em um banco),
+     * devolvendo instâncias novas a cada leitura. Nesse caso não adianta trocar
+     * objetos equivalentes por uma instância compartilhada antes de gravar.
+     */
+    default boolean guardaCodificado() {
+        return false;
+    }
+
+    /**
+     * Retorna este armazenamento visto como o tipo pedido (por exemplo,
+     * {@link AgregadosDeProduto}), ou null se ele não oferecer esse recurso.
+     * Decoradores repassam a pergunta ao armazenamento que envolvem.
+     */
+    default <R> R unwrap(Class<R> tipo) {
+        return tipo.isInstance(this) ? tipo.cast(this) : null;
+    }
+
+    /**
+     * Libera os recursos do armazenamento. Em memória não faz nada.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,141 @@
+package crud.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gerador de IDs que entrega faixas (blocos) de IDs a cada thread, para que
+ * inserções concorrentes não disputem um único contador.
+ * <p>
+ * O contador compartilhado só marca até onde os IDs já foram reservados (a marca
+ * d'água). Cada thread reserva um bloco com compare-and-set e depois distribui os
+ * IDs dele sem tocar no contador. O tamanho do bloco se adapta: começa em 1 e
+ * dobra a cada reserva que perde a disputa para outra thread (até
+ * {@value #BLOCO_MAXIMO}), voltando a diminuir quando não há disputa. Assim, sem
+ * concorrência os IDs continuam exatamente sequenciais a partir de 1; com muita
+ * concorrência, o contador é tocado uma vez a cada bloco.
+ * <p>
+ * IDs são únicos e aproximadamente crescentes: cada thread entrega os seus em ordem,
+ * mas threads diferentes podem intercalar blocos, e IDs de um bloco não usado até o
+ * fim ficam sem uso. {@link #marcaDagua()} cobre todos os IDs já entregues; é o
+ * valor a gravar nos snapshots para nunca repetir um ID depois de recuperar.
+ * <p>
+ * {@link #reiniciar()} troca contador e geração de uma vez. Um ID entregue antes
+ * do reinício pode reaparecer depois dele, então quem grava deve conferir
+ * {@link #geracao()} sob a mesma trava que o reinício usa (ver os repositórios).
+ */
+public class IdAllocator {
+    static final int BLOCO_MAXIMO = 1024;
+
+    // Trocada inteira a cada reinício; blocos de faixas anteriores são descartados
+    private volatile Faixa faixa;
+    private final ThreadLocal<Bloco> blocos = ThreadLocal.withInitial(Bloco::new);
+
+    /**
+     * Contador de uma geração. Ficam juntos para que o reinício troque os dois
+     * com uma única escrita.
+     */
+    private static final class Faixa {
+        final long geracao;
+        final AtomicLong reservado;
+
+        Faixa(long geracao, long primeiro) {
+            this.geracao = geracao;
+            this.reservado = new AtomicLong(primeiro);
+        }
+    }
+
+    private static final class Bloco {
+        long proximo;
+        long fim;
+        int tamanho = 1;
+        Faixa faixa;
+    }
+
+    public IdAllocator() {
+        this(1);
+    }
+
+    public IdAllocator(long primeiro) {
+        this.faixa = new Faixa(0, Math.max(1, primeiro));
+    }
+
+    /**
+     * Próximo ID, do bloco da thread atual ou de um bloco novo. Se houver um
+     * reinício no meio, o ID é descartado e outro é tirado da faixa nova.
+     */
+    public long proximo() {
+        Bloco bloco = blocos.get();
+        while (true) {
+            Faixa atual = faixa;
+            if (bloco.faixa != atual) {
+                bloco.faixa = atual;
+                bloco.proximo = bloco.fim = 0;
+                bloco.tamanho = 1;
+            }
+            if (bloco.proximo == bloco.fim) {
+                reservarBloco(atual.reservado, bloco);
+            }
+            long id = bloco.proximo++;
+            if (faixa == atual) {
+                return id;
+            }
+        }
+    }
+
+    private static void reservarBloco(AtomicLong reservado, Bloco bloco) {
+        boolean disputado = false;
+        while (true) {
+            long inicio = reservado.get();
+            if (reservado.compareAndSet(inicio, inicio + bloco.tamanho)) {
+                bloco.proximo = inicio;
+                bloco.fim = inicio + bloco.tamanho;
+                if (!disputado) {
+                    bloco.tamanho = Math.max(1, bloco.tamanho / 2);
+                }
+                return;
+            }
+            disputado = true;
+            bloco.tamanho = Math.min(BLOCO_MAXIMO, bloco.tamanho * 2);
+        }
+    }
+
+    /**
+     * Reserva {@code quantidade} IDs consecutivos de uma vez, para lotes.
+     *
+     * @return Primeiro ID da faixa
+     */
+    public long reservar(long quantidade) {
+        return faixa.reservado.getAndAdd(quantidade);
+    }
+
+    /**
+     * Garante que nenhum ID menor que {@code minimo} será entregue por blocos novos,
+     * por exemplo ao recuperar entidades existentes.
+     */
+    public void avancarPara(long minimo) {
+        faixa.reservado.accumulateAndGet(minimo, Math::max);
+    }
+
+    /**
+     * Próximo ID ainda não reservado. Todo ID já entregue (ou em um bloco de alguma
+     * thread) é menor que ele.
+     */
+    public long marcaDagua() {
+        return faixa.reservado.get();
+    }
+
+    /**
+     * Geração atual, que muda a cada {@link #reiniciar()}. Um ID tirado depois de ler
+     * a geração só é válido se ela continuar a mesma no momento da gravação.
+     */
+    public long geracao() {
+        return faixa.geracao;
+    }
+
+    /**
+     * Volta a numerar a partir de 1, descartando os blocos das threads.
+     */
+    public void reiniciar() {
+        faixa = new Faixa(faixa.geracao + 1, 1);
+    }
+}
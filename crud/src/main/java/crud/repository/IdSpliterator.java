@@ -0,0 +1,96 @@
+package crud.repository;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Spliterator das entidades de um repositório em ordem crescente de ID.
+ * <p>
+ * Percorre uma faixa de IDs do {@link SortedLongSet} em lotes de {@value #LOTE},
+ * buscando cada entidade no armazenamento só quando ela vai ser entregue. A memória
+ * usada é a de um lote, qualquer que seja o tamanho do repositório.
+ * <p>
+ * É fracamente consistente, como os iteradores das coleções concorrentes: não
+ * lança exceção por escritas concorrentes, entrega cada ID no máximo uma vez e vê
+ * as mudanças feitas à frente do cursor. Entidades removidas entre a leitura do
+ * lote e a busca são puladas.
+ * <p>
+ * A divisão corta a faixa de IDs ao meio. Como os IDs são sequenciais, as metades
+ * ficam com quantidades parecidas de entidades, o que basta para streams paralelos.
+ */
+final class IdSpliterator<T> implements Spliterator<T> {
+    private static final int LOTE = 256;
+    // Abaixo disso não vale a pena dividir
+    private static final long FAIXA_MINIMA = 2L * LOTE;
+
+    private final SortedLongSet ids;
+    private final LongFunction<T> buscar;
+    // Último ID já consumido e último ID da faixa (inclusivo)
+    private long cursor;
+    private final long ate;
+    private long[] lote = new long[0];
+    private int posicao;
+
+    private IdSpliterator(SortedLongSet ids, LongFunction<T> buscar, long cursor, long ate) {
+        this.ids = ids;
+        this.buscar = buscar;
+        this.cursor = cursor;
+        this.ate = ate;
+    }
+
+    /**
+     * Cobre os IDs existentes agora; IDs criados depois do maior atual ficam de fora.
+     */
+    static <T> IdSpliterator<T> de(SortedLongSet ids, LongFunction<T> buscar) {
+        long minimo = ids.minimo();
+        long maximo = ids.maximo();
+        return minimo > maximo
+                ? new IdSpliterator<>(ids, buscar, 0, 0)
+                : new IdSpliterator<>(ids, buscar, minimo - 1, maximo);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> acao) {
+        while (true) {
+            if (posicao == lote.length) {
+                lote = ids.entre(cursor, ate, LOTE);
+                posicao = 0;
+                if (lote.length == 0) {
+                    cursor = ate;
+                    return false;
+                }
+            }
+            long id = lote[posicao++];
+            cursor = id;
+            T entidade = buscar.apply(id);
+            if (entidade != null) {
+                acao.accept(entidade);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // Só divide entre lotes, para não entregar duas vezes o que já foi lido
+        if (posicao < lote.length || ate - cursor < FAIXA_MINIMA) {
+            return null;
+        }
+        long meio = cursor + (ate - cursor) / 2;
+        IdSpliterator<T> prefixo = new IdSpliterator<>(ids, buscar, cursor, meio);
+        cursor = meio;
+        return prefixo;
+    }
+
+    @Override
+    public long estimateSize() {
+        long faixa = ate - cursor;
+        return faixa < 0 ? Long.MAX_VALUE : Math.min(faixa, ids.tamanho());
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | CONCURRENT;
+    }
+}
@@ -0,0 +1,243 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Mapa de chave primitiva long para valores, com endereçamento aberto.
+ * <p>
+ * As entradas ficam em arrays densos (chaves e valores) na ordem de inserção, e
+ * uma tabela de índices com sondagem linear aponta para a posição de cada chave.
+ * Não há boxing da chave nem um nó por entrada: o custo por elemento são dois
+ * longs (chave e ordem), uma referência e um int na tabela de índices.
+ * <p>
+ * Remoções deixam uma lápide na tabela de índices e um buraco nos arrays densos.
+ * Quando os arrays densos enchem, a estrutura é compactada (se houver muitos
+ * buracos) ou dobrada de tamanho, e as lápides são descartadas.
+ * A tabela de índices tem pelo menos o dobro da capacidade densa, então o fator
+ * de carga, contando lápides, nunca passa de 0,5.
+ * <p>
+ * Cada entrada guarda também um número de ordem crescente, atribuído na inserção
+ * e mantido em atualizações. Ele permite intercalar vários mapas (como as faixas
+ * de {@link StripedLongHashMap}) respeitando a ordem global de inserção.
+ * <p>
+ * Não é thread-safe; veja {@link ConcurrentLongHashMap}.
+ *
+ * @param <V> Tipo do valor (não aceita null)
+ */
+public class LongHashMap<V> {
+    private static final int CAPACIDADE_INICIAL = 8;
+    private static final int VAZIO = -1;
+    private static final int REMOVIDO = -2;
+
+    private int[] indice;
+    private long[] chaves;
+    private long[] ordens;
+    private Object[] valores;
+    private int ocupados;
+    private int tamanho;
+    private long proximaOrdem;
+
+    public LongHashMap() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    public LongHashMap(int capacidadeInicial) {
+        alocar(Math.max(CAPACIDADE_INICIAL, capacidadeInicial));
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public boolean containsKey(long chave) {
+        return buscarSlot(chave) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long chave) {
+        int slot = buscarSlot(chave);
+        return slot < 0 ? null : (V) valores[indice[slot]];
+    }
+
+    /**
+     * Associa o valor à chave. Atualizar uma chave existente mantém sua posição
+     * na ordem de inserção.
+     *
+     * @return Valor anterior, ou null se a chave não existia
+     */
+    public V put(long chave, V valor) {
+        return put(chave, valor, proximaOrdem);
+    }
+
+    /**
+     * Como {@link #put(long, Object)}, mas usando um número de ordem fornecido
+     * pelo chamador quando a chave é nova. Os números de ordem devem ser crescentes
+     * entre inserções; em atualizações o valor informado é ignorado.
+     */
+    @SuppressWarnings("unchecked")
+    V put(long chave, V valor, long ordem) {
+        Objects.requireNonNull(valor, "Valor não pode ser nulo");
+        int slot = buscarSlot(chave);
+        if (slot >= 0) {
+            int posicao = indice[slot];
+            V anterior = (V) valores[posicao];
+            valores[posicao] = valor;
+            return anterior;
+        }
+        if (ocupados == chaves.length) {
+            redimensionar();
+        }
+        inserirNovo(chave, valor, ordem);
+        proximaOrdem = Math.max(proximaOrdem, ordem + 1);
+        return null;
+    }
+
+    /**
+     * Remove a chave, deixando uma lápide até a próxima compactação.
+     *
+     * @return Valor removido, ou null se a chave não existia
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long chave) {
+        int slot = buscarSlot(chave);
+        if (slot < 0) {
+            return null;
+        }
+        int posicao = indice[slot];
+        V anterior = (V) valores[posicao];
+        valores[posicao] = null;
+        indice[slot] = REMOVIDO;
+        tamanho--;
+        return anterior;
+    }
+
+    public void clear() {
+        alocar(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Percorre as entradas na ordem de inserção.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjConsumer<? super V> acao) {
+        for (int i = 0; i < ocupados; i++) {
+            Object valor = valores[i];
+            if (valor != null) {
+                acao.accept(chaves[i], (V) valor);
+            }
+        }
+    }
+
+    /**
+     * Percorre as entradas na ordem de inserção, informando também o número de
+     * ordem de cada uma.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachComOrdem(OrdemConsumer<? super V> acao) {
+        for (int i = 0; i < ocupados; i++) {
+            Object valor = valores[i];
+            if (valor != null) {
+                acao.accept(ordens[i], chaves[i], (V) valor);
+            }
+        }
+    }
+
+    /**
+     * Retorna uma cópia dos valores na ordem de inserção.
+     */
+    public List<V> values() {
+        List<V> resultado = new ArrayList<>(tamanho);
+        forEach((chave, valor) -> resultado.add(valor));
+        return resultado;
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        ordens = new long[capacidade];
+        valores = new Object[capacidade];
+        indice = new int[tamanhoIndice(capacidade)];
+        Arrays.fill(indice, VAZIO);
+        ocupados = 0;
+        tamanho = 0;
+    }
+
+    /**
+     * Menor potência de dois maior ou igual ao dobro da capacidade densa.
+     */
+    private static int tamanhoIndice(int capacidade) {
+        return Integer.highestOneBit(capacidade * 2 - 1) << 1;
+    }
+
+    private static int espalhar(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int buscarSlot(long chave) {
+        int mascara = indice.length - 1;
+        int slot = espalhar(chave) & mascara;
+        while (true) {
+            int posicao = indice[slot];
+            if (posicao == VAZIO) {
+                return -1;
+            }
+            if (posicao != REMOVIDO && chaves[posicao] == chave) {
+                return slot;
+            }
+            slot = (slot + 1) & mascara;
+        }
+    }
+
+    /**
+     * Insere uma chave que sabidamente não está no mapa, reaproveitando a
+     * primeira lápide encontrada na sondagem.
+     */
+    private void inserirNovo(long chave, Object valor, long ordem) {
+        int mascara = indice.length - 1;
+        int slot = espalhar(chave) & mascara;
+        while (indice[slot] >= 0) {
+            slot = (slot + 1) & mascara;
+        }
+        indice[slot] = ocupados;
+        chaves[ocupados] = chave;
+        ordens[ocupados] = ordem;
+        valores[ocupados] = valor;
+        ocupados++;
+        tamanho++;
+    }
+
+    /**
+     * Chamado quando os arrays densos estão cheios. Se pelo menos metade das
+     * posições ainda está viva, dobra a capacidade; caso contrário apenas
+     * compacta. Em ambos os casos as lápides desaparecem e a ordem é mantida.
+     */
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        long[] ordensAntigas = ordens;
+        Object[] valoresAntigos = valores;
+        int ocupadosAntigos = ocupados;
+        int novaCapacidade = tamanho >= chaves.length / 2 ? chaves.length * 2 : chaves.length;
+
+        alocar(novaCapacidade);
+        for (int i = 0; i < ocupadosAntigos; i++) {
+            if (valoresAntigos[i] != null) {
+                inserirNovo(chavesAntigas[i], valoresAntigos[i], ordensAntigas[i]);
+            }
+        }
+    }
+
+    /**
+     * Consumidor de entradas com o número de ordem de inserção.
+     */
+    @FunctionalInterface
+    interface OrdemConsumer<V> {
+        void accept(long ordem, long chave, V valor);
+    }
+}
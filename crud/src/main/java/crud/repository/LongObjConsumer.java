@@ -0,0 +1,12 @@
+package crud.repository;
+
+/**
+ * Consumidor de pares (chave primitiva long, valor), usado para percorrer os
+ * mapas especializados sem encaixotar as chaves.
+ *
+ * @param <V> Tipo do valor
+ */
+@FunctionalInterface
+public interface LongObjConsumer<V> {
+    void accept(long chave, V valor);
+}
@@ -0,0 +1,188 @@
+package crud.repository;
+
+import crud.model.Pedido;
+import crud.model.Produto;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Banco em memória com controle de concorrência multiversão (MVCC) para produtos e
+ * pedidos.
+ * <p>
+ * O estado inteiro é uma {@link Versao} imutável, formada por dois
+ * {@link PersistentLongMap}. Cada escrita cria uma nova versão a partir da atual e
+ * a publica com compare-and-set; se outra escrita publicou antes, refaz sobre a
+ * nova. Nenhuma escrita espera por leitores e nenhum leitor espera por nada.
+ * <p>
+ * Cada leitura fixa a versão do momento em que começa: um {@code findAll} ou uma
+ * página percorre um estado que existiu de fato, sem escritas pela metade, mesmo que
+ * demore. {@link #versaoAtual()} fixa uma versão para várias leituras: relatórios
+ * que cruzam produtos e pedidos leem as duas tabelas dela e veem o mesmo instante.
+ * As versões antigas somem com a coleta de lixo quando ninguém mais as usa.
+ * <p>
+ * Os repositórios usam o banco pelas visões {@link #produtos()} e
+ * {@link #pedidos()}, que são {@link EntityStore}s comuns. Como {@link Pedido} é
+ * mutável, a visão de pedidos guarda uma cópia a cada escrita, para que alterações
+ * de quem chamou nunca mudem uma versão publicada. As leituras entregam a própria
+ * instância guardada, sem copiar, e ela não deve ser alterada.
+ */
+public class MvccDatabase {
+    private final AtomicReference<Versao> atual = new AtomicReference<>(
+            new Versao(PersistentLongMap.vazio(), PersistentLongMap.vazio()));
+    private final Visao<Produto> produtos = new Visao<>(Versao::produtos, Versao::comProdutos, UnaryOperator.identity());
+    private final Visao<Pedido> pedidos = new Visao<>(Versao::pedidos, Versao::comPedidos, MvccDatabase::copiar);
+
+    /**
+     * Fixa a versão mais recente. Não usa trava e não impede novas escritas.
+     */
+    public Versao versaoAtual() {
+        return atual.get();
+    }
+
+    /**
+     * Estado imutável do banco após um commit. Os pedidos de uma versão são
+     * compartilhados e não devem ser alterados.
+     */
+    public static final class Versao {
+        private final PersistentLongMap<Produto> produtos;
+        private final PersistentLongMap<Pedido> pedidos;
+
+        private Versao(PersistentLongMap<Produto> produtos, PersistentLongMap<Pedido> pedidos) {
+            this.produtos = produtos;
+            this.pedidos = pedidos;
+        }
+
+        public PersistentLongMap<Produto> produtos() {
+            return produtos;
+        }
+
+        public PersistentLongMap<Pedido> pedidos() {
+            return pedidos;
+        }
+
+        /**
+         * Nova versão com a tabela de produtos substituída.
+         */
+        Versao comProdutos(PersistentLongMap<Produto> novos) {
+            return new Versao(novos, pedidos);
+        }
+
+        /**
+         * Nova versão com a tabela de pedidos substituída. Os pedidos passados não
+         * devem ser alterados depois.
+         */
+        Versao comPedidos(PersistentLongMap<Pedido> novos) {
+            return new Versao(produtos, novos);
+        }
+    }
+
+    public EntityStore<Produto> produtos() {
+        return produtos;
+    }
+
+    public EntityStore<Pedido> pedidos() {
+        return pedidos;
+    }
+
+    /**
+     * Aplica a alteração sobre a versão atual e a publica, refazendo-a se outra
+     * escrita tiver publicado no meio. A alteração deve ser pura: pode rodar mais de
+     * uma vez.
+     */
+    private void commit(UnaryOperator<Versao> alteracao) {
+        while (true) {
+            Versao base = atual.get();
+            Versao nova = alteracao.apply(base);
+            if (nova == base || atual.compareAndSet(base, nova)) {
+                return;
+            }
+        }
+    }
+
+    private static Pedido copiar(Pedido pedido) {
+        Pedido copia = new Pedido(pedido.getCliente());
+        copia.atribuirId(pedido.id());
+        copia.setDataCriacao(pedido.getDataCriacao());
+        copia.adicionarItensDe(pedido);
+        return copia;
+    }
+
+    /**
+     * Visão de uma das tabelas como {@link EntityStore}. Cada escrita é um commit.
+     * O valor é copiado uma vez ao gravar; as leituras devolvem o guardado.
+     */
+    private final class Visao<T> implements EntityStore<T> {
+        private final Function<Versao, PersistentLongMap<T>> tabela;
+        private final VersaoComTabela<T> substituir;
+        private final UnaryOperator<T> copiarAoGravar;
+
+        Visao(Function<Versao, PersistentLongMap<T>> tabela, VersaoComTabela<T> substituir, UnaryOperator<T> copiarAoGravar) {
+            this.tabela = tabela;
+            this.substituir = substituir;
+            this.copiarAoGravar = copiarAoGravar;
+        }
+
+        @Override
+        public T get(long id) {
+            return tabela.apply(atual.get()).get(id);
+        }
+
+        @Override
+        public T put(long id, T valor) {
+            T guardado = copiarAoGravar.apply(valor);
+            Object[] anterior = new Object[1];
+            commit(versao -> {
+                PersistentLongMap<T> mapa = tabela.apply(versao);
+                anterior[0] = mapa.get(id);
+                return substituir.aplicar(versao, mapa.com(id, guardado));
+            });
+            return devolver(anterior[0]);
+        }
+
+        @Override
+        public T remove(long id) {
+            Object[] anterior = new Object[1];
+            commit(versao -> {
+                PersistentLongMap<T> mapa = tabela.apply(versao);
+                anterior[0] = mapa.get(id);
+                return anterior[0] == null ? versao : substituir.aplicar(versao, mapa.sem(id));
+            });
+            return devolver(anterior[0]);
+        }
+
+        @Override
+        public void clear() {
+            commit(versao -> substituir.aplicar(versao, PersistentLongMap.vazio()));
+        }
+
+        @Override
+        public int size() {
+            return tabela.apply(atual.get()).size();
+        }
+
+        @Override
+        public List<T> values() {
+            return tabela.apply(atual.get()).values();
+        }
+
+        /**
+         * Percorre uma única versão, então a iteração inteira é consistente.
+         */
+        @Override
+        public void forEach(LongObjConsumer<? super T> acao) {
+            tabela.apply(atual.get()).forEach(acao);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T devolver(Object valor) {
+            return (T) valor;
+        }
+    }
+
+    @FunctionalInterface
+    private interface VersaoComTabela<T> {
+        Versao aplicar(Versao versao, PersistentLongMap<T> tabela);
+    }
+}
@@ -0,0 +1,30 @@
+package crud.repository;
+
+import java.util.List;
+
+/**
+ * Uma página de uma listagem paginada por cursor.
+ * <p>
+ * O cursor é o ID do último item da página: a próxima página são os itens com ID
+ * maior que ele. É nulo quando não há mais itens.
+ *
+ * @param <T> Tipo da entidade
+ * @param <ID> Tipo do identificador
+ */
+public class Pagina<T, ID> {
+    private final List<T> itens;
+    private final ID proximoCursor;
+
+    public Pagina(List<T> itens, ID proximoCursor) {
+        this.itens = itens;
+        this.proximoCursor = proximoCursor;
+    }
+
+    public List<T> getItens() {
+        return itens;
+    }
+
+    public ID getProximoCursor() {
+        return proximoCursor;
+    }
+}
@@ -0,0 +1,138 @@
+package crud.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice secundário cliente → IDs de pedidos, para consultar o histórico de um
+ * cliente em O(k) sem percorrer todos os pedidos.
+ * <p>
+ * O nome do cliente é normalizado (sem espaços nas pontas, minúsculas e sem
+ * acentos). Cada cliente aponta para uma {@link Lista} imutável de IDs ordenados,
+ * trocada a cada escrita, então consultas não usam trava e veem sempre uma lista
+ * completa. Como os IDs novos costumam ser os maiores, a lista nova em geral
+ * reaproveita o array da anterior com um elemento a mais no fim, e o array cresce
+ * dobrando: salvar um pedido custa O(1) amortizado, em vez de copiar o histórico
+ * inteiro do cliente. Inserções no meio e remoções copiam o array.
+ * <p>
+ * Como {@link crud.model.Pedido} é mutável e pode ter o cliente alterado antes do
+ * save, o índice guarda o cliente indexado de cada pedido em vez de depender da
+ * instância anterior. Atualizações do mesmo ID devem ser serializadas pelo chamador.
+ */
+public class PedidoClienteIndex {
+    private static final long[] VAZIO = new long[0];
+    private static final int CAPACIDADE_INICIAL = 4;
+
+    private final ConcurrentHashMap<String, Lista> idsPorCliente = new ConcurrentHashMap<>();
+    private final StripedLongHashMap<String> clientePorId = new StripedLongHashMap<>();
+
+    /**
+     * Associa o pedido ao cliente, removendo-o do cliente indexado anteriormente.
+     * Um cliente nulo apenas remove o pedido do índice.
+     */
+    public void atualizar(long id, String cliente) {
+        String chave = cliente == null ? null : normalizar(cliente);
+        String anterior = chave == null ? clientePorId.remove(id) : clientePorId.put(id, chave);
+        if (chave != null && chave.equals(anterior)) {
+            return;
+        }
+        if (anterior != null) {
+            removerDoCliente(anterior, id);
+        }
+        if (chave != null) {
+            idsPorCliente.compute(chave, (c, ids) -> ids == null ? Lista.de(id) : ids.com(id));
+        }
+    }
+
+    public void remover(long id) {
+        String anterior = clientePorId.remove(id);
+        if (anterior != null) {
+            removerDoCliente(anterior, id);
+        }
+    }
+
+    public void limpar() {
+        idsPorCliente.clear();
+        clientePorId.clear();
+    }
+
+    /**
+     * Retorna os IDs dos pedidos do cliente em ordem crescente.
+     */
+    public long[] buscar(String cliente) {
+        if (cliente == null) {
+            return VAZIO;
+        }
+        Lista ids = idsPorCliente.get(normalizar(cliente));
+        return ids == null ? VAZIO : Arrays.copyOf(ids.valores, ids.tamanho);
+    }
+
+    private void removerDoCliente(String chave, long id) {
+        idsPorCliente.computeIfPresent(chave, (c, ids) -> ids.sem(id));
+    }
+
+    static String normalizar(String cliente) {
+        return ProdutoNomeIndex.normalizar(cliente.strip());
+    }
+
+    /**
+     * IDs ordenados de um cliente: os {@code tamanho} primeiros elementos de
+     * {@code valores}. As posições além do tamanho podem ser preenchidas por uma lista
+     * mais nova que compartilha o array; como só o {@code compute} do cliente cria
+     * listas novas, e sempre a partir da atual, cada posição é escrita uma vez antes
+     * de ficar visível.
+     */
+    private static final class Lista {
+        final long[] valores;
+        final int tamanho;
+
+        private Lista(long[] valores, int tamanho) {
+            this.valores = valores;
+            this.tamanho = tamanho;
+        }
+
+        static Lista de(long id) {
+            long[] valores = new long[CAPACIDADE_INICIAL];
+            valores[0] = id;
+            return new Lista(valores, 1);
+        }
+
+        Lista com(long id) {
+            if (id > valores[tamanho - 1]) {
+                // Caso comum: acrescenta no fim, no mesmo array enquanto houver espaço
+                long[] destino = tamanho < valores.length ? valores : Arrays.copyOf(valores, tamanho * 2);
+                destino[tamanho] = id;
+                return new Lista(destino, tamanho + 1);
+            }
+            int posicao = Arrays.binarySearch(valores, 0, tamanho, id);
+            if (posicao >= 0) {
+                return this;
+            }
+            posicao = -posicao - 1;
+            long[] novos = new long[Math.max(CAPACIDADE_INICIAL, tamanho * 2)];
+            System.arraycopy(valores, 0, novos, 0, posicao);
+            novos[posicao] = id;
+            System.arraycopy(valores, posicao, novos, posicao + 1, tamanho - posicao);
+            return new Lista(novos, tamanho + 1);
+        }
+
+        /**
+         * Lista sem o ID, ou null se ficar vazia. Copia o array mesmo ao remover o
+         * último: um acréscimo posterior reescreveria a posição ainda visível para
+         * quem leu esta lista.
+         */
+        Lista sem(long id) {
+            int posicao = Arrays.binarySearch(valores, 0, tamanho, id);
+            if (posicao < 0) {
+                return this;
+            }
+            if (tamanho == 1) {
+                return null;
+            }
+            long[] novos = new long[Math.max(CAPACIDADE_INICIAL, tamanho - 1)];
+            System.arraycopy(valores, 0, novos, 0, posicao);
+            System.arraycopy(valores, posicao + 1, novos, posicao, tamanho - posicao - 1);
+            return new Lista(novos, tamanho - 1);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package crud.repository;
+
+import crud.model.Pedido;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Índice secundário ordenado pela data de criação dos pedidos, para relatórios
+ * do tipo "pedidos criados entre T1 e T2" sem percorrer todo o histórico.
+ * <p>
+ * As entradas são triplas (segundos, nanos, ID) em uma skip list concorrente;
+ * comparar dois longs e um int é bem mais barato que comparar LocalDateTime, e o
+ * ID desempata pedidos criados no mesmo instante. Consultas não usam trava e
+ * custam O(log n + k).
+ * <p>
+ * Como {@link Pedido#setDataCriacao} pode mudar a data do pedido armazenado, o
+ * índice guarda a data indexada de cada pedido. Atualizações do mesmo ID devem
+ * ser serializadas pelo chamador.
+ */
+public class PedidoDataIndex {
+    private final NavigableSet<Entrada> entradas = new ConcurrentSkipListSet<>();
+    private final StripedLongHashMap<Entrada> entradaPorId = new StripedLongHashMap<>();
+
+    /**
+     * Posiciona o pedido na data informada. Uma data nula apenas remove o pedido do índice.
+     */
+    public void atualizar(long id, LocalDateTime dataCriacao) {
+        Entrada nova = dataCriacao == null ? null : Entrada.de(dataCriacao, id);
+        Entrada anterior = nova == null ? entradaPorId.remove(id) : entradaPorId.put(id, nova);
+        if (nova != null && nova.equals(anterior)) {
+            return;
+        }
+        if (anterior != null) {
+            entradas.remove(anterior);
+        }
+        if (nova != null) {
+            entradas.add(nova);
+        }
+    }
+
+    public void remover(long id) {
+        Entrada anterior = entradaPorId.remove(id);
+        if (anterior != null) {
+            entradas.remove(anterior);
+        }
+    }
+
+    public void limpar() {
+        entradas.clear();
+        entradaPorId.clear();
+    }
+
+    /**
+     * Retorna os IDs dos pedidos criados entre as datas (inclusivas), do mais
+     * antigo ao mais recente.
+     */
+    public long[] buscarEntre(LocalDateTime de, LocalDateTime ate) {
+        Entrada inicio = Entrada.de(de, Long.MIN_VALUE);
+        Entrada fim = Entrada.de(ate, Long.MAX_VALUE);
+        if (inicio.compareTo(fim) > 0) {
+            return new long[0];
+        }
+        long[] ids = new long[16];
+        int tamanho = 0;
+        for (Entrada entrada : entradas.subSet(inicio, true, fim, true)) {
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho * 2);
+            }
+            ids[tamanho++] = entrada.id;
+        }
+        return Arrays.copyOf(ids, tamanho);
+    }
+
+    private static final class Entrada implements Comparable<Entrada> {
+        private final long segundos;
+        private final int nanos;
+        private final long id;
+
+        private Entrada(long segundos, int nanos, long id) {
+            this.segundos = segundos;
+            this.nanos = nanos;
+            this.id = id;
+        }
+
+        static Entrada de(LocalDateTime data, long id) {
+            return new Entrada(data.toEpochSecond(ZoneOffset.UTC), data.getNano(), id);
+        }
+
+        @Override
+        public int compareTo(Entrada outra) {
+            int comparacao = Long.compare(segundos, outra.segundos);
+            if (comparacao == 0) {
+                comparacao = Integer.compare(nanos, outra.nanos);
+            }
+            return comparacao != 0 ? comparacao : Long.compare(id, outra.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entrada && compareTo((Entrada) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(segundos) * 31 + nanos) * 31 + Long.hashCode(id);
+        }
+    }
+}
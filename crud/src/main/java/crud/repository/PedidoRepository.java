@@ -1,61 +1,408 @@
 package crud.repository;
 
 import crud.model.Pedido;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Repositório de pedidos indexado por ID, com chaves long primitivas.
+ * Buscas, atualizações e remoções por ID são O(1) e findAll mantém a ordem de inserção.
+ * <p>
+ * Pedidos são o caminho de escrita mais intenso, então o armazenamento é dividido em
+ * faixas por ID ({@link StripedLongHashMap}): criações concorrentes raramente disputam
+ * a mesma trava, e findAll devolve uma fotografia consistente de todas as faixas.
+ * <p>
+ * Os índices de cliente ({@link PedidoClienteIndex}), de data de criação
+ * ({@link PedidoDataIndex}) e de IDs ordenados, usado na paginação por cursor
+ * ({@link SortedLongSet}), são atualizados junto com o mapa.
+ * Escritas do mesmo ID são serializadas por travas do próprio repositório, também
+ * divididas em faixas, para que o mapa e o índice nunca divirjam.
+ * <p>
+ * O armazenamento é um {@link EntityStore}; por padrão fica só em memória. Ao
+ * receber um armazenamento já preenchido, os índices são reconstruídos e a
+ * sequência de IDs continua do maior ID existente.
+ * <p>
+ * Os produtos dos itens passam por um {@link ProdutoInterner} ao salvar, então
+ * pedidos da mesma versão de um produto compartilham uma única instância dele. O
+ * pedido recebido não é alterado: se algum produto precisar de troca, grava-se uma
+ * cópia. Armazenamentos que guardam os pedidos codificados não passam pelo interner.
+ * <p>
+ * O armazenamento e os índices formam uma {@link Geracao}; com truncamento por
+ * geração, deleteAll publica uma geração vazia em vez de limpar a atual, como em
+ * {@link ProdutoRepository}.
+ */
+public class PedidoRepository implements RepositorioDePedidos {
+    private static final int FAIXAS_DE_ESCRITA = 64;
+
+    private final ReentrantLock[] travas = new ReentrantLock[FAIXAS_DE_ESCRITA];
+    private final IdAllocator geradorDeIds = new IdAllocator();
+    private final ProdutoInterner produtos = new ProdutoInterner();
+    private final Supplier<EntityStore<Pedido>> novoArmazenamento;
+    private volatile Geracao atual;
+
+    /**
+     * Armazenamento e índices que mudam juntos, trocados de uma vez no truncamento por geração.
+     */
+    private static final class Geracao {
+        final EntityStore<Pedido> pedidos;
+        final PedidoClienteIndex clienteIndex = new PedidoClienteIndex();
+        final PedidoDataIndex dataIndex = new PedidoDataIndex();
+        final SortedLongSet ids = new SortedLongSet();
+
+        Geracao(EntityStore<Pedido> pedidos) {
+            this.pedidos = pedidos;
+        }
+    }
+
+    public PedidoRepository() {
+        this(new StripedLongHashMap<>());
+    }
+
+    public PedidoRepository(EntityStore<Pedido> pedidos) {
+        this(pedidos, 1);
+    }
+
+    /**
+     * Usa um armazenamento já preenchido. A sequência de IDs continua do maior
+     * entre {@code proximoId} (por exemplo, o gravado em um snapshot) e o maior ID
+     * existente mais um.
+     */
+    public PedidoRepository(EntityStore<Pedido> pedidos, long proximoId) {
+        this(pedidos, proximoId, null);
+    }
+
+    /**
+     * Como o construtor anterior, escolhendo como deleteAll esvazia o repositório.
+     *
+     * @param novoArmazenamento Cria um armazenamento vazio para o truncamento por
+     *        geração; null limpa o armazenamento atual, como os duráveis exigem
+     */
+    public PedidoRepository(EntityStore<Pedido> pedidos, long proximoId,
+                            Supplier<EntityStore<Pedido>> novoArmazenamento) {
+        this.novoArmazenamento = novoArmazenamento;
+        Geracao geracao = new Geracao(pedidos);
+        geradorDeIds.avancarPara(proximoId);
+        for (int i = 0; i < travas.length; i++) {
+            travas[i] = new ReentrantLock();
+        }
+        boolean internar = !pedidos.guardaCodificado();
+        pedidos.forEach((id, pedido) -> {
+            // Instâncias do próprio armazenamento, ainda não entregues a ninguém
+            if (internar) {
+                pedido.substituirProdutos(produtos::internar);
+            }
+            geracao.clienteIndex.atualizar(id, pedido.getCliente());
+            geracao.dataIndex.atualizar(id, pedido.getDataCriacao());
+            geracao.ids.adicionar(id);
+            geradorDeIds.avancarPara(id + 1);
+        });
+        this.atual = geracao;
+    }
 
-public class PedidoRepository implements Repository<Pedido, Long> {
-    private final List<Pedido> pedidos = new ArrayList<>();
-    private final AtomicLong currentId = new AtomicLong(1);
-    
     /**
      * Salva um pedido. Se não tiver ID, cria novo. Se tiver, atualiza.
      * Mantém compatibilidade com modelo mutável de Pedido.
+     * <p>
+     * O ID novo decide a faixa, então é tirado antes da trava; se um deleteAll
+     * reiniciou a sequência nesse intervalo, o ID pertence à geração antiga e é
+     * trocado por outro. Com a trava da faixa, o deleteAll não roda até a gravação.
+     *
+     * @return O pedido gravado: o recebido, com o ID atribuído, ou a cópia dele com
+     *         os produtos compartilhados
      */
     @Override
     public Pedido save(Pedido pedido) {
-        if (pedido.getId() == null) {
-            pedido.setId(currentId.getAndIncrement());
-            pedidos.add(pedido);
-            return pedido;
-        } else {
-            for (int i = 0; i < pedidos.size(); i++) {
-                if (pedidos.get(i).getId().equals(pedido.getId())) {
-                    pedidos.set(i, pedido);
-                    return pedido;
+        boolean novo = !pedido.temId();
+        while (true) {
+            long geracaoDosIds = geradorDeIds.geracao();
+            if (novo) {
+                pedido.atribuirId(geradorDeIds.proximo());
+            }
+            long id = pedido.id();
+            Pedido gravado = paraGravar(pedido);
+            ReentrantLock trava = travaDe(id);
+            trava.lock();
+            try {
+                if (!novo || geradorDeIds.geracao() == geracaoDosIds) {
+                    gravar(atual, id, gravado);
+                    return gravado;
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Salva o lote travando de uma vez só as faixas envolvidas, em ordem crescente
+     * como no deleteAll. Os IDs dos pedidos novos são reservados de uma vez, em
+     * sequência, e trocados se um deleteAll reiniciar a sequência antes das travas,
+     * como no save.
+     */
+    @Override
+    public List<Pedido> saveAll(Collection<Pedido> lote) {
+        List<Pedido> salvos = new ArrayList<>(lote);
+        boolean[] novos = new boolean[salvos.size()];
+        long semId = 0;
+        for (int i = 0; i < novos.length; i++) {
+            Pedido pedido = salvos.get(i);
+            novos[i] = !pedido.temId();
+            semId += novos[i] ? 1 : 0;
+        }
+        long[] chaves = new long[salvos.size()];
+        while (true) {
+            long geracaoDosIds = geradorDeIds.geracao();
+            long proximo = geradorDeIds.reservar(semId);
+            for (int i = 0; i < chaves.length; i++) {
+                if (novos[i]) {
+                    salvos.get(i).atribuirId(proximo++);
+                }
+                chaves[i] = salvos.get(i).id();
+            }
+            List<Pedido> gravados = new ArrayList<>(salvos.size());
+            for (Pedido pedido : salvos) {
+                gravados.add(paraGravar(pedido));
+            }
+            boolean[] faixas = travarFaixas(chaves);
+            try {
+                if (semId == 0 || geradorDeIds.geracao() == geracaoDosIds) {
+                    Geracao geracao = atual;
+                    List<Pedido> anteriores = geracao.pedidos.putAll(chaves, gravados);
+                    for (int j = 0; j < chaves.length; j++) {
+                        indexar(geracao, chaves[j], gravados.get(j), anteriores.get(j));
+                    }
+                    return Collections.unmodifiableList(gravados);
                 }
+            } finally {
+                destravarFaixas(faixas);
             }
-            pedidos.add(pedido);
-            return pedido;
         }
     }
-    
+
+    /**
+     * O pedido como vai para o armazenamento: com os produtos trocados pela
+     * instância compartilhada da versão, em uma cópia se algum mudar. Quem chamou
+     * pode continuar usando o seu pedido sem ver os produtos trocados.
+     */
+    private Pedido paraGravar(Pedido pedido) {
+        return atual.pedidos.guardaCodificado() ? pedido : pedido.comProdutos(produtos::internar);
+    }
+
+    /**
+     * Grava no mapa e nos índices. Deve ser chamado com a trava da faixa do ID.
+     */
+    private static void gravar(Geracao geracao, long id, Pedido pedido) {
+        indexar(geracao, id, pedido, geracao.pedidos.put(id, pedido));
+    }
+
+    private static void indexar(Geracao geracao, long id, Pedido pedido, Pedido anterior) {
+        if (anterior == null) {
+            geracao.ids.adicionar(id);
+        }
+        // O pedido pode ter mudado antes do save; os índices sabem os valores anteriores
+        geracao.clienteIndex.atualizar(id, pedido.getCliente());
+        geracao.dataIndex.atualizar(id, pedido.getDataCriacao());
+    }
+
     @Override
     public Optional<Pedido> findById(Long id) {
-        return pedidos.stream()
-                     .filter(p -> p.getId().equals(id))
-                     .findFirst();
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(atual.pedidos.get(id));
     }
-    
-   
+
+
     @Override
     public List<Pedido> findAll() {
-        return Collections.unmodifiableList(new ArrayList<>(pedidos));
+        return Collections.unmodifiableList(atual.pedidos.values());
+    }
+
+    @Override
+    public Stream<Pedido> streamAll() {
+        Geracao geracao = atual;
+        return StreamSupport.stream(IdSpliterator.de(geracao.ids, geracao.pedidos::get), false);
+    }
+
+    /**
+     * Página de até {@code limite} pedidos com ID maior que o cursor, em ordem
+     * crescente de ID, lida do índice de IDs em O(log n + limite).
+     */
+    @Override
+    public Pagina<Pedido, Long> findPagina(Long cursor, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("O limite deve ser maior que zero.");
+        }
+        Geracao geracao = atual;
+        // Um a mais que o limite indica se existe próxima página
+        long[] encontrados = geracao.ids.apos(cursor == null ? Long.MIN_VALUE : cursor,
+                limite == Integer.MAX_VALUE ? limite : limite + 1);
+        boolean haMais = encontrados.length > limite;
+        long[] daPagina = haMais ? Arrays.copyOf(encontrados, limite) : encontrados;
+        return new Pagina<>(resolver(geracao, daPagina), haMais ? daPagina[limite - 1] : null);
     }
-    
+
+    /**
+     * Busca os pedidos de um cliente, ignorando maiúsculas, acentos e espaços nas
+     * pontas, em ordem crescente de ID.
+     */
+    @Override
+    public List<Pedido> findByCliente(String cliente) {
+        Geracao geracao = atual;
+        return resolver(geracao, geracao.clienteIndex.buscar(cliente));
+    }
+
+    /**
+     * Busca os pedidos criados entre as datas (inclusivas), do mais antigo ao mais
+     * recente. Limites nulos deixam a faixa aberta daquele lado.
+     */
+    @Override
+    public List<Pedido> findByDataCriacaoBetween(LocalDateTime de, LocalDateTime ate) {
+        Geracao geracao = atual;
+        return resolver(geracao, geracao.dataIndex.buscarEntre(
+                de == null ? LocalDateTime.MIN : de,
+                ate == null ? LocalDateTime.MAX : ate));
+    }
+
+    /**
+     * Converte IDs vindos de um índice em pedidos, mantendo a ordem do índice.
+     */
+    private static List<Pedido> resolver(Geracao geracao, long[] ids) {
+        List<Pedido> encontrados = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Pedido pedido = geracao.pedidos.get(id);
+            if (pedido != null) {
+                encontrados.add(pedido);
+            }
+        }
+        return Collections.unmodifiableList(encontrados);
+    }
+
     @Override
     public boolean delete(Long id) {
-        return pedidos.removeIf(p -> p.getId().equals(id));
+        if (id == null) {
+            return false;
+        }
+        ReentrantLock trava = travaDe(id);
+        trava.lock();
+        try {
+            return remover(atual, id);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public List<Long> deleteAllById(Collection<Long> lote) {
+        long[] validos = lote.stream().filter(Objects::nonNull).mapToLong(Long::longValue).toArray();
+        List<Long> removidos = new ArrayList<>();
+        boolean[] faixas = travarFaixas(validos);
+        try {
+            Geracao geracao = atual;
+            for (long id : validos) {
+                if (remover(geracao, id)) {
+                    removidos.add(id);
+                }
+            }
+        } finally {
+            destravarFaixas(faixas);
+        }
+        return Collections.unmodifiableList(removidos);
+    }
+
+    /**
+     * Remove do mapa e dos índices. Deve ser chamado com a trava da faixa do ID.
+     */
+    private static boolean remover(Geracao geracao, long id) {
+        if (geracao.pedidos.remove(id) == null) {
+            return false;
+        }
+        geracao.clienteIndex.remover(id);
+        geracao.dataIndex.remover(id);
+        geracao.ids.remover(id);
+        return true;
     }
-    
+
+    /**
+     * Limite dos IDs já atribuídos ou reservados: todos são menores que ele. É o
+     * valor gravado nos snapshots; sem concorrência, é o próximo ID a ser atribuído.
+     */
+    @Override
+    public long proximoId() {
+        return geradorDeIds.marcaDagua();
+    }
+
+    /**
+     * Esvazia o repositório e reinicia os IDs, publicando uma geração vazia no
+     * truncamento por geração ou limpando o armazenamento atual.
+     */
     @Override
     public void deleteAll() {
-        pedidos.clear();
-        currentId.set(1);
+        // Todas as travas, sempre na mesma ordem, para não conviver com escritas pela metade
+        for (ReentrantLock trava : travas) {
+            trava.lock();
+        }
+        try {
+            if (novoArmazenamento != null) {
+                atual = new Geracao(novoArmazenamento.get());
+            } else {
+                Geracao geracao = atual;
+                geracao.pedidos.clear();
+                geracao.clienteIndex.limpar();
+                geracao.dataIndex.limpar();
+                geracao.ids.limpar();
+            }
+            geradorDeIds.reiniciar();
+        } finally {
+            for (int i = travas.length - 1; i >= 0; i--) {
+                travas[i].unlock();
+            }
+        }
     }
-}
 
+    private ReentrantLock travaDe(long id) {
+        return travas[faixaDe(id)];
+    }
+
+    private int faixaDe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & (travas.length - 1);
+    }
+
+    /**
+     * Trava as faixas dos IDs em ordem crescente, a mesma de deleteAll, para que
+     * lotes concorrentes não se bloqueiem mutuamente.
+     *
+     * @return Faixas travadas
+     */
+    private boolean[] travarFaixas(long[] ids) {
+        boolean[] faixas = new boolean[travas.length];
+        for (long id : ids) {
+            faixas[faixaDe(id)] = true;
+        }
+        for (int i = 0; i < faixas.length; i++) {
+            if (faixas[i]) {
+                travas[i].lock();
+            }
+        }
+        return faixas;
+    }
+
+    private void destravarFaixas(boolean[] faixas) {
+        for (int i = faixas.length - 1; i >= 0; i--) {
+            if (faixas[i]) {
+                travas[i].unlock();
+            }
+        }
+    }
+}
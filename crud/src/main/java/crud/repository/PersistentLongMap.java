@@ -0,0 +1,244 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Mapa imutável de chave long primitiva para valores (hash array mapped trie).
+ * <p>
+ * Cada alteração devolve um novo mapa e copia só o caminho da raiz até a chave,
+ * O(log32 n) nós; o resto da árvore é compartilhado com a versão anterior. Versões
+ * antigas continuam válidas e podem ser lidas por qualquer thread sem trava.
+ * <p>
+ * Cada nível consome 5 bits do hash da chave. O hash é uma multiplicação por uma
+ * constante ímpar, que é bijetora em 64 bits, então duas chaves distintas sempre
+ * se separam em até 13 níveis e não há colisões a tratar.
+ * <p>
+ * Como os outros armazenamentos, guarda a ordem de inserção de cada chave
+ * (mantida em atualizações) para que {@link #forEach} e {@link #values} sigam essa
+ * ordem.
+ *
+ * @param <V> Tipo do valor (não aceita null)
+ */
+public final class PersistentLongMap<V> {
+    private static final int BITS = 5;
+    private static final int MASCARA = (1 << BITS) - 1;
+    private static final PersistentLongMap<?> VAZIO = new PersistentLongMap<>(null, 0, 0);
+
+    // Nó interno ou folha; null no mapa vazio
+    private final Object raiz;
+    private final int tamanho;
+    private final long proximaOrdem;
+
+    private PersistentLongMap(Object raiz, int tamanho, long proximaOrdem) {
+        this.raiz = raiz;
+        this.tamanho = tamanho;
+        this.proximaOrdem = proximaOrdem;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> vazio() {
+        return (PersistentLongMap<V>) VAZIO;
+    }
+
+    private static final class Folha {
+        final long chave;
+        final Object valor;
+        final long ordem;
+
+        Folha(long chave, Object valor, long ordem) {
+            this.chave = chave;
+            this.valor = valor;
+            this.ordem = ordem;
+        }
+    }
+
+    private static final class No {
+        final int bitmap;
+        final Object[] filhos;
+
+        No(int bitmap, Object[] filhos) {
+            this.bitmap = bitmap;
+            this.filhos = filhos;
+        }
+
+        int posicao(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long chave) {
+        long hash = espalhar(chave);
+        Object atual = raiz;
+        for (int deslocamento = 0; atual instanceof No no; deslocamento += BITS) {
+            int bit = 1 << (int) ((hash >>> deslocamento) & MASCARA);
+            if ((no.bitmap & bit) == 0) {
+                return null;
+            }
+            atual = no.filhos[no.posicao(bit)];
+        }
+        return atual instanceof Folha folha && folha.chave == chave ? (V) folha.valor : null;
+    }
+
+    /**
+     * Retorna um mapa com a chave associada ao valor. Uma chave existente mantém
+     * sua posição na ordem de inserção.
+     */
+    public PersistentLongMap<V> com(long chave, V valor) {
+        if (valor == null) {
+            throw new NullPointerException("Valor nulo");
+        }
+        Folha[] anterior = new Folha[1];
+        Object novaRaiz = inserir(raiz, 0, espalhar(chave), chave, valor, anterior);
+        return anterior[0] == null
+                ? new PersistentLongMap<>(novaRaiz, tamanho + 1, proximaOrdem + 1)
+                : new PersistentLongMap<>(novaRaiz, tamanho, proximaOrdem);
+    }
+
+    /**
+     * Retorna um mapa sem a chave, ou este mesmo mapa se ela não existir.
+     */
+    public PersistentLongMap<V> sem(long chave) {
+        Folha[] removida = new Folha[1];
+        Object novaRaiz = remover(raiz, 0, espalhar(chave), chave, removida);
+        return removida[0] == null ? this : new PersistentLongMap<>(novaRaiz, tamanho - 1, proximaOrdem);
+    }
+
+    private Object inserir(Object atual, int deslocamento, long hash, long chave, Object valor, Folha[] anterior) {
+        if (atual == null) {
+            return new Folha(chave, valor, proximaOrdem);
+        }
+        if (atual instanceof Folha folha) {
+            if (folha.chave == chave) {
+                anterior[0] = folha;
+                return new Folha(chave, valor, folha.ordem);
+            }
+            return juntar(folha, espalhar(folha.chave), new Folha(chave, valor, proximaOrdem), hash, deslocamento);
+        }
+        No no = (No) atual;
+        int bit = 1 << (int) ((hash >>> deslocamento) & MASCARA);
+        int posicao = no.posicao(bit);
+        if ((no.bitmap & bit) == 0) {
+            Object[] filhos = new Object[no.filhos.length + 1];
+            System.arraycopy(no.filhos, 0, filhos, 0, posicao);
+            filhos[posicao] = new Folha(chave, valor, proximaOrdem);
+            System.arraycopy(no.filhos, posicao, filhos, posicao + 1, no.filhos.length - posicao);
+            return new No(no.bitmap | bit, filhos);
+        }
+        Object[] filhos = no.filhos.clone();
+        filhos[posicao] = inserir(no.filhos[posicao], deslocamento + BITS, hash, chave, valor, anterior);
+        return new No(no.bitmap, filhos);
+    }
+
+    /**
+     * Cria a subárvore que separa duas folhas a partir do nível indicado.
+     */
+    private static Object juntar(Folha a, long hashA, Folha b, long hashB, int deslocamento) {
+        int indiceA = (int) ((hashA >>> deslocamento) & MASCARA);
+        int indiceB = (int) ((hashB >>> deslocamento) & MASCARA);
+        if (indiceA == indiceB) {
+            return new No(1 << indiceA, new Object[]{juntar(a, hashA, b, hashB, deslocamento + BITS)});
+        }
+        Object[] filhos = indiceA < indiceB ? new Object[]{a, b} : new Object[]{b, a};
+        return new No((1 << indiceA) | (1 << indiceB), filhos);
+    }
+
+    /**
+     * Retorna o nó sem a chave: null se ficou vazio, ou a única folha restante
+     * para que o pai a guarde diretamente.
+     */
+    private static Object remover(Object atual, int deslocamento, long hash, long chave, Folha[] removida) {
+        if (atual == null) {
+            return null;
+        }
+        if (atual instanceof Folha folha) {
+            if (folha.chave != chave) {
+                return folha;
+            }
+            removida[0] = folha;
+            return null;
+        }
+        No no = (No) atual;
+        int bit = 1 << (int) ((hash >>> deslocamento) & MASCARA);
+        if ((no.bitmap & bit) == 0) {
+            return no;
+        }
+        int posicao = no.posicao(bit);
+        Object filho = remover(no.filhos[posicao], deslocamento + BITS, hash, chave, removida);
+        if (removida[0] == null) {
+            return no;
+        }
+        if (filho != null) {
+            if (no.filhos.length == 1 && filho instanceof Folha) {
+                return filho;
+            }
+            Object[] filhos = no.filhos.clone();
+            filhos[posicao] = filho;
+            return new No(no.bitmap, filhos);
+        }
+        if (no.filhos.length == 1) {
+            return null;
+        }
+        Object[] filhos = new Object[no.filhos.length - 1];
+        System.arraycopy(no.filhos, 0, filhos, 0, posicao);
+        System.arraycopy(no.filhos, posicao + 1, filhos, posicao, filhos.length - posicao);
+        if (filhos.length == 1 && filhos[0] instanceof Folha) {
+            return filhos[0];
+        }
+        return new No(no.bitmap & ~bit, filhos);
+    }
+
+    /**
+     * Percorre as entradas na ordem de inserção.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjConsumer<? super V> acao) {
+        for (Folha folha : folhasEmOrdem()) {
+            acao.accept(folha.chave, (V) folha.valor);
+        }
+    }
+
+    /**
+     * Valores na ordem de inserção.
+     */
+    public List<V> values() {
+        List<V> valores = new ArrayList<>(tamanho);
+        forEach((chave, valor) -> valores.add(valor));
+        return valores;
+    }
+
+    private Folha[] folhasEmOrdem() {
+        Folha[] folhas = new Folha[tamanho];
+        coletar(raiz, folhas, 0);
+        Arrays.sort(folhas, Comparator.comparingLong(folha -> folha.ordem));
+        return folhas;
+    }
+
+    private static int coletar(Object atual, Folha[] destino, int posicao) {
+        if (atual instanceof Folha folha) {
+            destino[posicao] = folha;
+            return posicao + 1;
+        }
+        if (atual instanceof No no) {
+            for (Object filho : no.filhos) {
+                posicao = coletar(filho, destino, posicao);
+            }
+        }
+        return posicao;
+    }
+
+    private static long espalhar(long chave) {
+        return chave * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,106 @@
+package crud.repository;
+
+import crud.model.Produto;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instância canônica de cada versão de produto referenciada por itens de pedido.
+ * <p>
+ * Produto.equals compara só o ID, mas um item guarda o produto como estava na
+ * compra; por isso a versão é o conjunto ID, nome, preço e estoque. Pedidos que
+ * compram a mesma versão passam a apontar para o mesmo objeto, em vez de cada
+ * item carregar sua própria cópia com nome e campos repetidos. O preço da compra
+ * não muda: uma alteração de preço é outra versão.
+ * <p>
+ * As referências são fracas: uma versão que nenhum pedido usa mais é coletada
+ * e sai do mapa na próxima chamada.
+ */
+public class ProdutoInterner {
+    private final ConcurrentHashMap<Versao, Referencia> versoes = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Produto> coletadas = new ReferenceQueue<>();
+
+    private static final class Versao {
+        final long id;
+        final String nome;
+        final long precoEmBits;
+        final int estoque;
+
+        Versao(Produto produto) {
+            this.id = produto.id();
+            this.nome = produto.getNome();
+            this.precoEmBits = Double.doubleToLongBits(produto.preco());
+            this.estoque = produto.estoque();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Versao)) return false;
+            Versao outra = (Versao) o;
+            return id == outra.id && precoEmBits == outra.precoEmBits && estoque == outra.estoque
+                    && Objects.equals(nome, outra.nome);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = Long.hashCode(id);
+            h = 31 * h + Objects.hashCode(nome);
+            h = 31 * h + Long.hashCode(precoEmBits);
+            return 31 * h + estoque;
+        }
+    }
+
+    private static final class Referencia extends WeakReference<Produto> {
+        final Versao versao;
+
+        Referencia(Produto produto, Versao versao, ReferenceQueue<Produto> fila) {
+            super(produto, fila);
+            this.versao = versao;
+        }
+    }
+
+    /**
+     * Instância canônica da versão do produto: a primeira registrada ainda viva,
+     * ou o próprio produto, que passa a ser a canônica.
+     */
+    public Produto internar(Produto produto) {
+        if (produto == null) {
+            return null;
+        }
+        descartarColetadas();
+        Versao versao = new Versao(produto);
+        while (true) {
+            Referencia existente = versoes.get(versao);
+            Produto canonico = existente == null ? null : existente.get();
+            if (canonico != null) {
+                return canonico;
+            }
+            Referencia nova = new Referencia(produto, versao, coletadas);
+            boolean registrada = existente == null
+                    ? versoes.putIfAbsent(versao, nova) == null
+                    : versoes.replace(versao, existente, nova);
+            if (registrada) {
+                return produto;
+            }
+        }
+    }
+
+    /**
+     * Quantidade de versões registradas e ainda vivas (aproximada sob concorrência).
+     */
+    public int tamanho() {
+        descartarColetadas();
+        return versoes.size();
+    }
+
+    private void descartarColetadas() {
+        for (Reference<? extends Produto> coletada; (coletada = coletadas.poll()) != null; ) {
+            Referencia referencia = (Referencia) coletada;
+            versoes.remove(referencia.versao, referencia);
+        }
+    }
+}
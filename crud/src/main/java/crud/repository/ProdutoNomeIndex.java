@@ -0,0 +1,232 @@
+package crud.repository;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de trigramas sobre o nome dos produtos, para busca por
+ * prefixo e por substring sem percorrer o catálogo.
+ * <p>
+ * Os nomes são normalizados (minúsculas, sem acentos). Cada trigrama aponta para
+ * uma lista ordenada de IDs; uma consulta escolhe a lista mais curta entre os
+ * trigramas do termo e confirma cada candidato contra o nome normalizado, então o
+ * custo é proporcional à lista mais seletiva e não ao tamanho do catálogo.
+ * Termos com menos de três caracteres não têm trigrama e percorrem todos os nomes;
+ * com um limite, o resultado guarda só os {@code limite} primeiros em vez de
+ * acumular o catálogo inteiro.
+ * <p>
+ * Thread-safe: consultas compartilham a trava de leitura.
+ */
+public class ProdutoNomeIndex {
+    private static final int TAMANHO_GRAMA = 3;
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+    private final Map<String, ListaDeIds> gramas = new HashMap<>();
+    private final LongHashMap<String> nomes = new LongHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexa (ou reindexa) o nome de um produto. Um nome nulo apenas remove o
+     * produto do índice.
+     */
+    public void indexar(long id, String nome) {
+        lock.writeLock().lock();
+        try {
+            removerSemTrava(id);
+            if (nome == null) {
+                return;
+            }
+            String normalizado = normalizar(nome);
+            nomes.put(id, normalizado);
+            for (String grama : gramasDe(normalizado)) {
+                gramas.computeIfAbsent(grama, g -> new ListaDeIds()).adicionar(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remover(long id) {
+        lock.writeLock().lock();
+        try {
+            removerSemTrava(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void limpar() {
+        lock.writeLock().lock();
+        try {
+            gramas.clear();
+            nomes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca os IDs cujo nome contém o termo, ignorando maiúsculas e acentos.
+     * Nomes que começam com o termo vêm primeiro; dentro de cada grupo os IDs
+     * estão em ordem crescente.
+     *
+     * @return IDs encontrados (vazio se o termo for nulo ou em branco)
+     */
+    public long[] buscar(String termo) {
+        return buscar(termo, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca até {@code limite} IDs cujo nome contém o termo, na mesma ordem de
+     * {@link #buscar(String)}.
+     */
+    public long[] buscar(String termo, int limite) {
+        if (termo == null || termo.isBlank()) {
+            return new long[0];
+        }
+        String consulta = normalizar(termo.strip());
+
+        lock.readLock().lock();
+        try {
+            Resultado resultado = new Resultado(limite);
+            if (consulta.length() < TAMANHO_GRAMA) {
+                nomes.forEach((id, nome) -> resultado.considerar(id, nome, consulta));
+            } else {
+                ListaDeIds candidatos = listaMaisSeletiva(consulta);
+                if (candidatos != null) {
+                    for (int i = 0; i < candidatos.tamanho; i++) {
+                        long id = candidatos.ids[i];
+                        resultado.considerar(id, nomes.get(id), consulta);
+                    }
+                }
+            }
+            return resultado.ordenado();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ListaDeIds listaMaisSeletiva(String consulta) {
+        ListaDeIds menor = null;
+        for (String grama : gramasDe(consulta)) {
+            ListaDeIds lista = gramas.get(grama);
+            if (lista == null) {
+                // Algum trigrama do termo não aparece em nenhum nome
+                return null;
+            }
+            if (menor == null || lista.tamanho < menor.tamanho) {
+                menor = lista;
+            }
+        }
+        return menor;
+    }
+
+    private void removerSemTrava(long id) {
+        String anterior = nomes.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (String grama : gramasDe(anterior)) {
+            ListaDeIds lista = gramas.get(grama);
+            if (lista != null && lista.remover(id) && lista.tamanho == 0) {
+                gramas.remove(grama);
+            }
+        }
+    }
+
+    static String normalizar(String texto) {
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> gramasDe(String texto) {
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + TAMANHO_GRAMA <= texto.length(); i++) {
+            resultado.add(texto.substring(i, i + TAMANHO_GRAMA));
+        }
+        return resultado;
+    }
+
+    /**
+     * Lista de IDs mantida ordenada em um array primitivo. Como os IDs costumam
+     * crescer, a inserção normalmente é um acréscimo no fim.
+     */
+    private static final class ListaDeIds {
+        private long[] ids = new long[4];
+        private int tamanho;
+
+        void adicionar(long id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao >= 0) {
+                return;
+            }
+            posicao = -posicao - 1;
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho * 2);
+            }
+            System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+            ids[posicao] = id;
+            tamanho++;
+        }
+
+        boolean remover(long id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao < 0) {
+                return false;
+            }
+            System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+            tamanho--;
+            return true;
+        }
+    }
+
+    /**
+     * Acumula os IDs que casam com a consulta, separando os que casam pelo prefixo.
+     * Cada grupo guarda no máximo {@code limite} IDs, os menores vistos até então.
+     */
+    private static final class Resultado {
+        private final ListaDeIds prefixo = new ListaDeIds();
+        private final ListaDeIds substring = new ListaDeIds();
+        private final int limite;
+
+        Resultado(int limite) {
+            this.limite = limite;
+        }
+
+        void considerar(long id, String nome, String consulta) {
+            if (nome == null) {
+                return;
+            }
+            if (nome.startsWith(consulta)) {
+                adicionarLimitado(prefixo, id);
+            } else if (nome.contains(consulta)) {
+                adicionarLimitado(substring, id);
+            }
+        }
+
+        private void adicionarLimitado(ListaDeIds grupo, long id) {
+            if (grupo.tamanho == limite) {
+                if (limite == 0 || id > grupo.ids[grupo.tamanho - 1]) {
+                    return;
+                }
+                grupo.tamanho--;
+            }
+            grupo.adicionar(id);
+        }
+
+        long[] ordenado() {
+            int deSubstring = Math.min(substring.tamanho, limite - prefixo.tamanho);
+            long[] resultado = Arrays.copyOf(prefixo.ids, prefixo.tamanho + deSubstring);
+            System.arraycopy(substring.ids, 0, resultado, prefixo.tamanho, deSubstring);
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package crud.repository;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Índice secundário ordenado por preço, para consultas por faixa de preço e
+ * pelos N produtos mais baratos sem copiar nem ordenar o catálogo.
+ * <p>
+ * As entradas são pares (preço, ID) em uma skip list concorrente; o ID desempata
+ * produtos com o mesmo preço. Consultas não usam trava e custam O(log n + k),
+ * onde k é o número de resultados. Quem atualiza o índice deve informar o preço
+ * anterior, que o repositório obtém do valor substituído no mapa principal.
+ */
+public class ProdutoPrecoIndex {
+    private final NavigableSet<Entrada> entradas = new ConcurrentSkipListSet<>();
+
+    /**
+     * Move o produto da posição do preço anterior para a do novo preço.
+     * Preços nulos não são indexados.
+     */
+    public void atualizar(long id, Double precoAnterior, Double novoPreco) {
+        if (precoAnterior != null) {
+            if (precoAnterior.equals(novoPreco)) {
+                return;
+            }
+            entradas.remove(new Entrada(precoAnterior, id));
+        }
+        if (novoPreco != null) {
+            entradas.add(new Entrada(novoPreco, id));
+        }
+    }
+
+    public void remover(long id, Double preco) {
+        if (preco != null) {
+            entradas.remove(new Entrada(preco, id));
+        }
+    }
+
+    public void limpar() {
+        entradas.clear();
+    }
+
+    /**
+     * Retorna os IDs com preço entre os limites (inclusivos), do mais barato ao
+     * mais caro, até o limite de resultados.
+     */
+    public long[] buscarEntre(double precoMin, double precoMax, int limite) {
+        if (precoMin > precoMax || limite <= 0) {
+            return new long[0];
+        }
+        NavigableSet<Entrada> faixa = entradas.subSet(
+                new Entrada(precoMin, Long.MIN_VALUE), true,
+                new Entrada(precoMax, Long.MAX_VALUE), true);
+
+        long[] ids = new long[Math.min(limite, 16)];
+        int tamanho = 0;
+        for (Entrada entrada : faixa) {
+            if (tamanho == limite) {
+                break;
+            }
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, (int) Math.min((long) limite, tamanho * 2L));
+            }
+            ids[tamanho++] = entrada.id;
+        }
+        return Arrays.copyOf(ids, tamanho);
+    }
+
+    /**
+     * Retorna os IDs dos N produtos mais baratos, do mais barato ao mais caro.
+     */
+    public long[] maisBaratos(int quantidade) {
+        return buscarEntre(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, quantidade);
+    }
+
+    private static final class Entrada implements Comparable<Entrada> {
+        private final double preco;
+        private final long id;
+
+        Entrada(double preco, long id) {
+            this.preco = preco;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entrada outra) {
+            int porPreco = Double.compare(preco, outra.preco);
+            return porPreco != 0 ? porPreco : Long.compare(id, outra.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entrada && compareTo((Entrada) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(preco) * 31 + Long.hashCode(id);
+        }
+    }
+}
@@ -2,55 +2,372 @@ package crud.repository;
 
 import crud.model.Produto;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Repositório de produtos indexado por ID.
+ * Buscas, atualizações e remoções por ID são O(1). O mapa preserva a ordem de
+ * inserção, então findAll mantém a mesma ordem da antiga lista.
+ * Leituras concorrentes não se bloqueiam; escritas são exclusivas.
+ * <p>
+ * Mantém também índices secundários de nome ({@link ProdutoNomeIndex}) e de preço
+ * ({@link ProdutoPrecoIndex}), além dos IDs ordenados para a paginação por cursor
+ * ({@link SortedLongSet}), atualizados junto com o mapa em toda escrita.
+ * <p>
+ * O armazenamento é um {@link EntityStore}; por padrão fica só em memória. Ao
+ * receber um armazenamento já preenchido (por exemplo, recuperado do disco), o
+ * repositório reconstrói os índices e continua a sequência de IDs.
+ * <p>
+ * O armazenamento e os índices formam uma {@link Geracao}. Leituras usam a geração
+ * publicada quando começaram; com truncamento por geração (ver o construtor com
+ * {@code novoArmazenamento}), deleteAll publica uma geração vazia em tempo constante
+ * em vez de limpar a atual, e quem estava percorrendo a antiga termina nela.
+ */
+public class ProdutoRepository implements RepositorioDeProdutos {
+    // Serializa as escritas para que o mapa e os índices mudem juntos
+    private final Lock escrita = new ReentrantLock();
+    private final IdAllocator geradorDeIds = new IdAllocator();
+    private final Supplier<EntityStore<Produto>> novoArmazenamento;
+    private volatile Geracao atual;
 
-public class ProdutoRepository implements Repository<Produto, Long> {
-    private final List<Produto> produtos = new ArrayList<>();
-    private final AtomicLong currentId = new AtomicLong(1);
+    /**
+     * Armazenamento e índices que mudam juntos, trocados de uma vez no truncamento por geração.
+     */
+    private static final class Geracao {
+        final EntityStore<Produto> produtos;
+        final ProdutoNomeIndex nomeIndex = new ProdutoNomeIndex();
+        final ProdutoPrecoIndex precoIndex = new ProdutoPrecoIndex();
+        final SortedLongSet ids = new SortedLongSet();
+
+        Geracao(EntityStore<Produto> produtos) {
+            this.produtos = produtos;
+        }
+    }
+
+    public ProdutoRepository() {
+        this(new ConcurrentLongHashMap<>());
+    }
+
+    public ProdutoRepository(EntityStore<Produto> produtos) {
+        this(produtos, 1);
+    }
+
+    /**
+     * Usa um armazenamento já preenchido. A sequência de IDs continua do maior
+     * entre {@code proximoId} (por exemplo, o gravado em um snapshot) e o maior ID
+     * existente mais um.
+     */
+    public ProdutoRepository(EntityStore<Produto> produtos, long proximoId) {
+        this(produtos, proximoId, null);
+    }
+
+    /**
+     * Como o construtor anterior, escolhendo como deleteAll esvazia o repositório.
+     *
+     * @param novoArmazenamento Cria um armazenamento vazio para o truncamento por
+     *        geração; null limpa o armazenamento atual, como os duráveis exigem
+     */
+    public ProdutoRepository(EntityStore<Produto> produtos, long proximoId,
+                             Supplier<EntityStore<Produto>> novoArmazenamento) {
+        this.novoArmazenamento = novoArmazenamento;
+        Geracao geracao = new Geracao(produtos);
+        geradorDeIds.avancarPara(proximoId);
+        produtos.forEach((id, produto) -> {
+            geracao.nomeIndex.indexar(id, produto.getNome());
+            geracao.precoIndex.atualizar(id, null, produto.getPreco());
+            geracao.ids.adicionar(id);
+            geradorDeIds.avancarPara(id + 1);
+        });
+        this.atual = geracao;
+    }
 
     /**
      * Salva um produto. Se não tiver ID, cria novo. Se tiver, atualiza.
      * Retorna uma nova instância imutável com ID atribuído.
+     * <p>
+     * O ID novo é tirado sob a trava de escrita: um deleteAll no meio reiniciaria
+     * a sequência e o ID antigo acabaria gravado na geração nova, onde um produto
+     * criado depois com o mesmo ID o sobrescreveria.
      */
     public Produto save(Produto produto) {
-        if (produto.getId() == null) {
-            Produto produtoComId = produto.comId(currentId.getAndIncrement());
-            produtos.add(produtoComId);
-            return produtoComId;
-        } else {
-            for (int i = 0; i < produtos.size(); i++) {
-                if (produtos.get(i).getId().equals(produto.getId())) {
-                    produtos.set(i, produto);
-                    return produto;
-                }
+        escrita.lock();
+        try {
+            Produto produtoSalvo = produto.temId() ? produto : produto.comId(geradorDeIds.proximo());
+            gravar(atual, produtoSalvo);
+            return produtoSalvo;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Salva o lote sob uma única aquisição da trava de escrita. Os IDs dos produtos
+     * novos são reservados de uma vez, em sequência, sob a mesma trava, como no save.
+     */
+    @Override
+    public List<Produto> saveAll(Collection<Produto> lote) {
+        long semId = lote.stream().filter(produto -> !produto.temId()).count();
+        List<Produto> salvos = new ArrayList<>(lote.size());
+        escrita.lock();
+        try {
+            long proximo = geradorDeIds.reservar(semId);
+            for (Produto produto : lote) {
+                salvos.add(produto.temId() ? produto : produto.comId(proximo++));
+            }
+            long[] chaves = salvos.stream().mapToLong(Produto::id).toArray();
+            Geracao geracao = atual;
+            List<Produto> anteriores = geracao.produtos.putAll(chaves, salvos);
+            for (int i = 0; i < chaves.length; i++) {
+                indexar(geracao, salvos.get(i), anteriores.get(i));
             }
-            produtos.add(produto);
-            return produto;
+        } finally {
+            escrita.unlock();
+        }
+        return Collections.unmodifiableList(salvos);
+    }
+
+    /**
+     * Grava no mapa e nos índices. Deve ser chamado com a trava de escrita.
+     */
+    private static void gravar(Geracao geracao, Produto produto) {
+        // Substituir uma chave existente mantém a posição original na ordem de inserção
+        indexar(geracao, produto, geracao.produtos.put(produto.id(), produto));
+    }
+
+    private static void indexar(Geracao geracao, Produto produto, Produto anterior) {
+        if (anterior == null) {
+            geracao.ids.adicionar(produto.id());
         }
+        geracao.nomeIndex.indexar(produto.id(), produto.getNome());
+        geracao.precoIndex.atualizar(produto.id(),
+                anterior == null ? null : anterior.getPreco(), produto.getPreco());
     }
 
     public Optional<Produto> findById(Long id) {
-        return produtos.stream()
-                       .filter(p -> p.getId().equals(id))
-                       .findFirst();
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(atual.produtos.get(id));
     }
 
-    
+
     @Override
     public List<Produto> findAll() {
-        return Collections.unmodifiableList(new ArrayList<>(produtos));
+        return Collections.unmodifiableList(atual.produtos.values());
+    }
+
+    @Override
+    public Stream<Produto> streamAll() {
+        Geracao geracao = atual;
+        return StreamSupport.stream(IdSpliterator.de(geracao.ids, geracao.produtos::get), false);
+    }
+
+    /**
+     * Página de até {@code limite} produtos com ID maior que o cursor, em ordem
+     * crescente de ID, lida do índice de IDs em O(log n + limite).
+     */
+    @Override
+    public Pagina<Produto, Long> findPagina(Long cursor, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("O limite deve ser maior que zero.");
+        }
+        Geracao geracao = atual;
+        // Um a mais que o limite indica se existe próxima página
+        long[] encontrados = geracao.ids.apos(cursor == null ? Long.MIN_VALUE : cursor,
+                limite == Integer.MAX_VALUE ? limite : limite + 1);
+        boolean haMais = encontrados.length > limite;
+        long[] daPagina = haMais ? Arrays.copyOf(encontrados, limite) : encontrados;
+        return new Pagina<>(resolver(geracao, daPagina), haMais ? daPagina[limite - 1] : null);
+    }
+
+    /**
+     * Busca produtos cujo nome contém o termo, ignorando maiúsculas e acentos.
+     * Produtos cujo nome começa com o termo vêm primeiro.
+     */
+    public List<Produto> findByNome(String termo) {
+        return findByNome(termo, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca até {@code limite} produtos cujo nome contém o termo, ignorando
+     * maiúsculas e acentos. Produtos cujo nome começa com o termo vêm primeiro.
+     */
+    @Override
+    public List<Produto> findByNome(String termo, int limite) {
+        Geracao geracao = atual;
+        return resolver(geracao, geracao.nomeIndex.buscar(termo, limite));
+    }
+
+    /**
+     * Busca produtos com preço entre os limites (inclusivos), do mais barato ao mais caro.
+     */
+    public List<Produto> findByPrecoBetween(double precoMin, double precoMax) {
+        return findByPrecoBetween(precoMin, precoMax, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca até {@code limite} produtos com preço entre os limites (inclusivos),
+     * do mais barato ao mais caro.
+     */
+    @Override
+    public List<Produto> findByPrecoBetween(double precoMin, double precoMax, int limite) {
+        Geracao geracao = atual;
+        return resolver(geracao, geracao.precoIndex.buscarEntre(precoMin, precoMax, limite));
+    }
+
+    /**
+     * Busca os N produtos mais baratos, do mais barato ao mais caro.
+     */
+    @Override
+    public List<Produto> findMaisBaratos(int quantidade) {
+        Geracao geracao = atual;
+        return resolver(geracao, geracao.precoIndex.maisBaratos(quantidade));
+    }
+
+    /**
+     * Soma de preço × estoque do catálogo. Usa as agregações do armazenamento
+     * quando ele as oferece (ver {@link AgregadosDeProduto}); senão percorre os produtos.
+     */
+    public double valorTotalEmEstoque() {
+        EntityStore<Produto> produtos = atual.produtos;
+        AgregadosDeProduto agregados = produtos.unwrap(AgregadosDeProduto.class);
+        if (agregados != null) {
+            return agregados.valorTotalEmEstoque();
+        }
+        double[] total = {0};
+        produtos.forEach((id, produto) -> {
+            if (produto.temPreco() && produto.temEstoque()) {
+                total[0] += produto.preco() * produto.estoque();
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * Conta os produtos por faixa de preço, como em
+     * {@link AgregadosDeProduto#histogramaDePrecos}. Os limites devem estar em ordem crescente.
+     */
+    public long[] histogramaDePrecos(double... limites) {
+        EntityStore<Produto> produtos = atual.produtos;
+        AgregadosDeProduto agregados = produtos.unwrap(AgregadosDeProduto.class);
+        if (agregados != null) {
+            return agregados.histogramaDePrecos(limites);
+        }
+        long[] contagens = new long[limites.length + 1];
+        produtos.forEach((id, produto) -> {
+            if (produto.temPreco()) {
+                contagens[faixa(limites, produto.preco())]++;
+            }
+        });
+        return contagens;
+    }
+
+    /**
+     * Quantidade de limites menores ou iguais ao preço.
+     */
+    private static int faixa(double[] limites, double preco) {
+        int faixa = 0;
+        while (faixa < limites.length && limites[faixa] <= preco) {
+            faixa++;
+        }
+        return faixa;
+    }
+
+    /**
+     * Converte IDs vindos de um índice em produtos, mantendo a ordem do índice.
+     */
+    private static List<Produto> resolver(Geracao geracao, long[] ids) {
+        List<Produto> encontrados = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Produto produto = geracao.produtos.get(id);
+            if (produto != null) {
+                encontrados.add(produto);
+            }
+        }
+        return Collections.unmodifiableList(encontrados);
     }
 
     public boolean delete(Long id) {
-        return produtos.removeIf(p -> p.getId().equals(id));
+        if (id == null) {
+            return false;
+        }
+        escrita.lock();
+        try {
+            return remover(atual, id);
+        } finally {
+            escrita.unlock();
+        }
     }
 
+    @Override
+    public List<Long> deleteAllById(Collection<Long> lote) {
+        List<Long> removidos = new ArrayList<>();
+        escrita.lock();
+        try {
+            Geracao geracao = atual;
+            for (Long id : lote) {
+                if (id != null && remover(geracao, id)) {
+                    removidos.add(id);
+                }
+            }
+        } finally {
+            escrita.unlock();
+        }
+        return Collections.unmodifiableList(removidos);
+    }
+
+    /**
+     * Remove do mapa e dos índices. Deve ser chamado com a trava de escrita.
+     */
+    private static boolean remover(Geracao geracao, long id) {
+        Produto removido = geracao.produtos.remove(id);
+        if (removido == null) {
+            return false;
+        }
+        geracao.nomeIndex.remover(id);
+        geracao.precoIndex.remover(id, removido.getPreco());
+        geracao.ids.remover(id);
+        return true;
+    }
+
+    /**
+     * Limite dos IDs já atribuídos ou reservados: todos são menores que ele. É o
+     * valor gravado nos snapshots; sem concorrência, é o próximo ID a ser atribuído.
+     */
+    @Override
+    public long proximoId() {
+        return geradorDeIds.marcaDagua();
+    }
+
+    /**
+     * Esvazia o repositório e reinicia os IDs. Com truncamento por geração, publica
+     * uma geração vazia em tempo constante; a antiga é recolhida pelo coletor quando
+     * nenhuma leitura em andamento a usar mais. Sem ele, limpa o armazenamento atual.
+     */
     public void deleteAll() {
-        produtos.clear();
-        currentId.set(1);
+        escrita.lock();
+        try {
+            if (novoArmazenamento != null) {
+                atual = new Geracao(novoArmazenamento.get());
+            } else {
+                Geracao geracao = atual;
+                geracao.produtos.clear();
+                geracao.nomeIndex.limpar();
+                geracao.precoIndex.limpar();
+                geracao.ids.limpar();
+            }
+            geradorDeIds.reiniciar();
+        } finally {
+            escrita.unlock();
+        }
     }
-}
\ No newline at end of file
+}
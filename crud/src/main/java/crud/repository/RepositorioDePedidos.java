@@ -0,0 +1,31 @@
+package crud.repository;
+
+import crud.model.Pedido;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositório de pedidos como os serviços o enxergam: as operações genéricas e as
+ * buscas pelos índices de cliente e de data. Implementado pelo repositório simples
+ * ({@link PedidoRepository}) e pelo dividido em fatias ({@link ShardedPedidoRepository}).
+ */
+public interface RepositorioDePedidos extends Repository<Pedido, Long> {
+    /**
+     * Busca os pedidos de um cliente, ignorando maiúsculas, acentos e espaços nas
+     * pontas, em ordem crescente de ID.
+     */
+    List<Pedido> findByCliente(String cliente);
+
+    /**
+     * Busca os pedidos criados entre as datas (inclusivas), do mais antigo ao mais
+     * recente; datas iguais em ordem crescente de ID. Limites nulos deixam a faixa
+     * aberta daquele lado.
+     */
+    List<Pedido> findByDataCriacaoBetween(LocalDateTime de, LocalDateTime ate);
+
+    /**
+     * Limite dos IDs já atribuídos ou reservados: todos são menores que ele. É o
+     * valor gravado nos snapshots.
+     */
+    long proximoId();
+}
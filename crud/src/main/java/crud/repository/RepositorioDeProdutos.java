@@ -0,0 +1,35 @@
+package crud.repository;
+
+import crud.model.Produto;
+import java.util.List;
+
+/**
+ * Repositório de produtos como os serviços o enxergam: as operações genéricas e as
+ * buscas pelos índices de nome e de preço. Implementado pelo repositório simples
+ * ({@link ProdutoRepository}) e pelo dividido em fatias ({@link ShardedProdutoRepository}).
+ */
+public interface RepositorioDeProdutos extends Repository<Produto, Long> {
+    /**
+     * Busca até {@code limite} produtos cujo nome contém o termo, ignorando
+     * maiúsculas e acentos. Produtos cujo nome começa com o termo vêm primeiro;
+     * dentro de cada grupo, em ordem crescente de ID.
+     */
+    List<Produto> findByNome(String termo, int limite);
+
+    /**
+     * Busca até {@code limite} produtos com preço entre os limites (inclusivos),
+     * do mais barato ao mais caro; preços iguais em ordem crescente de ID.
+     */
+    List<Produto> findByPrecoBetween(double precoMin, double precoMax, int limite);
+
+    /**
+     * Busca os N produtos mais baratos, na mesma ordem de {@link #findByPrecoBetween}.
+     */
+    List<Produto> findMaisBaratos(int quantidade);
+
+    /**
+     * Limite dos IDs já atribuídos ou reservados: todos são menores que ele. É o
+     * valor gravado nos snapshots.
+     */
+    long proximoId();
+}
@@ -1,7 +1,9 @@
 package crud.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interface genérica para repositórios, seguindo o princípio de abstração.
@@ -19,6 +21,15 @@ public interface Repository<T, ID> {
      * @return Entidade salva (com ID atribuído se for nova)
      */
     T save(T entity);
+
+    /**
+     * Salva várias entidades de uma vez, como {@link #save} em sequência, mas com
+     * uma única aquisição de travas e reserva de IDs para o lote inteiro.
+     *
+     * @param entities Entidades a serem salvas
+     * @return Entidades salvas, na mesma ordem
+     */
+    List<T> saveAll(Collection<T> entities);
     
     /**
      * Busca uma entidade pelo ID.
@@ -34,6 +45,25 @@ public interface Repository<T, ID> {
      * @return Lista de todas as entidades
      */
     List<T> findAll();
+
+    /**
+     * Percorre todas as entidades em ordem crescente de ID sem copiar o conjunto:
+     * cada entidade é lida quando o stream chega nela. O stream é fracamente
+     * consistente (não falha com escritas concorrentes) e pode ser paralelo.
+     *
+     * @return Stream das entidades
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Retorna até {@code limite} entidades com ID maior que o cursor, em ordem
+     * crescente de ID. O custo é proporcional ao tamanho da página, não ao total.
+     *
+     * @param cursor ID após o qual a página começa; null para a primeira página
+     * @param limite Quantidade máxima de entidades na página
+     * @return Página com as entidades e o cursor da próxima
+     */
+    Pagina<T, ID> findPagina(ID cursor, int limite);
     
     /**
      * Remove uma entidade pelo ID.
@@ -42,6 +72,14 @@ public interface Repository<T, ID> {
      * @return true se a entidade foi removida, false caso contrário
      */
     boolean delete(ID id);
+
+    /**
+     * Remove várias entidades pelo ID com uma única aquisição de travas.
+     *
+     * @param ids Identificadores das entidades
+     * @return IDs que existiam e foram removidos, na ordem recebida
+     */
+    List<ID> deleteAllById(Collection<ID> ids);
     
     /**
      * Remove todas as entidades.
@@ -0,0 +1,60 @@
+package crud.repository;
+
+import crud.model.Pedido;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Pedidos divididos em fatias ({@link ShardedRepository}), cada uma um
+ * {@link PedidoRepository} com travas, armazenamento e índices próprios. As buscas
+ * por cliente e por data consultam todas as fatias e intercalam os resultados na
+ * ordem do repositório simples.
+ */
+public class ShardedPedidoRepository extends ShardedRepository<Pedido, PedidoRepository>
+        implements RepositorioDePedidos {
+    private static final Comparator<Pedido> POR_ID = Comparator.comparingLong(Pedido::id);
+    private static final Comparator<Pedido> POR_DATA =
+            Comparator.comparing(Pedido::getDataCriacao).thenComparingLong(Pedido::id);
+
+    /**
+     * {@code quantidade} fatias, cada uma com armazenamento próprio em memória.
+     */
+    public ShardedPedidoRepository(int quantidade) {
+        this(criarFatias(quantidade, fatia -> new StripedLongHashMap<>()), 1);
+    }
+
+    /**
+     * @param fatias Repositórios das fatias, possivelmente já preenchidos
+     * @param proximoId Próximo ID de uma recuperação; vale o maior entre ele e os das fatias
+     */
+    public ShardedPedidoRepository(List<PedidoRepository> fatias, long proximoId) {
+        super(fatias, Pedido::getId, (pedido, id) -> {
+            pedido.atribuirId(id);
+            return pedido;
+        }, PedidoRepository::proximoId, proximoId);
+    }
+
+    /**
+     * Um {@link PedidoRepository} por armazenamento, na ordem das fatias.
+     */
+    public static List<PedidoRepository> criarFatias(int quantidade, IntFunction<EntityStore<Pedido>> armazenamento) {
+        List<PedidoRepository> fatias = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            fatias.add(new PedidoRepository(armazenamento.apply(i)));
+        }
+        return fatias;
+    }
+
+    @Override
+    public List<Pedido> findByCliente(String cliente) {
+        return reunir(fatia -> fatia.findByCliente(cliente), POR_ID);
+    }
+
+    @Override
+    public List<Pedido> findByDataCriacaoBetween(LocalDateTime de, LocalDateTime ate) {
+        return reunir(fatia -> fatia.findByDataCriacaoBetween(de, ate), POR_DATA);
+    }
+}
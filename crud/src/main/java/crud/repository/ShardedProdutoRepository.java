@@ -0,0 +1,68 @@
+package crud.repository;
+
+import crud.model.Produto;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Produtos divididos em fatias ({@link ShardedRepository}), cada uma um
+ * {@link ProdutoRepository} com armazenamento e índices próprios. As buscas por
+ * nome e por preço consultam todas as fatias e intercalam os resultados na ordem
+ * do repositório simples.
+ */
+public class ShardedProdutoRepository extends ShardedRepository<Produto, ProdutoRepository>
+        implements RepositorioDeProdutos {
+    private static final Comparator<Produto> POR_PRECO =
+            Comparator.comparingDouble(Produto::preco).thenComparingLong(Produto::id);
+
+    /**
+     * {@code quantidade} fatias, cada uma com armazenamento próprio em memória.
+     */
+    public ShardedProdutoRepository(int quantidade) {
+        this(criarFatias(quantidade, fatia -> new ConcurrentLongHashMap<>()), 1);
+    }
+
+    /**
+     * @param fatias Repositórios das fatias, possivelmente já preenchidos
+     * @param proximoId Próximo ID de uma recuperação; vale o maior entre ele e os das fatias
+     */
+    public ShardedProdutoRepository(List<ProdutoRepository> fatias, long proximoId) {
+        super(fatias, Produto::getId, Produto::comId, ProdutoRepository::proximoId, proximoId);
+    }
+
+    /**
+     * Um {@link ProdutoRepository} por armazenamento, na ordem das fatias.
+     */
+    public static List<ProdutoRepository> criarFatias(int quantidade, IntFunction<EntityStore<Produto>> armazenamento) {
+        List<ProdutoRepository> fatias = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            fatias.add(new ProdutoRepository(armazenamento.apply(i)));
+        }
+        return fatias;
+    }
+
+    @Override
+    public List<Produto> findByNome(String termo, int limite) {
+        if (termo == null || termo.isBlank()) {
+            return List.of();
+        }
+        String consulta = ProdutoNomeIndex.normalizar(termo.strip());
+        // Prefixos antes de trechos, como no índice de cada fatia
+        Comparator<Produto> ordem = Comparator
+                .comparing((Produto produto) -> !ProdutoNomeIndex.normalizar(produto.getNome()).startsWith(consulta))
+                .thenComparingLong(Produto::id);
+        return reunir(fatia -> fatia.findByNome(termo, limite), ordem, limite);
+    }
+
+    @Override
+    public List<Produto> findByPrecoBetween(double precoMin, double precoMax, int limite) {
+        return reunir(fatia -> fatia.findByPrecoBetween(precoMin, precoMax, limite), POR_PRECO, limite);
+    }
+
+    @Override
+    public List<Produto> findMaisBaratos(int quantidade) {
+        return reunir(fatia -> fatia.findMaisBaratos(quantidade), POR_PRECO, quantidade);
+    }
+}
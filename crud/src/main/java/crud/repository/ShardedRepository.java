@@ -0,0 +1,370 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Repositório particionado: divide as entidades entre N repositórios independentes
+ * (fatias) pelo hash do ID.
+ * <p>
+ * Cada fatia tem suas próprias travas, armazenamento e índices, então escritas de IDs
+ * em fatias diferentes nunca disputam a mesma estrutura e a vazão de escrita cresce
+ * com o número de núcleos. Só a atribuição de IDs novos é compartilhada, para que
+ * continuem únicos e sequenciais; as fatias recebem as entidades já com ID.
+ * <p>
+ * Cada fatia tem também uma trava de leitura e escrita deste repositório: escritas
+ * tomam a de leitura da sua fatia, sem disputar com as das outras, e deleteAll toma
+ * as de escrita de todas. Assim um ID tirado antes de um deleteAll nunca é gravado
+ * depois dele, como nos repositórios simples.
+ * <p>
+ * Buscas por ID vão direto para a fatia. Listagens consultam todas as fatias e
+ * juntam os resultados (scatter-gather): {@link #findAll}, {@link #findPagina} e
+ * {@link #streamAll} intercalam as fatias em ordem crescente de ID, e
+ * {@link #reunir} faz o mesmo para as consultas específicas de cada repositório
+ * (por nome, cliente, faixa de preço...).
+ * <p>
+ * Diferente dos repositórios simples, {@link #findAll} segue a ordem de ID, que
+ * coincide com a de inserção para IDs atribuídos pelo próprio repositório.
+ *
+ * @param <T> Tipo da entidade
+ * @param <R> Tipo do repositório de cada fatia
+ */
+public abstract class ShardedRepository<T, R extends Repository<T, Long>> implements Repository<T, Long> {
+    private final List<R> fatias;
+    private final ReentrantReadWriteLock[] travas;
+    private final Function<T, Long> idDe;
+    private final BiFunction<T, Long, T> comId;
+    private final Comparator<T> porId;
+    private final IdAllocator geradorDeIds = new IdAllocator();
+
+    /**
+     * @param fatias Repositórios das fatias, possivelmente já preenchidos
+     * @param idDe ID da entidade, ou null se for nova
+     * @param comId Entidade com o ID atribuído (uma cópia, para entidades imutáveis)
+     * @param proximoIdDaFatia Próximo ID de cada fatia (ver {@link #proximoId()})
+     * @param proximoId Próximo ID de uma recuperação; vale o maior entre ele e os das fatias
+     */
+    protected ShardedRepository(List<R> fatias, Function<T, Long> idDe, BiFunction<T, Long, T> comId,
+                                ToLongFunction<R> proximoIdDaFatia, long proximoId) {
+        if (fatias.isEmpty()) {
+            throw new IllegalArgumentException("O repositório deve ter pelo menos uma fatia.");
+        }
+        this.fatias = List.copyOf(fatias);
+        this.travas = new ReentrantReadWriteLock[fatias.size()];
+        for (int i = 0; i < travas.length; i++) {
+            travas[i] = new ReentrantReadWriteLock();
+        }
+        this.idDe = idDe;
+        this.comId = comId;
+        this.porId = Comparator.comparingLong(entidade -> idDe.apply(entidade));
+        long maior = Math.max(1, proximoId);
+        for (R fatia : fatias) {
+            maior = Math.max(maior, proximoIdDaFatia.applyAsLong(fatia));
+        }
+        geradorDeIds.avancarPara(maior);
+    }
+
+    /**
+     * Fatia responsável pelo ID.
+     */
+    public R fatiaDe(long id) {
+        return fatias.get(indiceDe(id));
+    }
+
+    /**
+     * O ID é espalhado antes do módulo para que IDs sequenciais se distribuam por
+     * igual mesmo quando N divide o passo entre eles.
+     */
+    private int indiceDe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) fatias.size());
+    }
+
+    public List<R> fatias() {
+        return fatias;
+    }
+
+    /**
+     * Salva na fatia do ID. O ID novo é tirado antes da trava da fatia; se um
+     * deleteAll reiniciou a sequência nesse intervalo, é trocado por outro.
+     */
+    @Override
+    public T save(T entidade) {
+        boolean novo = idDe.apply(entidade) == null;
+        while (true) {
+            long geracaoDosIds = geradorDeIds.geracao();
+            T comIdAtribuido = novo ? comId.apply(entidade, geradorDeIds.proximo()) : entidade;
+            int fatia = indiceDe(idDe.apply(comIdAtribuido));
+            Lock trava = travas[fatia].readLock();
+            trava.lock();
+            try {
+                if (!novo || geradorDeIds.geracao() == geracaoDosIds) {
+                    return fatias.get(fatia).save(comIdAtribuido);
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reserva os IDs do lote de uma vez e salva cada fatia com um único saveAll,
+     * com as travas das fatias envolvidas tomadas em ordem crescente.
+     */
+    @Override
+    public List<T> saveAll(Collection<T> lote) {
+        List<T> recebidos = new ArrayList<>(lote);
+        boolean[] novos = new boolean[recebidos.size()];
+        long semId = 0;
+        for (int i = 0; i < novos.length; i++) {
+            novos[i] = idDe.apply(recebidos.get(i)) == null;
+            semId += novos[i] ? 1 : 0;
+        }
+        while (true) {
+            long geracaoDosIds = geradorDeIds.geracao();
+            long proximo = geradorDeIds.reservar(semId);
+            List<List<Integer>> posicoes = new ArrayList<>(fatias.size());
+            for (int f = 0; f < fatias.size(); f++) {
+                posicoes.add(new ArrayList<>());
+            }
+            List<T> comIds = new ArrayList<>(recebidos.size());
+            for (int i = 0; i < novos.length; i++) {
+                T entidade = novos[i] ? comId.apply(recebidos.get(i), proximo++) : recebidos.get(i);
+                comIds.add(entidade);
+                posicoes.get(indiceDe(idDe.apply(entidade))).add(i);
+            }
+            List<Lock> tomadas = new ArrayList<>();
+            try {
+                for (int f = 0; f < fatias.size(); f++) {
+                    if (!posicoes.get(f).isEmpty()) {
+                        Lock trava = travas[f].readLock();
+                        trava.lock();
+                        tomadas.add(trava);
+                    }
+                }
+                if (semId == 0 || geradorDeIds.geracao() == geracaoDosIds) {
+                    List<T> salvos = new ArrayList<>(Collections.nCopies(comIds.size(), null));
+                    for (int f = 0; f < fatias.size(); f++) {
+                        List<Integer> daFatia = posicoes.get(f);
+                        if (daFatia.isEmpty()) {
+                            continue;
+                        }
+                        List<T> entidades = new ArrayList<>(daFatia.size());
+                        daFatia.forEach(i -> entidades.add(comIds.get(i)));
+                        List<T> gravados = fatias.get(f).saveAll(entidades);
+                        for (int j = 0; j < daFatia.size(); j++) {
+                            salvos.set(daFatia.get(j), gravados.get(j));
+                        }
+                    }
+                    return Collections.unmodifiableList(salvos);
+                }
+            } finally {
+                for (int i = tomadas.size() - 1; i >= 0; i--) {
+                    tomadas.get(i).unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Optional<T> findById(Long id) {
+        return id == null ? Optional.empty() : fatiaDe(id).findById(id);
+    }
+
+    /**
+     * Todas as entidades, em ordem crescente de ID.
+     */
+    @Override
+    public List<T> findAll() {
+        // findAll das fatias segue a ordem de inserção; os streams, a de ID
+        try (Stream<T> todas = streamAll()) {
+            return todas.toList();
+        }
+    }
+
+    /**
+     * Intercala os streams das fatias em ordem de ID, lendo de cada uma só o necessário.
+     */
+    @Override
+    public Stream<T> streamAll() {
+        List<Stream<T>> streams = fatias.stream().map(Repository::streamAll).toList();
+        Iterator<T> intercalado = intercalar(streams.stream().map(Stream::iterator).toList(), porId);
+        Stream<T> resultado = StreamSupport.stream(Spliterators.spliteratorUnknownSize(intercalado,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+        return resultado.onClose(() -> streams.forEach(Stream::close));
+    }
+
+    /**
+     * Pede a mesma página a todas as fatias e fica com os {@code limite} menores IDs.
+     * Há próxima página se sobrou algum item ou se alguma fatia ainda tem mais.
+     */
+    @Override
+    public Pagina<T, Long> findPagina(Long cursor, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("O limite deve ser maior que zero.");
+        }
+        List<Iterator<T>> paginas = new ArrayList<>(fatias.size());
+        boolean fatiaComMais = false;
+        for (R fatia : fatias) {
+            Pagina<T, Long> pagina = fatia.findPagina(cursor, limite);
+            paginas.add(pagina.getItens().iterator());
+            fatiaComMais |= pagina.getProximoCursor() != null;
+        }
+        Iterator<T> intercalado = intercalar(paginas, porId);
+        List<T> itens = new ArrayList<>(Math.min(limite, 1024));
+        while (itens.size() < limite && intercalado.hasNext()) {
+            itens.add(intercalado.next());
+        }
+        boolean haMais = intercalado.hasNext() || fatiaComMais;
+        return new Pagina<>(Collections.unmodifiableList(itens),
+                haMais && !itens.isEmpty() ? idDe.apply(itens.get(itens.size() - 1)) : null);
+    }
+
+    /**
+     * Executa a consulta em todas as fatias e intercala os resultados. Cada fatia
+     * deve devolver seus resultados já na ordem pedida.
+     *
+     * @param consulta Consulta feita em cada fatia, por exemplo {@code r -> r.findByCliente(c)}
+     * @param ordem Ordem dos resultados de cada fatia e do resultado final
+     */
+    public List<T> reunir(Function<? super R, List<T>> consulta, Comparator<? super T> ordem) {
+        return reunir(consulta, ordem, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Como {@link #reunir(Function, Comparator)}, mas para em {@code limite} resultados.
+     */
+    public List<T> reunir(Function<? super R, List<T>> consulta, Comparator<? super T> ordem, int limite) {
+        List<Iterator<T>> resultados = new ArrayList<>(fatias.size());
+        for (R fatia : fatias) {
+            resultados.add(consulta.apply(fatia).iterator());
+        }
+        Iterator<T> intercalado = intercalar(resultados, ordem);
+        List<T> reunidos = new ArrayList<>();
+        while (reunidos.size() < limite && intercalado.hasNext()) {
+            reunidos.add(intercalado.next());
+        }
+        return Collections.unmodifiableList(reunidos);
+    }
+
+    @Override
+    public boolean delete(Long id) {
+        return id != null && fatiaDe(id).delete(id);
+    }
+
+    /**
+     * Remove com um deleteAllById por fatia, devolvendo os IDs removidos na ordem recebida.
+     */
+    @Override
+    public List<Long> deleteAllById(Collection<Long> lote) {
+        List<Long> validos = lote.stream().filter(Objects::nonNull).toList();
+        List<List<Long>> porFatia = new ArrayList<>(fatias.size());
+        for (int f = 0; f < fatias.size(); f++) {
+            porFatia.add(new ArrayList<>());
+        }
+        validos.forEach(id -> porFatia.get(indiceDe(id)).add(id));
+        Set<Long> removidosDasFatias = new HashSet<>();
+        for (int f = 0; f < fatias.size(); f++) {
+            if (!porFatia.get(f).isEmpty()) {
+                removidosDasFatias.addAll(fatias.get(f).deleteAllById(porFatia.get(f)));
+            }
+        }
+        // Cada ID é contado uma vez, na primeira ocorrência, como no repositório simples
+        List<Long> removidos = new ArrayList<>();
+        for (Long id : validos) {
+            if (removidosDasFatias.remove(id)) {
+                removidos.add(id);
+            }
+        }
+        return Collections.unmodifiableList(removidos);
+    }
+
+    /**
+     * Limpa todas as fatias e reinicia a sequência de IDs uma única vez, com as
+     * travas de escrita de todas as fatias, sempre na mesma ordem.
+     */
+    @Override
+    public void deleteAll() {
+        for (ReentrantReadWriteLock trava : travas) {
+            trava.writeLock().lock();
+        }
+        try {
+            fatias.forEach(Repository::deleteAll);
+            geradorDeIds.reiniciar();
+        } finally {
+            for (int i = travas.length - 1; i >= 0; i--) {
+                travas[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Limite dos IDs já atribuídos ou reservados: todos são menores que ele. É o
+     * valor gravado nos snapshots de todas as fatias; sem concorrência, é o próximo
+     * ID a ser atribuído.
+     */
+    public long proximoId() {
+        return geradorDeIds.marcaDagua();
+    }
+
+    /**
+     * Intercala iteradores já ordenados, tirando sempre o menor da cabeça de cada um.
+     */
+    private static <E> Iterator<E> intercalar(List<Iterator<E>> fontes, Comparator<? super E> ordem) {
+        // Cada cabeça guarda o elemento atual e o iterador de onde veio
+        PriorityQueue<Cabeca<E>> cabecas = new PriorityQueue<>(Math.max(1, fontes.size()),
+                (a, b) -> ordem.compare(a.atual, b.atual));
+        for (Iterator<E> fonte : fontes) {
+            if (fonte.hasNext()) {
+                cabecas.add(new Cabeca<>(fonte.next(), fonte));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cabecas.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                Cabeca<E> menor = cabecas.poll();
+                if (menor == null) {
+                    throw new NoSuchElementException();
+                }
+                if (menor.fonte.hasNext()) {
+                    cabecas.add(new Cabeca<>(menor.fonte.next(), menor.fonte));
+                }
+                return menor.atual;
+            }
+        };
+    }
+
+    private static final class Cabeca<E> {
+        final E atual;
+        final Iterator<E> fonte;
+
+        Cabeca(E atual, Iterator<E> fonte) {
+            this.atual = atual;
+            this.fonte = fonte;
+        }
+    }
+}
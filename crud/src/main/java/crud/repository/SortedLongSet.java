@@ -0,0 +1,110 @@
+package crud.repository;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conjunto ordenado de longs, usado como índice de IDs para a paginação por cursor.
+ * <p>
+ * Os valores ficam em uma {@link ConcurrentSkipListSet}: inserir, remover e
+ * posicionar um cursor custam O(log n) e ler os k seguintes custa O(k), sem trava.
+ * Os repositórios atualizam o conjunto em toda escrita, inclusive de stripes
+ * diferentes do {@link PedidoRepository}; uma trava única aqui voltaria a
+ * serializar essas escritas. O custo é a memória de um nó e de um {@link Long} por
+ * valor, em vez de 8 bytes em um array.
+ * <p>
+ * Leituras concorrentes com escritas são fracamente consistentes, como as da
+ * própria skip list: uma página pode incluir ou não um valor adicionado durante a
+ * leitura, mas nunca repete nem desordena valores.
+ */
+public class SortedLongSet {
+    private static final long[] VAZIO = new long[0];
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private final ConcurrentSkipListSet<Long> valores = new ConcurrentSkipListSet<>();
+    // ConcurrentSkipListSet.size() percorre a lista inteira
+    private final AtomicInteger tamanho = new AtomicInteger();
+
+    /**
+     * @return true se o valor não estava no conjunto
+     */
+    public boolean adicionar(long valor) {
+        if (!valores.add(valor)) {
+            return false;
+        }
+        tamanho.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return true se o valor estava no conjunto
+     */
+    public boolean remover(long valor) {
+        if (!valores.remove(valor)) {
+            return false;
+        }
+        tamanho.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Esvazia o conjunto. Não deve concorrer com escritas, que os repositórios já
+     * excluem durante o deleteAll.
+     */
+    public void limpar() {
+        valores.clear();
+        tamanho.set(0);
+    }
+
+    /**
+     * Quantidade de valores (aproximada sob concorrência).
+     */
+    public int tamanho() {
+        return tamanho.get();
+    }
+
+    /**
+     * Retorna, em ordem crescente, até {@code limite} valores estritamente maiores que {@code cursor}.
+     */
+    public long[] apos(long cursor, int limite) {
+        return entre(cursor, Long.MAX_VALUE, limite);
+    }
+
+    /**
+     * Retorna, em ordem crescente, até {@code limite} valores maiores que
+     * {@code cursor} e menores ou iguais a {@code ate}.
+     */
+    public long[] entre(long cursor, long ate, int limite) {
+        if (limite <= 0 || cursor >= ate) {
+            return VAZIO;
+        }
+        Iterator<Long> seguintes = valores.subSet(cursor, false, ate, true).iterator();
+        long[] resultado = VAZIO;
+        int encontrados = 0;
+        while (encontrados < limite && seguintes.hasNext()) {
+            if (encontrados == resultado.length) {
+                resultado = Arrays.copyOf(resultado, Math.min(limite, Math.max(CAPACIDADE_INICIAL, encontrados * 2)));
+            }
+            resultado[encontrados++] = seguintes.next();
+        }
+        return encontrados == resultado.length ? resultado : Arrays.copyOf(resultado, encontrados);
+    }
+
+    /**
+     * Maior valor do conjunto, ou {@link Long#MIN_VALUE} se estiver vazio.
+     */
+    public long maximo() {
+        Long maior = valores.floor(Long.MAX_VALUE);
+        return maior == null ? Long.MIN_VALUE : maior;
+    }
+
+    /**
+     * Menor valor do conjunto, ou {@link Long#MAX_VALUE} se estiver vazio.
+     */
+    public long minimo() {
+        Long menor = valores.ceiling(Long.MIN_VALUE);
+        return menor == null ? Long.MAX_VALUE : menor;
+    }
+}
@@ -0,0 +1,242 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Mapa de chave long dividido em faixas (lock striping) para escritas concorrentes.
+ * <p>
+ * Cada faixa é um {@link LongHashMap} com sua própria trava de leitura/escrita, e a
+ * faixa de uma chave é escolhida pelo hash do ID. Escritas em IDs de faixas
+ * diferentes não competem pela mesma trava, então a vazão de escrita cresce com o
+ * número de núcleos.
+ * <p>
+ * Operações que abrangem o mapa inteiro ({@link #values()}, {@link #forEach} e
+ * {@link #clear()}) adquirem as travas de todas as faixas sempre na mesma ordem,
+ * o que produz uma fotografia consistente sem risco de deadlock. A ordem global de
+ * inserção é reconstruída intercalando as faixas pelo número de ordem de cada entrada.
+ *
+ * @param <V> Tipo do valor (não aceita null)
+ */
+public class StripedLongHashMap<V> implements EntityStore<V> {
+    private final LongHashMap<V>[] faixas;
+    private final ReadWriteLock[] travas;
+    private final AtomicLong proximaOrdem = new AtomicLong();
+    private final int mascara;
+
+    public StripedLongHashMap() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param numeroDeFaixas Quantidade desejada de faixas, arredondada para a
+     *                       próxima potência de dois
+     */
+    public StripedLongHashMap(int numeroDeFaixas) {
+        if (numeroDeFaixas <= 0) {
+            throw new IllegalArgumentException("O número de faixas deve ser maior que zero");
+        }
+        int quantidade = Integer.highestOneBit(numeroDeFaixas * 2 - 1);
+        this.faixas = novasFaixas(quantidade);
+        this.travas = new ReadWriteLock[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            faixas[i] = new LongHashMap<>();
+            travas[i] = new ReentrantReadWriteLock();
+        }
+        this.mascara = quantidade - 1;
+    }
+
+    // Java não cria arrays de tipo genérico; o cast é seguro porque o array só guarda LongHashMap<V>
+    @SuppressWarnings("unchecked")
+    private static <V> LongHashMap<V>[] novasFaixas(int quantidade) {
+        return (LongHashMap<V>[]) new LongHashMap<?>[quantidade];
+    }
+
+    public int numeroDeFaixas() {
+        return faixas.length;
+    }
+
+    public V get(long chave) {
+        int faixa = faixaDe(chave);
+        travas[faixa].readLock().lock();
+        try {
+            return faixas[faixa].get(chave);
+        } finally {
+            travas[faixa].readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(long chave) {
+        return get(chave) != null;
+    }
+
+    public V put(long chave, V valor) {
+        int faixa = faixaDe(chave);
+        travas[faixa].writeLock().lock();
+        try {
+            LongHashMap<V> mapa = faixas[faixa];
+            if (mapa.containsKey(chave)) {
+                return mapa.put(chave, valor);
+            }
+            // A ordem é obtida sob a trava da faixa, então é crescente dentro dela
+            return mapa.put(chave, valor, proximaOrdem.getAndIncrement());
+        } finally {
+            travas[faixa].writeLock().unlock();
+        }
+    }
+
+    public V remove(long chave) {
+        int faixa = faixaDe(chave);
+        travas[faixa].writeLock().lock();
+        try {
+            return faixas[faixa].remove(chave);
+        } finally {
+            travas[faixa].writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        for (ReadWriteLock trava : travas) {
+            trava.writeLock().lock();
+        }
+        try {
+            for (LongHashMap<V> mapa : faixas) {
+                mapa.clear();
+            }
+        } finally {
+            for (int i = travas.length - 1; i >= 0; i--) {
+                travas[i].writeLock().unlock();
+            }
+        }
+    }
+
+    public int size() {
+        for (ReadWriteLock trava : travas) {
+            trava.readLock().lock();
+        }
+        try {
+            int total = 0;
+            for (LongHashMap<V> mapa : faixas) {
+                total += mapa.size();
+            }
+            return total;
+        } finally {
+            liberarLeitura();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Retorna uma fotografia consistente dos valores, na ordem global de inserção.
+     */
+    public List<V> values() {
+        List<V> resultado = new ArrayList<>();
+        forEach((chave, valor) -> resultado.add(valor));
+        return resultado;
+    }
+
+    /**
+     * Percorre uma fotografia consistente das entradas, na ordem global de inserção.
+     * A fotografia é copiada com todas as faixas travadas para leitura, e a ação roda
+     * depois que as travas são liberadas, então pode escrever neste mapa.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjConsumer<? super V> acao) {
+        Fotografia[] fotografias = new Fotografia[faixas.length];
+        for (ReadWriteLock trava : travas) {
+            trava.readLock().lock();
+        }
+        try {
+            for (int i = 0; i < faixas.length; i++) {
+                Fotografia fotografia = new Fotografia(faixas[i].size());
+                faixas[i].forEachComOrdem(fotografia::adicionar);
+                fotografias[i] = fotografia;
+            }
+        } finally {
+            liberarLeitura();
+        }
+
+        // Intercala as faixas (cada uma já ordenada) pelo número de ordem
+        PriorityQueue<Fotografia> fila = new PriorityQueue<>(
+                (a, b) -> Long.compare(a.ordemAtual(), b.ordemAtual()));
+        for (Fotografia fotografia : fotografias) {
+            if (fotografia.temProxima()) {
+                fila.add(fotografia);
+            }
+        }
+        while (!fila.isEmpty()) {
+            Fotografia fotografia = fila.poll();
+            acao.accept(fotografia.chaveAtual(), (V) fotografia.valorAtual());
+            fotografia.avancar();
+            if (fotografia.temProxima()) {
+                fila.add(fotografia);
+            }
+        }
+    }
+
+    private void liberarLeitura() {
+        for (int i = travas.length - 1; i >= 0; i--) {
+            travas[i].readLock().unlock();
+        }
+    }
+
+    /**
+     * Usa os bits altos do hash, enquanto o {@link LongHashMap} de cada faixa usa
+     * a mistura dos bits baixos, para que as chaves de uma faixa não se concentrem.
+     */
+    private int faixaDe(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & mascara;
+    }
+
+    /**
+     * Cópia das entradas vivas de uma faixa, em ordem crescente de inserção.
+     */
+    private static final class Fotografia {
+        private final long[] ordens;
+        private final long[] chaves;
+        private final Object[] valores;
+        private int tamanho;
+        private int cursor;
+
+        Fotografia(int capacidade) {
+            this.ordens = new long[capacidade];
+            this.chaves = new long[capacidade];
+            this.valores = new Object[capacidade];
+        }
+
+        void adicionar(long ordem, long chave, Object valor) {
+            ordens[tamanho] = ordem;
+            chaves[tamanho] = chave;
+            valores[tamanho] = valor;
+            tamanho++;
+        }
+
+        boolean temProxima() {
+            return cursor < tamanho;
+        }
+
+        long ordemAtual() {
+            return ordens[cursor];
+        }
+
+        long chaveAtual() {
+            return chaves[cursor];
+        }
+
+        Object valorAtual() {
+            return valores[cursor];
+        }
+
+        void avancar() {
+            cursor++;
+        }
+    }
+}
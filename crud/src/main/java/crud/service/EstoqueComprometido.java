@@ -0,0 +1,45 @@
+package crud.service;
+
+/**
+ * Linha do relatório de estoque: o estoque atual de um produto e quanto dele os
+ * pedidos existentes somam.
+ */
+public class EstoqueComprometido {
+    private final long produtoId;
+    private final String nome;
+    private final int estoque;
+    private final long comprometido;
+
+    public EstoqueComprometido(long produtoId, String nome, int estoque, long comprometido) {
+        this.produtoId = produtoId;
+        this.nome = nome;
+        this.estoque = estoque;
+        this.comprometido = comprometido;
+    }
+
+    public long getProdutoId() {
+        return produtoId;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public int getEstoque() {
+        return estoque;
+    }
+
+    /**
+     * Soma das quantidades do produto em todos os pedidos.
+     */
+    public long getComprometido() {
+        return comprometido;
+    }
+
+    /**
+     * Estoque que sobra depois dos pedidos; negativo se os pedidos passam do estoque.
+     */
+    public long getDisponivel() {
+        return estoque - comprometido;
+    }
+}
@@ -0,0 +1,49 @@
+package crud.service;
+
+import crud.exception.ValidacaoException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Regras comuns às operações em lote dos serviços.
+ */
+final class Lotes {
+    private Lotes() {
+    }
+
+    static void validar(List<?> lote) {
+        if (lote == null || lote.isEmpty()) {
+            throw new ValidacaoException("O lote deve ter pelo menos um item.");
+        }
+        if (lote.size() > Service.LIMITE_MAXIMO_DE_LOTE) {
+            throw new ValidacaoException("O lote pode ter no máximo " + Service.LIMITE_MAXIMO_DE_LOTE + " itens.");
+        }
+    }
+
+    /**
+     * Monta os resultados de uma remoção em lote: 200 para os IDs removidos, 404
+     * para os inexistentes (e para repetições de um ID já removido) e 400 para IDs
+     * nulos.
+     *
+     * @param naoEncontrado Exceção da rota individual, para reaproveitar a mensagem
+     */
+    static List<ResultadoDeItem<Long>> remocoes(List<Long> ids, List<Long> removidos,
+                                                LongFunction<RuntimeException> naoEncontrado) {
+        Set<Long> pendentes = new HashSet<>(removidos);
+        List<ResultadoDeItem<Long>> resultados = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                resultados.add(ResultadoDeItem.falha(i, 400, "ID inválido."));
+            } else if (pendentes.remove(id)) {
+                resultados.add(ResultadoDeItem.sucesso(i, 200, id));
+            } else {
+                resultados.add(ResultadoDeItem.falha(i, 404, naoEncontrado.apply(id).getMessage()));
+            }
+        }
+        return resultados;
+    }
+}
@@ -4,10 +4,18 @@ import crud.exception.PedidoNaoEncontradoException;
 import crud.exception.ValidacaoException;
 import crud.model.ItemPedido;
 import crud.model.Pedido;
-import crud.repository.PedidoRepository;
-import crud.repository.ProdutoRepository;
+import crud.model.Produto;
+import crud.repository.LongHashMap;
+import crud.repository.MvccDatabase;
+import crud.repository.Pagina;
+import crud.repository.RepositorioDePedidos;
+import crud.repository.RepositorioDeProdutos;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Serviço de pedidos que integra com o sistema de produtos.
@@ -15,12 +23,23 @@ import java.util.Optional;
  * Segue o princípio de responsabilidade única (SRP).
  */
 public class PedidoService implements Service<Pedido, Long> {
-    private final PedidoRepository pedidoRepository;
-    private final ProdutoRepository produtoRepository; // Para validar produtos
+    private final RepositorioDePedidos pedidoRepository;
+    private final RepositorioDeProdutos produtoRepository; // Para validar produtos
+    private final MvccDatabase mvcc;
 
-    public PedidoService(PedidoRepository pedidoRepository, ProdutoRepository produtoRepository) {
+    public PedidoService(RepositorioDePedidos pedidoRepository, RepositorioDeProdutos produtoRepository) {
+        this(pedidoRepository, produtoRepository, null);
+    }
+
+    /**
+     * @param mvcc Banco multiversão dos dois repositórios, para relatórios que leem
+     *        produtos e pedidos da mesma versão; null se eles não usam um
+     */
+    public PedidoService(RepositorioDePedidos pedidoRepository, RepositorioDeProdutos produtoRepository,
+                         MvccDatabase mvcc) {
         this.pedidoRepository = pedidoRepository;
         this.produtoRepository = produtoRepository;
+        this.mvcc = mvcc;
     }
 
     /**
@@ -36,35 +55,34 @@ public class PedidoService implements Service<Pedido, Long> {
             throw new ValidacaoException("O nome do cliente é obrigatório.");
         }
         
-        if (pedido.getItens().isEmpty()) {
+        if (pedido.quantidadeDeItens() == 0) {
             throw new ValidacaoException("Um pedido deve ter pelo menos um item.");
         }
         
-        validarItensPedido(pedido.getItens());
+        pedido.paraCadaItem(this::validarItemPedido);
     }
     
     /**
-     * Valida os itens de um pedido.
-     * Verifica se produtos existem e se quantidades são válidas.
+     * Valida um item de pedido.
+     * Verifica se o produto existe e se a quantidade é válida.
      */
-    private void validarItensPedido(List<ItemPedido> itens) {
-        for (ItemPedido item : itens) {
-            if (item == null) {
-                throw new ValidacaoException("Item de pedido não pode ser nulo.");
-            }
-            
-            if (item.getProduto() == null || item.getProduto().getId() == null) {
-                throw new ValidacaoException("Item de pedido com produto inválido.");
-            }
-            
-            // Valida se o produto existe no repositório de produtos
-            produtoRepository.findById(item.getProduto().getId())
-                             .orElseThrow(() -> new ValidacaoException(
-                                 "Produto com ID " + item.getProduto().getId() + " não encontrado."));
-
-            if (item.getQuantidade() == null || item.getQuantidade() <= 0) {
-                throw new ValidacaoException("A quantidade do item deve ser maior que zero.");
-            }
+    private void validarItemPedido(ItemPedido item) {
+        if (item == null) {
+            throw new ValidacaoException("Item de pedido não pode ser nulo.");
+        }
+        
+        if (item.getProduto() == null || !item.getProduto().temId()) {
+            throw new ValidacaoException("Item de pedido com produto inválido.");
+        }
+        
+        // Valida se o produto existe no repositório de produtos
+        long produtoId = item.getProduto().id();
+        produtoRepository.findById(produtoId)
+                         .orElseThrow(() -> new ValidacaoException(
+                             "Produto com ID " + produtoId + " não encontrado."));
+
+        if (item.quantidade() <= 0) {
+            throw new ValidacaoException("A quantidade do item deve ser maior que zero.");
         }
     }
 
@@ -98,6 +116,83 @@ public class PedidoService implements Service<Pedido, Long> {
         return pedidoRepository.findAll();
     }
 
+    /**
+     * Percorre todos os pedidos em ordem crescente de ID, sem copiar o repositório.
+     */
+    @Override
+    public Stream<Pedido> buscarTodosComoStream() {
+        return pedidoRepository.streamAll();
+    }
+
+    /**
+     * Relatório de estoque: para cada produto, na ordem de inserção, o estoque atual
+     * e a soma das quantidades pedidas dele.
+     * <p>
+     * Com um {@link MvccDatabase}, produtos e pedidos saem da mesma versão fixada,
+     * então o relatório nunca mistura um pedido com um estoque de outro instante,
+     * mesmo com escritas concorrentes. Sem ele, cada repositório é lido no seu momento.
+     */
+    public List<EstoqueComprometido> relatorioDeEstoque() {
+        if (mvcc != null) {
+            MvccDatabase.Versao versao = mvcc.versaoAtual();
+            return relatorioDeEstoque(versao.produtos().values(), versao.pedidos().values());
+        }
+        return relatorioDeEstoque(produtoRepository.findAll(), pedidoRepository.findAll());
+    }
+
+    private static List<EstoqueComprometido> relatorioDeEstoque(List<Produto> produtos, List<Pedido> pedidos) {
+        LongHashMap<long[]> pedidoPorProduto = new LongHashMap<>();
+        for (Pedido pedido : pedidos) {
+            for (int i = 0; i < pedido.quantidadeDeItens(); i++) {
+                long produtoId = pedido.produtoDoItem(i).id();
+                long[] soma = pedidoPorProduto.get(produtoId);
+                if (soma == null) {
+                    pedidoPorProduto.put(produtoId, soma = new long[1]);
+                }
+                soma[0] += pedido.quantidadeDoItem(i);
+            }
+        }
+        List<EstoqueComprometido> linhas = new ArrayList<>(produtos.size());
+        for (Produto produto : produtos) {
+            long[] soma = pedidoPorProduto.get(produto.id());
+            linhas.add(new EstoqueComprometido(produto.id(), produto.getNome(),
+                    Objects.requireNonNullElse(produto.getEstoque(), 0), soma == null ? 0 : soma[0]));
+        }
+        return linhas;
+    }
+
+    /**
+     * Busca uma página de pedidos em ordem crescente de ID.
+     */
+    @Override
+    public Pagina<Pedido, Long> buscarPagina(Long cursor, int limite) {
+        if (limite <= 0) {
+            throw new ValidacaoException("O limite deve ser maior que zero.");
+        }
+        return pedidoRepository.findPagina(cursor, Math.min(limite, LIMITE_MAXIMO_DE_PAGINA));
+    }
+
+    /**
+     * Busca os pedidos de um cliente, do mais antigo ao mais recente.
+     */
+    public List<Pedido> buscarPorCliente(String cliente) {
+        if (cliente == null || cliente.trim().isEmpty()) {
+            throw new ValidacaoException("O nome do cliente é obrigatório.");
+        }
+        return pedidoRepository.findByCliente(cliente);
+    }
+
+    /**
+     * Busca os pedidos criados no período (inclusivo), do mais antigo ao mais recente.
+     * Datas nulas deixam o período aberto daquele lado.
+     */
+    public List<Pedido> buscarPorPeriodo(LocalDateTime de, LocalDateTime ate) {
+        if (de != null && ate != null && de.isAfter(ate)) {
+            throw new ValidacaoException("A data inicial não pode ser posterior à data final.");
+        }
+        return pedidoRepository.findByDataCriacaoBetween(de, ate);
+    }
+
     /**
      * Busca um pedido por ID (método da interface Service).
      */
@@ -128,47 +223,99 @@ public class PedidoService implements Service<Pedido, Long> {
             throw new ValidacaoException("Dados do pedido não podem ser nulos.");
         }
         
-        Pedido pedidoExistente = buscarPorId(id);
-        
-        pedidoExistente.setCliente(pedidoRequest.getCliente());
-        // Limpa itens antigos e adiciona novos
-        // Como getItens() retorna lista imutável, precisamos trabalhar com a lista interna
-        int tamanhoOriginal = pedidoExistente.getItens().size();
-        for (int i = tamanhoOriginal - 1; i >= 0; i--) {
-            pedidoExistente.removerItem(i);
-        }
-        if (pedidoRequest.getItens() != null) {
-            for (ItemPedido item : pedidoRequest.getItens()) {
-                pedidoExistente.adicionarItem(item);
-            }
-        }
+        Pedido pedido = substituto(id, pedidoRequest.getCliente());
+        pedido.adicionarItensDe(pedidoRequest);
         
-        validarPedido(pedidoExistente);
-        return pedidoRepository.save(pedidoExistente);
+        validarPedido(pedido);
+        return pedidoRepository.save(pedido);
     }
 
     /**
      * Atualiza um pedido existente (método auxiliar para facilitar uso).
      */
     public Pedido atualizarPedido(Long id, String novoCliente, List<ItemPedido> novosItens) {
-        Pedido pedidoExistente = buscarPorId(id);
-        
-        pedidoExistente.setCliente(novoCliente);
-        // Limpa itens antigos e adiciona novos
-        int tamanhoOriginal = pedidoExistente.getItens().size();
-        for (int i = tamanhoOriginal - 1; i >= 0; i--) {
-            pedidoExistente.removerItem(i);
-        }
+        Pedido pedido = substituto(id, novoCliente);
         if (novosItens != null) {
             for (ItemPedido item : novosItens) {
-                pedidoExistente.adicionarItem(item);
+                pedido.adicionarItem(item);
             }
         }
         
-        validarPedido(pedidoExistente);
-        return pedidoRepository.save(pedidoExistente);
+        validarPedido(pedido);
+        return pedidoRepository.save(pedido);
     }
     
+    /**
+     * Cria ou atualiza vários pedidos. Itens sem ID são criados (201) e itens com ID
+     * substituem cliente e itens do pedido existente, mantendo a data de criação
+     * (200). Cada pedido é validado por conta própria; os válidos são gravados
+     * juntos em um único saveAll e os inválidos voltam com 400 ou 404 sem impedir
+     * os demais.
+     *
+     * @return Um resultado por pedido, na ordem do lote
+     */
+    public List<ResultadoDeItem<Pedido>> salvarLote(List<Pedido> lote) {
+        Lotes.validar(lote);
+        List<ResultadoDeItem<Pedido>> resultados = new ArrayList<>(lote.size());
+        List<Pedido> validos = new ArrayList<>(lote.size());
+        List<Integer> indices = new ArrayList<>(lote.size());
+        // Decidido antes de salvar, que atribui ID aos novos
+        List<Integer> status = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            Pedido request = lote.get(i);
+            try {
+                Pedido pedido = request;
+                if (request != null && request.getId() != null) {
+                    pedido = substituto(request.getId(), request.getCliente());
+                    pedido.adicionarItensDe(request);
+                }
+                validarPedido(pedido);
+                validos.add(pedido);
+                indices.add(i);
+                status.add(request.getId() == null ? 201 : 200);
+                resultados.add(null);
+            } catch (PedidoNaoEncontradoException e) {
+                resultados.add(ResultadoDeItem.falha(i, 404, e.getMessage()));
+            } catch (ValidacaoException e) {
+                resultados.add(ResultadoDeItem.falha(i, 400, e.getMessage()));
+            }
+        }
+        if (!validos.isEmpty()) {
+            List<Pedido> salvos = pedidoRepository.saveAll(validos);
+            for (int j = 0; j < salvos.size(); j++) {
+                int indice = indices.get(j);
+                resultados.set(indice, ResultadoDeItem.sucesso(indice, status.get(j), salvos.get(j)));
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Novo pedido, ainda sem itens, com o ID e a data de criação do existente e o
+     * cliente informado. As atualizações gravam esse substituto em vez de alterar o
+     * existente, que pode estar sendo lido ou serializado em um snapshot ao mesmo
+     * tempo; e uma atualização inválida não deixa rastro.
+     */
+    private Pedido substituto(Long id, String cliente) {
+        Pedido existente = buscarPorId(id);
+        Pedido pedido = new Pedido(cliente);
+        pedido.setId(existente.getId());
+        pedido.setDataCriacao(existente.getDataCriacao());
+        return pedido;
+    }
+
+    /**
+     * Remove vários pedidos em um único deleteAllById. IDs removidos voltam com 200
+     * e IDs inexistentes com 404.
+     *
+     * @return Um resultado por ID, na ordem do lote
+     */
+    public List<ResultadoDeItem<Long>> deletarLote(List<Long> ids) {
+        Lotes.validar(ids);
+        List<Long> removidos = pedidoRepository.deleteAllById(ids.stream().filter(Objects::nonNull).toList());
+        return Lotes.remocoes(ids, removidos, PedidoNaoEncontradoException::new);
+    }
+
     /**
      * Remove um pedido (método da interface Service).
      */
@@ -3,13 +3,17 @@ package crud.service;
 import crud.exception.ProdutoNaoEncontradoException;
 import crud.exception.ValidacaoException;
 import crud.model.Produto;
-import crud.repository.ProdutoRepository;
+import crud.repository.Pagina;
+import crud.repository.RepositorioDeProdutos;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 public class ProdutoService {
-    private final ProdutoRepository repository;
+    private final RepositorioDeProdutos repository;
 
-    public ProdutoService(ProdutoRepository repository) {
+    public ProdutoService(RepositorioDeProdutos repository) {
         this.repository = repository;
     }
 
@@ -45,6 +49,71 @@ public class ProdutoService {
         return repository.findAll();
     }
 
+    /**
+     * Percorre todos os produtos em ordem crescente de ID, sem copiar o repositório.
+     */
+    public Stream<Produto> buscarTodosComoStream() {
+        return repository.streamAll();
+    }
+
+    /**
+     * Busca uma página de produtos em ordem crescente de ID. Limites acima de
+     * {@link Service#LIMITE_MAXIMO_DE_PAGINA} são reduzidos a ele.
+     */
+    public Pagina<Produto, Long> buscarPagina(Long cursor, int limite) {
+        if (limite <= 0) {
+            throw new ValidacaoException("O limite deve ser maior que zero.");
+        }
+        return repository.findPagina(cursor, Math.min(limite, Service.LIMITE_MAXIMO_DE_PAGINA));
+    }
+
+    /**
+     * Busca produtos pelo nome (prefixo ou substring), ignorando maiúsculas e acentos.
+     * A busca é feita no índice do repositório, sem carregar o catálogo inteiro, e
+     * retorna no máximo {@link Service#LIMITE_MAXIMO_DE_PAGINA} produtos.
+     */
+    public List<Produto> buscarPorNome(String termo) {
+        if (termo == null || termo.trim().isEmpty()) {
+            throw new ValidacaoException("O termo de busca é obrigatório.");
+        }
+        return repository.findByNome(termo, Service.LIMITE_MAXIMO_DE_PAGINA);
+    }
+
+    /**
+     * Busca produtos com preço entre os limites (inclusivos), do mais barato ao mais caro.
+     * Limites nulos deixam a faixa aberta daquele lado.
+     */
+    public List<Produto> buscarPorFaixaDePreco(Double precoMin, Double precoMax) {
+        return buscarPorFaixaDePreco(precoMin, precoMax, null);
+    }
+
+    /**
+     * Busca até {@code limite} produtos com preço entre os limites (inclusivos), do
+     * mais barato ao mais caro. Limites de preço nulos deixam a faixa aberta e um
+     * limite de resultados nulo retorna todos.
+     */
+    public List<Produto> buscarPorFaixaDePreco(Double precoMin, Double precoMax, Integer limite) {
+        double min = precoMin != null ? precoMin : Double.NEGATIVE_INFINITY;
+        double max = precoMax != null ? precoMax : Double.POSITIVE_INFINITY;
+        if (min > max) {
+            throw new ValidacaoException("O preço mínimo não pode ser maior que o preço máximo.");
+        }
+        if (limite != null && limite <= 0) {
+            throw new ValidacaoException("A quantidade deve ser maior que zero.");
+        }
+        return repository.findByPrecoBetween(min, max, limite != null ? limite : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca os N produtos mais baratos, do mais barato ao mais caro.
+     */
+    public List<Produto> buscarMaisBaratos(int quantidade) {
+        if (quantidade <= 0) {
+            throw new ValidacaoException("A quantidade deve ser maior que zero.");
+        }
+        return repository.findMaisBaratos(quantidade);
+    }
+
     public Produto buscarPorId(Long id) {
         return repository.findById(id)
                          .orElseThrow(() -> new ProdutoNaoEncontradoException(id));
@@ -65,6 +134,64 @@ public class ProdutoService {
         return repository.save(produtoAtualizado);
     }
 
+    /**
+     * Cria ou atualiza vários produtos. Itens sem ID são criados (201) e itens com
+     * ID substituem o produto existente (200). Cada item é validado por conta
+     * própria; os válidos são gravados juntos em um único saveAll e os inválidos
+     * voltam com 400 ou 404 sem impedir os demais.
+     *
+     * @return Um resultado por item, na ordem do lote
+     */
+    public List<ResultadoDeItem<Produto>> salvarLote(List<Produto> lote) {
+        Lotes.validar(lote);
+        List<ResultadoDeItem<Produto>> resultados = new ArrayList<>(lote.size());
+        List<Produto> validos = new ArrayList<>(lote.size());
+        List<Integer> indices = new ArrayList<>(lote.size());
+        // Decidido antes de salvar, que atribui ID aos novos
+        List<Integer> status = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            Produto request = lote.get(i);
+            try {
+                if (request == null) {
+                    throw new ValidacaoException("Produto não pode ser nulo.");
+                }
+                if (request.getId() != null) {
+                    buscarPorId(request.getId());
+                }
+                Produto produto = new Produto(request.getId(), request.getNome(), request.getPreco(), request.getEstoque());
+                validarProduto(produto);
+                validos.add(produto);
+                indices.add(i);
+                status.add(request.getId() == null ? 201 : 200);
+                resultados.add(null);
+            } catch (ProdutoNaoEncontradoException e) {
+                resultados.add(ResultadoDeItem.falha(i, 404, e.getMessage()));
+            } catch (ValidacaoException e) {
+                resultados.add(ResultadoDeItem.falha(i, 400, e.getMessage()));
+            }
+        }
+        if (!validos.isEmpty()) {
+            List<Produto> salvos = repository.saveAll(validos);
+            for (int j = 0; j < salvos.size(); j++) {
+                int indice = indices.get(j);
+                resultados.set(indice, ResultadoDeItem.sucesso(indice, status.get(j), salvos.get(j)));
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Remove vários produtos em um único deleteAllById. IDs removidos voltam com
+     * 200 e IDs inexistentes com 404.
+     *
+     * @return Um resultado por ID, na ordem do lote
+     */
+    public List<ResultadoDeItem<Long>> deletarLote(List<Long> ids) {
+        Lotes.validar(ids);
+        List<Long> removidos = repository.deleteAllById(ids.stream().filter(Objects::nonNull).toList());
+        return Lotes.remocoes(ids, removidos, ProdutoNaoEncontradoException::new);
+    }
+
     public void deletarProduto(Long id) {
         boolean deletado = repository.delete(id);
         if (!deletado) {
@@ -0,0 +1,55 @@
+package crud.service;
+
+/**
+ * Resultado de um item de uma operação em lote.
+ * <p>
+ * Cada item do lote é tratado por conta própria: os válidos são gravados e os
+ * inválidos voltam com o status HTTP e a mensagem que teriam na rota individual,
+ * sem impedir os demais.
+ *
+ * @param <T> Tipo do item devolvido em caso de sucesso
+ */
+public class ResultadoDeItem<T> {
+    private final int indice;
+    private final int status;
+    private final T item;
+    private final String message;
+
+    private ResultadoDeItem(int indice, int status, T item, String message) {
+        this.indice = indice;
+        this.status = status;
+        this.item = item;
+        this.message = message;
+    }
+
+    public static <T> ResultadoDeItem<T> sucesso(int indice, int status, T item) {
+        return new ResultadoDeItem<>(indice, status, item, null);
+    }
+
+    public static <T> ResultadoDeItem<T> falha(int indice, int status, String message) {
+        return new ResultadoDeItem<>(indice, status, null, message);
+    }
+
+    /**
+     * Posição do item no lote recebido.
+     */
+    public int getIndice() {
+        return indice;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSucesso() {
+        return status < 400;
+    }
+}
@@ -1,6 +1,8 @@
 package crud.service;
 
+import crud.repository.Pagina;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface genérica para serviços, seguindo o princípio de abstração.
@@ -10,6 +12,16 @@ import java.util.List;
  * @param <ID> Tipo do identificador
  */
 public interface Service<T, ID> {
+    /**
+     * Maior página aceita por {@link #buscarPagina}; limites maiores são reduzidos a ele.
+     */
+    int LIMITE_MAXIMO_DE_PAGINA = 1000;
+
+    /**
+     * Maior quantidade de itens aceita em uma operação em lote.
+     */
+    int LIMITE_MAXIMO_DE_LOTE = 10_000;
+
     /**
      * Cria uma nova entidade.
      * 
@@ -24,6 +36,24 @@ public interface Service<T, ID> {
      * @return Lista de todas as entidades
      */
     List<T> buscarTodos();
+
+    /**
+     * Percorre todas as entidades em ordem crescente de ID sem montar a lista,
+     * para serem escritas na resposta à medida que são lidas.
+     *
+     * @return Stream das entidades
+     */
+    Stream<T> buscarTodosComoStream();
+
+    /**
+     * Busca uma página de entidades em ordem crescente de ID.
+     *
+     * @param cursor ID após o qual a página começa; null para a primeira página
+     * @param limite Quantidade máxima de entidades na página
+     * @return Página com as entidades e o cursor da próxima
+     * @throws crud.exception.ValidacaoException se o limite não for positivo
+     */
+    Pagina<T, ID> buscarPagina(ID cursor, int limite);
     
     /**
      * Busca uma entidade pelo ID.
@@ -5,16 +5,23 @@ import crud.exception.ValidacaoException;
 import crud.model.ItemPedido;
 import crud.model.Pedido;
 import crud.model.Produto;
+import crud.repository.Pagina;
+import crud.service.EstoqueComprometido;
 import crud.service.PedidoService;
+import crud.service.ResultadoDeItem;
 import io.javalin.http.Context;
 import io.javalin.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -57,14 +64,101 @@ class PedidoControllerTest {
         pedido1.adicionarItem(new ItemPedido(produto, 2));
         pedidos.add(pedido1);
 
-        when(service.buscarTodos()).thenReturn(pedidos);
+        Stream<Pedido> stream = pedidos.stream();
+        when(service.buscarTodosComoStream()).thenReturn(stream);
 
         controller.buscarTodos(ctx);
 
-        verify(service).buscarTodos();
+        verify(service).buscarTodosComoStream();
+        verify(service, never()).buscarTodos();
+        verify(ctx).writeJsonStream(stream);
+    }
+
+    @Test
+    void testBuscarTodos_PorCliente() {
+        Pedido pedido = new Pedido("Maria");
+        List<Pedido> pedidos = List.of(pedido);
+        when(ctx.queryParam("cliente")).thenReturn("maria");
+        when(service.buscarPorCliente("maria")).thenReturn(pedidos);
+
+        controller.buscarTodos(ctx);
+
+        verify(service).buscarPorCliente("maria");
+        verify(service, never()).buscarTodos();
         verify(ctx).json(pedidos);
     }
 
+    @Test
+    void testBuscarTodos_PorClienteVazio() {
+        when(ctx.queryParam("cliente")).thenReturn(" ");
+        when(service.buscarPorCliente(" "))
+                .thenThrow(new ValidacaoException("O nome do cliente é obrigatório."));
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "O nome do cliente é obrigatório."));
+    }
+
+    @Test
+    void testBuscarTodos_PaginadoPorCursor() {
+        Pagina<Pedido, Long> pagina = new Pagina<>(List.of(new Pedido("Maria")), null);
+        when(ctx.queryParam("limit")).thenReturn("20");
+        when(service.buscarPagina(null, 20)).thenReturn(pagina);
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).json(pagina);
+        verify(service, never()).buscarTodos();
+    }
+
+    @Test
+    void testBuscarTodos_LimiteRejeitadoPeloServico() {
+        when(ctx.queryParam("limit")).thenReturn("0");
+        when(service.buscarPagina(null, 0)).thenThrow(new ValidacaoException("O limite deve ser maior que zero."));
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "O limite deve ser maior que zero."));
+    }
+
+    @Test
+    void testBuscarTodos_PorPeriodoComDatasSemHora() {
+        List<Pedido> pedidos = List.of(new Pedido("Maria"));
+        when(ctx.queryParam("de")).thenReturn("2024-01-01");
+        when(ctx.queryParam("ate")).thenReturn("2024-01-31");
+        LocalDateTime inicio = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime fim = LocalDate.of(2024, 1, 31).atTime(LocalTime.MAX);
+        when(service.buscarPorPeriodo(inicio, fim)).thenReturn(pedidos);
+
+        controller.buscarTodos(ctx);
+
+        verify(service).buscarPorPeriodo(inicio, fim);
+        verify(ctx).json(pedidos);
+    }
+
+    @Test
+    void testBuscarTodos_PorPeriodoAberto() {
+        when(ctx.queryParam("de")).thenReturn("2024-01-01T10:30");
+        when(service.buscarPorPeriodo(any(), any())).thenReturn(List.of());
+
+        controller.buscarTodos(ctx);
+
+        verify(service).buscarPorPeriodo(LocalDateTime.of(2024, 1, 1, 10, 30), null);
+    }
+
+    @Test
+    void testBuscarTodos_PorPeriodoComDataInvalida() {
+        when(ctx.queryParam("de")).thenReturn("ontem");
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "Parâmetros de consulta inválidos."));
+        verify(service, never()).buscarTodos();
+    }
+
     @Test
     void testBuscarPorId_Sucesso() {
         Long id = 1L;
@@ -286,5 +380,40 @@ class PedidoControllerTest {
         verify(ctx).json(captor.capture());
         assertEquals("ID inválido.", captor.getValue().get("message"));
     }
+
+    @Test
+    void testDeletarLote_Sucesso() {
+        List<ResultadoDeItem<Long>> resultados = List.of(
+                ResultadoDeItem.sucesso(0, 200, 1L),
+                ResultadoDeItem.falha(1, 404, "Pedido com ID 2 não encontrado."));
+        when(ctx.bodyAsClass(Long[].class)).thenReturn(new Long[]{1L, 2L});
+        when(service.deletarLote(List.of(1L, 2L))).thenReturn(resultados);
+
+        controller.deletarLote(ctx);
+
+        verify(ctx).status(200);
+        verify(ctx).json(resultados);
+    }
+
+    @Test
+    void testSalvarLote_CorpoInvalido() {
+        when(ctx.bodyAsClass(Pedido[].class)).thenThrow(new RuntimeException("JSON inválido"));
+
+        controller.salvarLote(ctx);
+
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "Dados inválidos ou formato incorreto."));
+    }
+
+    @Test
+    void testRelatorioDeEstoque() {
+        List<EstoqueComprometido> linhas = List.of(new EstoqueComprometido(1L, "Produto", 10, 3));
+        when(service.relatorioDeEstoque()).thenReturn(linhas);
+
+        controller.relatorioDeEstoque(ctx);
+
+        verify(ctx).json(linhas);
+        assertEquals(7, linhas.get(0).getDisponivel());
+    }
 }
 
@@ -3,7 +3,9 @@ package crud.controller;
 import crud.exception.ProdutoNaoEncontradoException;
 import crud.exception.ValidacaoException;
 import crud.model.Produto;
+import crud.repository.Pagina;
 import crud.service.ProdutoService;
+import crud.service.ResultadoDeItem;
 import io.javalin.http.Context;
 import io.javalin.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +17,7 @@ import org.mockito.ArgumentCaptor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -41,22 +44,134 @@ class ProdutoControllerTest {
         produtos.add(new Produto("Produto 1", 10.0, 5));
         produtos.add(new Produto("Produto 2", 20.0, 10));
 
-        when(service.buscarTodos()).thenReturn(produtos);
+        Stream<Produto> stream = produtos.stream();
+        when(service.buscarTodosComoStream()).thenReturn(stream);
 
         controller.buscarTodos(ctx);
 
-        verify(service).buscarTodos();
-        verify(ctx).json(produtos);
+        verify(service).buscarTodosComoStream();
+        verify(service, never()).buscarTodos();
+        verify(ctx).writeJsonStream(stream);
     }
 
     @Test
     void testBuscarTodos_Vazio() {
-        when(service.buscarTodos()).thenReturn(new ArrayList<>());
+        when(service.buscarTodosComoStream()).thenReturn(Stream.empty());
+
+        controller.buscarTodos(ctx);
+
+        verify(service).buscarTodosComoStream();
+        verify(ctx).writeJsonStream(any(Stream.class));
+    }
+
+    @Test
+    void testBuscarTodos_ComTermoDeBusca() {
+        List<Produto> produtos = List.of(new Produto(1L, "Teclado", 100.0, 5));
+        when(ctx.queryParam("q")).thenReturn("tecl");
+        when(service.buscarPorNome("tecl")).thenReturn(produtos);
+
+        controller.buscarTodos(ctx);
+
+        verify(service).buscarPorNome("tecl");
+        verify(service, never()).buscarTodos();
+        verify(ctx).json(produtos);
+    }
+
+    @Test
+    void testBuscarTodos_TermoEmBrancoListaTodos() {
+        Stream<Produto> produtos = Stream.empty();
+        when(ctx.queryParam("q")).thenReturn("  ");
+        when(service.buscarTodosComoStream()).thenReturn(produtos);
 
         controller.buscarTodos(ctx);
 
-        verify(service).buscarTodos();
-        verify(ctx).json(any(List.class));
+        verify(service, never()).buscarPorNome(anyString());
+        verify(ctx).writeJsonStream(produtos);
+    }
+
+    @Test
+    void testBuscarTodos_ComFaixaDePreco() {
+        List<Produto> produtos = List.of(new Produto(1L, "Teclado", 100.0, 5));
+        when(ctx.queryParam("precoMin")).thenReturn("50");
+        when(ctx.queryParam("precoMax")).thenReturn("150.5");
+        when(service.buscarPorFaixaDePreco(50.0, 150.5, null)).thenReturn(produtos);
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).json(produtos);
+        verify(service, never()).buscarTodos();
+    }
+
+    @Test
+    void testBuscarTodos_MaisBaratos() {
+        List<Produto> produtos = List.of(new Produto(1L, "Caneta", 2.0, 5));
+        when(ctx.queryParam("maisBaratos")).thenReturn("3");
+        when(service.buscarPorFaixaDePreco(null, null, 3)).thenReturn(produtos);
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).json(produtos);
+    }
+
+    @Test
+    void testBuscarTodos_PaginadoPorCursor() {
+        Pagina<Produto, Long> pagina = new Pagina<>(List.of(new Produto(8L, "Caneta", 2.0, 5)), 8L);
+        when(ctx.queryParam("limit")).thenReturn("1");
+        when(ctx.queryParam("cursor")).thenReturn("7");
+        when(service.buscarPagina(7L, 1)).thenReturn(pagina);
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).json(pagina);
+        verify(service, never()).buscarTodos();
+    }
+
+    @Test
+    void testBuscarTodos_CursorSemLimiteUsaPadrao() {
+        when(ctx.queryParam("cursor")).thenReturn("");
+
+        controller.buscarTodos(ctx);
+
+        verify(service).buscarPagina(null, 100);
+    }
+
+    @Test
+    void testBuscarTodos_CursorInvalido() {
+        when(ctx.queryParam("cursor")).thenReturn("abc");
+
+        controller.buscarTodos(ctx);
+
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "Parâmetros de consulta inválidos."));
+    }
+
+    @Test
+    void testBuscarTodos_ParametroDePrecoInvalido() {
+        when(ctx.queryParam("precoMin")).thenReturn("abc");
+
+        controller.buscarTodos(ctx);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx).status(400);
+        verify(ctx).json(captor.capture());
+        assertEquals("Parâmetros de consulta inválidos.", captor.getValue().get("message"));
+    }
+
+    @Test
+    void testBuscarTodos_FaixaDePrecoRejeitadaPeloServico() {
+        when(ctx.queryParam("precoMin")).thenReturn("50");
+        when(ctx.queryParam("precoMax")).thenReturn("10");
+        when(service.buscarPorFaixaDePreco(50.0, 10.0, null))
+                .thenThrow(new ValidacaoException("O preço mínimo não pode ser maior que o preço máximo."));
+
+        controller.buscarTodos(ctx);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx).status(400);
+        verify(ctx).json(captor.capture());
+        assertEquals("O preço mínimo não pode ser maior que o preço máximo.", captor.getValue().get("message"));
     }
 
     @SuppressWarnings("unchecked")
@@ -278,5 +393,42 @@ class ProdutoControllerTest {
         verify(ctx).json(captor.capture());
         assertEquals("ID inválido.", captor.getValue().get("message"));
     }
+
+    @Test
+    void testSalvarLote_Sucesso() {
+        Produto[] lote = {new Produto("A", 10.0, 1), new Produto(7L, "B", 20.0, 2)};
+        List<ResultadoDeItem<Produto>> resultados = List.of(
+                ResultadoDeItem.sucesso(0, 201, new Produto(1L, "A", 10.0, 1)),
+                ResultadoDeItem.falha(1, 404, "Produto com ID 7 não encontrado."));
+        when(ctx.bodyAsClass(Produto[].class)).thenReturn(lote);
+        when(service.salvarLote(List.of(lote))).thenReturn(resultados);
+
+        controller.salvarLote(ctx);
+
+        verify(ctx).status(200);
+        verify(ctx).json(resultados);
+    }
+
+    @Test
+    void testSalvarLote_LoteVazio() {
+        when(ctx.bodyAsClass(Produto[].class)).thenReturn(new Produto[0]);
+        when(service.salvarLote(List.of())).thenThrow(new ValidacaoException("O lote deve ter pelo menos um item."));
+
+        controller.salvarLote(ctx);
+
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "O lote deve ter pelo menos um item."));
+    }
+
+    @Test
+    void testDeletarLote_CorpoInvalido() {
+        when(ctx.bodyAsClass(Long[].class)).thenThrow(new RuntimeException("JSON inválido"));
+
+        controller.deletarLote(ctx);
+
+        verify(service, never()).deletarLote(any());
+        verify(ctx).status(400);
+        verify(ctx).json(Map.of("message", "Dados inválidos ou formato incorreto."));
+    }
 }
 
@@ -0,0 +1,63 @@
+package crud.integration;
+
+import crud.Main;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListagemEmStreamTest {
+    private Javalin app;
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        app = Javalin.create(config -> config.jsonMapper(new Main.JavalinJackson())).start(0);
+        Main.tratarFalhasEmStream(app);
+        // Lista que falha depois de {quantidade} elementos
+        app.get("/lista/{quantidade}", ctx -> {
+            int quantidade = Integer.parseInt(ctx.pathParam("quantidade"));
+            ctx.writeJsonStream(IntStream.rangeClosed(0, quantidade).mapToObj(i -> {
+                if (i == quantidade) {
+                    throw new IllegalStateException("Falha no meio da lista");
+                }
+                return Map.of("id", i, "nome", "x".repeat(100));
+            }));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> buscar(int quantidade) throws IOException, InterruptedException {
+        HttpRequest requisicao = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + app.port() + "/lista/" + quantidade)).build();
+        return cliente.send(requisicao, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testFalhaAntesDeEnviarViraErro500() throws Exception {
+        HttpResponse<String> resposta = buscar(3);
+
+        assertEquals(500, resposta.statusCode());
+        assertEquals("{\"message\":\"Erro ao listar os registros.\"}", resposta.body());
+    }
+
+    @Test
+    void testFalhaDepoisDeEnviarAbortaAConexao() {
+        // Bem mais que o buffer do servidor: o 200 já foi enviado quando a lista falha
+        assertThrows(IOException.class, () -> buscar(5000));
+    }
+}
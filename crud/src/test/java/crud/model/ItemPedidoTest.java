@@ -2,6 +2,8 @@ package crud.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ItemPedidoTest {
@@ -121,5 +123,17 @@ class ItemPedidoTest {
         assertTrue(toString.contains("quantidade=5"));
         assertTrue(toString.contains("subtotal="));
     }
+
+    @Test
+    void testSubtotalExatoSemErroDeArredondamento() {
+        ItemPedido item = new ItemPedido(new Produto("Caneta", 0.1, 100), 3);
+
+        assertEquals(new BigDecimal("0.3"), item.subtotalExato());
+        assertEquals(0.3, item.getSubtotal());
+        assertEquals(BigDecimal.ZERO, new ItemPedido(new Produto("Sem preço", null, 1), 2).subtotalExato());
+        // Frações de centavo não são arredondadas antes de multiplicar
+        assertEquals(new BigDecimal("1.005"), new ItemPedido(new Produto("Clipe", 0.335, 1), 3).subtotalExato());
+        assertEquals(0.4, new ItemPedido(new Produto("Grampo", 0.004, 1), 100).getSubtotal());
+    }
 }
 
@@ -2,7 +2,11 @@ package crud.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -209,5 +213,123 @@ class PedidoTest {
         assertTrue(toString.contains("total="));
         assertTrue(toString.contains("itens=1"));
     }
+
+    @Test
+    void testTotalExatoAcompanhaItensAdicionadosERemovidos() {
+        Pedido pedido = new Pedido("Cliente");
+        pedido.adicionarItem(new ItemPedido(new Produto("Caneta", 0.1, 100), 3));
+        pedido.adicionarItem(new ItemPedido(new Produto("Caderno", 19.99, 100), 2));
+        pedido.adicionarItem(new ItemPedido(new Produto("Lápis", 0.7, 100), 1));
+
+        assertEquals(0, new BigDecimal("40.98").compareTo(pedido.totalExato()));
+        assertEquals(40.98, pedido.getTotal());
+
+        pedido.removerItem(1);
+        assertEquals(0, BigDecimal.ONE.compareTo(pedido.totalExato()));
+        assertEquals(1.0, pedido.getTotal());
+        assertTrue(pedido.toString().contains("total=1.0"));
+    }
+
+    @Test
+    void testIdAusenteSemBoxing() {
+        Pedido pedido = new Pedido("Ana");
+        assertFalse(pedido.temId());
+        assertEquals(Pedido.SEM_ID, pedido.id());
+        assertNull(pedido.getId());
+
+        pedido.atribuirId(42L);
+        assertEquals(42L, pedido.getId());
+        pedido.setId(null);
+        assertFalse(pedido.temId());
+    }
+
+    @Test
+    void testAcessoAosItensSemCopia() {
+        Pedido pedido = new Pedido("Cliente");
+        Produto produto = new Produto("Produto", 10.0, 100);
+        ItemPedido primeiro = new ItemPedido(produto, 1);
+        ItemPedido segundo = new ItemPedido(produto, 2);
+        pedido.adicionarItem(primeiro);
+
+        List<ItemPedido> visao = pedido.getItens();
+        assertSame(visao, pedido.getItens());
+        pedido.adicionarItem(segundo);
+        assertEquals(List.of(primeiro, segundo), visao);
+        assertEquals(2, pedido.quantidadeDeItens());
+        assertEquals(segundo, pedido.item(1));
+        assertSame(produto, pedido.produtoDoItem(1));
+        assertEquals(2, pedido.quantidadeDoItem(1));
+
+        List<ItemPedido> percorridos = new ArrayList<>();
+        pedido.paraCadaItem(percorridos::add);
+        assertEquals(List.of(primeiro, segundo), percorridos);
+
+        pedido.limparItens();
+        assertTrue(visao.isEmpty());
+        assertEquals(BigDecimal.ZERO, pedido.totalExato());
+    }
+
+    @Test
+    void testItensEmColunasMantemTotalEOrdem() {
+        Pedido pedido = new Pedido("Atacado");
+        for (int i = 1; i <= 300; i++) {
+            pedido.adicionarItem(new Produto((long) i, "Produto " + i, i * 0.25, 10), i);
+        }
+        pedido.removerItem(0);
+        pedido.removerItem(149);
+
+        assertEquals(298, pedido.quantidadeDeItens());
+        assertEquals(2L, pedido.produtoDoItem(0).getId());
+        assertEquals(152L, pedido.item(149).getProduto().getId());
+        BigDecimal esperado = pedido.getItens().stream().map(ItemPedido::subtotalExato).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(esperado, pedido.totalExato());
+
+        Pedido copia = new Pedido("Cópia");
+        copia.adicionarItensDe(pedido);
+        assertEquals(pedido.getItens(), copia.getItens());
+        assertEquals(pedido.totalExato(), copia.totalExato());
+
+        Iterator<ItemPedido> iterador = pedido.getItens().iterator();
+        iterador.next();
+        pedido.removerItem(0);
+        assertThrows(ConcurrentModificationException.class, iterador::next);
+        assertThrows(IllegalArgumentException.class, () -> pedido.adicionarItem(null, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> pedido.produtoDoItem(297));
+    }
+
+    @Test
+    void testTotalComPrecosDeFracaoDeCentavo() {
+        Pedido pedido = new Pedido("Cliente");
+        pedido.adicionarItem(new ItemPedido(new Produto("Grampo", 0.004, 1000), 100));
+        pedido.adicionarItem(new ItemPedido(new Produto("Clipe", 0.335, 1000), 3));
+
+        assertEquals(0, new BigDecimal("1.405").compareTo(pedido.totalExato()));
+        assertEquals(1.405, pedido.getTotal());
+        pedido.removerItem(0);
+        assertEquals(1.005, pedido.getTotal());
+    }
+
+    @Test
+    void testComProdutosCopiaSemAlterarOOriginal() {
+        Produto teclado = new Produto(1L, "Teclado", 100.0, 5);
+        Produto mouse = new Produto(2L, "Mouse", 50.0, 5);
+        Pedido pedido = new Pedido("Cliente");
+        pedido.atribuirId(7L);
+        pedido.adicionarItem(new ItemPedido(teclado, 2));
+        pedido.adicionarItem(new ItemPedido(mouse, 1));
+
+        assertSame(pedido, pedido.comProdutos(produto -> produto));
+
+        Produto outroMouse = new Produto(2L, "Mouse", 50.0, 5);
+        Pedido copia = pedido.comProdutos(produto -> produto == mouse ? outroMouse : produto);
+        assertNotSame(pedido, copia);
+        assertSame(mouse, pedido.produtoDoItem(1));
+        assertSame(teclado, copia.produtoDoItem(0));
+        assertSame(outroMouse, copia.produtoDoItem(1));
+        assertEquals(7L, copia.getId());
+        assertEquals("Cliente", copia.getCliente());
+        assertEquals(pedido.getDataCriacao(), copia.getDataCriacao());
+        assertEquals(250.0, copia.getTotal());
+    }
 }
 
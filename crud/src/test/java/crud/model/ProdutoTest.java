@@ -1,6 +1,11 @@
 package crud.model;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ProdutoTest {
@@ -33,4 +38,38 @@ class ProdutoTest {
         String esperado = "ID: 10, Nome: Mouse, Preço: 50,50, Estoque: 50";
         assertEquals(esperado, produto.toString());
     }
+
+    @Test
+    void testCamposAusentesUsamValoresReservados() {
+        Produto produto = new Produto(null, "Cabo", null, null);
+        assertAll(
+            () -> assertFalse(produto.temId()),
+            () -> assertFalse(produto.temPreco()),
+            () -> assertFalse(produto.temEstoque()),
+            () -> assertEquals(Produto.SEM_ID, produto.id()),
+            () -> assertEquals(Produto.SEM_ESTOQUE, produto.estoque()),
+            () -> assertNull(produto.getPreco()),
+            () -> assertEquals(produto, new Produto("Outro", 1.0, 1))
+        );
+
+        Produto completo = Produto.de(7L, "Cabo", 19.999, 3);
+        assertEquals(7L, completo.getId());
+        assertEquals(8L, completo.comId(8L).id());
+        assertNull(completo.comPreco(null).getPreco());
+    }
+
+    @Test
+    void testJsonContinuaComCamposNulos() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Produto lido = mapper.readValue("{\"nome\":\"Cabo\",\"preco\":null,\"estoque\":4}", Produto.class);
+        assertNull(lido.getId());
+        assertNull(lido.getPreco());
+        assertEquals(4, lido.estoque());
+
+        Map<?, ?> escrito = mapper.readValue(mapper.writeValueAsString(new Produto(2L, "Mouse", 50.5, null)), Map.class);
+        assertEquals(Set.of("id", "nome", "preco", "estoque"), escrito.keySet());
+        assertEquals(2, escrito.get("id"));
+        assertEquals(50.5, escrito.get("preco"));
+        assertNull(escrito.get("estoque"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package crud.persistence;
+
+import crud.exception.PersistenciaException;
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.repository.EntityStore;
+import crud.repository.PedidoRepository;
+import crud.repository.ProdutoRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BancoSqlTest {
+    @TempDir
+    Path diretorio;
+
+    private BancoSql abrir() {
+        return BancoSql.abrir(BancoSql.urlNoDiretorio(diretorio), 4, Duration.ofSeconds(5));
+    }
+
+    private static Pedido pedido(Long id, String cliente, Produto... produtos) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.setId(id);
+        for (int i = 0; i < produtos.length; i++) {
+            pedido.adicionarItem(new ItemPedido(produtos[i], i + 1));
+        }
+        return pedido;
+    }
+
+    @Test
+    void testProdutosMantemOrdemDeInsercaoENulos() {
+        try (BancoSql banco = abrir()) {
+            EntityStore<Produto> store = banco.produtos();
+            assertNull(store.put(1L, new Produto(1L, "A", 1.0, 1)));
+            store.put(2L, new Produto(2L, "B", null, null));
+            store.put(3L, new Produto(3L, "C", 3.0, 3));
+            Produto anterior = store.put(1L, new Produto(1L, "A2", 1.5, 1));
+
+            assertEquals("A", anterior.getNome());
+            assertEquals(List.of(1L, 2L, 3L), store.values().stream().map(Produto::getId).toList());
+            assertEquals("A2", store.get(1L).getNome());
+            assertNull(store.get(2L).getPreco());
+            assertNull(store.get(2L).getEstoque());
+            assertEquals("B", store.remove(2L).getNome());
+            assertNull(store.remove(2L));
+            assertNull(store.get(99L));
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void testPutAllEmLoteDevolveAnterioresComoPutsEmSequencia() {
+        try (BancoSql banco = abrir()) {
+            EntityStore<Produto> store = banco.produtos();
+            store.put(5L, new Produto(5L, "Antigo", 5.0, 5));
+
+            List<Produto> anteriores = store.putAll(new long[]{7L, 5L, 7L}, List.of(
+                    new Produto(7L, "Primeiro", 1.0, 1),
+                    new Produto(5L, "Novo", 2.0, 2),
+                    new Produto(7L, "Segundo", 3.0, 3)));
+
+            assertNull(anteriores.get(0));
+            assertEquals("Antigo", anteriores.get(1).getNome());
+            assertEquals("Primeiro", anteriores.get(2).getNome());
+            assertEquals(List.of("Novo", "Segundo"), store.values().stream().map(Produto::getNome).toList());
+        }
+    }
+
+    @Test
+    void testPedidosComItensNormalizadosSobrevivemAReabertura() {
+        Produto teclado = new Produto(1L, "Teclado", 100.0, 5);
+        Produto mouse = new Produto(2L, "Mouse", 50.0, 10);
+        LocalDateTime criadoEm = LocalDateTime.of(2024, 1, 31, 10, 15, 30, 123456789);
+        try (BancoSql banco = abrir()) {
+            EntityStore<Pedido> store = banco.pedidos();
+            Pedido comItens = pedido(1L, "Ana", teclado, mouse);
+            comItens.setDataCriacao(criadoEm);
+            store.put(1L, comItens);
+            store.put(2L, pedido(2L, "Bruno"));
+            store.put(3L, pedido(3L, "Carla", mouse));
+            store.put(3L, pedido(3L, "Carla", teclado));
+            store.remove(2L);
+        }
+
+        try (BancoSql banco = abrir()) {
+            List<Pedido> pedidos = banco.pedidos().values();
+            assertEquals(List.of(1L, 3L), pedidos.stream().map(Pedido::getId).toList());
+            Pedido ana = pedidos.get(0);
+            assertEquals("Ana", ana.getCliente());
+            assertEquals(criadoEm, ana.getDataCriacao());
+            assertEquals(List.of("Teclado", "Mouse"),
+                    ana.getItens().stream().map(item -> item.getProduto().getNome()).toList());
+            assertEquals(List.of(1, 2), ana.getItens().stream().map(ItemPedido::getQuantidade).toList());
+            assertEquals(50.0, ana.getItens().get(1).getProduto().getPreco());
+            assertEquals(List.of("Teclado"),
+                    banco.pedidos().get(3L).getItens().stream().map(item -> item.getProduto().getNome()).toList());
+
+            banco.pedidos().clear();
+            assertEquals(0, banco.pedidos().size());
+        }
+    }
+
+    @Test
+    void testRepositoriosSobreOBancoReconstroemIndicesEIds() {
+        try (BancoSql banco = abrir()) {
+            ProdutoRepository produtos = new ProdutoRepository(banco.produtos(), 0);
+            PedidoRepository pedidos = new PedidoRepository(banco.pedidos(), 0);
+            Produto teclado = produtos.save(new Produto("Teclado", 100.0, 5));
+            pedidos.saveAll(List.of(pedido(null, "Ana", teclado), pedido(null, "Bruno", teclado)));
+            pedidos.deleteAllById(Arrays.asList(2L, 99L));
+        }
+
+        try (BancoSql banco = abrir()) {
+            ProdutoRepository produtos = new ProdutoRepository(banco.produtos(), proximoId(banco.produtos()));
+            PedidoRepository pedidos = new PedidoRepository(banco.pedidos(), proximoId(banco.pedidos()));
+            assertEquals(List.of("Teclado"), produtos.findByNome("tecl").stream().map(Produto::getNome).toList());
+            assertEquals(List.of(1L), pedidos.findByCliente("ana").stream().map(Pedido::getId).toList());
+            assertTrue(pedidos.findByCliente("Bruno").isEmpty());
+            assertEquals(2L, produtos.save(new Produto("Mouse", 50.0, 1)).getId());
+            // O pedido 2, o maior, foi removido antes do reinício, mas não é reutilizado
+            assertEquals(3L, pedidos.save(pedido(null, "Carla", new Produto(1L, "Teclado", 100.0, 5))).getId());
+
+            pedidos.deleteAll();
+        }
+
+        try (BancoSql banco = abrir()) {
+            // O deleteAll reinicia a sequência, também depois de reabrir
+            assertEquals(0, proximoId(banco.pedidos()));
+        }
+    }
+
+    private static long proximoId(EntityStore<?> store) {
+        return store.unwrap(ProximoIdDuravel.class).proximoIdRecuperado();
+    }
+
+    @Test
+    void testPoolLimitaConexoesSimultaneas() throws Exception {
+        try (PoolDeConexoes pool = new PoolDeConexoes(BancoSql.urlNoDiretorio(diretorio), 1, Duration.ofMillis(200))) {
+            CountDownLatch ocupada = new CountDownLatch(1);
+            CountDownLatch liberar = new CountDownLatch(1);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<?> dono = executor.submit(() -> pool.executar(conexao -> {
+                ocupada.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            ocupada.await();
+
+            assertThrows(PersistenciaException.class, () -> pool.executar(conexao -> null));
+
+            liberar.countDown();
+            dono.get();
+            executor.shutdown();
+            assertEquals(1, (int) pool.executar(conexao -> 1));
+        }
+    }
+
+    @Test
+    void testSalvamentosConcorrentesNaoPerdemEscritas() throws Exception {
+        try (BancoSql banco = abrir()) {
+            ProdutoRepository repository = new ProdutoRepository(banco.produtos(), 0);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futuros.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        repository.save(new Produto("P", 1.0, 1));
+                    }
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+            executor.shutdown();
+
+            assertEquals(200, banco.produtos().size());
+            assertEquals(200, repository.findAll().size());
+        }
+    }
+}
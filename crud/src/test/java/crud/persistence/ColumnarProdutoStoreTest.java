@@ -0,0 +1,145 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import crud.repository.AgregadosDeProduto;
+import crud.repository.ConcurrentLongHashMap;
+import crud.repository.EntityStore;
+import crud.repository.ProdutoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarProdutoStoreTest {
+    @TempDir
+    Path diretorio;
+
+    private ColumnarProdutoStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = ColumnarProdutoStore.criar(diretorio.resolve("colunas"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testPutGetMantemValoresNulosEOrdemDeInsercao() {
+        store.put(3L, new Produto(3L, "Teclado", 150.0, 5));
+        store.put(1L, new Produto(1L, null, null, null));
+        assertNull(store.put(2L, new Produto(2L, "Mouse", 50.0, 10)));
+
+        Produto anterior = store.put(3L, new Produto(3L, "Teclado", 120.0, 4));
+        assertEquals(150.0, anterior.getPreco());
+
+        Produto vazio = store.get(1L);
+        assertNull(vazio.getNome());
+        assertNull(vazio.getPreco());
+        assertNull(vazio.getEstoque());
+        Produto teclado = store.get(3L);
+        assertEquals("Teclado", teclado.getNome());
+        assertEquals(120.0, teclado.getPreco());
+        assertEquals(4, teclado.getEstoque());
+        assertNull(store.get(99L));
+        assertEquals(List.of(3L, 1L, 2L), store.values().stream().map(Produto::getId).toList());
+    }
+
+    @Test
+    void testCresceECompactaAposMuitasRemocoes() {
+        int total = 5000;
+        for (long id = 1; id <= total; id++) {
+            store.put(id, new Produto(id, "P" + (id % 7), (double) id, 1));
+        }
+        for (long id = 1; id <= total; id++) {
+            if (id % 4 != 0) {
+                assertNotNull(store.remove(id));
+            }
+        }
+        assertNull(store.remove(1L));
+
+        assertEquals(total / 4, store.size());
+        assertEquals("P3", store.get(4000L).getNome());
+        assertEquals(4000.0, store.get(4000L).getPreco());
+        List<Produto> valores = store.values();
+        assertEquals(4L, valores.get(0).getId());
+        assertEquals(8L, valores.get(1).getId());
+
+        store.put(1L, new Produto(1L, "Novo", 1.0, 1));
+        assertEquals(1L, store.values().get(total / 4).getId());
+    }
+
+    @Test
+    void testAgregadosIgnoramRemovidosEValoresNulos() {
+        store.put(1L, new Produto(1L, "A", 10.0, 2));
+        store.put(2L, new Produto(2L, "B", 25.0, 1));
+        store.put(3L, new Produto(3L, "C", 100.0, 3));
+        store.put(4L, new Produto(4L, "D", null, 5));
+        store.put(5L, new Produto(5L, "E", 5.0, null));
+        store.remove(3L);
+
+        assertEquals(45.0, store.valorTotalEmEstoque(), 1e-9);
+        assertArrayEquals(new long[]{2, 1, 0}, store.histogramaDePrecos(new double[]{20.0, 100.0}));
+        assertArrayEquals(new long[]{3}, store.histogramaDePrecos(new double[0]));
+    }
+
+    @Test
+    void testFaixaComLimitesIguais() {
+        double[] limites = {10.0, 20.0, 20.0, 30.0};
+        assertEquals(0, ColumnarProdutoStore.faixa(limites, 5.0));
+        assertEquals(1, ColumnarProdutoStore.faixa(limites, 10.0));
+        assertEquals(3, ColumnarProdutoStore.faixa(limites, 20.0));
+        assertEquals(4, ColumnarProdutoStore.faixa(limites, 30.0));
+    }
+
+    @Test
+    void testClearECloseApagamArquivos() throws IOException {
+        store.put(1L, new Produto(1L, "A", 1.0, 1));
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.get(1L));
+
+        store.close();
+        try (Stream<Path> arquivos = Files.list(diretorio.resolve("colunas"))) {
+            assertEquals(0, arquivos.count());
+        }
+        store = ColumnarProdutoStore.criar(diretorio.resolve("colunas"));
+    }
+
+    @Test
+    void testRepositorioUsaAgregadosAtravesDoLog() {
+        store.close();
+        store = ColumnarProdutoStore.criar(diretorio.resolve("colunas"));
+        try (EntityStore<Produto> wal = WalEntityStore.abrir(diretorio, "produtos", store, new ProdutoCodec(),
+                PoliticaDeSync.AGRUPADA, Duration.ofMillis(100))) {
+            assertSame(store, wal.unwrap(AgregadosDeProduto.class));
+            assertNull(new ConcurrentLongHashMap<Produto>().unwrap(AgregadosDeProduto.class));
+
+            ProdutoRepository repository = new ProdutoRepository(wal);
+            repository.save(new Produto("A", 10.0, 2));
+            repository.save(new Produto("B", 25.0, 1));
+            assertEquals(45.0, repository.valorTotalEmEstoque(), 1e-9);
+            assertArrayEquals(new long[]{1, 1}, repository.histogramaDePrecos(20.0));
+            assertEquals("B", repository.findById(2L).orElseThrow().getNome());
+        }
+
+        // O log reconstrói as colunas, que são recriadas vazias a cada abertura
+        store = ColumnarProdutoStore.criar(diretorio.resolve("colunas"));
+        try (EntityStore<Produto> wal = WalEntityStore.abrir(diretorio, "produtos", store, new ProdutoCodec(),
+                PoliticaDeSync.AGRUPADA, Duration.ofMillis(100))) {
+            assertEquals(2, wal.size());
+            assertEquals(45.0, store.valorTotalEmEstoque(), 1e-9);
+        }
+    }
+}
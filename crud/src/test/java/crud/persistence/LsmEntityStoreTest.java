@@ -0,0 +1,231 @@
+package crud.persistence;
+
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.repository.PedidoRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LsmEntityStoreTest {
+    @TempDir
+    Path diretorio;
+
+    private final Produto teclado = new Produto(1L, "Teclado", 100.0, 5);
+
+    private LsmEntityStore<Pedido> abrir(long limiteDaMemtable) {
+        return LsmEntityStore.abrir(diretorio, "pedidos", new PedidoCodec(), PoliticaDeSync.AGRUPADA,
+                Duration.ofMillis(100), limiteDaMemtable, 3);
+    }
+
+    private Pedido pedido(long id, String cliente) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.setId(id);
+        pedido.adicionarItem(new ItemPedido(teclado, (int) (id % 5) + 1));
+        return pedido;
+    }
+
+    private List<String> arquivos(String sufixo) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio.resolve("pedidos-lsm"))) {
+            return arquivos.map(arquivo -> arquivo.getFileName().toString()).filter(nome -> nome.endsWith(sufixo)).toList();
+        }
+    }
+
+    @Test
+    void testLeiturasAtravessamMemtableESegmentosNaOrdemDeInsercao() throws IOException {
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            store.put(5L, pedido(5L, "Ana"));
+            store.put(2L, pedido(2L, "Bruno"));
+            store.descarregar();
+            store.put(9L, pedido(9L, "Carla"));
+            assertEquals("Ana", store.put(5L, pedido(5L, "Ana 2")).getCliente());
+            assertEquals("Bruno", store.remove(2L).getCliente());
+            assertNull(store.remove(2L));
+            store.descarregar();
+            store.put(7L, pedido(7L, "Davi"));
+
+            assertEquals(2, store.quantidadeDeSegmentos());
+            assertEquals(List.of(5L, 9L, 7L), store.values().stream().map(Pedido::getId).toList());
+            assertEquals("Ana 2", store.get(5L).getCliente());
+            assertEquals(1, store.get(5L).getItens().size());
+            assertNull(store.get(2L));
+            assertNull(store.get(100L));
+            assertEquals(3, store.size());
+        }
+    }
+
+    @Test
+    void testCompactacaoFundeSegmentosEDescartaLapides() throws IOException {
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            for (long id = 1; id <= 100; id++) {
+                store.put(id, pedido(id, "Cliente " + id));
+            }
+            store.descarregar();
+            for (long id = 1; id <= 100; id += 2) {
+                store.remove(id);
+            }
+            store.put(4L, pedido(4L, "Atualizado"));
+            store.descarregar();
+            assertEquals(2, store.quantidadeDeSegmentos());
+
+            store.compactar();
+
+            assertEquals(1, store.quantidadeDeSegmentos());
+            assertEquals(1, arquivos(".sst").size());
+            assertEquals(50, store.size());
+            assertEquals(LongStream.iterate(2, id -> id <= 100, id -> id + 2).boxed().toList(),
+                    store.values().stream().map(Pedido::getId).toList());
+            assertEquals("Atualizado", store.get(4L).getCliente());
+            assertNull(store.get(3L));
+        }
+        // Sem lápides, o segmento compactado tem só os 50 vivos
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            assertEquals(50, store.size());
+            assertNull(store.get(1L));
+        }
+    }
+
+    @Test
+    void testReabrirRecuperaSegmentosEMemtableDoLog() throws IOException {
+        try (LsmEntityStore<Pedido> store = abrir(2048)) {
+            for (long id = 1; id <= 300; id++) {
+                store.put(id, pedido(id, "Cliente " + id));
+            }
+            store.remove(150L);
+            store.descarregar();
+            store.put(301L, pedido(301L, "Só no log"));
+            store.remove(10L);
+            assertTrue(store.quantidadeDeSegmentos() < 3, "a compactação deveria ter rodado");
+        }
+        // Restos de uma descarga interrompida: segmento fora do manifesto e arquivo temporário
+        Files.write(diretorio.resolve("pedidos-lsm").resolve("segmento-00000000000000099999.sst"), new byte[]{1, 2, 3});
+        Files.write(diretorio.resolve("pedidos-lsm").resolve("manifesto.tmp"), new byte[]{1});
+
+        try (LsmEntityStore<Pedido> store = abrir(2048)) {
+            assertEquals(299, store.size());
+            assertEquals("Só no log", store.get(301L).getCliente());
+            assertNull(store.get(10L));
+            assertNull(store.get(150L));
+            assertEquals("Cliente 11", store.get(11L).getCliente());
+            List<Long> ids = store.values().stream().map(Pedido::getId).toList();
+            assertEquals(1L, ids.get(0));
+            assertEquals(301L, ids.get(ids.size() - 1));
+            assertFalse(arquivos(".sst").contains("segmento-00000000000000099999.sst"));
+            assertTrue(arquivos(".tmp").isEmpty());
+        }
+    }
+
+    @Test
+    void testClearApagaSegmentosELogs() throws IOException {
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            store.put(1L, pedido(1L, "Ana"));
+            store.descarregar();
+            store.put(2L, pedido(2L, "Bruno"));
+
+            store.clear();
+
+            assertEquals(0, store.size());
+            assertNull(store.get(1L));
+            assertTrue(arquivos(".sst").isEmpty());
+            assertEquals(1, arquivos(".wal").size());
+            store.put(3L, pedido(3L, "Carla"));
+        }
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            assertEquals(List.of(3L), store.values().stream().map(Pedido::getId).toList());
+        }
+    }
+
+    @Test
+    void testRepositorioComEscritasConcorrentesEDescargasEmSegundoPlano() throws Exception {
+        try (LsmEntityStore<Pedido> store = abrir(4096)) {
+            PedidoRepository repository = new PedidoRepository(store);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futuros.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        Pedido pedido = new Pedido("Carga");
+                        pedido.adicionarItem(new ItemPedido(teclado, 1));
+                        Pedido salvo = repository.save(pedido);
+                        assertEquals("Carga", repository.findById(salvo.getId()).orElseThrow().getCliente());
+                    }
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+            executor.shutdown();
+
+            assertEquals(800, store.size());
+            assertEquals(800, repository.findByCliente("carga").size());
+        }
+        try (LsmEntityStore<Pedido> store = abrir(4096)) {
+            PedidoRepository repository = new PedidoRepository(store);
+            assertEquals(800, repository.findAll().size());
+            Pedido novo = new Pedido("Nova");
+            novo.adicionarItem(new ItemPedido(teclado, 1));
+            long maiorId = repository.findAll().stream().mapToLong(Pedido::getId).max().orElseThrow();
+            assertEquals(maiorId + 1, repository.save(novo).getId());
+        }
+    }
+
+    @Test
+    void testFiltroDeBloomSemFalsosNegativos() {
+        FiltroDeBloom filtro = FiltroDeBloom.paraQuantidade(10_000);
+        for (long id = 1; id <= 10_000; id++) {
+            filtro.adicionar(id * 3);
+        }
+        Set<Long> falsosPositivos = new HashSet<>();
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filtro.podeConter(id * 3));
+            if (filtro.podeConter(id * 3 + 1)) {
+                falsosPositivos.add(id);
+            }
+        }
+        assertTrue(falsosPositivos.size() < 300, "falsos positivos demais: " + falsosPositivos.size());
+    }
+
+    @Test
+    void testMaiorIdRemovidoSobreviveACompactacaoEReinicio() {
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            PedidoRepository repository = new PedidoRepository(store);
+            for (String cliente : List.of("Ana", "Bruno", "Carla")) {
+                Pedido pedido = new Pedido(cliente);
+                pedido.adicionarItem(new ItemPedido(teclado, 1));
+                repository.save(pedido);
+            }
+            store.descarregar();
+            repository.delete(3L);
+            store.descarregar();
+            // A fusão descarta a lápide do 3; só o manifesto ainda o lembra
+            store.compactar();
+        }
+
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            assertEquals(4L, store.proximoIdRecuperado());
+            PedidoRepository repository = new PedidoRepository(store, store.proximoIdRecuperado());
+            assertEquals(4L, repository.save(new Pedido("Davi")).getId());
+            store.clear();
+        }
+
+        try (LsmEntityStore<Pedido> store = abrir(Long.MAX_VALUE)) {
+            assertEquals(0, store.proximoIdRecuperado());
+        }
+    }
+}
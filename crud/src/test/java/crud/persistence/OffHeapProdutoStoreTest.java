@@ -0,0 +1,106 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import crud.repository.AgregadosDeProduto;
+import crud.repository.ProdutoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapProdutoStoreTest {
+    private final OffHeapProdutoStore store = new OffHeapProdutoStore(16);
+
+    @Test
+    void testPutGetMantemValoresNulosENomesUnicode() {
+        String nome = "Café 😀 \uD800";
+        store.put(2L, new Produto(2L, nome, 9.5, 3));
+        store.put(1L, new Produto(1L, null, null, null));
+
+        Produto lido = store.get(2L);
+        assertEquals(nome, lido.getNome());
+        assertEquals(9.5, lido.getPreco());
+        assertEquals(3, lido.getEstoque());
+
+        Produto vazio = store.get(1L);
+        assertNull(vazio.getNome());
+        assertNull(vazio.getPreco());
+        assertNull(vazio.getEstoque());
+        assertNull(store.get(3L));
+    }
+
+    @Test
+    void testAtualizacaoNoLugarPreservaOrdem() {
+        store.put(1L, new Produto(1L, "A", 1.0, 1));
+        store.put(2L, new Produto(2L, "B", 2.0, 2));
+
+        Produto anterior = store.put(1L, new Produto(1L, "A renomeado", null, 5));
+        assertEquals("A", anterior.getNome());
+
+        List<Produto> valores = store.values();
+        assertEquals(List.of(1L, 2L), valores.stream().map(Produto::getId).toList());
+        assertEquals("A renomeado", valores.get(0).getNome());
+        assertNull(valores.get(0).getPreco());
+        assertEquals(5, valores.get(0).getEstoque());
+    }
+
+    @Test
+    void testMuitasRenomeacoesERemocoesRecuperamEspaco() {
+        for (long id = 1; id <= 3000; id++) {
+            store.put(id, new Produto(id, "Produto " + id, (double) id, 1));
+        }
+        for (int rodada = 0; rodada < 20; rodada++) {
+            for (long id = 1; id <= 3000; id += 3) {
+                store.put(id, new Produto(id, "Rodada " + rodada + " / " + id, (double) id, 1));
+            }
+        }
+        for (long id = 1; id <= 3000; id++) {
+            if (id % 2 == 0) {
+                store.remove(id);
+            }
+        }
+
+        assertEquals(1500, store.size());
+        assertNull(store.get(2998L));
+        assertEquals("Rodada 19 / 2995", store.get(2995L).getNome());
+        assertEquals("Produto 2999", store.get(2999L).getNome());
+        assertEquals(1L, store.values().get(0).getId());
+        assertEquals(3L, store.values().get(1).getId());
+    }
+
+    @Test
+    void testForEachRegistroReusaAMesmaVisao() {
+        store.put(1L, new Produto(1L, "A", 10.0, 2));
+        store.put(2L, new Produto(2L, "B", 25.0, 1));
+
+        List<OffHeapProdutoStore.Registro> vistos = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        store.forEachRegistro(registro -> {
+            vistos.add(registro);
+            ids.add(registro.id());
+            assertTrue(registro.nomeIgual(registro.id() == 1L ? "A" : "B"));
+        });
+
+        assertEquals(List.of(1L, 2L), ids);
+        assertSame(vistos.get(0), vistos.get(1));
+    }
+
+    @Test
+    void testClearEAgregadosNoRepositorio() {
+        ProdutoRepository repository = new ProdutoRepository(store);
+        repository.save(new Produto("X", 1.0, 1));
+        repository.deleteAll();
+        assertEquals(0, store.size());
+
+        repository.save(new Produto("A", 10.0, 2));
+        repository.save(new Produto("B", 25.0, 1));
+        repository.save(new Produto("C", null, 4));
+
+        assertSame(store, store.unwrap(AgregadosDeProduto.class));
+        assertEquals(45.0, repository.valorTotalEmEstoque(), 1e-9);
+        assertArrayEquals(new long[]{1, 1}, repository.histogramaDePrecos(20.0));
+        assertEquals("B", repository.findByNome("b").get(0).getNome());
+    }
+}
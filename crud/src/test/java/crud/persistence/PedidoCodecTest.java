@@ -0,0 +1,56 @@
+package crud.persistence;
+
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoCodecTest {
+    private final PedidoCodec codec = new PedidoCodec();
+
+    private Pedido idaEVolta(Pedido pedido) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.escrever(pedido, new DataOutputStream(bytes));
+        return codec.ler(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    void testIdaEVoltaPreservaTodosOsCampos() throws IOException {
+        Pedido pedido = new Pedido("João");
+        pedido.setId(7L);
+        pedido.setDataCriacao(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789));
+        pedido.adicionarItem(new ItemPedido(new Produto(1L, "Café", 12.5, 3), 2));
+        pedido.adicionarItem(new ItemPedido(new Produto(2L, null, null, null), 1));
+
+        Pedido lido = idaEVolta(pedido);
+
+        assertEquals(7L, lido.getId());
+        assertEquals("João", lido.getCliente());
+        assertEquals(pedido.getDataCriacao(), lido.getDataCriacao());
+        assertEquals(pedido.getItens(), lido.getItens());
+        assertEquals("Café", lido.getItens().get(0).getProduto().getNome());
+        assertEquals(12.5, lido.getItens().get(0).getProduto().getPreco());
+    }
+
+    @Test
+    void testCamposNulos() throws IOException {
+        Pedido pedido = new Pedido(null);
+        pedido.setDataCriacao(null);
+
+        Pedido lido = idaEVolta(pedido);
+
+        assertNull(lido.getId());
+        assertNull(lido.getCliente());
+        assertNull(lido.getDataCriacao());
+        assertTrue(lido.getItens().isEmpty());
+    }
+}
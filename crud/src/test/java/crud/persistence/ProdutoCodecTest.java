@@ -0,0 +1,32 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProdutoCodecTest {
+    private final ProdutoCodec codec = new ProdutoCodec();
+
+    @Property
+    void idaEVoltaPreservaCampos(@ForAll Long id, @ForAll String nome, @ForAll Double preco, @ForAll Integer estoque)
+            throws IOException {
+        Produto produto = new Produto(id, nome, preco, estoque);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.escrever(produto, new DataOutputStream(bytes));
+
+        Produto lido = codec.ler(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(produto.getId(), lido.getId());
+        assertEquals(produto.getNome(), lido.getNome());
+        assertEquals(produto.getPreco(), lido.getPreco());
+        assertEquals(produto.getEstoque(), lido.getEstoque());
+    }
+}
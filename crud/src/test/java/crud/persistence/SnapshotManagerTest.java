@@ -0,0 +1,71 @@
+package crud.persistence;
+
+import crud.model.Produto;
+import crud.repository.ConcurrentLongHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotManagerTest {
+    @TempDir
+    Path diretorio;
+
+    private WalEntityStore<Produto> abrir() {
+        return WalEntityStore.abrir(diretorio, "produtos", new ConcurrentLongHashMap<>(), new ProdutoCodec(),
+                PoliticaDeSync.POR_ESCRITA, Duration.ofMillis(100));
+    }
+
+    @Test
+    void testFotografaSoQuemAtingiuOMinimoDeRegistros() {
+        try (WalEntityStore<Produto> store = abrir();
+             SnapshotManager snapshots = new SnapshotManager(Duration.ofHours(1), 3)) {
+            snapshots.registrar("produtos", store, () -> 10L);
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+            store.put(2L, new Produto(2L, "B", 1.0, 1));
+
+            snapshots.fotografarPendentes();
+            assertEquals(2, store.registrosDesdeSnapshot());
+
+            store.put(3L, new Produto(3L, "C", 1.0, 1));
+            snapshots.fotografarPendentes();
+            assertEquals(0, store.registrosDesdeSnapshot());
+        }
+
+        try (WalEntityStore<Produto> store = abrir()) {
+            assertEquals(0, store.registrosReproduzidos());
+            assertEquals(10L, store.proximoIdRecuperado());
+            assertEquals(3, store.size());
+        }
+    }
+
+    @Test
+    void testFotografarTodosIgnoraMinimo() {
+        try (WalEntityStore<Produto> store = abrir();
+             SnapshotManager snapshots = new SnapshotManager(Duration.ofHours(1), 1_000)) {
+            snapshots.registrar("produtos", store, () -> 2L);
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+
+            snapshots.fotografarTodos();
+            assertEquals(0, store.registrosDesdeSnapshot());
+        }
+    }
+
+    @Test
+    void testSnapshotEmSegundoPlano() throws InterruptedException {
+        try (WalEntityStore<Produto> store = abrir();
+             SnapshotManager snapshots = new SnapshotManager(Duration.ofMillis(20), 1)) {
+            snapshots.registrar("produtos", store, () -> 2L);
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+
+            long limite = System.currentTimeMillis() + 5_000;
+            while (store.registrosDesdeSnapshot() > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, store.registrosDesdeSnapshot());
+        }
+    }
+}
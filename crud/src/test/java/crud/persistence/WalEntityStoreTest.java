@@ -0,0 +1,285 @@
+package crud.persistence;
+
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.repository.ConcurrentLongHashMap;
+import crud.repository.EntityStore;
+import crud.repository.PedidoRepository;
+import crud.repository.ProdutoRepository;
+import crud.repository.ShardedProdutoRepository;
+import crud.repository.StripedLongHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalEntityStoreTest {
+    @TempDir
+    Path diretorio;
+
+    private WalEntityStore<Produto> abrirProdutos() {
+        return WalEntityStore.abrir(diretorio, "produtos", new ConcurrentLongHashMap<>(), new ProdutoCodec(),
+                PoliticaDeSync.AGRUPADA, Duration.ofMillis(100));
+    }
+
+    private WalEntityStore<Pedido> abrirPedidos() {
+        return WalEntityStore.abrir(diretorio, "pedidos", new StripedLongHashMap<>(), new PedidoCodec(),
+                PoliticaDeSync.AGRUPADA, Duration.ofMillis(100));
+    }
+
+    private long quantidadeDeSegmentos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(arquivo -> arquivo.getFileName().toString().endsWith(".wal")).count();
+        }
+    }
+
+    @Test
+    void testReabrirReconstroiEstadoNaOrdemDeInsercao() throws IOException {
+        try (EntityStore<Produto> store = abrirProdutos()) {
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+            store.put(2L, new Produto(2L, "B", 2.0, 2));
+            store.put(3L, new Produto(3L, "C", 3.0, 3));
+            store.put(1L, new Produto(1L, "A2", 1.5, 1));
+            assertNotNull(store.remove(2L));
+            assertNull(store.remove(99L));
+        }
+
+        try (EntityStore<Produto> store = abrirProdutos()) {
+            assertEquals(List.of("A2", "C"), store.values().stream().map(Produto::getNome).toList());
+            assertEquals(1.5, store.get(1L).getPreco());
+        }
+    }
+
+    @Test
+    void testClearSobreviveAoReinicio() throws IOException {
+        try (EntityStore<Produto> store = abrirProdutos()) {
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+            store.clear();
+            store.put(1L, new Produto(1L, "Novo", 2.0, 1));
+        }
+
+        try (EntityStore<Produto> store = abrirProdutos()) {
+            assertEquals(1, store.size());
+            assertEquals("Novo", store.get(1L).getNome());
+        }
+    }
+
+    @Test
+    void testRepositoriosRecuperamDadosIndicesESequenciaDeIds() throws IOException {
+        Produto produto;
+        try (EntityStore<Produto> produtos = abrirProdutos(); EntityStore<Pedido> pedidos = abrirPedidos()) {
+            ProdutoRepository produtoRepository = new ProdutoRepository(produtos);
+            PedidoRepository pedidoRepository = new PedidoRepository(pedidos);
+            produto = produtoRepository.save(new Produto("Notebook", 3000.0, 5));
+            produtoRepository.save(new Produto("Mouse", 50.0, 10));
+            Pedido pedido = new Pedido("Maria");
+            pedido.adicionarItem(new ItemPedido(produto, 2));
+            pedidoRepository.save(pedido);
+
+            // Alteração no mesmo objeto, como faz o PedidoService
+            pedido.setCliente("Ana");
+            pedidoRepository.save(pedido);
+        }
+
+        try (EntityStore<Produto> produtos = abrirProdutos(); EntityStore<Pedido> pedidos = abrirPedidos()) {
+            ProdutoRepository produtoRepository = new ProdutoRepository(produtos);
+            PedidoRepository pedidoRepository = new PedidoRepository(pedidos);
+
+            assertEquals(2, produtoRepository.findAll().size());
+            assertEquals(List.of(produto), produtoRepository.findByNome("note"));
+            assertEquals(1, produtoRepository.findMaisBaratos(1).size());
+            assertEquals(3L, produtoRepository.save(new Produto("Teclado", 100.0, 1)).getId());
+
+            List<Pedido> daAna = pedidoRepository.findByCliente("Ana");
+            assertEquals(1, daAna.size());
+            assertEquals(6000.0, daAna.get(0).getTotal());
+            assertTrue(pedidoRepository.findByCliente("Maria").isEmpty());
+            assertEquals(2L, pedidoRepository.save(new Pedido("Pedro")).getId());
+        }
+    }
+
+    @Test
+    void testSnapshotLimitaACaudaReproduzida() throws IOException {
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            for (long id = 1; id <= 100; id++) {
+                store.put(id, new Produto(id, "P" + id, (double) id, 1));
+            }
+            store.fotografar(() -> 250L);
+            assertEquals(0, store.registrosDesdeSnapshot());
+            store.put(101L, new Produto(101L, "Depois", 1.0, 1));
+            store.remove(1L);
+        }
+        assertEquals(1, quantidadeDeSegmentos());
+
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            assertEquals(2, store.registrosReproduzidos());
+            assertEquals(250L, store.proximoIdRecuperado());
+            assertEquals(100, store.size());
+            assertNull(store.get(1L));
+            assertEquals("Depois", store.get(101L).getNome());
+            // A ordem de inserção sobrevive ao snapshot
+            assertEquals(2L, store.values().get(0).getId());
+            assertEquals(101L, store.values().get(99).getId());
+        }
+    }
+
+    @Test
+    void testEscritasDuranteSnapshotNaoSePerdem() throws Exception {
+        int threads = 4;
+        int porThread = 500;
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+            try {
+                List<Future<?>> tarefas = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long base = t * 10_000L;
+                    tarefas.add(executor.submit(() -> {
+                        for (long i = 1; i <= porThread; i++) {
+                            store.put(base + i, new Produto(base + i, "P", 1.0, 1));
+                        }
+                    }));
+                }
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        store.fotografar(() -> 1L);
+                    }
+                }));
+                for (Future<?> tarefa : tarefas) {
+                    tarefa.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            assertEquals(threads * porThread, store.size());
+        }
+    }
+
+    @Test
+    void testClearDescartaSnapshotESegmentosAnteriores() throws IOException {
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+            store.fotografar(() -> 2L);
+            store.put(2L, new Produto(2L, "B", 1.0, 1));
+            store.clear();
+        }
+
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            assertEquals(0, store.size());
+            assertEquals(0, store.proximoIdRecuperado());
+        }
+        assertEquals(1, quantidadeDeSegmentos());
+    }
+
+    @Test
+    void testAproveitaLogDeArquivoUnico() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(diretorio.resolve("produtos.wal"), PoliticaDeSync.POR_ESCRITA)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new ProdutoCodec().escrever(new Produto(1L, "Antigo", 1.0, 1), new DataOutputStream(bytes));
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, bytes.toByteArray());
+        }
+
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            assertEquals("Antigo", store.get(1L).getNome());
+        }
+        assertFalse(Files.exists(diretorio.resolve("produtos.wal")));
+    }
+
+    @Test
+    void testRepositorioContinuaSequenciaDoSnapshot() throws IOException {
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            ProdutoRepository repository = new ProdutoRepository(store);
+            repository.save(new Produto("A", 1.0, 1));
+            Produto b = repository.save(new Produto("B", 1.0, 1));
+            store.fotografar(repository::proximoId);
+            repository.delete(b.getId());
+        }
+
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            ProdutoRepository repository = new ProdutoRepository(store, store.proximoIdRecuperado());
+            // O ID 2 foi apagado, mas não é reutilizado
+            assertEquals(3L, repository.save(new Produto("C", 1.0, 1)).getId());
+        }
+    }
+
+    @Test
+    void testMaiorIdRemovidoDepoisDoSnapshotNaoEReutilizado() {
+        try (WalEntityStore<Pedido> store = abrirPedidos()) {
+            PedidoRepository repository = new PedidoRepository(store);
+            repository.save(new Pedido("Ana"));
+            store.fotografar(repository::proximoId);
+            Pedido bruno = repository.save(new Pedido("Bruno"));
+            repository.delete(bruno.getId());
+        }
+
+        try (WalEntityStore<Pedido> store = abrirPedidos()) {
+            // O snapshot guardou 2; a remoção do 2 está só no log e eleva a marca
+            assertEquals(3L, store.proximoIdRecuperado());
+            PedidoRepository repository = new PedidoRepository(store, store.proximoIdRecuperado());
+            assertEquals(3L, repository.save(new Pedido("Carla")).getId());
+        }
+    }
+
+    @Test
+    void testPutAllGravaOLoteNoLog() {
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            store.put(1L, new Produto(1L, "A", 1.0, 1));
+            List<Produto> anteriores = store.putAll(new long[]{1L, 2L, 3L},
+                    List.of(new Produto(1L, "A2", 1.0, 1), new Produto(2L, "B", 2.0, 2), new Produto(3L, "C", 3.0, 3)));
+
+            assertEquals("A", anteriores.get(0).getNome());
+            assertNull(anteriores.get(1));
+            assertEquals(4, store.registrosDesdeSnapshot());
+        }
+
+        try (WalEntityStore<Produto> store = abrirProdutos()) {
+            assertEquals(List.of("A2", "B", "C"), store.values().stream().map(Produto::getNome).toList());
+        }
+    }
+
+    @Test
+    void testFatiasGravamLogsPropriosERecuperamASequencia() throws IOException {
+        ConfiguracaoDePersistencia configuracao = new ConfiguracaoDePersistencia(true, diretorio,
+                PoliticaDeSync.AGRUPADA, Duration.ofMillis(100), Duration.ofSeconds(60), 1000).comFatias(3);
+        List<EntityStore<Produto>> stores = configuracao.abrirFatiasDeProdutos();
+        ShardedProdutoRepository repository = new ShardedProdutoRepository(
+                ShardedProdutoRepository.criarFatias(3, stores::get), 1);
+        for (int i = 0; i < 9; i++) {
+            repository.save(new Produto("P" + i, 1.0 + i, 1));
+        }
+        repository.delete(9L);
+        stores.forEach(EntityStore::close);
+
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            assertEquals(3, arquivos.map(arquivo -> arquivo.getFileName().toString())
+                    .filter(nome -> nome.startsWith("produtos-")).map(nome -> nome.substring(0, 10))
+                    .distinct().count());
+        }
+
+        List<EntityStore<Produto>> reabertos = configuracao.abrirFatiasDeProdutos();
+        long proximoId = reabertos.stream().mapToLong(configuracao::proximoIdRecuperado).max().orElse(1);
+        ShardedProdutoRepository recuperado = new ShardedProdutoRepository(
+                ShardedProdutoRepository.criarFatias(3, reabertos::get), proximoId);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L),
+                recuperado.findAll().stream().map(Produto::getId).toList());
+        // O 9 foi removido na sua fatia, mas não volta a ser usado
+        assertEquals(10L, recuperado.save(new Produto("Novo", 1.0, 1)).getId());
+        reabertos.forEach(EntityStore::close);
+    }
+}
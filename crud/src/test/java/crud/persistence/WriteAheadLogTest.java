@@ -0,0 +1,162 @@
+package crud.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path diretorio;
+
+    private List<String> reproduzir(Path arquivo) throws IOException {
+        List<String> registros = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.POR_ESCRITA)) {
+            log.reproduzir((operacao, id, dados) -> registros.add(operacao + ":" + id + ":" + new String(dados)));
+        }
+        return registros;
+    }
+
+    @Test
+    void testReproduzRegistrosNaOrdemEscrita() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.POR_ESCRITA)) {
+            log.reproduzir((operacao, id, dados) -> fail("log novo deveria estar vazio"));
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 2L, "b".getBytes());
+            log.anexar(WriteAheadLog.Operacao.REMOVER, 1L, new byte[0]);
+        }
+
+        assertEquals(List.of("GRAVAR:1:a", "GRAVAR:2:b", "REMOVER:1:"), reproduzir(arquivo));
+    }
+
+    @Test
+    void testFinalIncompletoETruncadoNaReproducao() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.POR_ESCRITA)) {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 2L, "b".getBytes());
+        }
+        long tamanhoValido = Files.size(arquivo);
+        // Simula uma queda no meio da escrita do terceiro registro
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            canal.write(java.nio.ByteBuffer.wrap(new byte[]{0, 0, 0, 20, 1, 0, 0}));
+        }
+
+        assertEquals(List.of("GRAVAR:1:a", "GRAVAR:2:b"), reproduzir(arquivo));
+        assertEquals(tamanhoValido, Files.size(arquivo));
+
+        // Novas escritas continuam a partir do último registro válido
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.POR_ESCRITA)) {
+            log.reproduzir((operacao, id, dados) -> { });
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 3L, "c".getBytes());
+        }
+        assertEquals(List.of("GRAVAR:1:a", "GRAVAR:2:b", "GRAVAR:3:c"), reproduzir(arquivo));
+    }
+
+    @Test
+    void testRegistroCorrompidoEncerraAReproducao() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.POR_ESCRITA)) {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 2L, "b".getBytes());
+        }
+        byte[] bytes = Files.readAllBytes(arquivo);
+        // Altera o dado do segundo registro sem atualizar o CRC
+        bytes[bytes.length - 5] = 'x';
+        Files.write(arquivo, bytes);
+
+        assertEquals(List.of("GRAVAR:1:a"), reproduzir(arquivo));
+    }
+
+    @Test
+    void testLimparDescartaRegistros() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.POR_ESCRITA)) {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+            log.limpar();
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 2L, "b".getBytes());
+        }
+
+        assertEquals(List.of("GRAVAR:2:b"), reproduzir(arquivo));
+    }
+
+    @Test
+    void testEscritasConcorrentesComGroupCommit() throws Exception {
+        Path arquivo = diretorio.resolve("teste.wal");
+        int threads = 8;
+        int porThread = 200;
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.AGRUPADA)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> tarefas = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long base = t * 1_000L;
+                    tarefas.add(executor.submit(() -> {
+                        for (int i = 0; i < porThread; i++) {
+                            log.anexar(WriteAheadLog.Operacao.GRAVAR, base + i, new byte[]{(byte) i});
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> tarefa : tarefas) {
+                    tarefa.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        List<String> registros = reproduzir(arquivo);
+        assertEquals(threads * porThread, registros.size());
+        assertEquals(threads * porThread, registros.stream().distinct().count());
+    }
+
+    @Test
+    void testPoliticaPorIntervaloSincronizaAoFechar() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.INTERVALO, java.time.Duration.ofMillis(10))) {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+        }
+
+        assertEquals(List.of("GRAVAR:1:a"), reproduzir(arquivo));
+    }
+
+    @Test
+    void testRotacionarPassaAEscreverNoNovoArquivo() throws IOException {
+        Path primeiro = diretorio.resolve("1.wal");
+        Path segundo = diretorio.resolve("2.wal");
+        try (WriteAheadLog log = new WriteAheadLog(primeiro, PoliticaDeSync.AGRUPADA)) {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+            log.rotacionar(segundo);
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 2L, "b".getBytes());
+        }
+
+        assertEquals(List.of("GRAVAR:1:a"), reproduzir(primeiro));
+        assertEquals(List.of("GRAVAR:2:b"), reproduzir(segundo));
+    }
+
+    @Test
+    void testLoteGravadoDeUmaVezReproduzCadaRegistro() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (WriteAheadLog log = new WriteAheadLog(arquivo, PoliticaDeSync.AGRUPADA)) {
+            log.anexar(WriteAheadLog.Operacao.GRAVAR, 1L, "a".getBytes());
+            log.anexarTodos(WriteAheadLog.Operacao.GRAVAR, new long[]{2L, 3L, 2L},
+                    List.of("b".getBytes(), new byte[0], "b2".getBytes()));
+            log.anexarTodos(WriteAheadLog.Operacao.GRAVAR, new long[0], List.of());
+        }
+
+        assertEquals(List.of("GRAVAR:1:a", "GRAVAR:2:b", "GRAVAR:3:", "GRAVAR:2:b2"), reproduzir(arquivo));
+    }
+}
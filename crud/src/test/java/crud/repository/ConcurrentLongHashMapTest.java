@@ -0,0 +1,65 @@
+package crud.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongHashMapTest {
+
+    @Test
+    void testOperacoesBasicas() {
+        ConcurrentLongHashMap<String> mapa = new ConcurrentLongHashMap<>(4);
+        mapa.put(1L, "a");
+        mapa.put(2L, "b");
+
+        assertEquals("a", mapa.get(1L));
+        assertTrue(mapa.containsKey(2L));
+        assertEquals(2, mapa.size());
+        assertEquals("b", mapa.remove(2L));
+        assertEquals(List.of("a"), mapa.values());
+
+        List<Long> chaves = new ArrayList<>();
+        mapa.forEach((chave, valor) -> chaves.add(chave));
+        assertEquals(List.of(1L), chaves);
+
+        mapa.clear();
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    void testEscritasELeiturasConcorrentes() throws Exception {
+        ConcurrentLongHashMap<Long> mapa = new ConcurrentLongHashMap<>();
+        int threads = 8;
+        int porThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * porThread;
+                tarefas.add(executor.submit(() -> {
+                    for (long i = base; i < base + porThread; i++) {
+                        mapa.put(i, i);
+                        assertEquals(i, mapa.get(i));
+                        if (i % 2 == 0) {
+                            mapa.remove(i);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * porThread / 2, mapa.size());
+        mapa.forEach((chave, valor) -> assertEquals(1, chave % 2));
+    }
+}
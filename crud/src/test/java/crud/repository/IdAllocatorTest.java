@@ -0,0 +1,91 @@
+package crud.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+    private final IdAllocator gerador = new IdAllocator();
+
+    @Test
+    void testSemConcorrenciaIdsSaoSequenciais() {
+        for (long esperado = 1; esperado <= 1000; esperado++) {
+            assertEquals(esperado, gerador.proximo());
+        }
+        assertEquals(1001L, gerador.marcaDagua());
+
+        assertEquals(1001L, gerador.reservar(10));
+        assertEquals(1011L, gerador.proximo());
+        assertEquals(1012L, gerador.marcaDagua());
+    }
+
+    @Test
+    void testAvancarParaNuncaRecua() {
+        IdAllocator recuperado = new IdAllocator(50);
+        recuperado.avancarPara(20);
+        assertEquals(50L, recuperado.proximo());
+        recuperado.avancarPara(100);
+        assertEquals(100L, recuperado.proximo());
+        assertEquals(101L, recuperado.marcaDagua());
+    }
+
+    @Test
+    void testReiniciarDescartaBlocosDasThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(gerador::proximo).get();
+        gerador.proximo();
+
+        gerador.reiniciar();
+
+        assertEquals(1L, gerador.marcaDagua());
+        assertEquals(1L, gerador.proximo());
+        assertEquals(2L, (long) executor.submit(gerador::proximo).get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testThreadsConcorrentesRecebemIdsUnicosAbaixoDaMarca() throws Exception {
+        int threads = 8;
+        int porThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<long[]>> futuros = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                long[] ids = new long[porThread];
+                for (int i = 0; i < porThread; i++) {
+                    ids[i] = gerador.proximo();
+                }
+                return ids;
+            }));
+        }
+        largada.countDown();
+
+        Set<Long> todos = new HashSet<>();
+        for (Future<long[]> futuro : futuros) {
+            long[] ids = futuro.get();
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    assertTrue(ids[i] > ids[i - 1], "IDs de uma thread devem crescer");
+                }
+                assertTrue(ids[i] < gerador.marcaDagua());
+                todos.add(ids[i]);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(threads * porThread, todos.size());
+        // Blocos crescem só até o máximo por thread, então as lacunas são limitadas
+        assertTrue(gerador.marcaDagua() <= threads * (porThread + IdAllocator.BLOCO_MAXIMO) + 1L);
+    }
+}
@@ -0,0 +1,77 @@
+package crud.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSpliteratorTest {
+    private final SortedLongSet ids = new SortedLongSet();
+
+    private Spliterator<String> spliterator() {
+        return IdSpliterator.de(ids, id -> ids.entre(id - 1, id, 1).length == 1 ? "#" + id : null);
+    }
+
+    @Test
+    void testPercorreEmOrdemEmLotes() {
+        for (long id = 1; id <= 1000; id++) {
+            ids.adicionar(id);
+        }
+
+        List<String> vistos = StreamSupport.stream(spliterator(), false).toList();
+
+        assertEquals(1000, vistos.size());
+        assertEquals("#1", vistos.get(0));
+        assertEquals("#1000", vistos.get(999));
+    }
+
+    @Test
+    void testDivisaoCobreTudoSemRepetir() {
+        for (long id = 1; id <= 10_000; id++) {
+            ids.adicionar(id);
+        }
+
+        Spliterator<String> sufixo = spliterator();
+        Spliterator<String> prefixo = sufixo.trySplit();
+        assertNotNull(prefixo);
+        List<String> vistos = new ArrayList<>();
+        prefixo.forEachRemaining(vistos::add);
+        sufixo.forEachRemaining(vistos::add);
+        assertEquals(10_000, vistos.size());
+        assertEquals("#1", vistos.get(0));
+        assertEquals("#10000", vistos.get(9_999));
+
+        long paralelos = StreamSupport.stream(spliterator(), true).collect(Collectors.toSet()).size();
+        assertEquals(10_000, paralelos);
+    }
+
+    @Test
+    void testFracamenteConsistenteComEscritasDuranteAVarredura() {
+        for (long id = 1; id <= 600; id++) {
+            ids.adicionar(id);
+        }
+
+        Spliterator<String> spliterator = spliterator();
+        List<String> vistos = new ArrayList<>();
+        spliterator.tryAdvance(vistos::add);
+        // Removidos à frente somem; criados depois do maior ID inicial ficam de fora
+        ids.remover(300L);
+        ids.adicionar(601L);
+        spliterator.forEachRemaining(vistos::add);
+
+        assertEquals(599, vistos.size());
+        assertFalse(vistos.contains("#300"));
+        assertFalse(vistos.contains("#601"));
+        assertNull(spliterator.trySplit());
+    }
+
+    @Test
+    void testConjuntoVazio() {
+        assertFalse(spliterator().tryAdvance(id -> fail()));
+    }
+}
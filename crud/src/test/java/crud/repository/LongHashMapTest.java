@@ -0,0 +1,142 @@
+package crud.repository;
+
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.api.constraints.Size;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashMapTest {
+
+    @Test
+    void testPutEGet() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        assertNull(mapa.put(1L, "um"));
+        assertNull(mapa.put(-7L, "menos sete"));
+
+        assertEquals("um", mapa.get(1L));
+        assertEquals("menos sete", mapa.get(-7L));
+        assertNull(mapa.get(2L));
+        assertEquals(2, mapa.size());
+    }
+
+    @Test
+    void testPutSubstituiValorERetornaAnterior() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        mapa.put(1L, "a");
+        assertEquals("a", mapa.put(1L, "b"));
+        assertEquals("b", mapa.get(1L));
+        assertEquals(1, mapa.size());
+    }
+
+    @Test
+    void testPutValorNulo() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        assertThrows(NullPointerException.class, () -> mapa.put(1L, null));
+    }
+
+    @Test
+    void testRemove() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        mapa.put(1L, "a");
+        mapa.put(2L, "b");
+
+        assertEquals("a", mapa.remove(1L));
+        assertNull(mapa.remove(1L));
+        assertFalse(mapa.containsKey(1L));
+        assertTrue(mapa.containsKey(2L));
+        assertEquals(1, mapa.size());
+    }
+
+    @Test
+    void testReinserirAposRemocaoVaiParaOFim() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        mapa.put(1L, "a");
+        mapa.put(2L, "b");
+        mapa.remove(1L);
+        mapa.put(1L, "a2");
+
+        assertEquals(List.of("b", "a2"), mapa.values());
+    }
+
+    @Test
+    void testCrescimentoMantemOrdemDeInsercao() {
+        LongHashMap<Long> mapa = new LongHashMap<>();
+        for (long i = 10_000; i > 0; i--) {
+            mapa.put(i, i);
+        }
+
+        List<Long> valores = mapa.values();
+        assertEquals(10_000, valores.size());
+        assertEquals(10_000L, valores.get(0));
+        assertEquals(1L, valores.get(valores.size() - 1));
+    }
+
+    @Test
+    void testMuitasRemocoesCompactamSemPerderEntradas() {
+        LongHashMap<Long> mapa = new LongHashMap<>();
+        // Insere e remove repetidamente para acumular lápides
+        for (long i = 0; i < 50_000; i++) {
+            mapa.put(i, i);
+            if (i % 10 != 0) {
+                mapa.remove(i);
+            }
+        }
+
+        assertEquals(5_000, mapa.size());
+        for (long i = 0; i < 50_000; i += 10) {
+            assertEquals(i, mapa.get(i));
+        }
+    }
+
+    @Test
+    void testForEachPercorreChavesEValores() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        mapa.put(3L, "c");
+        mapa.put(1L, "a");
+
+        List<String> visitados = new ArrayList<>();
+        mapa.forEach((chave, valor) -> visitados.add(chave + "=" + valor));
+
+        assertEquals(List.of("3=c", "1=a"), visitados);
+    }
+
+    @Test
+    void testClear() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        mapa.put(1L, "a");
+        mapa.clear();
+
+        assertTrue(mapa.isEmpty());
+        assertNull(mapa.get(1L));
+        mapa.put(1L, "b");
+        assertEquals("b", mapa.get(1L));
+    }
+
+    @Property(tries = 200)
+    void testComportamentoIgualAoLinkedHashMap(
+            @ForAll @Size(max = 300) List<@IntRange(min = -50, max = 50) Integer> operacoes) {
+
+        LongHashMap<Integer> mapa = new LongHashMap<>();
+        Map<Long, Integer> referencia = new LinkedHashMap<>();
+
+        for (int i = 0; i < operacoes.size(); i++) {
+            int operacao = operacoes.get(i);
+            long chave = Math.abs(operacao) % 40;
+            if (operacao >= 0) {
+                assertEquals(referencia.put(chave, i), mapa.put(chave, i));
+            } else {
+                assertEquals(referencia.remove(chave), mapa.remove(chave));
+            }
+        }
+
+        assertEquals(referencia.size(), mapa.size());
+        assertEquals(new ArrayList<>(referencia.values()), mapa.values());
+    }
+}
@@ -0,0 +1,131 @@
+package crud.repository;
+
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import crud.service.EstoqueComprometido;
+import crud.service.PedidoService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MvccDatabaseTest {
+    private final MvccDatabase banco = new MvccDatabase();
+    private final ProdutoRepository produtos = new ProdutoRepository(banco.produtos());
+    private final PedidoRepository pedidos = new PedidoRepository(banco.pedidos());
+
+    @Test
+    void testLeituraEmAndamentoNaoVeEscritasPosteriores() throws Exception {
+        Produto caneta = produtos.save(new Produto("Caneta", 2.0, 10));
+        Produto borracha = produtos.save(new Produto("Borracha", 1.0, 3));
+        Pedido pedido = new Pedido("Ana");
+        pedido.adicionarItem(new ItemPedido(caneta, 1));
+        pedidos.save(pedido);
+
+        ExecutorService escritor = Executors.newSingleThreadExecutor();
+        try {
+            List<String> lidos = new ArrayList<>();
+            banco.produtos().forEach((id, produto) -> {
+                if (lidos.isEmpty()) {
+                    // Escritas de outra thread no meio da leitura, que não espera por elas
+                    try {
+                        escritor.submit(() -> {
+                            produtos.save(new Produto(caneta.getId(), "Caneta azul", 3.0, 9));
+                            produtos.delete(borracha.getId());
+                            produtos.save(new Produto("Lápis", 1.0, 5));
+                        }).get();
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                lidos.add(produto.getNome());
+            });
+
+            assertEquals(List.of("Caneta", "Borracha"), lidos);
+            assertEquals(List.of("Caneta azul", "Lápis"), banco.produtos().values().stream().map(Produto::getNome).toList());
+            assertEquals("Ana", pedidos.findById(pedido.getId()).orElseThrow().getCliente());
+        } finally {
+            escritor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPedidoAlteradoPorQuemChamouNaoMudaAVersao() {
+        Pedido pedido = new Pedido("Ana");
+        pedidos.save(pedido);
+
+        pedido.setCliente("Bia");
+        assertEquals("Ana", banco.pedidos().get(pedido.getId()).getCliente());
+        assertEquals("Ana", pedidos.findById(pedido.getId()).orElseThrow().getCliente());
+        assertEquals(List.of(pedido.getId()), pedidos.findByCliente("Ana").stream().map(Pedido::getId).toList());
+    }
+
+    @Test
+    void testLeiturasDevolvemOPedidoGuardadoSemCopiar() {
+        Pedido pedido = new Pedido("Ana");
+        pedidos.save(pedido);
+
+        Pedido guardado = banco.pedidos().get(pedido.getId());
+        assertSame(guardado, banco.pedidos().get(pedido.getId()));
+        assertSame(guardado, banco.pedidos().values().get(0));
+        assertSame(guardado, banco.versaoAtual().pedidos().get(pedido.getId()));
+        banco.pedidos().forEach((id, lido) -> assertSame(guardado, lido));
+    }
+
+    @Test
+    void testVersaoFixadaNaoMudaComEscritasPosteriores() {
+        Produto caneta = produtos.save(new Produto("Caneta", 2.0, 10));
+        MvccDatabase.Versao versao = banco.versaoAtual();
+
+        produtos.save(new Produto(caneta.getId(), "Caneta", 2.0, 0));
+        Pedido pedido = new Pedido("Ana");
+        pedido.adicionarItem(new ItemPedido(caneta, 1));
+        pedidos.save(pedido);
+
+        assertEquals(10, versao.produtos().get(caneta.getId()).estoque());
+        assertTrue(versao.pedidos().isEmpty());
+        assertEquals(0, banco.versaoAtual().produtos().get(caneta.getId()).estoque());
+        assertEquals(1, banco.versaoAtual().pedidos().size());
+    }
+
+    @Test
+    void testRelatorioLeProdutosEPedidosDaMesmaVersao() throws Exception {
+        PedidoService service = new PedidoService(pedidos, produtos, banco);
+        Produto caneta = produtos.save(new Produto("Caneta", 2.0, 0));
+        int rodadas = 2000;
+
+        ExecutorService escritor = Executors.newSingleThreadExecutor();
+        try {
+            // O estoque sobe antes de cada pedido: em qualquer versão, o pedido cabe no estoque
+            Future<?> escritas = escritor.submit(() -> {
+                for (int k = 1; k <= rodadas; k++) {
+                    Produto reposto = produtos.save(new Produto(caneta.getId(), "Caneta", 2.0, k));
+                    Pedido pedido = new Pedido("Cliente " + k);
+                    pedido.adicionarItem(new ItemPedido(reposto, 1));
+                    pedidos.save(pedido);
+                }
+            });
+            int leituras = 0;
+            while (!escritas.isDone() || leituras == 0) {
+                EstoqueComprometido linha = service.relatorioDeEstoque().get(0);
+                assertTrue(linha.getComprometido() <= linha.getEstoque(),
+                        () -> linha.getComprometido() + " pedidos para estoque " + linha.getEstoque());
+                leituras++;
+            }
+            escritas.get();
+
+            EstoqueComprometido fim = service.relatorioDeEstoque().get(0);
+            assertEquals(rodadas, fim.getEstoque());
+            assertEquals(rodadas, fim.getComprometido());
+            assertEquals(0, fim.getDisponivel());
+        } finally {
+            escritor.shutdownNow();
+        }
+    }
+}
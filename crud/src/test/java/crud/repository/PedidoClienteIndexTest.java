@@ -0,0 +1,87 @@
+package crud.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoClienteIndexTest {
+    private PedidoClienteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PedidoClienteIndex();
+        index.atualizar(3L, "Maria");
+        index.atualizar(1L, "Maria");
+        index.atualizar(2L, "João");
+    }
+
+    @Test
+    void testBuscaRetornaIdsEmOrdemCrescente() {
+        assertArrayEquals(new long[]{1L, 3L}, index.buscar("Maria"));
+    }
+
+    @Test
+    void testBuscaIgnoraMaiusculasAcentosEEspacos() {
+        assertArrayEquals(new long[]{2L}, index.buscar("  JOAO "));
+        assertArrayEquals(new long[]{1L, 3L}, index.buscar("maria"));
+    }
+
+    @Test
+    void testAtualizarMoveParaNovoCliente() {
+        index.atualizar(3L, "João");
+
+        assertArrayEquals(new long[]{1L}, index.buscar("Maria"));
+        assertArrayEquals(new long[]{2L, 3L}, index.buscar("João"));
+    }
+
+    @Test
+    void testAtualizarComMesmoClienteNaoDuplica() {
+        index.atualizar(1L, "MARIA");
+        assertArrayEquals(new long[]{1L, 3L}, index.buscar("Maria"));
+    }
+
+    @Test
+    void testClienteNuloRemoveDoIndice() {
+        index.atualizar(2L, null);
+        assertEquals(0, index.buscar("João").length);
+        assertEquals(0, index.buscar(null).length);
+    }
+
+    @Test
+    void testRemoverELimpar() {
+        index.remover(1L);
+        index.remover(99L);
+        assertArrayEquals(new long[]{3L}, index.buscar("Maria"));
+
+        index.remover(3L);
+        assertEquals(0, index.buscar("Maria").length);
+
+        index.limpar();
+        assertEquals(0, index.buscar("João").length);
+    }
+
+    @Test
+    void testHistoricoLongoComAcrescimosInsercoesNoMeioERemocoes() {
+        for (long id = 10; id <= 1000; id++) {
+            index.atualizar(id, "Ana");
+        }
+        index.atualizar(5L, "Ana");
+        index.remover(1000L);
+        index.atualizar(1001L, "Ana");
+        index.remover(500L);
+
+        long[] ids = index.buscar("Ana");
+        assertEquals(991, ids.length);
+        assertEquals(5L, ids[0]);
+        assertEquals(10L, ids[1]);
+        assertEquals(999L, ids[ids.length - 2]);
+        assertEquals(1001L, ids[ids.length - 1]);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+        assertFalse(Arrays.stream(ids).anyMatch(id -> id == 500L || id == 1000L));
+    }
+}
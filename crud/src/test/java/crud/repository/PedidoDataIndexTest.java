@@ -0,0 +1,62 @@
+package crud.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoDataIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    private PedidoDataIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PedidoDataIndex();
+        index.atualizar(1L, BASE.plusHours(2));
+        index.atualizar(2L, BASE);
+        index.atualizar(3L, BASE.plusHours(1));
+        index.atualizar(4L, BASE);
+    }
+
+    @Test
+    void testBuscarEntreOrdenaPorDataEDesempataPorId() {
+        assertArrayEquals(new long[]{2L, 4L, 3L, 1L},
+                index.buscarEntre(LocalDateTime.MIN, LocalDateTime.MAX));
+    }
+
+    @Test
+    void testBuscarEntreLimitesInclusivosComNanos() {
+        assertArrayEquals(new long[]{2L, 4L, 3L}, index.buscarEntre(BASE, BASE.plusHours(1)));
+        assertArrayEquals(new long[]{3L}, index.buscarEntre(BASE.plusNanos(1), BASE.plusHours(2).minusNanos(1)));
+        assertEquals(0, index.buscarEntre(BASE.plusHours(3), BASE.plusHours(4)).length);
+        assertEquals(0, index.buscarEntre(BASE.plusHours(1), BASE).length);
+    }
+
+    @Test
+    void testAtualizarMoveDeData() {
+        index.atualizar(2L, BASE.plusDays(1));
+        index.atualizar(4L, BASE);
+
+        assertArrayEquals(new long[]{4L}, index.buscarEntre(BASE, BASE));
+        assertArrayEquals(new long[]{2L}, index.buscarEntre(BASE.plusDays(1), LocalDateTime.MAX));
+    }
+
+    @Test
+    void testDataNulaRemoveDoIndice() {
+        index.atualizar(1L, null);
+        assertArrayEquals(new long[]{2L, 4L, 3L}, index.buscarEntre(LocalDateTime.MIN, LocalDateTime.MAX));
+    }
+
+    @Test
+    void testRemoverELimpar() {
+        index.remover(3L);
+        index.remover(99L);
+        assertArrayEquals(new long[]{2L, 4L, 1L}, index.buscarEntre(LocalDateTime.MIN, LocalDateTime.MAX));
+
+        index.limpar();
+        assertEquals(0, index.buscarEntre(LocalDateTime.MIN, LocalDateTime.MAX).length);
+    }
+}
@@ -6,8 +6,15 @@ import crud.model.Produto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -161,5 +168,269 @@ class PedidoRepositoryTest {
 
         assertEquals(1L, salvo.getId());
     }
-}
 
+    @Test
+    void testFindAllMantemOrdemDeInsercao() {
+        Pedido predefinido = new Pedido("Predefinido");
+        predefinido.setId(100L);
+        repository.save(predefinido);
+        Pedido a = repository.save(new Pedido("A"));
+        Pedido b = repository.save(new Pedido("B"));
+
+        assertEquals(List.of(100L, a.getId(), b.getId()),
+                repository.findAll().stream().map(Pedido::getId).toList());
+    }
+
+    @Test
+    void testSaveConcorrenteNaoPerdePedidos() throws Exception {
+        int threads = 8;
+        int porThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < porThread; i++) {
+                        Pedido pedido = new Pedido("Cliente");
+                        pedido.adicionarItem(new ItemPedido(produto, 1));
+                        repository.save(pedido);
+                        if (i % 100 == 0) {
+                            repository.findAll();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Pedido> pedidos = repository.findAll();
+        assertEquals(threads * porThread, pedidos.size());
+        assertEquals(threads * porThread, pedidos.stream().map(Pedido::getId).distinct().count());
+        assertEquals(threads * porThread, repository.findByCliente("Cliente").size());
+    }
+
+    @Test
+    void testStreamAllEmOrdemDeIdSemCopiarELeveEscritasConcorrentes() {
+        for (int i = 0; i < 1000; i++) {
+            repository.save(new Pedido("Cliente " + i));
+        }
+
+        assertEquals(1000, repository.streamAll().count());
+        assertEquals(1000, repository.streamAll().parallel().map(Pedido::getId).distinct().count());
+
+        var iterador = repository.streamAll().iterator();
+        assertEquals(1L, iterador.next().getId());
+        repository.delete(2L);
+        assertEquals(3L, iterador.next().getId());
+    }
+
+    @Test
+    void testFindPaginaPercorreTodosPorCursor() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Pedido("Cliente " + i));
+        }
+        repository.delete(3L);
+
+        Pagina<Pedido, Long> primeira = repository.findPagina(null, 2);
+        assertEquals(List.of(1L, 2L), primeira.getItens().stream().map(Pedido::getId).toList());
+        assertEquals(2L, primeira.getProximoCursor());
+
+        Pagina<Pedido, Long> segunda = repository.findPagina(primeira.getProximoCursor(), 2);
+        assertEquals(List.of(4L, 5L), segunda.getItens().stream().map(Pedido::getId).toList());
+        assertNull(segunda.getProximoCursor());
+
+        repository.deleteAll();
+        assertTrue(repository.findPagina(null, 10).getItens().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repository.findPagina(null, 0));
+    }
+
+    @Test
+    void testFindByCliente() {
+        Pedido a = repository.save(new Pedido("João Silva"));
+        repository.save(new Pedido("Maria"));
+        Pedido c = repository.save(new Pedido("joao silva "));
+
+        assertEquals(List.of(a.getId(), c.getId()),
+                repository.findByCliente("JOAO SILVA").stream().map(Pedido::getId).toList());
+        assertTrue(repository.findByCliente("Pedro").isEmpty());
+        assertTrue(repository.findByCliente(null).isEmpty());
+    }
+
+    @Test
+    void testFindByClienteAcompanhaMudancaDeClienteNoMesmoObjeto() {
+        Pedido pedido = repository.save(new Pedido("Maria"));
+
+        // O service altera o pedido armazenado antes de salvá-lo de novo
+        pedido.setCliente("Ana");
+        repository.save(pedido);
+
+        assertTrue(repository.findByCliente("Maria").isEmpty());
+        assertEquals(List.of(pedido), repository.findByCliente("Ana"));
+    }
+
+    @Test
+    void testFindByClienteAposDeleteEDeleteAll() {
+        Pedido a = repository.save(new Pedido("Maria"));
+        Pedido b = repository.save(new Pedido("Maria"));
+
+        repository.delete(a.getId());
+        assertEquals(List.of(b), repository.findByCliente("Maria"));
+
+        repository.deleteAll();
+        assertTrue(repository.findByCliente("Maria").isEmpty());
+    }
+
+    @Test
+    void testFindByDataCriacaoBetween() {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 10, 12, 0);
+        Pedido tarde = criarEm("Tarde", base.plusHours(6));
+        Pedido manha = criarEm("Manhã", base.minusHours(3));
+        Pedido meioDia = criarEm("Meio-dia", base);
+
+        assertEquals(List.of(manha, meioDia, tarde),
+                repository.findByDataCriacaoBetween(base.minusDays(1), base.plusDays(1)));
+        // Limites inclusivos
+        assertEquals(List.of(meioDia), repository.findByDataCriacaoBetween(base, base));
+        assertEquals(List.of(meioDia, tarde), repository.findByDataCriacaoBetween(base, null));
+        assertEquals(List.of(manha), repository.findByDataCriacaoBetween(null, base.minusNanos(1)));
+    }
+
+    @Test
+    void testFindByDataCriacaoAcompanhaAlteracoes() {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 10, 12, 0);
+        Pedido pedido = criarEm("Maria", base);
+
+        pedido.setDataCriacao(base.plusDays(5));
+        repository.save(pedido);
+        assertTrue(repository.findByDataCriacaoBetween(base, base.plusDays(1)).isEmpty());
+        assertEquals(List.of(pedido), repository.findByDataCriacaoBetween(base.plusDays(5), null));
+
+        repository.delete(pedido.getId());
+        assertTrue(repository.findByDataCriacaoBetween(null, null).isEmpty());
+    }
+
+    private Pedido criarEm(String cliente, LocalDateTime data) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.setDataCriacao(data);
+        return repository.save(pedido);
+    }
+
+    @Test
+    void testSaveAllEDeleteAllByIdAtualizamIndices() {
+        Pedido existente = new Pedido("Ana");
+        existente.adicionarItem(new ItemPedido(produto, 1));
+        repository.save(existente);
+
+        Pedido novo = new Pedido("Bruno");
+        novo.adicionarItem(new ItemPedido(produto, 2));
+        Pedido renomeado = new Pedido("Carla");
+        renomeado.setId(existente.getId());
+        renomeado.adicionarItem(new ItemPedido(produto, 3));
+
+        List<Pedido> salvos = repository.saveAll(List.of(novo, renomeado));
+
+        assertEquals(List.of(2L, 1L), salvos.stream().map(Pedido::getId).toList());
+        assertTrue(repository.findByCliente("Ana").isEmpty());
+        assertEquals(List.of(1L), repository.findByCliente("Carla").stream().map(Pedido::getId).toList());
+        assertEquals(2, repository.findAll().size());
+
+        assertEquals(List.of(2L), repository.deleteAllById(Arrays.asList(2L, 50L, null)));
+        assertTrue(repository.findByCliente("Bruno").isEmpty());
+        assertEquals(List.of(1L), repository.findPagina(null, 10).getItens().stream().map(Pedido::getId).toList());
+    }
+
+    @Test
+    void testSaveAllConcorrenteComSaveNaoRepeteIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<Pedido>>> futuros = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futuros.add(executor.submit(() -> {
+                List<Pedido> lote = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    Pedido pedido = new Pedido("Lote");
+                    pedido.adicionarItem(new ItemPedido(produto, 1));
+                    lote.add(pedido);
+                }
+                repository.save(lote.get(0));
+                return repository.saveAll(lote.subList(1, lote.size()));
+            }));
+        }
+        for (Future<List<Pedido>> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+
+        assertEquals(400, repository.findAll().size());
+        assertEquals(400, repository.findByCliente("Lote").size());
+        long maiorId = repository.findAll().stream().mapToLong(Pedido::getId).max().orElseThrow();
+        assertEquals(400, repository.findAll().stream().map(Pedido::getId).distinct().count());
+        assertTrue(repository.proximoId() > maiorId);
+    }
+
+    @Test
+    void testTruncamentoPorGeracaoPublicaRepositorioVazio() {
+        StripedLongHashMap<Pedido> original = new StripedLongHashMap<>();
+        repository = new PedidoRepository(original, 1, StripedLongHashMap::new);
+        criarEm("Ana", LocalDateTime.of(2024, 1, 1, 10, 0));
+        criarEm("Bruno", LocalDateTime.of(2024, 1, 2, 10, 0));
+        List<Pedido> lidosAntes = repository.findAll();
+
+        repository.deleteAll();
+
+        assertEquals(2, lidosAntes.size());
+        assertEquals(2, original.size(), "a geração antiga não é limpa item a item");
+        assertTrue(repository.findAll().isEmpty());
+        assertTrue(repository.findByCliente("Ana").isEmpty());
+        assertTrue(repository.findByDataCriacaoBetween(null, null).isEmpty());
+        assertEquals(1L, criarEm("Carla", LocalDateTime.of(2024, 1, 3, 10, 0)).getId());
+        assertEquals(List.of(1L), repository.findByCliente("carla").stream().map(Pedido::getId).toList());
+        assertEquals(List.of(1L), repository.findPagina(null, 10).getItens().stream().map(Pedido::getId).toList());
+    }
+
+    @Test
+    void testDeleteAllConcorrenteNaoDeixaIdsDaGeracaoAnterior() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        AtomicBoolean parar = new AtomicBoolean();
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            boolean emLote = t % 2 == 0;
+            futuros.add(executor.submit(() -> {
+                while (!parar.get()) {
+                    Pedido pedido = new Pedido("Carga");
+                    pedido.adicionarItem(new ItemPedido(produto, 1));
+                    if (emLote) {
+                        repository.saveAll(List.of(pedido));
+                    } else {
+                        repository.save(pedido);
+                    }
+                }
+            }));
+        }
+        futuros.add(executor.submit(() -> {
+            for (int i = 0; i < 300; i++) {
+                repository.deleteAll();
+            }
+            parar.set(true);
+        }));
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+
+        // Um ID tirado antes de um deleteAll e gravado depois ficaria acima da marca
+        // e seria sobrescrito quando a sequência nova o alcançasse
+        long proximoId = repository.proximoId();
+        assertTrue(repository.findAll().stream().allMatch(pedido -> pedido.getId() < proximoId));
+        int antes = repository.findAll().size();
+        for (int i = 0; i < 100; i++) {
+            Pedido pedido = new Pedido("Depois");
+            pedido.adicionarItem(new ItemPedido(produto, 1));
+            repository.save(pedido);
+        }
+        assertEquals(antes + 100, repository.findAll().size());
+    }
+}
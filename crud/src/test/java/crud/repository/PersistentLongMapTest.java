@@ -0,0 +1,88 @@
+package crud.repository;
+
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.constraints.LongRange;
+import net.jqwik.api.constraints.Size;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentLongMapTest {
+
+    @Test
+    void testVersoesAntigasNaoMudam() {
+        PersistentLongMap<String> v0 = PersistentLongMap.vazio();
+        PersistentLongMap<String> v1 = v0.com(1L, "a").com(2L, "b");
+        PersistentLongMap<String> v2 = v1.com(1L, "a2").sem(2L).com(3L, "c");
+
+        assertNull(v0.get(1L));
+        assertEquals(0, v0.size());
+        assertEquals("a", v1.get(1L));
+        assertEquals("b", v1.get(2L));
+        assertEquals(2, v1.size());
+        assertEquals("a2", v2.get(1L));
+        assertNull(v2.get(2L));
+        assertEquals(List.of("a2", "c"), v2.values());
+        assertSame(v2, v2.sem(99L));
+    }
+
+    @Test
+    void testChavesExtremasENegativas() {
+        PersistentLongMap<String> mapa = PersistentLongMap.<String>vazio()
+                .com(Long.MIN_VALUE, "min").com(Long.MAX_VALUE, "max").com(0L, "zero").com(-1L, "menos um");
+
+        assertEquals("min", mapa.get(Long.MIN_VALUE));
+        assertEquals("max", mapa.get(Long.MAX_VALUE));
+        assertEquals("zero", mapa.get(0L));
+        assertEquals("menos um", mapa.get(-1L));
+        assertThrows(NullPointerException.class, () -> mapa.com(1L, null));
+    }
+
+    @Test
+    void testMuitasChavesEmOrdemDeInsercao() {
+        PersistentLongMap<Long> mapa = PersistentLongMap.vazio();
+        for (long id = 100_000; id > 0; id--) {
+            mapa = mapa.com(id, id);
+        }
+        for (long id = 1; id <= 100_000; id += 2) {
+            mapa = mapa.sem(id);
+        }
+
+        assertEquals(50_000, mapa.size());
+        List<Long> chaves = new ArrayList<>();
+        mapa.forEach((chave, valor) -> chaves.add(chave));
+        assertEquals(100_000L, chaves.get(0));
+        assertEquals(2L, chaves.get(49_999));
+        assertNull(mapa.get(3L));
+        assertEquals(4L, mapa.get(4L));
+    }
+
+    @Property(tries = 100)
+    void testEquivaleAUmMapaComOrdemDeInsercao(
+            @ForAll @Size(max = 500) List<@LongRange(min = -300, max = 300) Long> operacoes) {
+        PersistentLongMap<Long> testado = PersistentLongMap.vazio();
+        Map<Long, Long> esperado = new LinkedHashMap<>();
+        for (long valor : operacoes) {
+            // Pares gravam a chave valor/2; ímpares removem a chave (valor-1)/2
+            if (valor % 2 == 0) {
+                testado = testado.com(valor / 2, valor);
+                esperado.put(valor / 2, valor);
+            } else {
+                testado = testado.sem((valor - 1) / 2);
+                esperado.remove((valor - 1) / 2);
+            }
+        }
+
+        assertEquals(esperado.size(), testado.size());
+        assertEquals(new ArrayList<>(esperado.values()), testado.values());
+        for (long chave = -160; chave <= 160; chave++) {
+            assertEquals(esperado.get(chave), testado.get(chave));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package crud.repository;
+
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProdutoInternerTest {
+    private final ProdutoInterner interner = new ProdutoInterner();
+
+    @Test
+    void testMesmaVersaoDevolveAMesmaInstancia() {
+        Produto primeiro = new Produto(1L, "Teclado", 100.0, 5);
+        assertSame(primeiro, interner.internar(primeiro));
+        assertSame(primeiro, interner.internar(new Produto(1L, "Teclado", 100.0, 5)));
+
+        // Mesmo ID com outro preço é outra versão: o preço da compra se mantém
+        Produto reajustado = new Produto(1L, "Teclado", 120.0, 5);
+        assertSame(reajustado, interner.internar(reajustado));
+        assertSame(reajustado, interner.internar(new Produto(1L, "Teclado", 120.0, 5)));
+        assertSame(primeiro, interner.internar(new Produto(1L, "Teclado", 100.0, 5)));
+
+        Produto semCampos = new Produto(2L, null, null, null);
+        assertSame(semCampos, interner.internar(semCampos));
+        assertSame(semCampos, interner.internar(new Produto(2L, null, null, null)));
+        assertNull(interner.internar(null));
+        assertEquals(3, interner.tamanho());
+        // As referências do interner são fracas: as versões precisam continuar vivas até aqui
+        Reference.reachabilityFence(primeiro);
+        Reference.reachabilityFence(reajustado);
+    }
+
+    @Test
+    void testRepositorioCompartilhaProdutosEntrePedidos() {
+        PedidoRepository repository = new PedidoRepository();
+        Pedido ana = new Pedido("Ana");
+        ana.adicionarItem(new ItemPedido(new Produto(1L, "Teclado", 100.0, 5), 2));
+        Pedido bruno = new Pedido("Bruno");
+        bruno.adicionarItem(new ItemPedido(new Produto(1L, "Teclado", 100.0, 5), 3));
+        bruno.adicionarItem(new ItemPedido(new Produto(1L, "Teclado", 90.0, 5), 1));
+
+        repository.save(ana);
+        repository.saveAll(List.of(bruno));
+
+        Produto deAna = repository.findById(ana.getId()).orElseThrow().item(0).getProduto();
+        Pedido salvo = repository.findById(bruno.getId()).orElseThrow();
+        assertSame(deAna, salvo.item(0).getProduto());
+        assertNotSame(deAna, salvo.item(1).getProduto());
+        assertEquals(3, salvo.item(0).quantidade());
+        assertEquals(390.0, salvo.getTotal());
+    }
+
+    @Test
+    void testSalvarNaoTrocaOsProdutosDeQuemChamou() {
+        PedidoRepository repository = new PedidoRepository();
+        Pedido ana = new Pedido("Ana");
+        ana.adicionarItem(new ItemPedido(new Produto(1L, "Teclado", 100.0, 5), 1));
+        repository.save(ana);
+
+        Produto deBruno = new Produto(1L, "Teclado", 100.0, 5);
+        Pedido bruno = new Pedido("Bruno");
+        bruno.adicionarItem(new ItemPedido(deBruno, 2));
+        Pedido gravado = repository.save(bruno);
+
+        assertSame(deBruno, bruno.produtoDoItem(0));
+        assertNotSame(bruno, gravado);
+        assertEquals(bruno.getId(), gravado.getId());
+        assertSame(gravado, repository.findById(bruno.getId()).orElseThrow());
+        assertSame(ana.produtoDoItem(0), gravado.produtoDoItem(0));
+
+        List<Pedido> lote = repository.saveAll(List.of(bruno));
+        assertSame(deBruno, bruno.produtoDoItem(0));
+        assertSame(ana.produtoDoItem(0), lote.get(0).produtoDoItem(0));
+    }
+}
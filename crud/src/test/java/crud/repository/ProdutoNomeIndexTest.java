@@ -0,0 +1,92 @@
+package crud.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProdutoNomeIndexTest {
+    private ProdutoNomeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProdutoNomeIndex();
+        index.indexar(1L, "Notebook Dell");
+        index.indexar(2L, "Mochila para notebook");
+        index.indexar(3L, "Cabo HDMI");
+        index.indexar(4L, "Pão de Açúcar");
+    }
+
+    @Test
+    void testBuscaPorPrefixoVemAntesDeSubstring() {
+        assertArrayEquals(new long[]{1L, 2L}, index.buscar("note"));
+    }
+
+    @Test
+    void testBuscaIgnoraMaiusculasEAcentos() {
+        assertArrayEquals(new long[]{4L}, index.buscar("ACUCAR"));
+        assertArrayEquals(new long[]{4L}, index.buscar("pão"));
+    }
+
+    @Test
+    void testBuscaPorSubstringNoMeioDoNome() {
+        assertArrayEquals(new long[]{3L}, index.buscar("hdm"));
+        assertArrayEquals(new long[]{1L}, index.buscar("book dell"));
+    }
+
+    @Test
+    void testTrigramasPresentesForaDeOrdemNaoCasam() {
+        // "boo" e "ook" existem, mas não formam "ookboo" em nenhum nome
+        assertEquals(0, index.buscar("ookboo").length);
+    }
+
+    @Test
+    void testTermoCurtoPercorreTodosOsNomes() {
+        assertArrayEquals(new long[]{3L, 2L, 4L}, index.buscar("c"));
+        assertArrayEquals(new long[]{3L, 4L}, index.buscar("ca"));
+    }
+
+    @Test
+    void testLimiteGuardaOsPrimeirosDaOrdem() {
+        for (long id = 200L; id >= 10L; id--) {
+            index.indexar(id, "Caneta");
+        }
+
+        assertArrayEquals(new long[]{3L, 10L, 11L}, index.buscar("ca", 3));
+        assertArrayEquals(new long[]{3L, 10L}, index.buscar("c", 2));
+        assertEquals(194, index.buscar("c", 500).length);
+        assertArrayEquals(new long[]{1L}, index.buscar("note", 1));
+        assertArrayEquals(new long[]{1L, 2L}, index.buscar("note", 5));
+        assertEquals(0, index.buscar("ca", 0).length);
+    }
+
+    @Test
+    void testTermoVazioOuNulo() {
+        assertEquals(0, index.buscar(null).length);
+        assertEquals(0, index.buscar("   ").length);
+    }
+
+    @Test
+    void testReindexarSubstituiNomeAnterior() {
+        index.indexar(3L, "Cabo USB");
+
+        assertEquals(0, index.buscar("hdmi").length);
+        assertArrayEquals(new long[]{3L}, index.buscar("usb"));
+    }
+
+    @Test
+    void testIndexarNomeNuloRemove() {
+        index.indexar(3L, null);
+        assertEquals(0, index.buscar("cabo").length);
+    }
+
+    @Test
+    void testRemoverELimpar() {
+        index.remover(1L);
+        index.remover(99L);
+        assertArrayEquals(new long[]{2L}, index.buscar("notebook"));
+
+        index.limpar();
+        assertEquals(0, index.buscar("notebook").length);
+    }
+}
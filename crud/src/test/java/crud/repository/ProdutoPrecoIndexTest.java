@@ -0,0 +1,69 @@
+package crud.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProdutoPrecoIndexTest {
+    private ProdutoPrecoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProdutoPrecoIndex();
+        index.atualizar(1L, null, 50.0);
+        index.atualizar(2L, null, 10.0);
+        index.atualizar(3L, null, 30.0);
+        index.atualizar(4L, null, 10.0);
+    }
+
+    @Test
+    void testBuscarEntreLimitesInclusivos() {
+        assertArrayEquals(new long[]{2L, 4L, 3L}, index.buscarEntre(10.0, 30.0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testBuscarEntreRespeitaLimiteDeResultados() {
+        assertArrayEquals(new long[]{2L, 4L}, index.buscarEntre(0.0, 100.0, 2));
+    }
+
+    @Test
+    void testBuscarEntreFaixaInvalidaOuVazia() {
+        assertEquals(0, index.buscarEntre(40.0, 20.0, 10).length);
+        assertEquals(0, index.buscarEntre(60.0, 70.0, 10).length);
+        assertEquals(0, index.buscarEntre(0.0, 100.0, 0).length);
+    }
+
+    @Test
+    void testMaisBaratos() {
+        assertArrayEquals(new long[]{2L, 4L, 3L}, index.maisBaratos(3));
+        assertArrayEquals(new long[]{2L, 4L, 3L, 1L}, index.maisBaratos(100));
+    }
+
+    @Test
+    void testAtualizarMoveProdutoDePosicao() {
+        index.atualizar(1L, 50.0, 5.0);
+        assertArrayEquals(new long[]{1L, 2L}, index.maisBaratos(2));
+
+        // Mesmo preço não altera nada
+        index.atualizar(1L, 5.0, 5.0);
+        assertEquals(4, index.maisBaratos(10).length);
+    }
+
+    @Test
+    void testPrecoNuloNaoEIndexado() {
+        index.atualizar(3L, 30.0, null);
+        index.atualizar(5L, null, null);
+        assertArrayEquals(new long[]{2L, 4L, 1L}, index.maisBaratos(10));
+    }
+
+    @Test
+    void testRemoverELimpar() {
+        index.remover(2L, 10.0);
+        index.remover(9L, null);
+        assertArrayEquals(new long[]{4L}, index.maisBaratos(1));
+
+        index.limpar();
+        assertEquals(0, index.maisBaratos(10).length);
+    }
+}
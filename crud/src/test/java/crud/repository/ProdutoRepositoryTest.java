@@ -7,8 +7,16 @@ import net.jqwik.api.constraints.IntRange;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 class ProdutoRepositoryTest {
 
@@ -101,6 +109,163 @@ class ProdutoRepositoryTest {
         assertEquals(1L, p.getId());
     }
 
+    @Test
+    void testFindAllMantemOrdemDeInsercao() {
+        repository.save(new Produto(100L, "Predefinido", 5.0, 1));
+        Produto a = repository.save(new Produto("A", 1.0, 1));
+        Produto b = repository.save(new Produto("B", 2.0, 2));
+
+        // Atualizar não move o produto para o fim da lista
+        repository.save(new Produto(a.getId(), "A2", 1.5, 1));
+
+        List<Produto> produtos = repository.findAll();
+        assertEquals(List.of(100L, a.getId(), b.getId()),
+                produtos.stream().map(Produto::getId).toList());
+        assertEquals("A2", produtos.get(1).getNome());
+    }
+
+    @Test
+    void testDeleteNaoAlteraOrdemDosDemais() {
+        Produto a = repository.save(new Produto("A", 1.0, 1));
+        Produto b = repository.save(new Produto("B", 2.0, 2));
+        Produto c = repository.save(new Produto("C", 3.0, 3));
+
+        repository.delete(b.getId());
+
+        assertEquals(List.of(a.getId(), c.getId()),
+                repository.findAll().stream().map(Produto::getId).toList());
+    }
+
+    @Test
+    void testFindByIdNulo() {
+        repository.save(new Produto("A", 10.0, 1));
+        assertFalse(repository.findById(null).isPresent());
+    }
+
+    @Test
+    void testSaveConcorrenteGeraIdsUnicos() throws Exception {
+        int threads = 8;
+        int porThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < porThread; i++) {
+                        Produto salvo = repository.save(new Produto("P", 1.0, 1));
+                        assertTrue(repository.findById(salvo.getId()).isPresent());
+                        repository.findAll();
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Produto> produtos = repository.findAll();
+        assertEquals(threads * porThread, produtos.size());
+        assertEquals(threads * porThread, produtos.stream().map(Produto::getId).distinct().count());
+    }
+
+    @Test
+    void testFindByNomeAcompanhaAtualizacoesERemocoes() {
+        Produto p = repository.save(new Produto("Cadeira Gamer", 900.0, 2));
+        assertEquals(List.of(p), repository.findByNome("gamer"));
+
+        repository.save(new Produto(p.getId(), "Cadeira de Escritório", 500.0, 2));
+        assertTrue(repository.findByNome("gamer").isEmpty());
+        assertEquals("Cadeira de Escritório", repository.findByNome("escritorio").get(0).getNome());
+
+        repository.delete(p.getId());
+        assertTrue(repository.findByNome("cadeira").isEmpty());
+    }
+
+    @Test
+    void testFindByNomeAposDeleteAll() {
+        repository.save(new Produto("Monitor", 700.0, 1));
+        repository.deleteAll();
+        assertTrue(repository.findByNome("monitor").isEmpty());
+    }
+
+    @Test
+    void testFindByPrecoBetweenAcompanhaComPreco() {
+        Produto barato = repository.save(new Produto("Barato", 5.0, 1));
+        Produto medio = repository.save(new Produto("Médio", 50.0, 1));
+        repository.save(new Produto("Caro", 500.0, 1));
+
+        assertEquals(List.of(barato, medio), repository.findByPrecoBetween(1.0, 100.0));
+
+        // Atualização via comPreco passa pelo save e reposiciona o produto no índice
+        repository.save(medio.comPreco(1000.0));
+        assertEquals(List.of(barato), repository.findByPrecoBetween(1.0, 100.0));
+        assertEquals(1000.0, repository.findMaisBaratos(3).get(2).getPreco());
+    }
+
+    @Test
+    void testFindMaisBaratosIgnoraRemovidos() {
+        Produto a = repository.save(new Produto("A", 3.0, 1));
+        Produto b = repository.save(new Produto("B", 1.0, 1));
+        Produto c = repository.save(new Produto("C", 2.0, 1));
+
+        assertEquals(List.of(b, c), repository.findMaisBaratos(2));
+
+        repository.delete(b.getId());
+        assertEquals(List.of(c, a), repository.findMaisBaratos(2));
+
+        repository.deleteAll();
+        assertTrue(repository.findMaisBaratos(2).isEmpty());
+    }
+
+    @Test
+    void testStreamAllEmOrdemDeIdSemCopiarELeveEscritasConcorrentes() {
+        for (int i = 0; i < 1000; i++) {
+            repository.save(new Produto("P" + i, 1.0 + i, 1));
+        }
+
+        assertEquals(1000, repository.streamAll().count());
+        assertEquals(1000, repository.streamAll().parallel().map(Produto::getId).distinct().count());
+
+        var iterador = repository.streamAll().iterator();
+        assertEquals(1L, iterador.next().getId());
+        repository.delete(2L);
+        assertEquals(3L, iterador.next().getId());
+    }
+
+    @Test
+    void testFindPaginaEmOrdemDeIdComProdutosSalvosForaDeOrdem() {
+        repository.save(new Produto(10L, "Dez", 10.0, 1));
+        repository.save(new Produto("Um", 1.0, 1));
+        repository.save(new Produto(5L, "Cinco", 5.0, 1));
+        // Atualizar não duplica o ID no índice
+        repository.save(new Produto(5L, "Cinco novo", 5.0, 1));
+
+        Pagina<Produto, Long> primeira = repository.findPagina(null, 2);
+        assertEquals(List.of(1L, 5L), primeira.getItens().stream().map(Produto::getId).toList());
+        assertEquals("Cinco novo", primeira.getItens().get(1).getNome());
+        assertEquals(5L, primeira.getProximoCursor());
+
+        Pagina<Produto, Long> ultima = repository.findPagina(5L, 2);
+        assertEquals(List.of(10L), ultima.getItens().stream().map(Produto::getId).toList());
+        assertNull(ultima.getProximoCursor());
+
+        repository.delete(10L);
+        assertNull(repository.findPagina(null, 2).getProximoCursor());
+    }
+
+    @Test
+    void testValorTotalEHistogramaSemAgregadosDoArmazenamento() {
+        repository.save(new Produto("A", 10.0, 2));
+        repository.save(new Produto("B", 25.0, 1));
+        repository.save(new Produto("C", 100.0, 0));
+        repository.save(new Produto("D", null, 5));
+
+        assertEquals(45.0, repository.valorTotalEmEstoque(), 1e-9);
+        assertArrayEquals(new long[]{1, 1, 1}, repository.histogramaDePrecos(20.0, 100.0));
+    }
+
     @Property(tries = 100)
     void testPersistenciaPropriedades(
             @ForAll("nomes") String nome,
@@ -124,4 +289,58 @@ class ProdutoRepositoryTest {
                 .ofMinLength(3)
                 .ofMaxLength(20);
     }
+
+    @Test
+    void testSaveAllReservaIdsEmSequenciaEIndexa() {
+        repository.save(new Produto("Existente", 5.0, 1));
+
+        List<Produto> salvos = repository.saveAll(List.of(
+                new Produto("Teclado", 100.0, 1),
+                new Produto(1L, "Existente novo", 50.0, 2),
+                new Produto("Mouse", 30.0, 3)));
+
+        assertEquals(List.of(2L, 1L, 3L), salvos.stream().map(Produto::getId).toList());
+        assertEquals(3, repository.findAll().size());
+        assertEquals("Existente novo", repository.findById(1L).get().getNome());
+        assertEquals(List.of(3L, 1L), repository.findByPrecoBetween(20.0, 60.0).stream().map(Produto::getId).toList());
+        assertEquals(4L, repository.save(new Produto("Monitor", 900.0, 1)).getId());
+    }
+
+    @Test
+    void testDeleteAllByIdRetornaSoOsRemovidos() {
+        repository.saveAll(List.of(new Produto("A", 1.0, 1), new Produto("B", 2.0, 1), new Produto("C", 3.0, 1)));
+
+        assertEquals(List.of(3L, 1L), repository.deleteAllById(Arrays.asList(3L, 99L, null, 1L, 3L)));
+        assertEquals(List.of(2L), repository.findAll().stream().map(Produto::getId).toList());
+        assertTrue(repository.findByNome("a").isEmpty());
+        assertEquals(List.of(2L), repository.findPagina(null, 10).getItens().stream().map(Produto::getId).toList());
+    }
+
+    @Test
+    void testTruncamentoPorGeracaoDeixaLeituraEmAndamentoNaGeracaoAntiga() {
+        ConcurrentLongHashMap<Produto> original = new ConcurrentLongHashMap<>();
+        repository = new ProdutoRepository(original, 1, ConcurrentLongHashMap::new);
+        for (int i = 0; i < 10; i++) {
+            repository.save(new Produto("Item " + i, 10.0 + i, 1));
+        }
+
+        Iterator<Produto> emAndamento;
+        try (Stream<Produto> todos = repository.streamAll()) {
+            emAndamento = todos.iterator();
+            assertEquals(1L, emAndamento.next().getId());
+            repository.deleteAll();
+            List<Long> restantes = new ArrayList<>();
+            emAndamento.forEachRemaining(produto -> restantes.add(produto.getId()));
+            assertEquals(LongStream.rangeClosed(2, 10).boxed().toList(), restantes);
+        }
+
+        assertEquals(10, original.size(), "a geração antiga não é limpa item a item");
+        assertTrue(repository.findAll().isEmpty());
+        assertTrue(repository.findByNome("item").isEmpty());
+        assertTrue(repository.findMaisBaratos(5).isEmpty());
+        assertNull(repository.findPagina(null, 5).getProximoCursor());
+        assertEquals(1L, repository.save(new Produto("Novo", 1.0, 1)).getId());
+        assertEquals(List.of("Novo"), repository.findByNome("novo").stream().map(Produto::getNome).toList());
+        assertEquals(10, original.size());
+    }
 }
\ No newline at end of file
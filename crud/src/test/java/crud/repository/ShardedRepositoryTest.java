@@ -0,0 +1,192 @@
+package crud.repository;
+
+import crud.model.ItemPedido;
+import crud.model.Pedido;
+import crud.model.Produto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedRepositoryTest {
+    private final ShardedProdutoRepository repository = new ShardedProdutoRepository(4);
+
+    private static Pedido pedido(String cliente) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.adicionarItem(new ItemPedido(new Produto(1L, "Produto", 10.0, 1), 1));
+        return pedido;
+    }
+
+    @Test
+    void testIdsSequenciaisEspalhadosPelasFatias() {
+        for (int i = 0; i < 100; i++) {
+            repository.save(new Produto("P" + i, 1.0 + i, 1));
+        }
+
+        assertEquals(LongStream.rangeClosed(1, 100).boxed().toList(),
+                repository.findAll().stream().map(Produto::getId).toList());
+        for (ProdutoRepository fatia : repository.fatias()) {
+            assertTrue(fatia.findAll().size() > 10, "fatia com poucos produtos: " + fatia.findAll().size());
+            fatia.findAll().forEach(produto -> assertSame(fatia, repository.fatiaDe(produto.getId())));
+        }
+        assertEquals("P41", repository.findById(42L).get().getNome());
+        assertTrue(repository.findById(500L).isEmpty());
+        assertEquals(101L, repository.proximoId());
+    }
+
+    @Test
+    void testPaginasEStreamIntercalamAsFatiasPorId() {
+        repository.saveAll(Stream.generate(() -> new Produto("P", 1.0, 1)).limit(25).toList());
+        repository.save(new Produto(3L, "Atualizado", 2.0, 1));
+        repository.deleteAllById(Arrays.asList(5L, 6L, 99L, null));
+
+        List<Long> paginados = new ArrayList<>();
+        Long cursor = null;
+        do {
+            Pagina<Produto, Long> pagina = repository.findPagina(cursor, 4);
+            assertTrue(pagina.getItens().size() <= 4);
+            pagina.getItens().forEach(produto -> paginados.add(produto.getId()));
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+
+        List<Long> esperados = LongStream.rangeClosed(1, 25).filter(id -> id != 5 && id != 6).boxed().toList();
+        assertEquals(esperados, paginados);
+        try (Stream<Produto> todos = repository.streamAll()) {
+            assertEquals(esperados, todos.map(Produto::getId).toList());
+        }
+        assertEquals("Atualizado", repository.findById(3L).get().getNome());
+        assertEquals(List.of(23L, 24L, 25L),
+                repository.findPagina(22L, 10).getItens().stream().map(Produto::getId).toList());
+        assertNull(repository.findPagina(22L, 10).getProximoCursor());
+    }
+
+    @Test
+    void testBuscasDeProdutosIntercalamAsFatiasNaOrdemDoRepositorioSimples() {
+        ProdutoRepository simples = new ProdutoRepository();
+        for (int i = 1; i <= 20; i++) {
+            Produto produto = new Produto(i % 3 == 0 ? "Caneta " + i : "Estojo com caneta " + i,
+                    (double) (i * 7 % 10) + 1, 1);
+            simples.save(produto);
+            repository.save(produto);
+        }
+
+        assertEquals(simples.findByNome("caneta", 100), repository.findByNome("caneta", 100));
+        assertEquals(simples.findByNome("caneta", 8), repository.findByNome("caneta", 8));
+        assertEquals(simples.findByPrecoBetween(3.0, 7.0, 100), repository.findByPrecoBetween(3.0, 7.0, 100));
+        assertEquals(simples.findMaisBaratos(5), repository.findMaisBaratos(5));
+        assertEquals(List.of(1.0, 1.0, 2.0, 2.0, 3.0),
+                repository.findMaisBaratos(5).stream().map(Produto::getPreco).toList());
+        assertTrue(repository.findByNome(" ", 10).isEmpty());
+    }
+
+    @Test
+    void testBuscasDePedidosIntercalamAsFatias() {
+        ShardedPedidoRepository pedidos = new ShardedPedidoRepository(3);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 10, 0);
+        List<Pedido> lote = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Pedido pedido = pedido(i % 2 == 0 ? "Ana" : "Bruno");
+            // Datas em ordem inversa à dos IDs
+            pedido.setDataCriacao(base.minusDays(i));
+            lote.add(pedido);
+        }
+        List<Pedido> salvos = pedidos.saveAll(lote);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), salvos.stream().map(Pedido::getId).toList());
+        assertEquals(List.of(1L, 3L, 5L), pedidos.findByCliente("ana").stream().map(Pedido::getId).toList());
+        assertEquals(List.of(5L, 4L, 3L, 2L), pedidos.findByDataCriacaoBetween(base.minusDays(4), base.minusDays(1))
+                .stream().map(Pedido::getId).toList());
+        assertEquals(6, pedidos.findByDataCriacaoBetween(null, null).size());
+    }
+
+    @Test
+    void testDeleteAllReiniciaIdsERecuperaDeFatiasPreenchidas() {
+        List<EntityStore<Produto>> stores = List.of(new ConcurrentLongHashMap<>(), new ConcurrentLongHashMap<>(),
+                new ConcurrentLongHashMap<>());
+        ShardedProdutoRepository original =
+                new ShardedProdutoRepository(ShardedProdutoRepository.criarFatias(3, stores::get), 1);
+        original.saveAll(List.of(new Produto("A", 1.0, 1), new Produto("B", 1.0, 1)));
+        original.save(new Produto(40L, "Explícito", 1.0, 1));
+
+        // Reabre sobre os mesmos armazenamentos, como na inicialização
+        ShardedProdutoRepository reaberto =
+                new ShardedProdutoRepository(ShardedProdutoRepository.criarFatias(3, stores::get), 0);
+        assertEquals(List.of(1L, 2L, 40L), reaberto.findAll().stream().map(Produto::getId).toList());
+        assertEquals(41L, reaberto.proximoId());
+        assertEquals(90L,
+                new ShardedProdutoRepository(ShardedProdutoRepository.criarFatias(3, stores::get), 90).proximoId());
+
+        reaberto.deleteAll();
+        assertTrue(reaberto.findAll().isEmpty());
+        assertEquals(1L, reaberto.save(new Produto("C", 1.0, 1)).getId());
+    }
+
+    @Test
+    void testEscritasConcorrentesNaoRepetemIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futuros.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (i % 10 == 0) {
+                        repository.saveAll(List.of(new Produto("L", 1.0, 1), new Produto("L", 1.0, 1)));
+                    } else {
+                        repository.save(new Produto("S", 1.0, 1));
+                    }
+                }
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+
+        List<Produto> todos = repository.findAll();
+        Set<Long> ids = new HashSet<>();
+        todos.forEach(produto -> ids.add(produto.getId()));
+        assertEquals(880, todos.size());
+        assertEquals(880, ids.size());
+        assertTrue(repository.proximoId() > ids.stream().mapToLong(Long::longValue).max().orElseThrow());
+    }
+
+    @Test
+    void testDeleteAllConcorrenteNuncaDeixaIdsRepetidos() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            futuros.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    repository.save(new Produto("S", 1.0, 1));
+                }
+            }));
+        }
+        futuros.add(executor.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                repository.deleteAll();
+            }
+        }));
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+
+        // Um ID tirado antes de um deleteAll e gravado depois dele seria repetido por um save seguinte
+        long proximo = repository.proximoId();
+        for (Produto produto : repository.findAll()) {
+            assertTrue(produto.getId() < proximo, "ID " + produto.getId() + " acima da marca " + proximo);
+        }
+        Produto novo = repository.save(new Produto("Novo", 1.0, 1));
+        assertEquals(1, repository.findAll().stream().filter(produto -> produto.getId().equals(novo.getId())).count());
+    }
+}
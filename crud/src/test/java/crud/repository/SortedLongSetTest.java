@@ -0,0 +1,130 @@
+package crud.repository;
+
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.constraints.LongRange;
+import net.jqwik.api.constraints.Size;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLongSetTest {
+    private final SortedLongSet conjunto = new SortedLongSet();
+
+    @Test
+    void testAposPaginaPorVariosBlocos() {
+        for (long valor = 3000; valor >= 1; valor--) {
+            assertTrue(conjunto.adicionar(valor));
+        }
+        assertFalse(conjunto.adicionar(10L));
+        assertEquals(3000, conjunto.tamanho());
+
+        assertArrayEquals(new long[]{1, 2, 3}, conjunto.apos(Long.MIN_VALUE, 3));
+        long[] pagina = conjunto.apos(500, 1000);
+        assertEquals(1000, pagina.length);
+        assertEquals(501, pagina[0]);
+        assertEquals(1500, pagina[999]);
+        assertArrayEquals(new long[]{2999, 3000}, conjunto.apos(2998, 10));
+        assertEquals(0, conjunto.apos(3000, 10).length);
+        assertEquals(0, conjunto.apos(Long.MAX_VALUE, 10).length);
+        assertEquals(0, conjunto.apos(0, 0).length);
+    }
+
+    @Test
+    void testEntreMinimoEMaximo() {
+        assertEquals(Long.MIN_VALUE, conjunto.maximo());
+        assertEquals(Long.MAX_VALUE, conjunto.minimo());
+        for (long valor = 2; valor <= 2000; valor += 2) {
+            conjunto.adicionar(valor);
+        }
+
+        assertArrayEquals(new long[]{4, 6}, conjunto.entre(2, 7, 10));
+        assertArrayEquals(new long[]{1000, 1002}, conjunto.entre(999, 1002, 10));
+        assertEquals(600, conjunto.entre(0, 1200, 1000).length);
+        assertEquals(0, conjunto.entre(5, 5, 10).length);
+        assertEquals(2, conjunto.minimo());
+        assertEquals(2000, conjunto.maximo());
+    }
+
+    @Test
+    void testRemoverELimpar() {
+        conjunto.adicionar(1L);
+        conjunto.adicionar(2L);
+        conjunto.adicionar(3L);
+
+        assertTrue(conjunto.remover(2L));
+        assertFalse(conjunto.remover(2L));
+        assertFalse(conjunto.remover(99L));
+        assertArrayEquals(new long[]{1, 3}, conjunto.apos(0, 10));
+
+        conjunto.limpar();
+        assertEquals(0, conjunto.tamanho());
+        assertEquals(0, conjunto.apos(Long.MIN_VALUE, 10).length);
+        assertFalse(conjunto.remover(1L));
+    }
+
+    @Property(tries = 50)
+    void testEquivaleATreeSet(
+            @ForAll @Size(max = 3000) List<@LongRange(min = -2000, max = 2000) Long> operacoes,
+            @ForAll @LongRange(min = -2100, max = 2100) long cursor) {
+        SortedLongSet testado = new SortedLongSet();
+        TreeSet<Long> esperado = new TreeSet<>();
+        for (long valor : operacoes) {
+            // Valores pares adicionam e ímpares removem o vizinho par
+            if (valor % 2 == 0) {
+                assertEquals(esperado.add(valor), testado.adicionar(valor));
+            } else {
+                assertEquals(esperado.remove(valor - 1), testado.remover(valor - 1));
+            }
+        }
+
+        assertEquals(esperado.size(), testado.tamanho());
+        long[] esperados = esperado.tailSet(cursor, false).stream().limit(700).mapToLong(Long::longValue).toArray();
+        assertArrayEquals(esperados, testado.apos(cursor, 700));
+    }
+
+    @Test
+    void testEscritasConcorrentesEnquantoPagina() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<?>> escritores = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long base = t * 10_000L;
+                escritores.add(executor.submit(() -> {
+                    for (long valor = base + 1; valor <= base + 5000; valor++) {
+                        assertTrue(conjunto.adicionar(valor));
+                        if (valor % 5 == 0) {
+                            assertTrue(conjunto.remover(valor));
+                        }
+                    }
+                }));
+            }
+            Future<?> leitor = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    long[] pagina = conjunto.apos(Long.MIN_VALUE, 500);
+                    for (int j = 1; j < pagina.length; j++) {
+                        assertTrue(pagina[j - 1] < pagina[j]);
+                    }
+                }
+            });
+            for (Future<?> escritor : escritores) {
+                escritor.get();
+            }
+            leitor.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(16_000, conjunto.tamanho());
+        assertEquals(16_000, conjunto.apos(Long.MIN_VALUE, 20_000).length);
+        assertEquals(1, conjunto.minimo());
+        assertEquals(34_999, conjunto.maximo());
+    }
+}
@@ -0,0 +1,108 @@
+package crud.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLongHashMapTest {
+
+    @Test
+    void testNumeroDeFaixasArredondadoParaPotenciaDeDois() {
+        assertEquals(1, new StripedLongHashMap<String>(1).numeroDeFaixas());
+        assertEquals(8, new StripedLongHashMap<String>(5).numeroDeFaixas());
+        assertEquals(16, new StripedLongHashMap<String>(16).numeroDeFaixas());
+    }
+
+    @Test
+    void testNumeroDeFaixasInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedLongHashMap<String>(0));
+    }
+
+    @Test
+    void testOperacoesBasicas() {
+        StripedLongHashMap<String> mapa = new StripedLongHashMap<>(4);
+        assertNull(mapa.put(1L, "a"));
+        assertEquals("a", mapa.put(1L, "b"));
+        mapa.put(2L, "c");
+
+        assertEquals("b", mapa.get(1L));
+        assertTrue(mapa.containsKey(2L));
+        assertEquals(2, mapa.size());
+        assertEquals("c", mapa.remove(2L));
+        assertNull(mapa.remove(2L));
+        assertEquals(1, mapa.size());
+
+        mapa.clear();
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    void testValuesMantemOrdemGlobalDeInsercao() {
+        StripedLongHashMap<Long> mapa = new StripedLongHashMap<>(8);
+        List<Long> esperado = new ArrayList<>();
+        for (long i = 500; i > 0; i--) {
+            mapa.put(i * 7919, i);
+            esperado.add(i);
+        }
+        // Atualização mantém a posição; remoção seguida de reinserção vai para o fim
+        mapa.put(500L * 7919, 500L);
+        mapa.remove(250L * 7919);
+        mapa.put(250L * 7919, 250L);
+        esperado.remove(Long.valueOf(250L));
+        esperado.add(250L);
+
+        assertEquals(esperado, mapa.values());
+    }
+
+    @Test
+    void testForEachPodeEscreverNoMapa() {
+        StripedLongHashMap<Long> mapa = new StripedLongHashMap<>(4);
+        for (long i = 0; i < 10; i++) {
+            mapa.put(i, i);
+        }
+
+        mapa.forEach((chave, valor) -> mapa.remove(chave));
+
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    void testEscritasConcorrentesNaoPerdemDados() throws Exception {
+        StripedLongHashMap<Long> mapa = new StripedLongHashMap<>(16);
+        int threads = 8;
+        int porThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * porThread;
+                tarefas.add(executor.submit(() -> {
+                    for (long i = base; i < base + porThread; i++) {
+                        mapa.put(i, i);
+                        if (i % 1_000 == 0) {
+                            // Fotografias concorrentes nunca veem entradas repetidas
+                            List<Long> valores = mapa.values();
+                            assertEquals(valores.size(), valores.stream().distinct().count());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * porThread, mapa.size());
+        for (long i = 0; i < threads * porThread; i++) {
+            assertEquals(i, mapa.get(i));
+        }
+    }
+}
@@ -10,6 +10,7 @@ import crud.repository.ProdutoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -191,6 +192,55 @@ class PedidoServiceTest {
         assertEquals(60.0, pedidoAtualizado.getTotal());
     }
 
+    @Test
+    void testBuscarPorClienteAposAtualizarCliente() {
+        Produto produto = produtoRepository.save(new Produto("Produto", 10.0, 100));
+        Pedido pedido = pedidoService.criarPedido("Cliente Original", List.of(new ItemPedido(produto, 1)));
+
+        pedidoService.atualizarPedido(pedido.getId(), "Cliente Novo", List.of(new ItemPedido(produto, 2)));
+
+        assertTrue(pedidoService.buscarPorCliente("cliente original").isEmpty());
+        assertEquals(1, pedidoService.buscarPorCliente("Cliente Novo").size());
+    }
+
+    @Test
+    void testBuscarPorClienteVazio() {
+        ValidacaoException exception = assertThrows(ValidacaoException.class,
+                () -> pedidoService.buscarPorCliente("  "));
+        assertEquals("O nome do cliente é obrigatório.", exception.getMessage());
+        assertThrows(ValidacaoException.class, () -> pedidoService.buscarPorCliente(null));
+    }
+
+    @Test
+    void testBuscarPorPeriodo() {
+        Produto produto = produtoRepository.save(new Produto("Produto", 10.0, 100));
+        Pedido pedido = pedidoService.criarPedido("Cliente", List.of(new ItemPedido(produto, 1)));
+        LocalDateTime criacao = pedido.getDataCriacao();
+
+        assertEquals(List.of(pedido), pedidoService.buscarPorPeriodo(criacao.minusMinutes(1), criacao));
+        assertTrue(pedidoService.buscarPorPeriodo(criacao.plusNanos(1), null).isEmpty());
+    }
+
+    @Test
+    void testBuscarPaginaValidaLimite() {
+        pedidoRepository.save(new Pedido("Ana"));
+        pedidoRepository.save(new Pedido("Bia"));
+
+        assertEquals(1, pedidoService.buscarPagina(null, 1).getItens().size());
+        assertEquals(2, pedidoService.buscarPagina(null, Integer.MAX_VALUE).getItens().size());
+        ValidacaoException exception = assertThrows(ValidacaoException.class,
+                () -> pedidoService.buscarPagina(null, 0));
+        assertEquals("O limite deve ser maior que zero.", exception.getMessage());
+    }
+
+    @Test
+    void testBuscarPorPeriodoInvertido() {
+        LocalDateTime agora = LocalDateTime.now();
+        ValidacaoException exception = assertThrows(ValidacaoException.class,
+                () -> pedidoService.buscarPorPeriodo(agora, agora.minusDays(1)));
+        assertEquals("A data inicial não pode ser posterior à data final.", exception.getMessage());
+    }
+
     @Test
     void testAtualizarPedidoComMetodoInterface() {
         Produto produto1 = produtoRepository.save(new Produto("Produto 1", 10.0, 100));
@@ -243,6 +293,25 @@ class PedidoServiceTest {
         });
     }
 
+    @Test
+    void testAtualizarGravaSubstitutoSemAlterarOPedidoExistente() {
+        Produto produto1 = produtoRepository.save(new Produto("Produto 1", 10.0, 100));
+        Produto produto2 = produtoRepository.save(new Produto("Produto 2", 20.0, 100));
+        Pedido pedido = pedidoService.criarPedido("Cliente", List.of(new ItemPedido(produto1, 2)));
+        Pedido existente = pedidoRepository.findById(pedido.getId()).orElseThrow();
+
+        assertThrows(ValidacaoException.class,
+                () -> pedidoService.atualizar(pedido.getId(), new Pedido("Sem Itens")));
+        Pedido atualizado = pedidoService.atualizarPedido(pedido.getId(), "Outro", List.of(new ItemPedido(produto2, 1)));
+
+        // O existente pode estar sendo serializado por um snapshot: nunca é alterado
+        assertEquals("Cliente", existente.getCliente());
+        assertEquals(20.0, existente.getTotal());
+        assertNotSame(existente, atualizado);
+        assertEquals(existente.getDataCriacao(), atualizado.getDataCriacao());
+        assertSame(atualizado, pedidoRepository.findById(pedido.getId()).orElseThrow());
+    }
+
     @Test
     void testDeletarPedido() {
         Produto produto = produtoRepository.save(new Produto("Produto", 10.0, 100));
@@ -312,5 +381,67 @@ class PedidoServiceTest {
             pedidoService.criar(pedido);
         });
     }
+
+    @Test
+    void testSalvarLote_CriaAtualizaERejeitaPorItem() {
+        Produto produto = produtoRepository.save(new Produto("Produto Teste", 10.0, 100));
+        Pedido existente = pedidoService.criarPedido("Ana", List.of(new ItemPedido(produto, 1)));
+        LocalDateTime criadoEm = existente.getDataCriacao();
+
+        Pedido novo = new Pedido("Bruno");
+        novo.adicionarItem(new ItemPedido(produto, 2));
+        Pedido atualizacao = new Pedido("Ana Maria");
+        atualizacao.setId(existente.getId());
+        atualizacao.adicionarItem(new ItemPedido(produto, 5));
+        Pedido semItens = new Pedido("Carla");
+        Pedido invalidoComId = new Pedido("");
+        invalidoComId.setId(existente.getId());
+        Pedido inexistente = new Pedido("Davi");
+        inexistente.setId(999L);
+
+        List<ResultadoDeItem<Pedido>> resultados = pedidoService.salvarLote(
+                List.of(novo, atualizacao, semItens, invalidoComId, inexistente));
+
+        assertEquals(List.of(201, 200, 400, 400, 404), resultados.stream().map(ResultadoDeItem::getStatus).toList());
+        assertEquals("Um pedido deve ter pelo menos um item.", resultados.get(2).getMessage());
+        assertEquals("Pedido com ID 999 não encontrado.", resultados.get(4).getMessage());
+        Pedido salvo = pedidoService.buscarPorId(existente.getId());
+        assertEquals("Ana Maria", salvo.getCliente());
+        assertEquals(5, salvo.getItens().get(0).getQuantidade());
+        assertEquals(criadoEm, salvo.getDataCriacao());
+        assertEquals(2, pedidoService.buscarTodos().size());
+    }
+
+    @Test
+    void testDeletarLote() {
+        Produto produto = produtoRepository.save(new Produto("Produto Teste", 10.0, 100));
+        Pedido a = pedidoService.criarPedido("A", List.of(new ItemPedido(produto, 1)));
+        Pedido b = pedidoService.criarPedido("B", List.of(new ItemPedido(produto, 1)));
+
+        List<ResultadoDeItem<Long>> resultados = pedidoService.deletarLote(List.of(b.getId(), 999L));
+
+        assertEquals(List.of(200, 404), resultados.stream().map(ResultadoDeItem::getStatus).toList());
+        assertEquals(List.of(a.getId()), pedidoService.buscarTodos().stream().map(Pedido::getId).toList());
+        assertThrows(ValidacaoException.class, () -> pedidoService.deletarLote(List.of()));
+    }
+
+    @Test
+    void testRelatorioDeEstoque() {
+        Produto caneta = produtoRepository.save(new Produto("Caneta", 2.0, 10));
+        Produto lapis = produtoRepository.save(new Produto("Lápis", 1.0, 1));
+        Produto borracha = produtoRepository.save(new Produto("Borracha", 1.0, 5));
+        pedidoService.criarPedido("Ana", List.of(new ItemPedido(caneta, 3), new ItemPedido(lapis, 2)));
+        pedidoService.criarPedido("Bia", List.of(new ItemPedido(caneta, 4)));
+
+        List<EstoqueComprometido> relatorio = pedidoService.relatorioDeEstoque();
+
+        assertEquals(List.of(caneta.getId(), lapis.getId(), borracha.getId()),
+                relatorio.stream().map(EstoqueComprometido::getProdutoId).toList());
+        assertEquals(7, relatorio.get(0).getComprometido());
+        assertEquals(3, relatorio.get(0).getDisponivel());
+        assertEquals(-1, relatorio.get(1).getDisponivel());
+        assertEquals("Borracha", relatorio.get(2).getNome());
+        assertEquals(0, relatorio.get(2).getComprometido());
+    }
 }
 
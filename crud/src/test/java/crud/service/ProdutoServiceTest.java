@@ -3,6 +3,7 @@ package crud.service;
 import crud.exception.ProdutoNaoEncontradoException;
 import crud.exception.ValidacaoException;
 import crud.model.Produto;
+import crud.repository.Pagina;
 import crud.repository.ProdutoRepository;
 import net.jqwik.api.*;
 import net.jqwik.api.constraints.DoubleRange;
@@ -12,6 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -50,6 +53,77 @@ class ProdutoServiceTest {
         assertEquals(2, produtos.size());
     }
 
+    @Test
+    void testBuscarPorNome() {
+        Produto teclado = service.criarProduto("Teclado Mecânico", 250.0, 5);
+        Produto mouse = service.criarProduto("Mouse sem fio", 80.0, 10);
+        Produto suporte = service.criarProduto("Suporte para teclado", 40.0, 3);
+
+        assertEquals(List.of(teclado, suporte), service.buscarPorNome("TECLADO"));
+        assertEquals(List.of(teclado), service.buscarPorNome("mecanico"));
+        assertEquals(List.of(mouse), service.buscarPorNome("mou"));
+        assertTrue(service.buscarPorNome("monitor").isEmpty());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"''", "'   '"})
+    void testBuscarPorNome_TermoEmBranco(String termo) {
+        ValidacaoException exception = assertThrows(ValidacaoException.class, () ->
+                service.buscarPorNome(termo));
+        assertEquals("O termo de busca é obrigatório.", exception.getMessage());
+    }
+
+    @Test
+    void testBuscarPorNome_TermoNulo() {
+        assertThrows(ValidacaoException.class, () -> service.buscarPorNome(null));
+    }
+
+    @Test
+    void testBuscarPorFaixaDePreco() {
+        Produto a = service.criarProduto("A", 30.0, 1);
+        Produto b = service.criarProduto("B", 10.0, 1);
+        Produto c = service.criarProduto("C", 20.0, 1);
+
+        assertEquals(List.of(b, c), service.buscarPorFaixaDePreco(10.0, 20.0));
+        assertEquals(List.of(c, a), service.buscarPorFaixaDePreco(15.0, null));
+        assertEquals(List.of(b), service.buscarPorFaixaDePreco(null, 15.0));
+        assertEquals(List.of(c), service.buscarPorFaixaDePreco(15.0, null, 1));
+    }
+
+    @Test
+    void testBuscarPorFaixaDePreco_MinimoMaiorQueMaximo() {
+        ValidacaoException exception = assertThrows(ValidacaoException.class, () ->
+                service.buscarPorFaixaDePreco(50.0, 10.0));
+        assertEquals("O preço mínimo não pode ser maior que o preço máximo.", exception.getMessage());
+    }
+
+    @Test
+    void testBuscarMaisBaratos() {
+        service.criarProduto("A", 30.0, 1);
+        Produto b = service.criarProduto("B", 10.0, 1);
+        Produto c = service.criarProduto("C", 20.0, 1);
+
+        assertEquals(List.of(b, c), service.buscarMaisBaratos(2));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0", "-1"})
+    void testBuscarMaisBaratos_QuantidadeInvalida(int quantidade) {
+        assertThrows(ValidacaoException.class, () -> service.buscarMaisBaratos(quantidade));
+        assertThrows(ValidacaoException.class, () -> service.buscarPorFaixaDePreco(null, null, quantidade));
+    }
+
+    @Test
+    void testBuscarPagina() {
+        Produto a = service.criarProduto("A", 30.0, 1);
+        Produto b = service.criarProduto("B", 10.0, 1);
+
+        Pagina<Produto, Long> pagina = service.buscarPagina(null, 1);
+        assertEquals(List.of(a), pagina.getItens());
+        assertEquals(List.of(b), service.buscarPagina(pagina.getProximoCursor(), 1).getItens());
+        assertThrows(ValidacaoException.class, () -> service.buscarPagina(null, -1));
+    }
+
     @Test
     void testBuscarPorId_Existente() {
         Produto p1 = service.criarProduto("P1", 10.0, 1);
@@ -188,4 +262,46 @@ class ProdutoServiceTest {
     Arbitrary<String> nomesInvalidos() {
         return Arbitraries.of("", " ", "   ");
     }
+
+    @Test
+    void testSalvarLote_ResultadoPorItem() {
+        Produto existente = service.criarProduto("Existente", 10.0, 1);
+
+        List<ResultadoDeItem<Produto>> resultados = service.salvarLote(Arrays.asList(
+                new Produto("Novo", 20.0, 2),
+                new Produto(existente.getId(), "Atualizado", 15.0, 3),
+                new Produto("", 5.0, 1),
+                new Produto(999L, "Fantasma", 5.0, 1),
+                null));
+
+        assertEquals(List.of(0, 1, 2, 3, 4), resultados.stream().map(ResultadoDeItem::getIndice).toList());
+        assertEquals(List.of(201, 200, 400, 404, 400), resultados.stream().map(ResultadoDeItem::getStatus).toList());
+        assertEquals("Novo", resultados.get(0).getItem().getNome());
+        assertNotNull(resultados.get(0).getItem().getId());
+        assertEquals("O nome do produto é obrigatório.", resultados.get(2).getMessage());
+        assertEquals("Produto com ID 999 não encontrado.", resultados.get(3).getMessage());
+        assertEquals("Atualizado", service.buscarPorId(existente.getId()).getNome());
+        assertEquals(2, service.buscarTodos().size());
+    }
+
+    @Test
+    void testDeletarLote_ResultadoPorId() {
+        Produto a = service.criarProduto("A", 10.0, 1);
+        Produto b = service.criarProduto("B", 10.0, 1);
+
+        List<ResultadoDeItem<Long>> resultados = service.deletarLote(Arrays.asList(a.getId(), 999L, null, a.getId()));
+
+        assertEquals(List.of(200, 404, 400, 404), resultados.stream().map(ResultadoDeItem::getStatus).toList());
+        assertEquals(a.getId(), resultados.get(0).getItem());
+        assertEquals(List.of(b.getId()), service.buscarTodos().stream().map(Produto::getId).toList());
+    }
+
+    @Test
+    void testLote_VazioOuGrandeDemais() {
+        ValidacaoException vazio = assertThrows(ValidacaoException.class, () -> service.salvarLote(List.of()));
+        assertEquals("O lote deve ter pelo menos um item.", vazio.getMessage());
+        assertThrows(ValidacaoException.class, () -> service.deletarLote(null));
+        List<Long> grande = Collections.nCopies(Service.LIMITE_MAXIMO_DE_LOTE + 1, 1L);
+        assertThrows(ValidacaoException.class, () -> service.deletarLote(grande));
+    }
 }
\ No newline at end of file